@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.sync.util.CloningStrategy;
+import org.springframework.sync.util.FieldCopyingCloningStrategy;
+import org.springframework.sync.util.JacksonCloningStrategy;
+import org.springframework.sync.util.SerializationCloningStrategy;
+
+/**
+ * Measures the {@link CloningStrategy} implementations, which every patch application and every new shadow goes
+ * through.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DeepCloneBenchmark {
+
+  @Param({ "10", "1000", "10000" })
+  private int size;
+
+  @Param({ "fields", "serialization", "jackson" })
+  private String strategyName;
+
+  private CloningStrategy strategy;
+
+  private Todo todo;
+
+  private List<Todo> todos;
+
+  private TreeNode tree;
+
+  @Setup
+  public void setUp() {
+    switch (strategyName) {
+      case "serialization" -> strategy = new SerializationCloningStrategy();
+      case "jackson" -> strategy = new JacksonCloningStrategy();
+      default -> strategy = new FieldCopyingCloningStrategy();
+    }
+    todo = new Todo(1L, "A", false);
+    todos = Fixtures.todos(size);
+    tree = Fixtures.tree(4, 4);
+  }
+
+  @Benchmark
+  public Todo entity() {
+    return strategy.deepClone(todo);
+  }
+
+  @Benchmark
+  public List<Todo> list() {
+    return strategy.deepClone(todos);
+  }
+
+  @Benchmark
+  public TreeNode graph() {
+    return strategy.deepClone(tree);
+  }
+
+}
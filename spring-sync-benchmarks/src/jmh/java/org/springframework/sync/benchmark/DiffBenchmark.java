@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.sync.Diff;
+import org.springframework.sync.Patch;
+
+/**
+ * Measures {@link Diff#diff(Object, Object)} on lists of growing size and on deeply nested object graphs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DiffBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Lists {
+
+    @Param({ "10", "1000", "100000" })
+    private int size;
+
+    private List<Todo> original;
+
+    private List<Todo> modified;
+
+    @Setup
+    public void setUp() {
+      original = Fixtures.todos(size);
+      modified = Fixtures.completeEveryTenth(Fixtures.todos(size));
+    }
+
+  }
+
+  @State(Scope.Benchmark)
+  public static class Graphs {
+
+    @Param({ "2", "4", "6" })
+    private int depth;
+
+    private TreeNode original;
+
+    private TreeNode modified;
+
+    @Setup
+    public void setUp() {
+      original = Fixtures.tree(depth, 4);
+      modified = Fixtures.renameLastLeaf(Fixtures.tree(depth, 4));
+    }
+
+  }
+
+  @Benchmark
+  public Patch list(Lists lists) {
+    return Diff.diff(lists.original, lists.modified);
+  }
+
+  @Benchmark
+  public Patch graph(Graphs graphs) {
+    return Diff.diff(graphs.original, graphs.modified);
+  }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.sync.CompiledDiffEngine;
+import org.springframework.sync.Diff;
+import org.springframework.sync.DiffEngine;
+import org.springframework.sync.Patch;
+
+/**
+ * Compares the reflective {@link Diff} with the {@link CompiledDiffEngine} on single entities, lists of entities and
+ * an object holding a list and an array of entities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DiffEngineBenchmark {
+
+  @Param({ "10", "1000" })
+  private int size;
+
+  private final DiffEngine compiledEngine = new CompiledDiffEngine();
+
+  private Todo originalTodo;
+
+  private Todo modifiedTodo;
+
+  private List<Todo> originalList;
+
+  private List<Todo> modifiedList;
+
+  private TodoList originalTodoList;
+
+  private TodoList modifiedTodoList;
+
+  @Setup
+  public void setUp() {
+    originalTodo = new Todo(1L, "A", false);
+    modifiedTodo = new Todo(1L, "B", true);
+
+    originalList = Fixtures.todos(size);
+    modifiedList = Fixtures.completeEveryTenth(Fixtures.todos(size));
+
+    originalTodoList = buildTodoList("Work", originalList);
+    modifiedTodoList = buildTodoList("Home", modifiedList);
+  }
+
+  @Benchmark
+  public Patch reflectiveEntity() {
+    return Diff.diff(originalTodo, modifiedTodo);
+  }
+
+  @Benchmark
+  public Patch compiledEntity() {
+    return compiledEngine.diff(originalTodo, modifiedTodo);
+  }
+
+  @Benchmark
+  public Patch reflectiveList() {
+    return Diff.diff(originalList, modifiedList);
+  }
+
+  @Benchmark
+  public Patch compiledList() {
+    return compiledEngine.diff(originalList, modifiedList);
+  }
+
+  @Benchmark
+  public Patch reflectiveTodoList() {
+    return Diff.diff(originalTodoList, modifiedTodoList);
+  }
+
+  @Benchmark
+  public Patch compiledTodoList() {
+    return compiledEngine.diff(originalTodoList, modifiedTodoList);
+  }
+
+  // private helpers
+
+  private static TodoList buildTodoList(String name, List<Todo> todos) {
+    TodoList todoList = new TodoList();
+    todoList.setName(name);
+    todoList.setTodos(todos);
+    todoList.setTodoArray(todos.toArray(new Todo[0]));
+    return todoList;
+  }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.sync.CompiledDiffEngine;
+import org.springframework.sync.DiffEngine;
+import org.springframework.sync.DiffOptions;
+import org.springframework.sync.Patch;
+import org.springframework.sync.json.JsonPatchStreamingCodec;
+
+/**
+ * Compares the {@link DiffOptions.TestLevel test levels} of difference patches: the time to produce a patch, to write
+ * it as JSON Patch and to apply it, on a list that had every tenth todo completed and every fiftieth removed. The
+ * payload of each level is reported by the {@code operations} and {@code bytes} counters of {@link #write(Payload)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DiffOptionsBenchmark {
+
+  @Param({ "1000" })
+  private int size;
+
+  @Param({ "NONE", "REMOVES_ONLY", "ALL" })
+  private DiffOptions.TestLevel tests;
+
+  private final JsonPatchStreamingCodec codec = new JsonPatchStreamingCodec();
+
+  private DiffEngine engine;
+
+  private List<Todo> original;
+
+  private List<Todo> modified;
+
+  private Patch patch;
+
+  /**
+   * The size of the patch, counted once per iteration so that the counters read as the size itself.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Payload {
+
+    public long operations;
+
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void setUp(DiffOptionsBenchmark benchmark) throws IOException {
+      operations = benchmark.patch.size();
+      bytes = benchmark.write(null).length;
+    }
+
+  }
+
+  @Setup
+  public void setUp() {
+    engine = new CompiledDiffEngine(null, false, DiffOptions.withTests(tests));
+    original = Fixtures.todos(size);
+    modified = Fixtures.completeEveryTenth(Fixtures.todos(size));
+    for (int i = modified.size() - 1; i >= 0; i -= 50) {
+      modified.remove(i);
+    }
+    patch = engine.diff(original, modified);
+  }
+
+  @Benchmark
+  public Patch diff() {
+    return engine.diff(original, modified);
+  }
+
+  @Benchmark
+  public byte[] write(Payload payload) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    codec.write(patch, out);
+    return out.toByteArray();
+  }
+
+  @Benchmark
+  public List<Todo> apply() {
+    return patch.apply(original, Todo.class);
+  }
+
+}
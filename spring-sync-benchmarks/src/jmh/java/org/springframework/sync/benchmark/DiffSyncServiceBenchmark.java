@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.shadowstore.MapBasedShadowStore;
+import org.springframework.shadowstore.ShadowStoreFactory;
+import org.springframework.sync.Diff;
+import org.springframework.sync.DiffSyncService;
+import org.springframework.sync.Patch;
+import org.springframework.sync.diffsync.IdPropertyEquivalency;
+import org.springframework.sync.diffsync.PersistenceCallback;
+import org.springframework.sync.diffsync.PersistenceCallbackRegistry;
+
+/**
+ * Measures a full {@link DiffSyncService#patch(String, Patch, String)} round trip against a
+ * {@link MapBasedShadowStore}: looking up the resources, applying the patch to the shadow and to the resources,
+ * persisting the changes and diffing the result against the shadow.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DiffSyncServiceBenchmark {
+
+  @Param({ "10", "1000" })
+  private int size;
+
+  private ShadowStoreFactory shadowStoreFactory;
+
+  private DiffSyncService service;
+
+  private Patch patch;
+
+  @Setup
+  public void setUp() {
+    List<Todo> todos = Fixtures.todos(size);
+    PersistenceCallbackRegistry callbackRegistry = new PersistenceCallbackRegistry();
+    callbackRegistry.addPersistenceCallback(new InMemoryTodoCallback(todos));
+    shadowStoreFactory = new ShadowStoreFactory(MapBasedShadowStore::new);
+    service = new DiffSyncService(shadowStoreFactory, new IdPropertyEquivalency(), callbackRegistry);
+    patch = Diff.diff(todos, Fixtures.completeEveryTenth(Fixtures.todos(size)));
+  }
+
+  @Benchmark
+  public Patch patchList() {
+    Patch diff = service.patch("todos", patch, "benchmark");
+    // start every invocation from an empty shadow store, as the patch only applies to the original todos
+    shadowStoreFactory.evict("benchmark");
+    return diff;
+  }
+
+  /**
+   * Serves a fixed list of todos and discards changes, so that every invocation starts from the same state.
+   */
+  private static class InMemoryTodoCallback implements PersistenceCallback<Todo> {
+
+    private final List<Todo> todos;
+
+    InMemoryTodoCallback(List<Todo> todos) {
+      this.todos = todos;
+    }
+
+    @Override
+    public List<Todo> findAll() {
+      return todos;
+    }
+
+    @Override
+    public Todo findOne(String id) {
+      return todos.get(Integer.parseInt(id));
+    }
+
+    @Override
+    public void persistChange(Todo itemToSave) {
+    }
+
+    @Override
+    public void persistChanges(List<Todo> itemsToSave, List<Todo> itemsToDelete) {
+    }
+
+    @Override
+    public Class<Todo> getEntityType() {
+      return Todo.class;
+    }
+
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the object graphs shared by the benchmarks.
+ */
+final class Fixtures {
+
+  private Fixtures() {
+  }
+
+  /**
+   * @param size the number of items
+   * @return a mutable list of incomplete todos with ids 0 to size - 1
+   */
+  static List<Todo> todos(int size) {
+    List<Todo> todos = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      todos.add(new Todo((long) i, "Todo " + i, false));
+    }
+    return todos;
+  }
+
+  /**
+   * Marks every tenth todo of a list complete, so that diffs have to walk into the changed entities.
+   *
+   * @param todos the todos to change
+   * @return the same list
+   */
+  static List<Todo> completeEveryTenth(List<Todo> todos) {
+    for (int i = 0; i < todos.size(); i += 10) {
+      todos.get(i).setComplete(true);
+    }
+    return todos;
+  }
+
+  /**
+   * @param depth   the number of levels below the root
+   * @param breadth the number of children of each node
+   * @return the root of a tree of breadth^depth leaves
+   */
+  static TreeNode tree(int depth, int breadth) {
+    return tree(new long[1], depth, breadth);
+  }
+
+  /**
+   * Renames the last leaf of a tree, so that diffs have to descend to the bottom of it.
+   *
+   * @param root the root of the tree to change
+   * @return the same root
+   */
+  static TreeNode renameLastLeaf(TreeNode root) {
+    TreeNode node = root;
+    while (!node.getChildren().isEmpty()) {
+      node = node.getChildren().get(node.getChildren().size() - 1);
+    }
+    node.setName(node.getName() + "'");
+    return root;
+  }
+
+  private static TreeNode tree(long[] ids, int depth, int breadth) {
+    long id = ids[0]++;
+    TreeNode node = new TreeNode(id, "Node " + id, (int) id);
+    if (depth > 0) {
+      for (int i = 0; i < breadth; i++) {
+        node.getChildren().add(tree(ids, depth - 1, breadth));
+      }
+    }
+    return node;
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.sync.Diff;
+import org.springframework.sync.Patch;
+import org.springframework.sync.json.JsonPatchPatchConverter;
+import org.springframework.sync.json.JsonPatchStreamingCodec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Measures {@link JsonPatchPatchConverter} in both directions, with patches of a growing number of operations, and
+ * compares reading and writing JSON Patch bytes through a tree with streaming them through a
+ * {@link JsonPatchStreamingCodec}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonPatchConverterBenchmark {
+
+  @Param({ "10", "1000", "10000" })
+  private int size;
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final JsonPatchPatchConverter converter = new JsonPatchPatchConverter();
+
+  private final JsonPatchStreamingCodec codec = new JsonPatchStreamingCodec();
+
+  private Patch patch;
+
+  private JsonNode json;
+
+  private byte[] bytes;
+
+  @Setup
+  public void setUp() {
+    // every tenth item changes, each change being a test and a replace operation
+    patch = Diff.diff(Fixtures.todos(size * 5), Fixtures.completeEveryTenth(Fixtures.todos(size * 5)));
+    json = converter.convert(patch);
+    bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public JsonNode toJson() {
+    return converter.convert(patch);
+  }
+
+  @Benchmark
+  public Patch fromJson() {
+    return converter.convert(json);
+  }
+
+  @Benchmark
+  public byte[] writeThroughTree() throws IOException {
+    return MAPPER.writeValueAsBytes(converter.convert(patch));
+  }
+
+  @Benchmark
+  public byte[] writeStreaming() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+    codec.write(patch, out);
+    return out.toByteArray();
+  }
+
+  @Benchmark
+  public Patch readThroughTree() throws IOException {
+    return converter.convert(MAPPER.readTree(bytes));
+  }
+
+  @Benchmark
+  public Patch readStreaming() throws IOException {
+    return codec.read(new ByteArrayInputStream(bytes));
+  }
+
+}
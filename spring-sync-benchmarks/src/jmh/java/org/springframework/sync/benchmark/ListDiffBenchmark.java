@@ -0,0 +1,109 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.benchmark;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.sync.CompiledDiffEngine;
+import org.springframework.sync.Diff;
+import org.springframework.sync.DiffEngine;
+import org.springframework.sync.Patch;
+import org.springframework.sync.diffsync.Equivalency;
+import org.springframework.sync.diffsync.IdPropertyEquivalency;
+
+/**
+ * Compares diffing lists by equality of their elements, through a longest common subsequence, with diffing them by
+ * identity, on lists that had elements appended, edited, swapped or moved around.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ListDiffBenchmark {
+
+  @Param({ "10000" })
+  private int size;
+
+  /**
+   * append: 1% of new todos at the end; edit: every tenth todo completed; swap: 1% of the todos swapped in pairs;
+   * shuffle: a run of 1% of the todos shuffled in the middle of the list.
+   */
+  @Param({ "append", "edit", "swap", "shuffle" })
+  private String scenario;
+
+  private final Equivalency equivalency = new IdPropertyEquivalency();
+
+  private final DiffEngine compiledKeyedEngine = new CompiledDiffEngine(equivalency);
+
+  private List<Todo> original;
+
+  private List<Todo> modified;
+
+  @Setup
+  public void setUp() {
+    original = Fixtures.todos(size);
+    modified = Fixtures.todos(size);
+    Random random = new Random(42);
+    int changes = Math.max(2, size / 100);
+    switch (scenario) {
+    case "append":
+      for (int i = 0; i < changes; i++) {
+        modified.add(new Todo((long) (size + i), "New " + i, false));
+      }
+      break;
+    case "edit":
+      Fixtures.completeEveryTenth(modified);
+      break;
+    case "swap":
+      for (int i = 0; i < changes / 2; i++) {
+        Collections.swap(modified, random.nextInt(size), random.nextInt(size));
+      }
+      break;
+    case "shuffle":
+      int from = (size - changes) / 2;
+      Collections.shuffle(modified.subList(from, from + changes), random);
+      break;
+    default:
+      throw new IllegalArgumentException("Unknown scenario " + scenario);
+    }
+  }
+
+  @Benchmark
+  public Patch byEquality() {
+    return Diff.diff(original, modified);
+  }
+
+  @Benchmark
+  public Patch byIdentity() {
+    return Diff.diff(original, modified, equivalency);
+  }
+
+  @Benchmark
+  public Patch compiledByIdentity() {
+    return compiledKeyedEngine.diff(original, modified);
+  }
+
+}
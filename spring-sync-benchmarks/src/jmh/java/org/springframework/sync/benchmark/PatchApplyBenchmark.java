@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.sync.Diff;
+import org.springframework.sync.Patch;
+
+/**
+ * Measures {@link Patch#apply(List, Class)} with a patch changing every tenth item of a list, and
+ * {@link Patch#apply(java.io.Serializable, Class)} with a patch changing the deepest leaf of an object graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PatchApplyBenchmark {
+
+  @Param({ "10", "1000", "10000" })
+  private int size;
+
+  private List<Todo> todos;
+
+  private Patch listPatch;
+
+  private TreeNode tree;
+
+  private Patch treePatch;
+
+  @Setup
+  public void setUp() {
+    todos = Fixtures.todos(size);
+    listPatch = Diff.diff(todos, Fixtures.completeEveryTenth(Fixtures.todos(size)));
+
+    tree = Fixtures.tree(4, 4);
+    treePatch = Diff.diff(tree, Fixtures.renameLastLeaf(Fixtures.tree(4, 4)));
+  }
+
+  @Benchmark
+  public List<Todo> list() {
+    return listPatch.apply(todos, Todo.class);
+  }
+
+  @Benchmark
+  public TreeNode graph() {
+    return treePatch.apply(tree, TreeNode.class);
+  }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.shadowstore.ConcurrentShadowStore;
+import org.springframework.sync.CompiledDiffEngine;
+import org.springframework.sync.Diff;
+import org.springframework.sync.DiffEngine;
+import org.springframework.sync.Patch;
+import org.springframework.sync.diffsync.DiffSync;
+import org.springframework.sync.diffsync.IdPropertyEquivalency;
+import org.springframework.sync.util.CloningStrategy;
+import org.springframework.sync.util.FieldCopyingCloningStrategy;
+
+/**
+ * Measures a synchronization round on a list with a stored shadow, where the patch completes every tenth todo and
+ * the result is diffed against the shadow. Run with the gc profiler, the allocation per round of {@link DiffSync},
+ * which copies only the todos the patch changes, compares with that of copying the shadow and the todos whole at
+ * every step, as {@link Patch#apply(List, Class, CloningStrategy)} does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SyncRoundBenchmark {
+
+  @Param({ "100", "10000" })
+  private int size;
+
+  private final CloningStrategy cloningStrategy = new FieldCopyingCloningStrategy();
+
+  private final DiffEngine diffEngine = new CompiledDiffEngine();
+
+  private List<Todo> todos;
+
+  private Patch patch;
+
+  private DiffSync<Todo> sync;
+
+  private List<Todo> shadow;
+
+  @Setup
+  public void setUp() {
+    todos = Fixtures.todos(size);
+    // replaces without tests, so that the patch applies again to the shadow it produced
+    patch = new Patch(Diff.diff(todos, Fixtures.completeEveryTenth(Fixtures.todos(size))).getOperations()
+        .stream().filter(operation -> !operation.getOp().equals("test")).toList());
+    sync = new DiffSync<>(new ConcurrentShadowStore("benchmark"), Todo.class, diffEngine, cloningStrategy,
+        new IdPropertyEquivalency());
+    sync.diff(sync.apply(todos, patch));
+    shadow = patch.apply(todos, Todo.class, cloningStrategy);
+  }
+
+  @Benchmark
+  public Patch diffSyncRound() {
+    return sync.diff(sync.apply(todos, patch));
+  }
+
+  @Benchmark
+  public List<Todo> fullCopyRound() {
+    List<Todo> patchedShadow = patch.apply(shadow, Todo.class, cloningStrategy);
+    List<Todo> patched = patch.apply(cloningStrategy.deepClone(todos), Todo.class, cloningStrategy);
+    Patch diff = diffEngine.diff(patchedShadow, patched);
+    return diff.apply(patchedShadow, Todo.class, cloningStrategy);
+  }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.sync.Patch;
+import org.springframework.sync.operations.PatchOperation;
+import org.springframework.sync.operations.TestOperation;
+import org.springframework.sync.operations.Tolerance;
+
+/**
+ * Measures applying patches made of tests only, one per todo of a list: of its id, of its id as an int, which is
+ * compared with the long field by value, of its description or of a double within a tolerance. Run with the gc
+ * profiler, the allocation rate shows what the comparisons cost beyond reading the values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TestOperationBenchmark {
+
+  @Param({ "1000" })
+  private int size;
+
+  @Param({ "long", "int", "string", "double" })
+  private String value;
+
+  private List<Todo> todos;
+
+  private List<Double> doubles;
+
+  private Patch patch;
+
+  @Setup
+  public void setUp() {
+    todos = Fixtures.todos(size);
+    doubles = new ArrayList<>(size);
+    List<PatchOperation> operations = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      doubles.add(i * 0.1);
+      switch (value) {
+      case "long":
+        operations.add(new TestOperation("/" + i + "/id", (long) i));
+        break;
+      case "int":
+        operations.add(new TestOperation("/" + i + "/id", i));
+        break;
+      case "string":
+        operations.add(new TestOperation("/" + i + "/description", "Todo " + i));
+        break;
+      case "double":
+        // computed differently than the values tested, so that some of them are an ulp off
+        operations.add(new TestOperation("/" + i, i / 10.0, Tolerance.ulps(2)));
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown value " + value);
+      }
+    }
+    patch = new Patch(operations);
+  }
+
+  @Benchmark
+  public Object apply() {
+    return "double".equals(value) ? patch.apply(doubles, Double.class) : patch.apply(todos, Todo.class);
+  }
+
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.shadowstore;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * <p>Implementation of {@link ShadowStore} that keeps shadows in memory and is safe to share between concurrent
+ * requests.</p>
+ *
+ * <p>Shadows are spread over a fixed number of segments by key, each guarded by its own lock, so that requests working
+ * on different shadows rarely contend. {@link #replaceShadow(String, Shadow, Shadow, String, Shadow)} replaces a shadow
+ * and its backup atomically, and only if the shadow is still the one the caller read.</p>
+ *
+ * <p>Shadows that have not been read or written for longer than the idle timeout are evicted, as are the least recently
+ * used shadows once the store holds more than its maximum number of shadows, so that abandoned sessions don't leak
+ * memory. Eviction happens as a side effect of accessing the store, or explicitly through {@link #evictIdleShadows()}.
+ * </p>
+ */
+public class ConcurrentShadowStore extends AbstractShadowStore {
+
+  public static final int DEFAULT_MAX_SHADOWS = 10_000;
+
+  public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+
+  private static final int SEGMENT_COUNT = 16;
+
+  private static final ShadowEvictionListener NO_OP_LISTENER = (key, shadow) -> {
+  };
+
+  private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+  private final long idleTimeoutNanos;
+
+  private final ShadowEvictionListener evictionListener;
+
+  private final LongSupplier nanoClock;
+
+  /**
+   * Constructs a store holding at most {@value #DEFAULT_MAX_SHADOWS} shadows, evicted after 30 minutes of inactivity.
+   *
+   * @param remoteNodeId the unique id of the node that this shadow store is being created for.
+   */
+  public ConcurrentShadowStore(String remoteNodeId) {
+    this(remoteNodeId, DEFAULT_MAX_SHADOWS, DEFAULT_IDLE_TIMEOUT, NO_OP_LISTENER);
+  }
+
+  /**
+   * @param remoteNodeId     the unique id of the node that this shadow store is being created for.
+   * @param maxShadows       the number of shadows above which the least recently used ones are evicted
+   * @param idleTimeout      the time after which a shadow that has been neither read nor written is evicted
+   * @param evictionListener notified of every shadow evicted
+   */
+  public ConcurrentShadowStore(String remoteNodeId, int maxShadows, Duration idleTimeout,
+      ShadowEvictionListener evictionListener) {
+    this(remoteNodeId, maxShadows, idleTimeout, evictionListener, System::nanoTime);
+  }
+
+  ConcurrentShadowStore(String remoteNodeId, int maxShadows, Duration idleTimeout,
+      ShadowEvictionListener evictionListener, LongSupplier nanoClock) {
+    super(remoteNodeId);
+    if (maxShadows < 1) {
+      throw new IllegalArgumentException("maxShadows must be at least 1");
+    }
+    int maxShadowsPerSegment = Math.max(1, (maxShadows + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+    for (int i = 0; i < SEGMENT_COUNT; i++) {
+      segments[i] = new Segment(maxShadowsPerSegment);
+    }
+    this.idleTimeoutNanos = idleTimeout.toNanos();
+    this.evictionListener = evictionListener;
+    this.nanoClock = nanoClock;
+  }
+
+  @Override
+  public void putShadow(String key, Shadow<?> shadow) {
+    String nodeKey = getNodeSpecificKey(key);
+    Segment segment = segmentFor(nodeKey);
+    List<Evicted> evicted = new ArrayList<>(0);
+    segment.lock.lock();
+    try {
+      long now = nanoClock.getAsLong();
+      segment.put(nodeKey, shadow, now);
+      segment.evict(now, evicted);
+    } finally {
+      segment.lock.unlock();
+    }
+    notifyEvicted(evicted);
+  }
+
+  @Override
+  public Shadow<?> getShadow(String key) {
+    String nodeKey = getNodeSpecificKey(key);
+    Segment segment = segmentFor(nodeKey);
+    List<Evicted> evicted = new ArrayList<>(0);
+    Shadow<?> shadow;
+    segment.lock.lock();
+    try {
+      long now = nanoClock.getAsLong();
+      segment.evict(now, evicted);
+      shadow = segment.get(nodeKey, now);
+    } finally {
+      segment.lock.unlock();
+    }
+    notifyEvicted(evicted);
+    return shadow;
+  }
+
+  @Override
+  public boolean replaceShadow(String key, Shadow<?> expected, Shadow<?> shadow, String backupKey,
+      Shadow<?> backupShadow) {
+    String nodeKey = getNodeSpecificKey(key);
+    String nodeBackupKey = backupKey != null ? getNodeSpecificKey(backupKey) : null;
+    int index = segmentIndex(nodeKey);
+    int backupIndex = nodeBackupKey != null ? segmentIndex(nodeBackupKey) : index;
+    // always lock in segment order, so that two replacements can't deadlock
+    Segment first = segments[Math.min(index, backupIndex)];
+    Segment second = segments[Math.max(index, backupIndex)];
+    List<Evicted> evicted = new ArrayList<>(0);
+    boolean replaced = false;
+    first.lock.lock();
+    try {
+      second.lock.lock();
+      try {
+        long now = nanoClock.getAsLong();
+        Segment segment = segments[index];
+        if (segment.get(nodeKey, now) == expected) {
+          segment.put(nodeKey, shadow, now);
+          if (backupShadow != null) {
+            segments[backupIndex].put(nodeBackupKey, backupShadow, now);
+          }
+          replaced = true;
+        }
+        first.evict(now, evicted);
+        second.evict(now, evicted);
+      } finally {
+        second.lock.unlock();
+      }
+    } finally {
+      first.lock.unlock();
+    }
+    notifyEvicted(evicted);
+    return replaced;
+  }
+
+  /**
+   * Evicts every shadow that has been idle for longer than the idle timeout. May be called periodically to release
+   * memory held by stores that are no longer accessed.
+   */
+  public void evictIdleShadows() {
+    List<Evicted> evicted = new ArrayList<>(0);
+    for (Segment segment : segments) {
+      segment.lock.lock();
+      try {
+        segment.evict(nanoClock.getAsLong(), evicted);
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+    notifyEvicted(evicted);
+  }
+
+  /**
+   * @return the number of shadows currently held, including backup shadows
+   */
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      segment.lock.lock();
+      try {
+        size += segment.entries.size();
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+    return size;
+  }
+
+  // private helpers
+
+  private Segment segmentFor(String nodeKey) {
+    return segments[segmentIndex(nodeKey)];
+  }
+
+  private static int segmentIndex(String nodeKey) {
+    int hash = nodeKey.hashCode();
+    return (hash ^ (hash >>> 16)) & (SEGMENT_COUNT - 1);
+  }
+
+  private void notifyEvicted(List<Evicted> evicted) {
+    for (Evicted entry : evicted) {
+      evictionListener.shadowEvicted(entry.key(), entry.shadow());
+    }
+  }
+
+  private record Evicted(String key, Shadow<?> shadow) {
+  }
+
+  private static final class Entry {
+
+    private Shadow<?> shadow;
+
+    private long lastAccess;
+
+    Entry(Shadow<?> shadow, long lastAccess) {
+      this.shadow = shadow;
+      this.lastAccess = lastAccess;
+    }
+
+  }
+
+  /**
+   * A share of the shadows, kept in least recently used first order. Only accessed while holding its lock.
+   */
+  private final class Segment {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final int maxShadows;
+
+    Segment(int maxShadows) {
+      this.maxShadows = maxShadows;
+    }
+
+    Shadow<?> get(String nodeKey, long now) {
+      Entry entry = entries.get(nodeKey);
+      if (entry == null) {
+        return null;
+      }
+      entry.lastAccess = now;
+      return entry.shadow;
+    }
+
+    void put(String nodeKey, Shadow<?> shadow, long now) {
+      Entry entry = entries.get(nodeKey);
+      if (entry == null) {
+        entries.put(nodeKey, new Entry(shadow, now));
+      } else {
+        entry.shadow = shadow;
+        entry.lastAccess = now;
+      }
+    }
+
+    /**
+     * Evicts from the least recently used end, which is also where the idle shadows are.
+     */
+    void evict(long now, List<Evicted> evicted) {
+      Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<String, Entry> eldest = iterator.next();
+        boolean idle = now - eldest.getValue().lastAccess > idleTimeoutNanos;
+        if (!idle && entries.size() <= maxShadows) {
+          return;
+        }
+        iterator.remove();
+        evicted.add(new Evicted(eldest.getKey(), eldest.getValue().shadow));
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.shadowstore;
+
+/**
+ * Callback notified when a {@link ConcurrentShadowStore} evicts a shadow copy.
+ */
+@FunctionalInterface
+public interface ShadowEvictionListener {
+
+  /**
+   * Called after a shadow copy has been evicted, outside of any lock held by the store.
+   *
+   * @param key    the node-specific key that the shadow was stored under
+   * @param shadow the evicted shadow copy
+   */
+  void shadowEvicted(String key, Shadow<?> shadow);
+
+}
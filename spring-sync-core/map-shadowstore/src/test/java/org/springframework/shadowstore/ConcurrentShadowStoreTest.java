@@ -0,0 +1,137 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.shadowstore;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentShadowStoreTest {
+
+  @Test
+  void putAndGet() {
+    ConcurrentShadowStore store = new ConcurrentShadowStore("node");
+    Shadow<String> shadow = new Shadow<>("A", 0, 0);
+    store.putShadow("key", shadow);
+
+    assertSame(shadow, store.getShadow("key"));
+    assertNull(store.getShadow("other"));
+    assertNull(new ConcurrentShadowStore("other-node").getShadow("key"));
+  }
+
+  @Test
+  void replaceShadowOnlyIfUnchanged() {
+    ConcurrentShadowStore store = new ConcurrentShadowStore("node");
+    Shadow<String> first = new Shadow<>("A", 0, 0);
+    Shadow<String> second = new Shadow<>("B", 0, 1);
+    Shadow<String> backup = new Shadow<>("B", 0, 1);
+
+    assertTrue(store.replaceShadow("key", null, first, "key_backup", null));
+    assertNull(store.getShadow("key_backup"));
+    assertFalse(store.replaceShadow("key", null, second, "key_backup", backup));
+    assertSame(first, store.getShadow("key"));
+
+    assertTrue(store.replaceShadow("key", first, second, "key_backup", backup));
+    assertSame(second, store.getShadow("key"));
+    assertSame(backup, store.getShadow("key_backup"));
+  }
+
+  @Test
+  void replaceShadowWithoutBackupKey() {
+    ConcurrentShadowStore store = new ConcurrentShadowStore("node");
+    Shadow<String> first = new Shadow<>("A", 0, 0);
+
+    assertTrue(store.replaceShadow("key", null, first, null, null));
+    assertSame(first, store.getShadow("key"));
+    assertNull(store.getShadow("null"));
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedAboveMaxShadows() {
+    List<String> evicted = new ArrayList<>();
+    // a single shadow per segment
+    ConcurrentShadowStore store = new ConcurrentShadowStore("node", 1, Duration.ofHours(1),
+        (key, shadow) -> evicted.add(key));
+    for (int i = 0; i < 100; i++) {
+      store.putShadow("key" + i, new Shadow<>(i, 0, 0));
+    }
+
+    assertTrue(store.size() <= 16);
+    assertEquals(100, store.size() + evicted.size());
+    assertTrue(evicted.contains("node:key0"));
+  }
+
+  @Test
+  void evictsIdleShadows() {
+    AtomicLong clock = new AtomicLong();
+    List<Shadow<?>> evicted = new ArrayList<>();
+    ConcurrentShadowStore store = new ConcurrentShadowStore("node", 100, Duration.ofNanos(10),
+        (key, shadow) -> evicted.add(shadow), clock::get);
+    Shadow<String> idle = new Shadow<>("A", 0, 0);
+    Shadow<String> active = new Shadow<>("B", 0, 0);
+    store.putShadow("idle", idle);
+    store.putShadow("active", active);
+
+    clock.set(8);
+    assertSame(active, store.getShadow("active"));
+    clock.set(15);
+    store.evictIdleShadows();
+
+    assertNull(store.getShadow("idle"));
+    assertSame(active, store.getShadow("active"));
+    assertEquals(List.of(idle), evicted);
+  }
+
+  @Test
+  void concurrentReplacementsNeverLoseAnUpdate() throws InterruptedException {
+    ConcurrentShadowStore store = new ConcurrentShadowStore("node");
+    store.putShadow("key", new Shadow<>(0, 0, 0));
+    int threads = 8;
+    int incrementsPerThread = 1000;
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    for (int t = 0; t < threads; t++) {
+      executor.execute(() -> {
+        for (int i = 0; i < incrementsPerThread; i++) {
+          boolean replaced;
+          do {
+            @SuppressWarnings("unchecked")
+            Shadow<Integer> current = (Shadow<Integer>) store.getShadow("key");
+            Shadow<Integer> next = new Shadow<>(current.getResource() + 1, 0, 0);
+            replaced = store.replaceShadow("key", current, next, "key_backup", current);
+          } while (!replaced);
+        }
+      });
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+    assertEquals(threads * incrementsPerThread, store.getShadow("key").getResource());
+  }
+
+}
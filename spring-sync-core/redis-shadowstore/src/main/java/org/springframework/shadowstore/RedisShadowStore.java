@@ -15,49 +15,233 @@
  */
 package org.springframework.shadowstore;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
 /**
- * {@link ShadowStore} implementation that stores shadows in Redis, via an injected {@link RedisTemplate}.
- * 
+ * <p>{@link ShadowStore} implementation that stores shadows in Redis, via an injected {@link RedisTemplate}.</p>
+ *
+ * <p>All the shadows of a node are kept in a single Redis hash, keyed by shadow key, which expires once the node has
+ * not written a shadow for longer than the time to live. Writing a shadow refreshes the expiry in the same pipeline,
+ * and {@link #replaceShadow(String, Shadow, Shadow, String, Shadow)} checks and writes a shadow along with its backup
+ * in a single script call, so that a sync costs one round trip to read and one to write. The script is only sent the
+ * SHA-1 of the shadow expected, rather than the shadow itself, and is itself called by its SHA-1 with EVALSHA: its
+ * source is only sent again, with EVAL, when Redis answers that it doesn't know it, as after a restart.
+ * {@link #getShadows(Collection)} reads any number of shadows in one round trip as well.</p>
+ *
+ * <p>Shadows are encoded with a {@link ShadowRedisSerializer} unless another serializer is given. The template is only
+ * used for its connection, so its own serializers don't matter.</p>
+ *
  * @author Craig Walls
  */
 public class RedisShadowStore extends AbstractShadowStore implements DisposableBean {
 
-	private final RedisOperations<String, Shadow<?>> redisTemplate;
-	
-	private final List<String> keys = new ArrayList<>();
+	public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(30);
+
+	private static final RedisSerializer<Shadow<?>> DEFAULT_SERIALIZER = new ShadowRedisSerializer();
+
+	private static final byte[] NONE = new byte[0];
+
+	/**
+	 * KEYS[1] the hash of the node, ARGV the shadow key, the SHA-1 of the expected shadow or empty if none, the new
+	 * shadow, the backup key or empty if none, the backup shadow or empty to leave it as is, and the time to live in
+	 * seconds.
+	 */
+	private static final byte[] REPLACE_SCRIPT = (
+			"local current = redis.call('HGET', KEYS[1], ARGV[1]) "
+			+ "if ARGV[2] == '' then "
+			+ "  if current then return 0 end "
+			+ "elseif not current or redis.sha1hex(current) ~= ARGV[2] then return 0 end "
+			+ "redis.call('HSET', KEYS[1], ARGV[1], ARGV[3]) "
+			+ "if ARGV[5] ~= '' then redis.call('HSET', KEYS[1], ARGV[4], ARGV[5]) end "
+			+ "redis.call('EXPIRE', KEYS[1], ARGV[6]) "
+			+ "return 1").getBytes(StandardCharsets.UTF_8);
+
+	private static final String REPLACE_SCRIPT_SHA = fingerprint(REPLACE_SCRIPT);
+
+	private final RedisOperations<?, ?> redisOperations;
+
+	private final RedisSerializer<Shadow<?>> serializer;
+
+	private final byte[] hashKey;
+
+	private final long timeToLiveSeconds;
+
+	/**
+	 * Constructs a Redis-based {@link ShadowStore} whose shadows expire after 30 minutes without writes.
+	 * @param remoteNodeId the unique id of the node that this shadow store is being created for.
+	 * @param redisTemplate a {@link RedisOperations} that will be used to store shadow copies.
+	 */
+	public RedisShadowStore(String remoteNodeId, RedisOperations<?, ?> redisTemplate) {
+		this(remoteNodeId, redisTemplate, DEFAULT_SERIALIZER, DEFAULT_TIME_TO_LIVE);
+	}
 
 	/**
 	 * Constructs a Redis-based {@link ShadowStore}.
 	 * @param remoteNodeId the unique id of the node that this shadow store is being created for.
 	 * @param redisTemplate a {@link RedisOperations} that will be used to store shadow copies.
+	 * @param serializer encodes the shadow copies
+	 * @param timeToLive the time after which the shadows of the node expire if none has been written
 	 */
-	public RedisShadowStore(String remoteNodeId, RedisOperations<String, Shadow<?>> redisTemplate) {
+	public RedisShadowStore(String remoteNodeId, RedisOperations<?, ?> redisTemplate,
+			RedisSerializer<Shadow<?>> serializer, Duration timeToLive) {
 		super(remoteNodeId);
-		this.redisTemplate = redisTemplate;
+		if (timeToLive.getSeconds() < 1) {
+			throw new IllegalArgumentException("timeToLive must be at least one second");
+		}
+		this.redisOperations = redisTemplate;
+		this.serializer = serializer;
+		this.hashKey = bytes(getNodeSpecificKey("shadows"));
+		this.timeToLiveSeconds = timeToLive.getSeconds();
 	}
 
 	@Override
 	public void putShadow(String key, Shadow<?> shadow) {
-		String nodeKey = getNodeSpecificKey(key);
-		redisTemplate.opsForValue().set(nodeKey, shadow);
-		keys.add(nodeKey);
+		byte[] field = bytes(key);
+		byte[] value = serializer.serialize(shadow);
+		redisOperations.executePipelined((RedisCallback<Object>) connection -> {
+			connection.hashCommands().hSet(hashKey, field, value);
+			connection.keyCommands().expire(hashKey, timeToLiveSeconds);
+			return null;
+		});
+		shadow.setFingerprint(fingerprint(value));
 	}
 
 	@Override
 	public Shadow<?> getShadow(String key) {
-		return redisTemplate.opsForValue().get(getNodeSpecificKey(key));
+		byte[] field = bytes(key);
+		byte[] value = redisOperations.execute((RedisCallback<byte[]>) connection -> connection.hashCommands().hGet(hashKey, field));
+		return value != null ? deserialize(value) : null;
+	}
+
+	/**
+	 * Retrieves the shadows with a single HMGET.
+	 */
+	@Override
+	public Map<String, Shadow<?>> getShadows(Collection<String> keys) {
+		if (keys.isEmpty()) {
+			return new HashMap<>();
+		}
+		List<String> orderedKeys = new ArrayList<>(keys);
+		byte[][] fields = new byte[orderedKeys.size()][];
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = bytes(orderedKeys.get(i));
+		}
+		List<byte[]> values = redisOperations.execute((RedisCallback<List<byte[]>>) connection -> connection.hashCommands().hMGet(hashKey, fields));
+		Map<String, Shadow<?>> shadows = new HashMap<>();
+		for (int i = 0; values != null && i < values.size(); i++) {
+			byte[] value = values.get(i);
+			if (value != null) {
+				shadows.put(orderedKeys.get(i), deserialize(value));
+			}
+		}
+		return shadows;
+	}
+
+	/**
+	 * Replaces the shadow and its backup atomically. The shadow stored is compared with the expected one by the SHA-1 of
+	 * its encoded form, as read or written by this store, so that serializers needn't encode a shadow the same way once
+	 * it has been read back, e.g. with the elements of a {@link java.util.HashSet} in another order. An expected shadow
+	 * that this store did not read or write is encoded again.
+	 */
+	@Override
+	public boolean replaceShadow(String key, Shadow<?> expected, Shadow<?> shadow, String backupKey, Shadow<?> backupShadow) {
+		byte[] value = serializer.serialize(shadow);
+		byte[] backupValue = backupShadow != null ? serializer.serialize(backupShadow) : NONE;
+		byte[][] keysAndArgs = {
+				hashKey,
+				bytes(key),
+				expected != null ? bytes(fingerprintOf(expected)) : NONE,
+				value,
+				backupKey != null ? bytes(backupKey) : NONE,
+				backupValue,
+				bytes(Long.toString(timeToLiveSeconds))
+		};
+		Long replaced = redisOperations.execute((RedisCallback<Long>) connection -> {
+			try {
+				return connection.scriptingCommands().evalSha(REPLACE_SCRIPT_SHA, ReturnType.INTEGER, 1, keysAndArgs);
+			} catch (RuntimeException e) {
+				if (!isNoScriptError(e)) {
+					throw e;
+				}
+				// EVAL caches the script for the next calls
+				return connection.scriptingCommands().eval(REPLACE_SCRIPT, ReturnType.INTEGER, 1, keysAndArgs);
+			}
+		});
+		if (replaced == null || replaced != 1L) {
+			return false;
+		}
+		shadow.setFingerprint(fingerprint(value));
+		if (backupShadow != null) {
+			backupShadow.setFingerprint(fingerprint(backupValue));
+		}
+		return true;
 	}
 
+	/**
+	 * Deletes the shadows of the node, which other servers may share, so this is only meant for when the session of the
+	 * node ends. A store that is merely dropped is left to expire.
+	 */
 	@Override
-	public void destroy() throws Exception {
-		redisTemplate.delete(keys);
+	public void destroy() {
+		redisOperations.execute((RedisCallback<Long>) connection -> connection.keyCommands().del(hashKey));
+	}
+
+	// private helpers
+
+	private Shadow<?> deserialize(byte[] value) {
+		Shadow<?> shadow = serializer.deserialize(value);
+		if (shadow != null) {
+			shadow.setFingerprint(fingerprint(value));
+		}
+		return shadow;
+	}
+
+	/**
+	 * @return whether Redis answered that it doesn't know the script, as translated by any driver
+	 */
+	private static boolean isNoScriptError(Throwable e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause.getMessage() != null && cause.getMessage().contains("NOSCRIPT")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private String fingerprintOf(Shadow<?> shadow) {
+		return shadow.getFingerprint() != null ? shadow.getFingerprint() : fingerprint(serializer.serialize(shadow));
+	}
+
+	/**
+	 * @return the SHA-1 of the value in lower case hexadecimal, as the script computes it with {@code redis.sha1hex}
+	 */
+	private static String fingerprint(byte[] value) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(value));
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform supports SHA-1
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
 	}
 
 }
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.shadowstore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.util.ClassUtils;
+
+/**
+ * <p>{@link RedisSerializer} that encodes shadows in Smile, a binary form of JSON, rather than with Java serialization.
+ * The encoding is several times smaller and faster to read and write, and doesn't require the resources to be
+ * {@link java.io.Serializable}, but only to map to JSON and back, as they already do to be patched.</p>
+ *
+ * <p>A shadow is written as an object holding the versions, including the version of the change feed of a list shadow
+ * if any, the type of the resource, or of its elements if it is a list, and the resource itself. The elements of a
+ * list that are not all of the same class, e.g. subclasses of a common entity, have their types recorded one by
+ * one.</p>
+ */
+public class ShadowRedisSerializer implements RedisSerializer<Shadow<?>> {
+
+	private static final String SERVER_VERSION = "s";
+
+	private static final String CLIENT_VERSION = "c";
+
+	private static final String ACKNOWLEDGED_VERSION = "a";
+
+	private static final String CHANGE_VERSION = "f";
+
+	private static final String TYPE = "t";
+
+	private static final String LIST = "l";
+
+	private static final String ELEMENT_TYPES = "e";
+
+	private static final String RESOURCE = "r";
+
+	private final ObjectMapper objectMapper;
+
+	private final Map<String, JavaType> types = new ConcurrentHashMap<>();
+
+	private final Map<String, JavaType> listTypes = new ConcurrentHashMap<>();
+
+	public ShadowRedisSerializer() {
+		this(new ObjectMapper(new SmileFactory()).disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES));
+	}
+
+	/**
+	 * @param objectMapper maps the resources, and decides on the encoding through its factory
+	 */
+	public ShadowRedisSerializer(ObjectMapper objectMapper) {
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	public byte[] serialize(Shadow<?> shadow) throws SerializationException {
+		if (shadow == null) {
+			return new byte[0];
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+			generator.writeStartObject();
+			generator.writeNumberField(SERVER_VERSION, shadow.getServerVersion());
+			generator.writeNumberField(CLIENT_VERSION, shadow.getClientVersion());
+			// left out in the common case of a shadow whose every version was acknowledged
+			if (shadow.getAcknowledgedVersion() != shadow.getServerVersion()) {
+				generator.writeNumberField(ACKNOWLEDGED_VERSION, shadow.getAcknowledgedVersion());
+			}
+			if (shadow.getChangeVersion() != null) {
+				generator.writeNumberField(CHANGE_VERSION, shadow.getChangeVersion());
+			}
+			Object resource = shadow.getResource();
+			if (resource instanceof List) {
+				generator.writeBooleanField(LIST, true);
+				writeElementTypes(generator, (List<?>) resource);
+			} else if (resource != null) {
+				generator.writeStringField(TYPE, resource.getClass().getName());
+			}
+			if (resource != null) {
+				generator.writeFieldName(RESOURCE);
+				objectMapper.writeValue(generator, resource);
+			}
+			generator.writeEndObject();
+		} catch (IOException e) {
+			throw new SerializationException("Could not write shadow", e);
+		}
+		return out.toByteArray();
+	}
+
+	@Override
+	public Shadow<?> deserialize(byte[] bytes) throws SerializationException {
+		if (bytes == null || bytes.length == 0) {
+			return null;
+		}
+		int serverVersion = 0;
+		int clientVersion = 0;
+		Integer acknowledgedVersion = null;
+		Long changeVersion = null;
+		String type = null;
+		boolean list = false;
+		List<String> elementTypes = null;
+		Object resource = null;
+		try (JsonParser parser = objectMapper.getFactory().createParser(bytes)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new SerializationException("Could not read shadow: expected an object");
+			}
+			// the types are always written before the resource
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				parser.nextToken();
+				switch (field) {
+					case SERVER_VERSION -> serverVersion = parser.getIntValue();
+					case CLIENT_VERSION -> clientVersion = parser.getIntValue();
+					case ACKNOWLEDGED_VERSION -> acknowledgedVersion = parser.getIntValue();
+					case CHANGE_VERSION -> changeVersion = parser.getLongValue();
+					case TYPE -> type = parser.getText();
+					case LIST -> list = parser.getBooleanValue();
+					case ELEMENT_TYPES -> elementTypes = readElementTypes(parser);
+					case RESOURCE -> resource = elementTypes != null
+							? readElements(parser, elementTypes)
+							: objectMapper.readValue(parser, resolveType(type, list));
+					default -> parser.skipChildren();
+				}
+			}
+		} catch (IOException e) {
+			throw new SerializationException("Could not read shadow", e);
+		}
+		Shadow<?> shadow = new Shadow<>(resource, serverVersion, clientVersion,
+				acknowledgedVersion != null ? acknowledgedVersion : serverVersion);
+		shadow.setChangeVersion(changeVersion);
+		return shadow;
+	}
+
+	// private helpers
+
+	/**
+	 * Writes the class of the elements, or that of every element if they are not all of the same class.
+	 */
+	private static void writeElementTypes(JsonGenerator generator, List<?> list) throws IOException {
+		Class<?> common = null;
+		boolean mixed = false;
+		for (Object element : list) {
+			if (element == null) {
+				continue;
+			}
+			if (common == null) {
+				common = element.getClass();
+			} else if (common != element.getClass()) {
+				mixed = true;
+				break;
+			}
+		}
+		if (!mixed) {
+			if (common != null) {
+				generator.writeStringField(TYPE, common.getName());
+			}
+			return;
+		}
+		generator.writeArrayFieldStart(ELEMENT_TYPES);
+		for (Object element : list) {
+			if (element != null) {
+				generator.writeString(element.getClass().getName());
+			} else {
+				generator.writeNull();
+			}
+		}
+		generator.writeEndArray();
+	}
+
+	private static List<String> readElementTypes(JsonParser parser) throws IOException {
+		if (parser.currentToken() != JsonToken.START_ARRAY) {
+			throw new SerializationException("Could not read shadow: expected an array of element types");
+		}
+		List<String> elementTypes = new ArrayList<>();
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			elementTypes.add(parser.currentToken() != JsonToken.VALUE_NULL ? parser.getText() : null);
+		}
+		return elementTypes;
+	}
+
+	private List<Object> readElements(JsonParser parser, List<String> elementTypes) throws IOException {
+		if (parser.currentToken() != JsonToken.START_ARRAY) {
+			throw new SerializationException("Could not read shadow: expected a list");
+		}
+		List<Object> elements = new ArrayList<>(elementTypes.size());
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+			String elementType = elements.size() < elementTypes.size() ? elementTypes.get(elements.size()) : null;
+			if (token == JsonToken.VALUE_NULL) {
+				elements.add(null);
+			} else if (token == null || elementType == null) {
+				throw new SerializationException("Could not read shadow: element " + elements.size() + " has no type");
+			} else {
+				elements.add(objectMapper.readValue(parser, resolveType(elementType, false)));
+			}
+		}
+		return elements;
+	}
+
+	private JavaType resolveType(String type, boolean list) {
+		if (list) {
+			return listTypes.computeIfAbsent(type != null ? type : Object.class.getName(),
+					name -> objectMapper.getTypeFactory().constructCollectionType(ArrayList.class, loadClass(name)));
+		}
+		if (type == null) {
+			return objectMapper.constructType(Object.class);
+		}
+		return types.computeIfAbsent(type, name -> objectMapper.constructType(loadClass(name)));
+	}
+
+	private static Class<?> loadClass(String name) {
+		try {
+			return ClassUtils.forName(name, ClassUtils.getDefaultClassLoader());
+		} catch (ClassNotFoundException | LinkageError e) {
+			throw new SerializationException("Could not load shadow type " + name, e);
+		}
+	}
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.shadowstore;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+
+/**
+ * Stand-in for a Redis server, supporting the hash, expiry and script commands the {@link RedisShadowStore} uses.
+ * The only script it runs is the shadow replacement one, which it emulates, and which EVALSHA only finds once EVAL
+ * sent it. Counts the round trips made, a pipeline counting as one.
+ */
+class InMemoryRedis {
+
+	private final Map<ByteBuffer, Map<ByteBuffer, byte[]>> hashes = new HashMap<>();
+
+	private final Map<ByteBuffer, Long> timesToLive = new HashMap<>();
+
+	private final Set<String> scripts = new HashSet<>();
+
+	private int roundTrips;
+
+	private int evals;
+
+	private final RedisConnection connection = (RedisConnection) Proxy.newProxyInstance(getClass().getClassLoader(),
+			new Class<?>[] { RedisConnection.class }, (proxy, method, args) -> switch (method.getName()) {
+				case "hashCommands", "keyCommands", "scriptingCommands" -> proxy;
+				case "hSet" -> hashes.computeIfAbsent(wrap(args[0]), key -> new HashMap<>()).put(wrap(args[1]), (byte[]) args[2]) == null;
+				case "hGet" -> hashes.getOrDefault(wrap(args[0]), Map.of()).get(wrap(args[1]));
+				case "hMGet" -> {
+					Map<ByteBuffer, byte[]> hash = hashes.getOrDefault(wrap(args[0]), Map.of());
+					List<byte[]> values = new ArrayList<>();
+					for (byte[] field : (byte[][]) args[1]) {
+						values.add(hash.get(wrap(field)));
+					}
+					yield values;
+				}
+				case "expire" -> {
+					timesToLive.put(wrap(args[0]), (Long) args[1]);
+					yield hashes.containsKey(wrap(args[0]));
+				}
+				case "del" -> delete((byte[][]) args[0]);
+				case "eval" -> {
+					evals++;
+					scripts.add(sha1Hex((byte[]) args[0]));
+					yield replace((byte[][]) args[3]);
+				}
+				case "evalSha" -> {
+					if (!scripts.contains((String) args[0])) {
+						throw new IllegalStateException("NOSCRIPT No matching script. Please use EVAL.");
+					}
+					yield replace((byte[][]) args[3]);
+				}
+				default -> throw new UnsupportedOperationException(method.getName());
+			});
+
+	@SuppressWarnings("unchecked")
+	RedisOperations<String, Object> operations() {
+		return (RedisOperations<String, Object>) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { RedisOperations.class }, (proxy, method, args) -> {
+					if (args == null || args.length != 1 || !(args[0] instanceof RedisCallback)) {
+						throw new UnsupportedOperationException(method.getName());
+					}
+					roundTrips++;
+					Object result = ((RedisCallback<?>) args[0]).doInRedis(connection);
+					return method.getName().equals("executePipelined") ? new ArrayList<>() : result;
+				});
+	}
+
+	int roundTrips() {
+		return roundTrips;
+	}
+
+	int evals() {
+		return evals;
+	}
+
+	/**
+	 * Forgets the scripts sent, as a restart or SCRIPT FLUSH does.
+	 */
+	void flushScripts() {
+		scripts.clear();
+	}
+
+	int size(String key) {
+		return hashes.getOrDefault(wrap(bytes(key)), Map.of()).size();
+	}
+
+	Long timeToLive(String key) {
+		return timesToLive.get(wrap(bytes(key)));
+	}
+
+	// private helpers
+
+	private long delete(byte[][] keys) {
+		long deleted = 0;
+		for (byte[] key : keys) {
+			timesToLive.remove(wrap(key));
+			if (hashes.remove(wrap(key)) != null) {
+				deleted++;
+			}
+		}
+		return deleted;
+	}
+
+	private long replace(byte[][] keysAndArgs) throws NoSuchAlgorithmException {
+		ByteBuffer key = wrap(keysAndArgs[0]);
+		Map<ByteBuffer, byte[]> hash = hashes.computeIfAbsent(key, k -> new HashMap<>());
+		byte[] current = hash.get(wrap(keysAndArgs[1]));
+		String expected = new String(keysAndArgs[2], StandardCharsets.UTF_8);
+		boolean matches = expected.isEmpty() ? current == null : current != null && expected.equals(sha1Hex(current));
+		if (!matches) {
+			return 0L;
+		}
+		hash.put(wrap(keysAndArgs[1]), keysAndArgs[3]);
+		if (keysAndArgs[5].length > 0) {
+			hash.put(wrap(keysAndArgs[4]), keysAndArgs[5]);
+		}
+		timesToLive.put(key, Long.parseLong(new String(keysAndArgs[6], StandardCharsets.UTF_8)));
+		return 1L;
+	}
+
+	private static String sha1Hex(byte[] value) throws NoSuchAlgorithmException {
+		return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(value));
+	}
+
+	private static ByteBuffer wrap(Object bytes) {
+		return ByteBuffer.wrap((byte[]) bytes);
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.shadowstore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+class RedisShadowStoreTest {
+
+	private final InMemoryRedis redis = new InMemoryRedis();
+
+	private final RedisShadowStore store = new RedisShadowStore("node", redis.operations(), new ShadowRedisSerializer(),
+			Duration.ofMinutes(5));
+
+	@Test
+	void putAndGetShadow() {
+		store.putShadow("shadow/Item/1", new Shadow<>(new Item(1L, "A", true), 2, 3));
+
+		Shadow<?> shadow = store.getShadow("shadow/Item/1");
+		assertEquals(new Item(1L, "A", true), shadow.getResource());
+		assertEquals(2, shadow.getServerVersion());
+		assertEquals(3, shadow.getClientVersion());
+		assertNull(store.getShadow("shadow/Item/2"));
+		assertEquals(300L, redis.timeToLive("node:shadows"));
+		assertEquals(3, redis.roundTrips());
+	}
+
+	@Test
+	void shadowsKeepTheirAcknowledgedVersion() {
+		store.putShadow("shadow/Item/1", new Shadow<>(new Item(1L, "A", true), 2, 3, 1));
+		store.putShadow("shadow/Item/2", new Shadow<>(new Item(2L, "B", true), 2, 3));
+
+		assertEquals(1, store.getShadow("shadow/Item/1").getAcknowledgedVersion());
+		assertEquals(2, store.getShadow("shadow/Item/2").getAcknowledgedVersion());
+	}
+
+	@Test
+	void listShadowsKeepTheirElementType() {
+		List<Item> items = new ArrayList<>(Arrays.asList(new Item(1L, "A", false), new Item(2L, "B", true)));
+		store.putShadow("shadow/ItemList", new Shadow<>(items, 0, 0));
+		store.putShadow("shadow/EmptyList", new Shadow<>(new ArrayList<>(), 0, 0));
+
+		assertEquals(items, store.getShadow("shadow/ItemList").getResource());
+		assertEquals(new ArrayList<>(), store.getShadow("shadow/EmptyList").getResource());
+	}
+
+	@Test
+	void listShadowsKeepTheTypeOfEachElement() {
+		List<Item> items = new ArrayList<>(Arrays.asList(new Item(1L, "A", false), null, new PriorityItem(2L, "B", 3)));
+		store.putShadow("shadow/ItemList", new Shadow<>(items, 0, 0));
+
+		List<?> stored = (List<?>) store.getShadow("shadow/ItemList").getResource();
+		assertEquals(items, stored);
+		assertEquals(Item.class, stored.get(0).getClass());
+		assertNull(stored.get(1));
+		assertEquals(3, ((PriorityItem) stored.get(2)).getPriority());
+	}
+
+	@Test
+	void listShadowsKeepTheirChangeVersion() {
+		Shadow<List<Item>> versioned = new Shadow<>(new ArrayList<>(List.of(new Item(1L, "A", false))), 0, 0);
+		versioned.setChangeVersion(42L);
+		store.putShadow("shadow/ItemList", versioned);
+		store.putShadow("shadow/OtherList", new Shadow<>(new ArrayList<>(), 0, 0));
+
+		assertEquals(42L, store.getShadow("shadow/ItemList").getChangeVersion());
+		assertNull(store.getShadow("shadow/OtherList").getChangeVersion());
+	}
+
+	@Test
+	void getShadowsReadsAllShadowsInOneRoundTrip() {
+		Shadow<Item> first = new Shadow<>(new Item(1L, "A", false), 0, 0);
+		Shadow<Item> second = new Shadow<>(new Item(2L, "B", true), 1, 1);
+		store.putShadow("shadow/Item/1", first);
+		store.putShadow("shadow/Item/2", second);
+
+		Map<String, Shadow<?>> shadows = store.getShadows(List.of("shadow/Item/1", "shadow/Item/2", "shadow/Item/3"));
+
+		assertEquals(Map.of("shadow/Item/1", first, "shadow/Item/2", second), shadows);
+		assertEquals(3, redis.roundTrips());
+	}
+
+	@Test
+	void replaceShadowWritesShadowAndBackupInOneRoundTrip() {
+		Shadow<Item> shadow = new Shadow<>(new Item(1L, "A", false), 0, 0);
+		assertTrue(store.replaceShadow("shadow/Item/1", null, shadow, "shadow/Item/1_backup", shadow));
+		assertEquals(1, redis.roundTrips());
+		assertEquals(2, redis.size("node:shadows"));
+
+		Shadow<?> stored = store.getShadow("shadow/Item/1");
+		Shadow<Item> updated = new Shadow<>(new Item(1L, "B", false), 1, 0);
+		assertTrue(store.replaceShadow("shadow/Item/1", stored, updated, "shadow/Item/1_backup", null));
+
+		assertEquals(updated, store.getShadow("shadow/Item/1"));
+		assertEquals(shadow, store.getShadow("shadow/Item/1_backup"));
+	}
+
+	@Test
+	void replaceShadowSendsTheScriptOnlyWhenRedisDoesNotKnowIt() {
+		Shadow<Item> shadow = new Shadow<>(new Item(1L, "A", false), 0, 0);
+		assertTrue(store.replaceShadow("shadow/Item/1", null, shadow, null, null));
+		assertEquals(1, redis.evals());
+
+		Shadow<Item> updated = new Shadow<>(new Item(1L, "B", false), 1, 0);
+		assertTrue(store.replaceShadow("shadow/Item/1", shadow, updated, null, null));
+		assertEquals(1, redis.evals());
+
+		redis.flushScripts();
+		assertTrue(store.replaceShadow("shadow/Item/1", updated, new Shadow<>(new Item(1L, "C", false), 2, 0), null, null));
+		assertEquals(2, redis.evals());
+		assertEquals(3, redis.roundTrips());
+		assertEquals("C", ((Item) store.getShadow("shadow/Item/1").getResource()).getName());
+	}
+
+	@Test
+	void replaceShadowWithoutBackupKey() {
+		Shadow<Item> shadow = new Shadow<>(new Item(1L, "A", false), 0, 0);
+
+		assertTrue(store.replaceShadow("shadow/Item/1", null, shadow, null, null));
+		assertEquals(1, redis.size("node:shadows"));
+	}
+
+	@Test
+	void replaceShadowFailsIfTheShadowChanged() {
+		Shadow<Item> shadow = new Shadow<>(new Item(1L, "A", false), 0, 0);
+		store.putShadow("shadow/Item/1", shadow);
+		Shadow<?> stored = store.getShadow("shadow/Item/1");
+		store.putShadow("shadow/Item/1", new Shadow<>(new Item(1L, "C", false), 1, 0));
+
+		assertFalse(store.replaceShadow("shadow/Item/1", stored, new Shadow<>(new Item(1L, "B", false), 1, 0),
+				"shadow/Item/1_backup", stored));
+		assertFalse(store.replaceShadow("shadow/Item/1", null, shadow, "shadow/Item/1_backup", shadow));
+		assertEquals("C", ((Item) store.getShadow("shadow/Item/1").getResource()).getName());
+		assertNull(store.getShadow("shadow/Item/1_backup"));
+	}
+
+	@Test
+	void replaceShadowComparesTheShadowAsRead() {
+		// encodes a shadow differently every time, as a serializer may once a HashSet was read back in another order
+		ShadowRedisSerializer serializer = new ShadowRedisSerializer();
+		int[] encodings = { 0 };
+		RedisShadowStore unstable = new RedisShadowStore("node", redis.operations(), new RedisSerializer<>() {
+			@Override
+			public byte[] serialize(Shadow<?> shadow) {
+				byte[] value = serializer.serialize(shadow);
+				byte[] tagged = Arrays.copyOf(value, value.length + 1);
+				tagged[value.length] = (byte) encodings[0]++;
+				return tagged;
+			}
+
+			@Override
+			public Shadow<?> deserialize(byte[] bytes) {
+				return serializer.deserialize(Arrays.copyOf(bytes, bytes.length - 1));
+			}
+		}, Duration.ofMinutes(5));
+		unstable.putShadow("shadow/Item/1", new Shadow<>(new Item(1L, "A", false), 0, 0));
+
+		Shadow<?> stored = unstable.getShadow("shadow/Item/1");
+		Shadow<Item> updated = new Shadow<>(new Item(1L, "B", false), 1, 0);
+		assertTrue(unstable.replaceShadow("shadow/Item/1", stored, updated, "shadow/Item/1_backup", null));
+		assertTrue(unstable.replaceShadow("shadow/Item/1", updated, new Shadow<>(new Item(1L, "C", false), 2, 0),
+				"shadow/Item/1_backup", null));
+		assertFalse(unstable.replaceShadow("shadow/Item/1", stored, updated, "shadow/Item/1_backup", null));
+		assertEquals("C", ((Item) unstable.getShadow("shadow/Item/1").getResource()).getName());
+	}
+
+	@Test
+	void droppedStoreLeavesTheShadowsToExpire() {
+		ShadowStoreFactory factory = new ShadowStoreFactory(id -> new RedisShadowStore(id, redis.operations()), 1);
+		factory.getShadowStore("node").putShadow("shadow/Item/1", new Shadow<>(new Item(1L, "A", false), 0, 0));
+
+		factory.getShadowStore("other");
+		factory.evict("other");
+
+		assertEquals(2, factory.getEvictionCount());
+		assertEquals("A", ((Item) store.getShadow("shadow/Item/1").getResource()).getName());
+		assertEquals(RedisShadowStore.DEFAULT_TIME_TO_LIVE.getSeconds(), redis.timeToLive("node:shadows"));
+	}
+
+	@Test
+	void destroyDeletesTheShadowsOfTheNode() {
+		RedisShadowStore other = new RedisShadowStore("other", redis.operations());
+		store.putShadow("shadow/Item/1", new Shadow<>(new Item(1L, "A", false), 0, 0));
+		other.putShadow("shadow/Item/1", new Shadow<>(new Item(1L, "B", false), 0, 0));
+
+		store.destroy();
+
+		assertNull(store.getShadow("shadow/Item/1"));
+		assertEquals("B", ((Item) other.getShadow("shadow/Item/1").getResource()).getName());
+		assertEquals(RedisShadowStore.DEFAULT_TIME_TO_LIVE.getSeconds(), redis.timeToLive("other:shadows"));
+	}
+
+	public static class Item {
+
+		private Long id;
+
+		private String name;
+
+		private boolean complete;
+
+		public Item() {
+		}
+
+		Item(Long id, String name, boolean complete) {
+			this.id = id;
+			this.name = name;
+			this.complete = complete;
+		}
+
+		public Long getId() {
+			return id;
+		}
+
+		public void setId(Long id) {
+			this.id = id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public boolean isComplete() {
+			return complete;
+		}
+
+		public void setComplete(boolean complete) {
+			this.complete = complete;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Item)) {
+				return false;
+			}
+			Item other = (Item) o;
+			return Objects.equals(id, other.id) && Objects.equals(name, other.name)
+					&& complete == other.complete;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(id, name, complete);
+		}
+
+	}
+
+	public static class PriorityItem extends Item {
+
+		private int priority;
+
+		public PriorityItem() {
+		}
+
+		PriorityItem(Long id, String name, int priority) {
+			super(id, name, false);
+			this.priority = priority;
+		}
+
+		public int getPriority() {
+			return priority;
+		}
+
+		public void setPriority(int priority) {
+			this.priority = priority;
+		}
+
+	}
+
+}
@@ -1,10 +1,10 @@
 package org.springframework.shadowstore;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 @Data
-@AllArgsConstructor
 public class Shadow<T> {
 
   private T resource;
@@ -12,4 +12,31 @@ public class Shadow<T> {
   private int serverVersion;
   // aka clientVersion in the context of a server app
   private int clientVersion;
+  // the serverVersion last echoed by the remote node; the differences taken from this version on may not have reached
+  // the node yet
+  private int acknowledgedVersion;
+  // the version of the change feed of the persistence callback that a list shadow holds the list as persisted at, or
+  // null if the shadow may differ from the persisted list, e.g. once a patch was applied to it
+  private Long changeVersion;
+  // structural hashes of the resource, kept by the diff engine alongside shadows held in memory; stores that serialize
+  // shadows drop them, and they are computed again when needed
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private transient Object hashes;
+  // a fingerprint of the shadow as a store last read or wrote it, which stores that serialize shadows compare with what
+  // they hold to tell whether the shadow was replaced since, without serializing it again
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private transient String fingerprint;
+
+  public Shadow(T resource, int serverVersion, int clientVersion) {
+    this(resource, serverVersion, clientVersion, serverVersion);
+  }
+
+  public Shadow(T resource, int serverVersion, int clientVersion, int acknowledgedVersion) {
+    this.resource = resource;
+    this.serverVersion = serverVersion;
+    this.clientVersion = clientVersion;
+    this.acknowledgedVersion = acknowledgedVersion;
+  }
 }
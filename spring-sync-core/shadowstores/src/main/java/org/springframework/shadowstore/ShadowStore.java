@@ -15,6 +15,11 @@
  */
 package org.springframework.shadowstore;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
 /**
  * Strategy interface for maintaining shadow copies across requests.
  * 
@@ -36,4 +41,43 @@ public interface ShadowStore {
 	 */
 	Shadow<?> getShadow(String key);
 
+	/**
+	 * Retrieves several shadow copies at once. The default implementation retrieves them one by one; implementations
+	 * backed by a remote store should override it to fetch them in a single round trip.
+	 * @param keys the keys that the shadows are stored under
+	 * @return the shadow copies found, by key; keys without a shadow are left out
+	 */
+	default Map<String, Shadow<?>> getShadows(Collection<String> keys) {
+		Map<String, Shadow<?>> shadows = new HashMap<>();
+		for (String key : keys) {
+			Shadow<?> shadow = getShadow(key);
+			if (shadow != null) {
+				shadows.put(key, shadow);
+			}
+		}
+		return shadows;
+	}
+
+	/**
+	 * Replaces a shadow copy and stores its backup, provided that the shadow currently stored is still the expected one.
+	 * This allows concurrent requests working on the same shadow to detect that they have raced.
+	 * The default implementation is not atomic; implementations that can be shared by concurrent requests should override it.
+	 * @param key the key that the shadow is stored under
+	 * @param expected the shadow copy that the new shadow was derived from, or null if there was none
+	 * @param shadow the new shadow copy
+	 * @param backupKey the key to store the backup shadow under, or null if there is no backup shadow
+	 * @param backupShadow the new backup shadow copy, or null to leave the backup shadow as is
+	 * @return true if the shadow was replaced, false if the shadow stored was not the expected one
+	 */
+	default boolean replaceShadow(String key, Shadow<?> expected, Shadow<?> shadow, String backupKey, Shadow<?> backupShadow) {
+		if (!Objects.equals(getShadow(key), expected)) {
+			return false;
+		}
+		putShadow(key, shadow);
+		if (backupShadow != null) {
+			putShadow(backupKey, backupShadow);
+		}
+		return true;
+	}
+
 }
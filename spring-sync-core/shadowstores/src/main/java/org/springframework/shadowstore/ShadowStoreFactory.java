@@ -1,16 +1,196 @@
 package org.springframework.shadowstore;
 
-import lombok.RequiredArgsConstructor;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
-import java.lang.reflect.InvocationTargetException;
-
-@RequiredArgsConstructor
+/**
+ * <p>Registry of the {@link ShadowStore}s of the remote nodes, such as the HTTP sessions of the clients, keyed by node
+ * id.</p>
+ *
+ * <p>A store is created on the first request from a node and kept for the following ones, so that the shadows it holds
+ * survive between requests. It is dropped when {@link #evict(String) evicted}, e.g. when the session of the node ends,
+ * or when the registry holds more than its maximum number of stores, least recently used first, so that the nodes
+ * still synchronizing keep their shadows. Evicted stores that are
+ * {@link AutoCloseable} are closed.</p>
+ *
+ * <p>Looking up a store that is held takes no lock. Creating a store only locks the id being created, and the stores
+ * above the maximum are then evicted by scanning for the least recently used ones, one creating thread at a time.</p>
+ */
 public class ShadowStoreFactory {
 
-  private final Class<? extends ShadowStore> shadowStore;
+  public static final int DEFAULT_MAX_SHADOW_STORES = 10_000;
+
+  private final Function<String, ? extends ShadowStore> shadowStoreSupplier;
+
+  private final int maxShadowStores;
+
+  private final Map<String, Entry> shadowStores = new ConcurrentHashMap<>();
+
+  // orders the accesses to the stores
+  private final AtomicLong clock = new AtomicLong();
+
+  // lets a single thread at a time scan for the stores to evict
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder evictions = new LongAdder();
 
-  public ShadowStore getShadowStore(String id)
-      throws NoSuchMethodException, InvocationTargetException, InstantiationException, IllegalAccessException {
-    return shadowStore.getConstructor(String.class).newInstance(id);
+  /**
+   * @param shadowStoreSupplier creates the store of a node given its id, e.g. {@code MapBasedShadowStore::new}
+   */
+  public ShadowStoreFactory(Function<String, ? extends ShadowStore> shadowStoreSupplier) {
+    this(shadowStoreSupplier, DEFAULT_MAX_SHADOW_STORES);
   }
+
+  /**
+   * @param shadowStoreSupplier creates the store of a node given its id, e.g. {@code MapBasedShadowStore::new}
+   * @param maxShadowStores     the number of stores above which the least recently used ones are evicted
+   */
+  public ShadowStoreFactory(Function<String, ? extends ShadowStore> shadowStoreSupplier, int maxShadowStores) {
+    if (maxShadowStores < 1) {
+      throw new IllegalArgumentException("maxShadowStores must be at least 1");
+    }
+    this.shadowStoreSupplier = shadowStoreSupplier;
+    this.maxShadowStores = maxShadowStores;
+  }
+
+  /**
+   * Looks up the store of a node, creating it if the node has none yet.
+   *
+   * @param id the unique id of the remote node
+   * @return the {@link ShadowStore} of the node
+   */
+  public ShadowStore getShadowStore(String id) {
+    Entry entry = shadowStores.get(id);
+    if (entry == null) {
+      boolean[] created = new boolean[1];
+      entry = shadowStores.computeIfAbsent(id, key -> {
+        created[0] = true;
+        return new Entry(shadowStoreSupplier.apply(key), clock.incrementAndGet());
+      });
+      if (created[0]) {
+        misses.increment();
+        evictOverflow();
+        return entry.shadowStore;
+      }
+    }
+    hits.increment();
+    entry.lastAccess = clock.incrementAndGet();
+    return entry.shadowStore;
+  }
+
+  /**
+   * Drops the store of a node, and closes it if it is {@link AutoCloseable}. A store that keeps its shadows in memory
+   * loses them with it, whereas one backed by a shared server, such as {@code RedisShadowStore}, only releases its
+   * local handle: its shadows stay on the server until they expire or the store is explicitly destroyed.
+   *
+   * @param id the unique id of the remote node
+   */
+  public void evict(String id) {
+    Entry entry = shadowStores.remove(id);
+    if (entry != null) {
+      release(entry.shadowStore);
+    }
+  }
+
+  /**
+   * @return the number of stores currently held
+   */
+  public int size() {
+    return shadowStores.size();
+  }
+
+  /**
+   * @return the number of lookups that found the store of the node
+   */
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * @return the number of lookups that had to create the store of the node
+   */
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /**
+   * @return the number of stores dropped, whether evicted explicitly or to stay within the maximum number of stores
+   */
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  // private helpers
+
+  /**
+   * Evicts the least recently used stores above the maximum. Only the thread that created a store gets here, and
+   * evicts the stores created meanwhile by other threads along with it, so the registry may briefly exceed the maximum
+   * by the number of stores being created at once.
+   */
+  private void evictOverflow() {
+    if (shadowStores.size() <= maxShadowStores || !evictionLock.tryLock()) {
+      // under the maximum, or another thread is already evicting
+      return;
+    }
+    try {
+      while (shadowStores.size() > maxShadowStores) {
+        String leastRecentlyUsed = null;
+        Entry entry = null;
+        long lastAccess = Long.MAX_VALUE;
+        for (Map.Entry<String, Entry> candidate : shadowStores.entrySet()) {
+          long candidateAccess = candidate.getValue().lastAccess;
+          if (candidateAccess < lastAccess) {
+            leastRecentlyUsed = candidate.getKey();
+            entry = candidate.getValue();
+            lastAccess = candidateAccess;
+          }
+        }
+        if (entry == null) {
+          return;
+        }
+        // a store looked up since the scan is no longer the least recently used, so leave it to the next scan
+        if (entry.lastAccess == lastAccess && shadowStores.remove(leastRecentlyUsed, entry)) {
+          release(entry.shadowStore);
+        }
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void release(ShadowStore shadowStore) {
+    if (shadowStore == null) {
+      return;
+    }
+    evictions.increment();
+    if (shadowStore instanceof AutoCloseable) {
+      try {
+        ((AutoCloseable) shadowStore).close();
+      } catch (Exception e) {
+        // the store is gone either way
+      }
+    }
+  }
+
+  private static final class Entry {
+
+    private final ShadowStore shadowStore;
+
+    private volatile long lastAccess;
+
+    private Entry(ShadowStore shadowStore, long lastAccess) {
+      this.shadowStore = shadowStore;
+      this.lastAccess = lastAccess;
+    }
+
+  }
+
 }
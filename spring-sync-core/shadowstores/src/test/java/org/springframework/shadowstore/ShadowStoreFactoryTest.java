@@ -0,0 +1,116 @@
+package org.springframework.shadowstore;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShadowStoreFactoryTest {
+
+  @Test
+  void storeIsKeptPerNode() {
+    ShadowStoreFactory factory = new ShadowStoreFactory(TestShadowStore::new);
+
+    ShadowStore store = factory.getShadowStore("a");
+    assertSame(store, factory.getShadowStore("a"));
+    assertNotSame(store, factory.getShadowStore("b"));
+
+    assertEquals(2, factory.size());
+    assertEquals(1, factory.getHitCount());
+    assertEquals(2, factory.getMissCount());
+  }
+
+  @Test
+  void evictDropsAndClosesStore() {
+    ShadowStoreFactory factory = new ShadowStoreFactory(TestShadowStore::new);
+    TestShadowStore store = (TestShadowStore) factory.getShadowStore("a");
+
+    factory.evict("a");
+    factory.evict("unknown");
+
+    assertTrue(store.closed);
+    assertEquals(0, factory.size());
+    assertEquals(1, factory.getEvictionCount());
+    assertNotSame(store, factory.getShadowStore("a"));
+  }
+
+  @Test
+  void leastRecentlyUsedStoresAreEvictedAboveMaxShadowStores() {
+    ShadowStoreFactory factory = new ShadowStoreFactory(TestShadowStore::new, 2);
+    TestShadowStore first = (TestShadowStore) factory.getShadowStore("a");
+    TestShadowStore second = (TestShadowStore) factory.getShadowStore("b");
+    factory.getShadowStore("a");
+    factory.getShadowStore("c");
+
+    assertEquals(2, factory.size());
+    assertEquals(1, factory.getEvictionCount());
+    assertTrue(second.closed);
+    assertSame(first, factory.getShadowStore("a"));
+  }
+
+  @Test
+  void lookupsDoNotWaitForAStoreBeingCreated() throws Exception {
+    CountDownLatch creating = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ShadowStoreFactory factory = new ShadowStoreFactory(id -> {
+      if (id.equals("slow")) {
+        creating.countDown();
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return new TestShadowStore(id);
+    });
+    ShadowStore held = factory.getShadowStore("a");
+
+    CompletableFuture<ShadowStore> slow = CompletableFuture.supplyAsync(() -> factory.getShadowStore("slow"));
+    try {
+      assertTrue(creating.await(5, TimeUnit.SECONDS));
+      assertSame(held, factory.getShadowStore("a"));
+      assertNotSame(held, factory.getShadowStore("b"));
+      assertFalse(slow.isDone());
+    } finally {
+      release.countDown();
+    }
+    assertSame(slow.get(5, TimeUnit.SECONDS), factory.getShadowStore("slow"));
+  }
+
+  private static class TestShadowStore extends AbstractShadowStore implements AutoCloseable {
+
+    private final Map<String, Shadow<?>> shadows = new HashMap<>();
+
+    private boolean closed;
+
+    TestShadowStore(String remoteNodeId) {
+      super(remoteNodeId);
+    }
+
+    @Override
+    public void putShadow(String key, Shadow<?> shadow) {
+      shadows.put(getNodeSpecificKey(key), shadow);
+    }
+
+    @Override
+    public Shadow<?> getShadow(String key) {
+      return shadows.get(getNodeSpecificKey(key));
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+
+  }
+
+}
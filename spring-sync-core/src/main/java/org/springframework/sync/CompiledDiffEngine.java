@@ -0,0 +1,677 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.sync.diffsync.Equivalency;
+import org.springframework.sync.operations.AddOperation;
+import org.springframework.sync.operations.PatchOperation;
+import org.springframework.sync.operations.RemoveOperation;
+import org.springframework.sync.operations.ReplaceOperation;
+import org.springframework.sync.operations.TestOperation;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ObjectUtils;
+
+import difflib.Delta;
+import difflib.Delta.TYPE;
+import difflib.DiffUtils;
+
+/**
+ * <p>{@link DiffEngine} that produces the same operations as {@link Diff}, but without reflective field access.</p>
+ *
+ * <p>The first time an object of a given type is compared, a differ specialized for that type is built from
+ * {@link MethodHandle} getters for each of its declared fields, and cached for the lifetime of the engine. Primitive
+ * fields are read and compared through exactly-typed handles, so they are only boxed when an operation is emitted.</p>
+ *
+ * <p>Types whose fields cannot be accessed (such as JDK value types like dates) are compared as a whole and replaced
+ * when they differ, where {@link Diff} would fail. Enums and characters are treated as values as well.</p>
+ *
+ * <p>When constructed with an {@link Equivalency}, list elements are told apart by their identity as
+ * {@link Diff#diff(Object, Object, Equivalency)} does, and elements that changed position are moved.</p>
+ *
+ * <p>When constructed to prune by hashes, the engine computes {@link StructuralHash structural hashes} and walks the
+ * subtrees whose hashes differ property by property straight away, rather than comparing them with {@code equals()}
+ * first. Subtrees whose hashes match are skipped once {@code equals()} confirms them, so that a collision of hashes
+ * doesn't lose a change. Objects are then compared by their structure: entities whose {@code equals()} only compares
+ * ids are diffed property by property all the same, unless their hashes collide too.</p>
+ *
+ * <p>The operations are tested as the {@link DiffOptions} given tell, every one of them by default.</p>
+ */
+public class CompiledDiffEngine implements DiffEngine {
+
+  private final Map<Class<?>, ObjectDiffer> differs = new ConcurrentReferenceHashMap<>();
+
+  private static final ClassValue<Long> TYPE_SEEDS = new ClassValue<>() {
+    @Override
+    protected Long computeValue(Class<?> type) {
+      return StructuralHash.of(type.getName());
+    }
+  };
+
+  private final Equivalency equivalency;
+
+  private final boolean hashing;
+
+  private final DiffOptions options;
+
+  public CompiledDiffEngine() {
+    this(null);
+  }
+
+  /**
+   * @param equivalency extracts the identities of list elements, or null to compare them by equality
+   */
+  public CompiledDiffEngine(Equivalency equivalency) {
+    this(equivalency, false);
+  }
+
+  /**
+   * @param equivalency extracts the identities of list elements, or null to compare them by equality
+   * @param hashing     whether to compute structural hashes and prune the subtrees whose hashes match
+   */
+  public CompiledDiffEngine(Equivalency equivalency, boolean hashing) {
+    this(equivalency, hashing, DiffOptions.ALL_TESTS);
+  }
+
+  /**
+   * @param equivalency extracts the identities of list elements, or null to compare them by equality
+   * @param hashing     whether to compute structural hashes and prune the subtrees whose hashes match
+   * @param options     tells which operations to test
+   */
+  public CompiledDiffEngine(Equivalency equivalency, boolean hashing, DiffOptions options) {
+    this.equivalency = equivalency;
+    this.hashing = hashing;
+    this.options = options;
+  }
+
+  @Override
+  public Patch diff(Object original, Object modified) throws PatchException {
+    return diff(original, null, modified, null);
+  }
+
+  @Override
+  public Patch diff(Object original, StructuralHash originalHash, Object modified, StructuralHash modifiedHash)
+      throws PatchException {
+    if (originalHash == null || modifiedHash == null) {
+      originalHash = null;
+      modifiedHash = null;
+    }
+    try {
+      List<PatchOperation> operations = new ArrayList<>();
+      if (original instanceof List && modified instanceof List) {
+        diffList(operations, "", (List<?>) original, (List<?>) modified, equivalency, originalHash, modifiedHash);
+      } else {
+        diffNonList(operations, "", original, modified, originalHash, modifiedHash);
+      }
+
+      return new Patch(operations);
+    } catch (Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new PatchException("Error performing diff:", (Exception) e);
+    }
+  }
+
+  @Override
+  public StructuralHash hash(Object object, Object previous, StructuralHash previousHash) throws PatchException {
+    if (!hashing) {
+      return null;
+    }
+    try {
+      return hashOf(object, previous, previousHash);
+    } catch (Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new PatchException("Error hashing " + object.getClass().getName(), (Exception) e);
+    }
+  }
+
+  // private helpers
+
+  private void diffList(List<PatchOperation> operations, String path, List<?> original, List<?> modified,
+      Equivalency equivalency, StructuralHash originalHash, StructuralHash modifiedHash) throws Throwable {
+    if (originalHash == null || modifiedHash == null || originalHash.size() != original.size()
+        || modifiedHash.size() != modified.size()) {
+      originalHash = null;
+      modifiedHash = null;
+    } else if (originalHash.matches(modifiedHash) && original.equals(modified)) {
+      return;
+    }
+
+    if (equivalency != null) {
+      int[] sources = KeyedListDiff.diff(operations, path, original, modified, equivalency, options.testsRemoves());
+      if (sources != null) {
+        for (int j = 0; j < sources.length; j++) {
+          if (sources[j] >= 0) {
+            diffNonList(operations, path + "/" + j, original.get(sources[j]), modified.get(j),
+                child(originalHash, sources[j]), child(modifiedHash, j));
+          }
+        }
+        return;
+      }
+    }
+
+    // with exact hashes, equals() is only called on the elements whose hashes match
+    boolean byHash = originalHash != null && originalHash.isExact() && modifiedHash.isExact();
+    difflib.Patch diff = byHash
+        ? DiffUtils.diff(hashedElements(original, originalHash), hashedElements(modified, modifiedHash))
+        : DiffUtils.diff(original, modified);
+    List<Delta> deltas = diff.getDeltas();
+    for (Delta delta : deltas) {
+      TYPE type = delta.getType();
+      int revisedPosition = delta.getRevised().getPosition();
+      if (type == TYPE.CHANGE) {
+        List<?> lines = delta.getRevised().getLines();
+        for (int offset = 0; offset < lines.size(); offset++) {
+          Object originalObject = original.get(revisedPosition + offset);
+          Object revisedObject = modified.get(revisedPosition + offset);
+          diffNonList(operations, path + "/" + (revisedPosition + offset), originalObject, revisedObject,
+              child(originalHash, revisedPosition + offset), child(modifiedHash, revisedPosition + offset));
+        }
+
+      } else if (type == TYPE.INSERT) {
+        List<?> lines = delta.getRevised().getLines();
+        for (int offset = 0; offset < lines.size(); offset++) {
+          // the lines may be hashed elements
+          operations.add(new AddOperation(path + "/" + (revisedPosition + offset),
+              modified.get(revisedPosition + offset)));
+        }
+      } else if (type == TYPE.DELETE) {
+        List<?> lines = delta.getOriginal().getLines();
+        for (int offset = 0; offset < lines.size(); offset++) {
+          if (options.testsRemoves()) {
+            operations.add(new TestOperation(path + "/" + revisedPosition, original.get(revisedPosition + offset)));
+          }
+          operations.add(new RemoveOperation(path + "/" + revisedPosition));
+        }
+      }
+    }
+  }
+
+  private void diffNonList(List<PatchOperation> operations, String path, Object original, Object modified,
+      StructuralHash originalHash, StructuralHash modifiedHash) throws Throwable {
+    if (originalHash != null && modifiedHash != null && originalHash.isExact() && modifiedHash.isExact()) {
+      if (originalHash.getValue() == modifiedHash.getValue() && ObjectUtils.nullSafeEquals(original, modified)) {
+        return;
+      }
+    } else if (ObjectUtils.nullSafeEquals(original, modified)) {
+      return;
+    }
+    if (modified == null) {
+      operations.add(new RemoveOperation(path));
+      return;
+    }
+
+    if (original == null || ObjectDiffer.isValue(modified.getClass())) {
+      diffValues(operations, path, original, modified);
+      return;
+    }
+
+    ObjectDiffer differ = differFor(original.getClass());
+    if (differ == ObjectDiffer.VALUE) {
+      diffValues(operations, path, original, modified);
+      return;
+    }
+    // the hashes of the properties are laid out after the type of each object
+    boolean sameType = original.getClass() == modified.getClass();
+    differ.diff(this, operations, path, original, modified, sameType ? originalHash : null,
+        sameType ? modifiedHash : null);
+  }
+
+  private void diffProperty(List<PatchOperation> operations, String path, Class<?> propertyType, Object original,
+      Object modified, StructuralHash originalHash, StructuralHash modifiedHash) throws Throwable {
+    if (original != null && modified != null) {
+      if (Collection.class.isAssignableFrom(propertyType)) {
+        diffList(operations, path, (List<?>) original, (List<?>) modified, equivalency, originalHash, modifiedHash);
+        return;
+      } else if (propertyType.isArray() && !propertyType.getComponentType().isPrimitive()) {
+        // arrays can't grow or shrink, so their elements are not moved
+        diffList(operations, path, Arrays.asList((Object[]) original), Arrays.asList((Object[]) modified), null,
+            originalHash, modifiedHash);
+        return;
+      }
+    }
+    diffNonList(operations, path, original, modified, originalHash, modifiedHash);
+  }
+
+  private StructuralHash hashOf(Object object, Object previous, StructuralHash previousHash) throws Throwable {
+    if (object == null) {
+      return StructuralHash.NULL;
+    }
+    if (object == previous && previousHash != null) {
+      return previousHash;
+    }
+    Class<?> type = object.getClass();
+    if (previous != null && previous.getClass() != type) {
+      previous = null;
+      previousHash = null;
+    }
+    if (object instanceof List) {
+      return hashElements(type, (List<?>) object, (List<?>) previous, previousHash);
+    } else if (object instanceof Collection) {
+      return hashUnordered(type, (Collection<?>) object);
+    } else if (type.isArray()) {
+      if (type.getComponentType().isPrimitive()) {
+        return StructuralHash.leaf(StructuralHash.combine(TYPE_SEEDS.get(type), ObjectUtils.nullSafeHashCode(object)),
+            false);
+      }
+      return hashElements(type, Arrays.asList((Object[]) object),
+          previous != null ? Arrays.asList((Object[]) previous) : null, previousHash);
+    } else if (ObjectDiffer.isValue(type)) {
+      return hashValue(type, object);
+    }
+    ObjectDiffer differ = differFor(type);
+    if (differ == ObjectDiffer.VALUE) {
+      return StructuralHash.leaf(StructuralHash.combine(TYPE_SEEDS.get(type), object.hashCode()), false);
+    }
+    return differ.hash(this, TYPE_SEEDS.get(type), object, previous, previousHash);
+  }
+
+  private StructuralHash hashElements(Class<?> type, List<?> list, List<?> previous, StructuralHash previousHash)
+      throws Throwable {
+    if (previous == null || previousHash == null || previousHash.size() != previous.size()) {
+      previous = null;
+      previousHash = null;
+    }
+    StructuralHash[] children = new StructuralHash[list.size()];
+    Map<Object, StructuralHash> previousElements = null;
+    for (int i = 0; i < children.length; i++) {
+      Object element = list.get(i);
+      if (previous == null) {
+        children[i] = hashOf(element, null, null);
+        continue;
+      }
+      Object previousElement = i < previous.size() ? previous.get(i) : null;
+      if (element != previousElement && element != null) {
+        // elements shift when others are added or removed before them
+        if (previousElements == null) {
+          previousElements = indexByInstance(previous, previousHash);
+        }
+        StructuralHash moved = previousElements.get(element);
+        if (moved != null) {
+          children[i] = moved;
+          continue;
+        }
+      }
+      children[i] = hashOf(element, previousElement, previousHash.child(i));
+    }
+    return StructuralHash.node(TYPE_SEEDS.get(type), children);
+  }
+
+  private StructuralHash hashUnordered(Class<?> type, Collection<?> collection) throws Throwable {
+    // the iteration order of equal sets may differ, so the hashes of the elements are summed up
+    long sum = 0;
+    boolean exact = true;
+    for (Object element : collection) {
+      StructuralHash hash = hashOf(element, null, null);
+      sum += hash.getValue();
+      exact &= hash.isExact();
+    }
+    return StructuralHash.leaf(StructuralHash.combine(TYPE_SEEDS.get(type), sum), exact);
+  }
+
+  private static StructuralHash hashValue(Class<?> type, Object value) {
+    long seed = TYPE_SEEDS.get(type);
+    if (value instanceof String) {
+      return StructuralHash.leaf(StructuralHash.combine(seed, StructuralHash.of((String) value)), true);
+    } else if (value instanceof Double || value instanceof Float) {
+      return StructuralHash.leaf(StructuralHash.combine(seed,
+          Double.doubleToLongBits(((Number) value).doubleValue())), true);
+    } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+        || value instanceof Byte) {
+      return StructuralHash.leaf(StructuralHash.combine(seed, ((Number) value).longValue()), true);
+    } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+      // unlike their hash codes, their string forms tell all unequal values apart
+      return StructuralHash.leaf(StructuralHash.combine(seed, StructuralHash.of(value.toString())), true);
+    } else if (value instanceof Boolean) {
+      return StructuralHash.leaf(StructuralHash.combine(seed, (Boolean) value ? 1 : 0), true);
+    } else if (value instanceof Character) {
+      return StructuralHash.leaf(StructuralHash.combine(seed, (Character) value), true);
+    } else if (value instanceof Enum) {
+      return StructuralHash.leaf(StructuralHash.combine(seed, StructuralHash.of(((Enum<?>) value).name())), true);
+    }
+    return StructuralHash.leaf(StructuralHash.combine(seed, value.hashCode()), false);
+  }
+
+  private static Map<Object, StructuralHash> indexByInstance(List<?> list, StructuralHash hash) {
+    Map<Object, StructuralHash> index = new IdentityHashMap<>(list.size());
+    for (int i = 0; i < list.size(); i++) {
+      Object element = list.get(i);
+      if (element != null) {
+        index.put(element, hash.child(i));
+      }
+    }
+    return index;
+  }
+
+  private static StructuralHash child(StructuralHash hash, int index) {
+    return hash != null ? hash.child(index) : null;
+  }
+
+  private static List<HashedElement> hashedElements(List<?> list, StructuralHash hash) {
+    List<HashedElement> elements = new ArrayList<>(list.size());
+    for (int i = 0; i < list.size(); i++) {
+      elements.add(new HashedElement(list.get(i), hash.child(i).getValue()));
+    }
+    return elements;
+  }
+
+  private void diffValues(List<PatchOperation> operations, String path, Object original, Object modified) {
+    if (options.testsValues()) {
+      operations.add(new TestOperation(path, original));
+    }
+    if (original == null) {
+      operations.add(new AddOperation(path, modified));
+    } else {
+      operations.add(new ReplaceOperation(path, modified));
+    }
+  }
+
+  private ObjectDiffer differFor(Class<?> type) {
+    return differs.computeIfAbsent(type, ObjectDiffer::forType);
+  }
+
+  /**
+   * A list element as compared by the line diff: elements whose hashes differ are told apart without calling
+   * {@code equals()}, and those whose hashes match are confirmed by it.
+   */
+  private static final class HashedElement {
+
+    private final Object element;
+
+    private final long hash;
+
+    HashedElement(Object element, long hash) {
+      this.element = element;
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof HashedElement && ((HashedElement) o).hash == hash
+          && ObjectUtils.nullSafeEquals(((HashedElement) o).element, element);
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(hash);
+    }
+
+  }
+
+  /**
+   * Compares two objects of the same type property by property.
+   */
+  private static final class ObjectDiffer {
+
+    /**
+     * Marker for types that are compared as a whole.
+     */
+    static final ObjectDiffer VALUE = new ObjectDiffer(new PropertyDiffer[0]);
+
+    private final PropertyDiffer[] properties;
+
+    private ObjectDiffer(PropertyDiffer[] properties) {
+      this.properties = properties;
+    }
+
+    static ObjectDiffer forType(Class<?> type) {
+      if (isValue(type)) {
+        return VALUE;
+      }
+      try {
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        List<PropertyDiffer> properties = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+            continue;
+          }
+          properties.add(PropertyDiffer.forField(field, lookup.unreflectGetter(field)));
+        }
+        return new ObjectDiffer(properties.toArray(new PropertyDiffer[0]));
+      } catch (IllegalAccessException | RuntimeException e) {
+        // not open to us (e.g. JDK types in strongly encapsulated packages)
+        return VALUE;
+      }
+    }
+
+    void diff(CompiledDiffEngine engine, List<PatchOperation> operations, String path, Object original,
+        Object modified, StructuralHash originalHash, StructuralHash modifiedHash) throws Throwable {
+      for (int i = 0; i < properties.length; i++) {
+        properties[i].diff(engine, operations, path, original, modified, child(originalHash, i),
+            child(modifiedHash, i));
+      }
+    }
+
+    StructuralHash hash(CompiledDiffEngine engine, long seed, Object object, Object previous,
+        StructuralHash previousHash) throws Throwable {
+      if (previousHash != null && previousHash.size() != properties.length) {
+        previous = null;
+        previousHash = null;
+      }
+      StructuralHash[] children = new StructuralHash[properties.length];
+      for (int i = 0; i < properties.length; i++) {
+        children[i] = properties[i].hash(engine, object, previous, child(previousHash, i));
+      }
+      return StructuralHash.node(seed, children);
+    }
+
+    static boolean isValue(Class<?> type) {
+      return type == String.class || Number.class.isAssignableFrom(type) || type == Boolean.class
+          || type == Character.class || type.isEnum() || type.isPrimitive();
+    }
+
+  }
+
+  /**
+   * Compares a single property of two objects.
+   */
+  private abstract static class PropertyDiffer {
+
+    // primitive properties are hashed like their boxed values
+    static final long BOOLEAN_SEED = TYPE_SEEDS.get(Boolean.class);
+
+    static final long INT_SEED = TYPE_SEEDS.get(Integer.class);
+
+    static final long LONG_SEED = TYPE_SEEDS.get(Long.class);
+
+    static final long DOUBLE_SEED = TYPE_SEEDS.get(Double.class);
+
+    protected final String name;
+
+    protected final MethodHandle getter;
+
+    protected PropertyDiffer(String name, MethodHandle getter) {
+      this.name = name;
+      this.getter = getter;
+    }
+
+    static PropertyDiffer forField(Field field, MethodHandle getter) {
+      Class<?> type = field.getType();
+      if (type == boolean.class) {
+        return new BooleanPropertyDiffer(field.getName(), getter);
+      } else if (type == int.class) {
+        return new IntPropertyDiffer(field.getName(), getter);
+      } else if (type == long.class) {
+        return new LongPropertyDiffer(field.getName(), getter);
+      } else if (type == double.class) {
+        return new DoublePropertyDiffer(field.getName(), getter);
+      }
+      return new ReferencePropertyDiffer(field.getName(), type, getter);
+    }
+
+    abstract void diff(CompiledDiffEngine engine, List<PatchOperation> operations, String path, Object original,
+        Object modified, StructuralHash originalHash, StructuralHash modifiedHash) throws Throwable;
+
+    /**
+     * @param previous     a previous version of the object, or null
+     * @param previousHash the hash of the property in the previous version, or null
+     */
+    abstract StructuralHash hash(CompiledDiffEngine engine, Object object, Object previous,
+        StructuralHash previousHash) throws Throwable;
+
+    protected String pathOf(String parentPath) {
+      return parentPath + "/" + name;
+    }
+
+    protected static MethodHandle typed(MethodHandle getter, Class<?> returnType) {
+      return getter.asType(MethodType.methodType(returnType, Object.class));
+    }
+
+  }
+
+  private static final class BooleanPropertyDiffer extends PropertyDiffer {
+
+    BooleanPropertyDiffer(String name, MethodHandle getter) {
+      super(name, typed(getter, boolean.class));
+    }
+
+    @Override
+    void diff(CompiledDiffEngine engine, List<PatchOperation> operations, String path, Object original,
+        Object modified, StructuralHash originalHash, StructuralHash modifiedHash) throws Throwable {
+      boolean originalValue = (boolean) getter.invokeExact(original);
+      boolean modifiedValue = (boolean) getter.invokeExact(modified);
+      if (originalValue != modifiedValue) {
+        engine.diffValues(operations, pathOf(path), originalValue, modifiedValue);
+      }
+    }
+
+    @Override
+    StructuralHash hash(CompiledDiffEngine engine, Object object, Object previous, StructuralHash previousHash)
+        throws Throwable {
+      boolean value = (boolean) getter.invokeExact(object);
+      return StructuralHash.leaf(StructuralHash.combine(BOOLEAN_SEED, value ? 1 : 0), true);
+    }
+
+  }
+
+  private static final class IntPropertyDiffer extends PropertyDiffer {
+
+    IntPropertyDiffer(String name, MethodHandle getter) {
+      super(name, typed(getter, int.class));
+    }
+
+    @Override
+    void diff(CompiledDiffEngine engine, List<PatchOperation> operations, String path, Object original,
+        Object modified, StructuralHash originalHash, StructuralHash modifiedHash) throws Throwable {
+      int originalValue = (int) getter.invokeExact(original);
+      int modifiedValue = (int) getter.invokeExact(modified);
+      if (originalValue != modifiedValue) {
+        engine.diffValues(operations, pathOf(path), originalValue, modifiedValue);
+      }
+    }
+
+    @Override
+    StructuralHash hash(CompiledDiffEngine engine, Object object, Object previous, StructuralHash previousHash)
+        throws Throwable {
+      int value = (int) getter.invokeExact(object);
+      return StructuralHash.leaf(StructuralHash.combine(INT_SEED, value), true);
+    }
+
+  }
+
+  private static final class LongPropertyDiffer extends PropertyDiffer {
+
+    LongPropertyDiffer(String name, MethodHandle getter) {
+      super(name, typed(getter, long.class));
+    }
+
+    @Override
+    void diff(CompiledDiffEngine engine, List<PatchOperation> operations, String path, Object original,
+        Object modified, StructuralHash originalHash, StructuralHash modifiedHash) throws Throwable {
+      long originalValue = (long) getter.invokeExact(original);
+      long modifiedValue = (long) getter.invokeExact(modified);
+      if (originalValue != modifiedValue) {
+        engine.diffValues(operations, pathOf(path), originalValue, modifiedValue);
+      }
+    }
+
+    @Override
+    StructuralHash hash(CompiledDiffEngine engine, Object object, Object previous, StructuralHash previousHash)
+        throws Throwable {
+      long value = (long) getter.invokeExact(object);
+      return StructuralHash.leaf(StructuralHash.combine(LONG_SEED, value), true);
+    }
+
+  }
+
+  private static final class DoublePropertyDiffer extends PropertyDiffer {
+
+    DoublePropertyDiffer(String name, MethodHandle getter) {
+      super(name, typed(getter, double.class));
+    }
+
+    @Override
+    void diff(CompiledDiffEngine engine, List<PatchOperation> operations, String path, Object original,
+        Object modified, StructuralHash originalHash, StructuralHash modifiedHash) throws Throwable {
+      double originalValue = (double) getter.invokeExact(original);
+      double modifiedValue = (double) getter.invokeExact(modified);
+      // same semantics as comparing the boxed values with equals()
+      if (Double.doubleToLongBits(originalValue) != Double.doubleToLongBits(modifiedValue)) {
+        engine.diffValues(operations, pathOf(path), originalValue, modifiedValue);
+      }
+    }
+
+    @Override
+    StructuralHash hash(CompiledDiffEngine engine, Object object, Object previous, StructuralHash previousHash)
+        throws Throwable {
+      double value = (double) getter.invokeExact(object);
+      return StructuralHash.leaf(StructuralHash.combine(DOUBLE_SEED, Double.doubleToLongBits(value)), true);
+    }
+
+  }
+
+  private static final class ReferencePropertyDiffer extends PropertyDiffer {
+
+    private final Class<?> type;
+
+    ReferencePropertyDiffer(String name, Class<?> type, MethodHandle getter) {
+      super(name, typed(getter, Object.class));
+      this.type = type;
+    }
+
+    @Override
+    void diff(CompiledDiffEngine engine, List<PatchOperation> operations, String path, Object original,
+        Object modified, StructuralHash originalHash, StructuralHash modifiedHash) throws Throwable {
+      Object originalValue = (Object) getter.invokeExact(original);
+      Object modifiedValue = (Object) getter.invokeExact(modified);
+      engine.diffProperty(operations, pathOf(path), type, originalValue, modifiedValue, originalHash, modifiedHash);
+    }
+
+    @Override
+    StructuralHash hash(CompiledDiffEngine engine, Object object, Object previous, StructuralHash previousHash)
+        throws Throwable {
+      Object value = (Object) getter.invokeExact(object);
+      Object previousValue = previous != null ? (Object) getter.invokeExact(previous) : null;
+      return engine.hashOf(value, previousValue, previousHash);
+    }
+
+  }
+
+}
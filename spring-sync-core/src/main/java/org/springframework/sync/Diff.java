@@ -22,6 +22,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
+import org.springframework.sync.diffsync.Equivalency;
 import org.springframework.sync.operations.AddOperation;
 import org.springframework.sync.operations.PatchOperation;
 import org.springframework.sync.operations.RemoveOperation;
@@ -52,12 +53,44 @@ public class Diff {
    * @throws PatchException if an error occurs while performing the difference.
    */
   public static Patch diff(Object original, Object modified) throws PatchException {
+    return diff(original, modified, null);
+  }
+
+  /**
+   * Performs a difference operation between two objects, resulting in a {@link Patch} describing the differences.
+   * The elements of lists are told apart by the identity given by the {@link Equivalency}, so that elements that
+   * changed position are moved rather than removed and added again. Lists with elements lacking an identity are
+   * compared by equality of their elements.
+   *
+   * @param original    the original, unmodified object.
+   * @param modified    the modified object.
+   * @param equivalency extracts the identities of list elements, or null to compare them by equality.
+   * @return a {@link Patch} describing the differences between the two objects.
+   * @throws PatchException if an error occurs while performing the difference.
+   */
+  public static Patch diff(Object original, Object modified, Equivalency equivalency) throws PatchException {
+    return diff(original, modified, equivalency, DiffOptions.ALL_TESTS);
+  }
+
+  /**
+   * Performs a difference operation between two objects, resulting in a {@link Patch} describing the differences,
+   * with the tests given by the options.
+   *
+   * @param original    the original, unmodified object.
+   * @param modified    the modified object.
+   * @param equivalency extracts the identities of list elements, or null to compare them by equality.
+   * @param options     tells which operations to test.
+   * @return a {@link Patch} describing the differences between the two objects.
+   * @throws PatchException if an error occurs while performing the difference.
+   */
+  public static Patch diff(Object original, Object modified, Equivalency equivalency, DiffOptions options)
+      throws PatchException {
     try {
       List<PatchOperation> operations = new ArrayList<>();
       if (original instanceof List && modified instanceof List) {
-        diffList(operations, "", (List<?>) original, (List<?>) modified);
+        diffList(operations, "", (List<?>) original, (List<?>) modified, equivalency, options);
       } else {
-        diffNonList(operations, "", original, modified);
+        diffNonList(operations, "", original, modified, equivalency, options);
       }
 
       return new Patch(operations);
@@ -68,8 +101,20 @@ public class Diff {
 
   // private helpers
 
-  private static void diffList(List<PatchOperation> operations, String path, List<?> original, List<?> modified)
-      throws IOException, IllegalAccessException {
+  private static void diffList(List<PatchOperation> operations, String path, List<?> original, List<?> modified,
+      Equivalency equivalency, DiffOptions options) throws IOException, IllegalAccessException {
+
+    if (equivalency != null) {
+      int[] sources = KeyedListDiff.diff(operations, path, original, modified, equivalency, options.testsRemoves());
+      if (sources != null) {
+        for (int j = 0; j < sources.length; j++) {
+          if (sources[j] >= 0) {
+            diffNonList(operations, path + "/" + j, original.get(sources[j]), modified.get(j), equivalency, options);
+          }
+        }
+        return;
+      }
+    }
 
     difflib.Patch diff = DiffUtils.diff(original, modified);
     List<Delta> deltas = diff.getDeltas();
@@ -81,7 +126,8 @@ public class Diff {
         for (int offset = 0; offset < lines.size(); offset++) {
           Object originalObject = original.get(revisedPosition + offset);
           Object revisedObject = modified.get(revisedPosition + offset);
-          diffNonList(operations, path + "/" + (revisedPosition + offset), originalObject, revisedObject);
+          diffNonList(operations, path + "/" + (revisedPosition + offset), originalObject, revisedObject,
+              equivalency, options);
         }
 
       } else if (type == TYPE.INSERT) {
@@ -92,16 +138,17 @@ public class Diff {
       } else if (type == TYPE.DELETE) {
         List<?> lines = delta.getOriginal().getLines();
         for (int offset = 0; offset < lines.size(); offset++) {
-          Object originalObject = original.get(revisedPosition + offset);
-          operations.add(new TestOperation(path + "/" + revisedPosition, originalObject));
+          if (options.testsRemoves()) {
+            operations.add(new TestOperation(path + "/" + revisedPosition, original.get(revisedPosition + offset)));
+          }
           operations.add(new RemoveOperation(path + "/" + revisedPosition));
         }
       }
     }
   }
 
-  private static void diffNonList(List<PatchOperation> operations, String path, Object original, Object modified)
-      throws IOException, IllegalAccessException {
+  private static void diffNonList(List<PatchOperation> operations, String path, Object original, Object modified,
+      Equivalency equivalency, DiffOptions options) throws IOException, IllegalAccessException {
     if (!ObjectUtils.nullSafeEquals(original, modified)) {
       if (modified == null) {
         operations.add(new RemoveOperation(path));
@@ -110,7 +157,9 @@ public class Diff {
 
       if (isPrimitive(modified)) {
 
-        operations.add(new TestOperation(path, original));
+        if (options.testsValues()) {
+          operations.add(new TestOperation(path, original));
+        }
         if (original == null) {
           operations.add(new AddOperation(path, modified));
         } else {
@@ -129,13 +178,15 @@ public class Diff {
         if ((fieldType.isArray() || Collection.class.isAssignableFrom(fieldType)) && origValue != null
             && modValue != null) {
           if (Collection.class.isAssignableFrom(fieldType)) {
-            diffList(operations, path + "/" + field.getName(), (List<?>) origValue, (List<?>) modValue);
+            diffList(operations, path + "/" + field.getName(), (List<?>) origValue, (List<?>) modValue, equivalency,
+                options);
           } else if (fieldType.isArray()) {
+            // arrays can't grow or shrink, so their elements are not moved
             diffList(operations, path + "/" + field.getName(), Arrays.asList((Object[]) origValue),
-                Arrays.asList((Object[]) modValue));
+                Arrays.asList((Object[]) modValue), null, options);
           }
         } else {
-          diffNonList(operations, path + "/" + field.getName(), origValue, modValue);
+          diffNonList(operations, path + "/" + field.getName(), origValue, modValue, equivalency, options);
         }
       }
 
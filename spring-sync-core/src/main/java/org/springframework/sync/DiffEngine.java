@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync;
+
+/**
+ * Strategy interface for producing a {@link Patch} from the comparison of two objects.
+ *
+ * <p>{@link Diff} remains available as a static, reflection-based utility. Implementations of this interface can be
+ * plugged into the Differential Synchronization routine to change how differences are computed.</p>
+ *
+ * @see CompiledDiffEngine
+ * @see ReflectiveDiffEngine
+ */
+public interface DiffEngine {
+
+  /**
+   * Performs a difference operation between two objects, resulting in a {@link Patch} describing the differences.
+   *
+   * @param original the original, unmodified object.
+   * @param modified the modified object.
+   * @return a {@link Patch} describing the differences between the two objects.
+   * @throws PatchException if an error occurs while performing the difference.
+   */
+  Patch diff(Object original, Object modified) throws PatchException;
+
+  /**
+   * Performs a difference operation between two objects whose
+   * {@link #hash(Object, Object, StructuralHash) structural hashes} are known, so that the subtrees with different
+   * hashes are walked without being compared as a whole first. The default implementation ignores the hashes.
+   *
+   * @param original     the original, unmodified object.
+   * @param originalHash the hash of the original object, or null.
+   * @param modified     the modified object.
+   * @param modifiedHash the hash of the modified object, or null.
+   * @return a {@link Patch} describing the differences between the two objects.
+   * @throws PatchException if an error occurs while performing the difference.
+   */
+  default Patch diff(Object original, StructuralHash originalHash, Object modified, StructuralHash modifiedHash)
+      throws PatchException {
+    return diff(original, modified);
+  }
+
+  /**
+   * Computes the structural hash of an object. The subtrees of the object that are the very instances found at the
+   * same place in a previous version take their hash from the hash of that version, so that a copy-on-write version of
+   * an object is hashed in time proportional to what was copied.
+   *
+   * @param object       the object to hash.
+   * @param previous     a previous version of the object, none of whose subtrees changed since it was hashed, or null.
+   * @param previousHash the hash of the previous version, or null.
+   * @return the hash of the object, or null if this engine does not prune by hashes, which is the default.
+   * @throws PatchException if an error occurs while hashing.
+   */
+  default StructuralHash hash(Object object, Object previous, StructuralHash previousHash) throws PatchException {
+    return null;
+  }
+
+}
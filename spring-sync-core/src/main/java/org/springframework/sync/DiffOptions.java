@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync;
+
+import org.springframework.sync.operations.TestOperation;
+
+/**
+ * <p>Options for the patches produced by {@link Diff} and the {@link DiffEngine} implementations.</p>
+ *
+ * <p>Difference patches guard the operations they hold with {@link TestOperation tests} of the original values, so that
+ * applying them to anything but the original fails rather than clobbering changes. Tests make up about half of a
+ * patch, and each of them is evaluated on apply. Patches exchanged by Differential Synchronization are only applied to
+ * a shadow at the version they were taken from, so they may do with fewer tests.</p>
+ */
+public final class DiffOptions {
+
+  /**
+   * The operations of a difference patch that are preceded by a test of the original value.
+   */
+  public enum TestLevel {
+
+    /**
+     * No operation is tested.
+     */
+    NONE,
+
+    /**
+     * Removes of list elements are tested, so that a list that changed meanwhile never loses another element than the
+     * one removed.
+     */
+    REMOVES_ONLY,
+
+    /**
+     * Removes of list elements, and adds and replaces of values are tested.
+     */
+    ALL
+
+  }
+
+  /**
+   * Tests removes and replaces, as difference patches always did.
+   */
+  public static final DiffOptions ALL_TESTS = new DiffOptions(TestLevel.ALL);
+
+  /**
+   * Tests removes of list elements only.
+   */
+  public static final DiffOptions REMOVE_TESTS = new DiffOptions(TestLevel.REMOVES_ONLY);
+
+  /**
+   * Tests nothing.
+   */
+  public static final DiffOptions NO_TESTS = new DiffOptions(TestLevel.NONE);
+
+  private final TestLevel testLevel;
+
+  private DiffOptions(TestLevel testLevel) {
+    this.testLevel = testLevel;
+  }
+
+  /**
+   * @param testLevel the operations to test
+   * @return the options testing those operations
+   */
+  public static DiffOptions withTests(TestLevel testLevel) {
+    switch (testLevel) {
+    case NONE:
+      return NO_TESTS;
+    case REMOVES_ONLY:
+      return REMOVE_TESTS;
+    default:
+      return ALL_TESTS;
+    }
+  }
+
+  /**
+   * @return the operations that are tested
+   */
+  public TestLevel getTestLevel() {
+    return testLevel;
+  }
+
+  boolean testsValues() {
+    return testLevel == TestLevel.ALL;
+  }
+
+  boolean testsRemoves() {
+    return testLevel != TestLevel.NONE;
+  }
+
+}
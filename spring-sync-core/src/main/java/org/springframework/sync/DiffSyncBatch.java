@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync;
+
+import org.springframework.shadowstore.ShadowStore;
+
+/**
+ * Several resources of one node, synchronized in one go against shadows read from the store up front. Created by
+ * {@link DiffSyncService#batch(String, java.util.Collection)}.
+ *
+ * <p>The resources of a batch are independent of each other and may be synchronized concurrently, each in a
+ * transaction of its own.</p>
+ */
+public final class DiffSyncBatch {
+
+  private final DiffSyncService diffSyncService;
+
+  private final ShadowStore shadowStore;
+
+  DiffSyncBatch(DiffSyncService diffSyncService, ShadowStore shadowStore) {
+    this.diffSyncService = diffSyncService;
+    this.shadowStore = shadowStore;
+  }
+
+  /**
+   * Synchronizes one resource of the batch.
+   *
+   * @param key   the resource, as given when creating the batch
+   * @param patch the patch from the node
+   * @return the difference patch to send back, or null if the entity does not exist
+   * @throws IllegalArgumentException if no persistence callback is registered for the resource
+   * @throws PatchException           if the patch cannot be applied
+   */
+  public Patch patch(String key, Patch patch) {
+    return diffSyncService.patch(key, patch, shadowStore);
+  }
+
+}
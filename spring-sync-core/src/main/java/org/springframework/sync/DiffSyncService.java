@@ -1,17 +1,32 @@
 package org.springframework.sync;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.shadowstore.Shadow;
 import org.springframework.shadowstore.ShadowStore;
 import org.springframework.shadowstore.ShadowStoreFactory;
+import org.springframework.sync.diffsync.Changes;
 import org.springframework.sync.diffsync.DiffSync;
 import org.springframework.sync.diffsync.Equivalency;
+import org.springframework.sync.diffsync.ListChanges;
 import org.springframework.sync.diffsync.PersistenceCallback;
 import org.springframework.sync.diffsync.PersistenceCallbackRegistry;
+import org.springframework.sync.diffsync.SyncMetrics;
+import org.springframework.sync.diffsync.SyncPhase;
+import org.springframework.sync.diffsync.VersionedPatch;
+import org.springframework.sync.operations.AddOperation;
+import org.springframework.sync.operations.FromOperation;
+import org.springframework.sync.operations.PatchOperation;
+import org.springframework.sync.util.CloningStrategy;
+import org.springframework.sync.util.DeepCloneUtils;
 
 import java.io.Serializable;
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RequiredArgsConstructor
 public class DiffSyncService implements IDiffSyncService {
@@ -22,70 +37,350 @@ public class DiffSyncService implements IDiffSyncService {
 
   private final PersistenceCallbackRegistry callbackRegistry;
 
+  private final DiffEngine diffEngine;
+
+  private final CloningStrategy cloningStrategy;
+
+  private final SyncMetrics metrics;
+
+  private final int historySize;
+
+  private final boolean editStack;
+
+  public DiffSyncService(ShadowStoreFactory shadowStoreFactory, Equivalency equivalency,
+      PersistenceCallbackRegistry callbackRegistry) {
+    this(shadowStoreFactory, equivalency, callbackRegistry,
+        new CompiledDiffEngine(null, false, DiffSync.DEFAULT_DIFF_OPTIONS), DeepCloneUtils.getDefaultStrategy());
+  }
+
+  public DiffSyncService(ShadowStoreFactory shadowStoreFactory, Equivalency equivalency,
+      PersistenceCallbackRegistry callbackRegistry, DiffEngine diffEngine, CloningStrategy cloningStrategy) {
+    this(shadowStoreFactory, equivalency, callbackRegistry, diffEngine, cloningStrategy, SyncMetrics.NONE);
+  }
+
+  public DiffSyncService(ShadowStoreFactory shadowStoreFactory, Equivalency equivalency,
+      PersistenceCallbackRegistry callbackRegistry, DiffEngine diffEngine, CloningStrategy cloningStrategy,
+      SyncMetrics metrics) {
+    this(shadowStoreFactory, equivalency, callbackRegistry, diffEngine, cloningStrategy, metrics,
+        DiffSync.DEFAULT_HISTORY_SIZE);
+  }
+
+  public DiffSyncService(ShadowStoreFactory shadowStoreFactory, Equivalency equivalency,
+      PersistenceCallbackRegistry callbackRegistry, DiffEngine diffEngine, CloningStrategy cloningStrategy,
+      SyncMetrics metrics, int historySize) {
+    this(shadowStoreFactory, equivalency, callbackRegistry, diffEngine, cloningStrategy, metrics, historySize, false);
+  }
+
   @Override
   public Patch patch(final String resource, final String resourceId, final String shadowStoreId, final Patch patch) {
-    PersistenceCallback<? extends Serializable> persistenceCallback = callbackRegistry.findPersistenceCallback(
-        resource);
+    PersistenceCallback<? extends Serializable> persistenceCallback = findPersistenceCallback(resource);
+    metrics.patchReceived(resource, patch);
+    long start = System.nanoTime();
     Object findOne = persistenceCallback.findOne(resourceId);
-    return applyAndDiff(patch, findOne, persistenceCallback, shadowStoreId);
+    metrics.phase(resource, SyncPhase.LOAD, System.nanoTime() - start);
+    return applyAndDiff(resource, patch, findOne, persistenceCallback, getShadowStore(shadowStoreId));
+  }
+
+  @Override
+  public Patch patch(final String resource, final Patch patch, final String shadowStoreId) {
+    PersistenceCallback<? extends Serializable> persistenceCallback = findPersistenceCallback(resource);
+    metrics.patchReceived(resource, patch);
+    return applyAndDiffAgainstList(resource, patch, persistenceCallback, getShadowStore(shadowStoreId));
+  }
+
+  /**
+   * Prepares to synchronize several resources of a node in one go. The shadows that the resources will need are read
+   * from the store of the node up front, in a single {@link ShadowStore#getShadows(Collection)} call, and kept for the
+   * rest of the batch. Shadows are still replaced resource by resource, before each resource is persisted, so that
+   * concurrent requests are detected as they are outside of a batch.
+   *
+   * @param shadowStoreId the id of the node
+   * @param keys          the resources to synchronize, each either a resource name, for the list of its entities, or
+   *                      a resource name and an entity id separated by a slash
+   * @return the batch, whose resources may be synchronized concurrently
+   */
+  public DiffSyncBatch batch(String shadowStoreId, Collection<String> keys) {
+    ShadowStore shadowStore = getShadowStore(shadowStoreId);
+    Set<String> shadowKeys = new HashSet<>();
+    for (String key : keys) {
+      int slash = key.indexOf('/');
+      PersistenceCallback<? extends Serializable> persistenceCallback = callbackRegistry.findPersistenceCallback(
+          slash < 0 ? key : key.substring(0, slash));
+      if (persistenceCallback == null) {
+        continue;
+      }
+      DiffSync<?> sync = newDiffSync(shadowStore, persistenceCallback);
+      String shadowKey = slash < 0 ? sync.listShadowKey() : sync.shadowKeyOfId(key.substring(slash + 1));
+      // the history of the shadow is only read by the nodes that missed a difference patch
+      shadowKeys.add(shadowKey);
+    }
+    return new DiffSyncBatch(this, new PrefetchingShadowStore(shadowStore, shadowKeys));
+  }
+
+  /**
+   * Synchronizes one resource of a {@link DiffSyncBatch}, against the shadows of the batch.
+   */
+  Patch patch(String key, Patch patch, ShadowStore shadowStore) {
+    int slash = key.indexOf('/');
+    String resource = slash < 0 ? key : key.substring(0, slash);
+    PersistenceCallback<? extends Serializable> persistenceCallback = findPersistenceCallback(resource);
+    metrics.patchReceived(resource, patch);
+    if (slash < 0) {
+      return applyAndDiffAgainstList(resource, patch, persistenceCallback, shadowStore);
+    }
+    long start = System.nanoTime();
+    Object findOne = persistenceCallback.findOne(key.substring(slash + 1));
+    metrics.phase(resource, SyncPhase.LOAD, System.nanoTime() - start);
+    if (findOne == null) {
+      return null;
+    }
+    return applyAndDiff(resource, patch, findOne, persistenceCallback, shadowStore);
+  }
+
+  /**
+   * Produces the difference patch of a resource for a node without a patch from the node, e.g. to push changes made on
+   * the server side. Nothing is produced for a node that has not synchronized the resource yet, as there is no shadow to
+   * diff against.
+   *
+   * @param key           a resource name, for the list of its entities, or a resource name and an entity id separated
+   *                      by a slash
+   * @param shadowStoreId the id of the node
+   * @return the difference patch, or null if the node has no shadow of the resource or the entity does not exist
+   * @throws IllegalArgumentException if no persistence callback is registered for the resource
+   * @throws PatchException           if a concurrent request replaced the shadow meanwhile
+   */
+  public VersionedPatch diff(String key, String shadowStoreId) {
+    int slash = key.indexOf('/');
+    String resource = slash < 0 ? key : key.substring(0, slash);
+    PersistenceCallback<? extends Serializable> persistenceCallback = findPersistenceCallback(resource);
+    ShadowStore shadowStore = getShadowStore(shadowStoreId);
+    if (slash < 0) {
+      return diffList(resource, persistenceCallback, shadowStore);
+    }
+    return diffEntity(resource, key.substring(slash + 1), persistenceCallback, shadowStore);
+  }
+
+  private <T extends Serializable> VersionedPatch diffEntity(String resource, String resourceId,
+      PersistenceCallback<T> persistenceCallback, ShadowStore shadowStore) {
+    DiffSync<T> sync = newDiffSync(shadowStore, persistenceCallback);
+    if (shadowStore.getShadow(sync.shadowKeyOfId(resourceId)) == null) {
+      return null;
+    }
+    long start = System.nanoTime();
+    T target = persistenceCallback.findOne(resourceId);
+    start = phaseEnded(resource, SyncPhase.LOAD, start);
+    if (target == null) {
+      return null;
+    }
+    VersionedPatch diff = sync.diff(target);
+    phaseEnded(resource, SyncPhase.DIFF, start);
+    return diff;
+  }
+
+  private <T extends Serializable> VersionedPatch diffList(String resource,
+      PersistenceCallback<T> persistenceCallback, ShadowStore shadowStore) {
+    DiffSync<T> sync = newDiffSync(shadowStore, persistenceCallback);
+    if (shadowStore.getShadow(sync.listShadowKey()) == null) {
+      return null;
+    }
+    long start = System.nanoTime();
+    LoadedList<T> target = loadList(new Patch(List.of()), persistenceCallback, shadowStore, sync);
+    start = phaseEnded(resource, SyncPhase.LOAD, start);
+    VersionedPatch diff = sync.diff(target.items(), target.version());
+    phaseEnded(resource, SyncPhase.DIFF, start);
+    return diff;
   }
 
   @SuppressWarnings("unchecked")
-  private <T extends Serializable> Patch applyAndDiff(Patch patch, Object target,
+  private <T extends Serializable> Patch applyAndDiff(String resource, Patch patch, Object target,
       PersistenceCallback<T> persistenceCallback,
-      final String shadowStoreId) {
-    final ShadowStore shadowStore = getShadowStore(shadowStoreId);
+      final ShadowStore shadowStore) {
+    DiffSync<T> sync = newDiffSync(shadowStore, persistenceCallback);
 
-    DiffSync<T> sync = new DiffSync<>(shadowStore, persistenceCallback.getEntityType());
+    long start = System.nanoTime();
     T patched = sync.apply((T) target, patch);
+    start = phaseEnded(resource, SyncPhase.APPLY, start);
     persistenceCallback.persistChange(patched);
-    return sync.diff(patched);
+    start = phaseEnded(resource, SyncPhase.PERSIST, start);
+    Patch diff = sync.diff(patched);
+    phaseEnded(resource, SyncPhase.DIFF, start);
+    return diff;
   }
 
-  private <T extends Serializable> Patch applyAndDiffAgainstList(Patch patch, List<T> target,
+  private <T extends Serializable> Patch applyAndDiffAgainstList(String resource, Patch patch,
       PersistenceCallback<T> persistenceCallback,
-      final String shadowStoreId) {
-    final ShadowStore shadowStore = getShadowStore(shadowStoreId);
-
-    DiffSync<T> sync = new DiffSync<>(shadowStore, persistenceCallback.getEntityType());
-
-    List<T> patched = sync.apply(target, patch);
-
-    List<T> itemsToSave = new ArrayList<>(patched);
-    itemsToSave.removeAll(target);
-
-    // Determine which items should be deleted.
-    // Make a shallow copy of the target, remove items that are equivalent to items in the working copy.
-    // Equivalent is not the same as equals. It means "this is the same resource, even if it has changed".
-    // It usually means "are the id properties equals".
-    List<T> itemsToDelete = new ArrayList<>(target);
-    for (T candidate : target) {
-      for (T item : patched) {
-        if (equivalency.isEquivalent(candidate, item)) {
-          itemsToDelete.remove(candidate);
-          break;
+      final ShadowStore shadowStore) {
+    DiffSync<T> sync = newDiffSync(shadowStore, persistenceCallback);
+
+    long start = System.nanoTime();
+    LoadedList<T> target = loadList(patch, persistenceCallback, shadowStore, sync);
+    start = phaseEnded(resource, SyncPhase.LOAD, start);
+    // applying replaces the shadow with one that has no version of the change feed, so that a round failing to persist
+    // leaves the next one to load all entities
+    List<T> patched = sync.apply(target.items(), patch);
+    start = phaseEnded(resource, SyncPhase.APPLY, start);
+
+    ListChanges<T> changes = ListChanges.between(target.items(), patched, equivalency);
+    persistenceCallback.persistChanges(changes.getItemsToSave(), changes.getItemsToDelete());
+    start = phaseEnded(resource, SyncPhase.PERSIST, start);
+
+    Patch diff = sync.diff(patched, target.version());
+    phaseEnded(resource, SyncPhase.DIFF, start);
+    return diff;
+  }
+
+  private <T extends Serializable> DiffSync<T> newDiffSync(ShadowStore shadowStore,
+      PersistenceCallback<T> persistenceCallback) {
+    return new DiffSync<>(shadowStore, persistenceCallback.getEntityType(), diffEngine,
+        metrics.instrument(cloningStrategy), equivalency, metrics, historySize, editStack);
+  }
+
+  /**
+   * @return the time the phase ended at, which the next one starts at
+   */
+  private long phaseEnded(String resource, SyncPhase phase, long start) {
+    long end = System.nanoTime();
+    metrics.phase(resource, phase, end - start);
+    return end;
+  }
+
+  /**
+   * Loads the list as persisted. When the callback keeps a change feed, the list is rebuilt from its shadow, which holds
+   * the list as persisted at the end of the previous round, the changes since then and the current state of the
+   * entities the patch touches. Otherwise, or on the first round, or after a round that failed, all entities are
+   * loaded.
+   */
+  @SuppressWarnings("unchecked")
+  private <T extends Serializable> LoadedList<T> loadList(Patch patch, PersistenceCallback<T> persistenceCallback,
+      ShadowStore shadowStore, DiffSync<T> sync) {
+    Shadow<?> shadow = shadowStore.getShadow(sync.listShadowKey());
+    if (shadow != null && shadow.getChangeVersion() != null) {
+      Changes<T> changes = persistenceCallback.findChangesSince(shadow.getChangeVersion());
+      if (changes != null) {
+        List<T> items = applyChanges((List<T>) shadow.getResource(), changes, patch, persistenceCallback);
+        if (items != null) {
+          return new LoadedList<>(items, changes.getVersion());
+        }
+      }
+    }
+    // the version is read first, so that changes made while loading are picked up again by the next round
+    Changes<T> current = persistenceCallback.findChangesSince(null);
+    return new LoadedList<>(persistenceCallback.findAll(), current != null ? current.getVersion() : null);
+  }
+
+  /**
+   * @return a copy of the items with the changes applied, or null if an item has no identity to match changes with
+   */
+  private <T> List<T> applyChanges(List<T> shadowItems, Changes<T> changes, Patch patch,
+      PersistenceCallback<T> persistenceCallback) {
+    List<T> items = new ArrayList<>(shadowItems);
+    Map<Object, Integer> positions = new HashMap<>(items.size() * 4 / 3 + 1);
+    for (int i = 0; i < items.size(); i++) {
+      Object id = equivalency.identityOf(items.get(i));
+      if (id == null) {
+        return null;
+      }
+      positions.put(id, i);
+    }
+    Set<Object> deletedIds = new HashSet<>(changes.getDeletedIds());
+    merge(items, positions, changes.getSaved());
+
+    // the entities the patch touches are reloaded, so that it applies to their current state even if the feed lags
+    Map<String, Object> touchedIds = touchedIds(patch, shadowItems);
+    if (!touchedIds.isEmpty()) {
+      List<T> touched = persistenceCallback.findAllById(touchedIds.keySet());
+      merge(items, positions, touched);
+      Set<Object> found = new HashSet<>();
+      for (T item : touched) {
+        found.add(equivalency.identityOf(item));
+      }
+      for (Object id : touchedIds.values()) {
+        if (!found.contains(id)) {
+          deletedIds.add(id);
         }
       }
     }
-    persistenceCallback.persistChanges(itemsToSave, itemsToDelete);
 
-    return sync.diff(patched);
+    if (!deletedIds.isEmpty()) {
+      items.removeIf(item -> deletedIds.contains(equivalency.identityOf(item)));
+    }
+    return items;
   }
 
-  private ShadowStore getShadowStore(final String shadowStoreId) {
-    final ShadowStore shadowStore;
+  private <T> void merge(List<T> items, Map<Object, Integer> positions, List<T> saved) {
+    for (T item : saved) {
+      Object id = equivalency.identityOf(item);
+      Integer position = positions.get(id);
+      if (position != null) {
+        items.set(position, item);
+      } else {
+        positions.put(id, items.size());
+        items.add(item);
+      }
+    }
+  }
+
+  /**
+   * The ids of the items of the shadow that the operations of a patch address, by their String form.
+   */
+  private <T> Map<String, Object> touchedIds(Patch patch, List<T> shadowItems) {
+    Map<String, Object> ids = new HashMap<>();
+    for (PatchOperation operation : patch.getOperations()) {
+      addTouchedId(operation.getPath(), operation instanceof AddOperation, shadowItems, ids);
+      if (operation instanceof FromOperation) {
+        addTouchedId(((FromOperation) operation).getFrom(), false, shadowItems, ids);
+      }
+    }
+    return ids;
+  }
+
+  private <T> void addTouchedId(String path, boolean insertsItem, List<T> shadowItems, Map<String, Object> ids) {
+    if (path == null || !path.startsWith("/")) {
+      return;
+    }
+    int end = path.indexOf('/', 1);
+    if (end < 0) {
+      if (insertsItem) {
+        return;
+      }
+      end = path.length();
+    }
+    int index;
     try {
-      shadowStore = shadowStoreFactory.getShadowStore(shadowStoreId);
-    } catch (InvocationTargetException | IllegalAccessException | InstantiationException | NoSuchMethodException e) {
-      throw new PatchException("Could not instantiate a shadow store!");
+      index = Integer.parseInt(path, 1, end, 10);
+    } catch (NumberFormatException e) {
+      return;
+    }
+    if (index < 0 || index >= shadowItems.size()) {
+      return;
+    }
+    Object id = equivalency.identityOf(shadowItems.get(index));
+    if (id != null) {
+      ids.put(String.valueOf(id), id);
     }
-    return shadowStore;
   }
 
-  @Override
-  public Patch patch(final String resource, final Patch patch, final String shadowStoreId) {
+  /**
+   * Looks the callback up before anything is recorded about the resource, as the name comes from the client.
+   */
+  private PersistenceCallback<? extends Serializable> findPersistenceCallback(String resource) {
     PersistenceCallback<? extends Serializable> persistenceCallback = callbackRegistry.findPersistenceCallback(
         resource);
-    return applyAndDiffAgainstList(patch, (List) persistenceCallback.findAll(), persistenceCallback, shadowStoreId);
+    if (persistenceCallback == null) {
+      throw new IllegalArgumentException("No persistence callback registered for resource " + resource);
+    }
+    return persistenceCallback;
+  }
+
+  private ShadowStore getShadowStore(final String shadowStoreId) {
+    return metrics.instrument(shadowStoreFactory.getShadowStore(shadowStoreId));
   }
+
+  /**
+   * @param version the version of the change feed that the items are the persisted list at, or null if the callback
+   *                keeps no change feed
+   */
+  private record LoadedList<T>(List<T> items, Long version) {
+  }
+
 }
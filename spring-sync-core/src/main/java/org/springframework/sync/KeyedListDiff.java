@@ -0,0 +1,265 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.sync.diffsync.Equivalency;
+import org.springframework.sync.operations.AddOperation;
+import org.springframework.sync.operations.MoveOperation;
+import org.springframework.sync.operations.PatchOperation;
+import org.springframework.sync.operations.RemoveOperation;
+import org.springframework.sync.operations.TestOperation;
+
+/**
+ * <p>Diffs two lists whose elements are told apart by the identity an {@link Equivalency} extracts from them, rather
+ * than by equality, so that an element whose properties changed is still recognized as the same element.</p>
+ *
+ * <p>Elements missing from the modified list are removed, new elements are added, and elements that changed position
+ * are moved. The elements left in place are those of the longest run that kept its relative order, so a reordered list
+ * takes as few moves as possible. It runs in O(n log n) time, against the O(n * d) of a longest common subsequence,
+ * d being the number of differences.</p>
+ *
+ * <p>Changes to the properties of the elements are left to the caller, which gets the index of the original element of
+ * every element of the modified list. Once the operations emitted here are applied, the list is in the modified order,
+ * so these changes apply at the index of the element in the modified list.</p>
+ */
+final class KeyedListDiff {
+
+  private KeyedListDiff() {
+  }
+
+  /**
+   * Emits the operations that turn the original list into the modified one, up to the properties of the elements.
+   *
+   * @param operations  the operations to add to
+   * @param path        the path of the list
+   * @param original    the original list
+   * @param modified    the modified list
+   * @param equivalency extracts the identities of the elements
+   * @param testRemoves whether to test the elements before removing them
+   * @return for each element of the modified list, the index of its original element or -1 if it was added; null,
+   * without emitting any operation, if some element has no identity or shares it with another element of its list
+   */
+  static int[] diff(List<PatchOperation> operations, String path, List<?> original, List<?> modified,
+      Equivalency equivalency, boolean testRemoves) {
+    Map<Object, Integer> originalIndexes = indexByIdentity(original, equivalency);
+    if (originalIndexes == null) {
+      return null;
+    }
+    int[] sources = new int[modified.size()];
+    Map<Object, Integer> modifiedIndexes = new HashMap<>(capacityFor(modified.size()));
+    for (int j = 0; j < sources.length; j++) {
+      Object identity = equivalency.identityOf(modified.get(j));
+      if (identity == null || modifiedIndexes.put(identity, j) != null) {
+        return null;
+      }
+      Integer source = originalIndexes.get(identity);
+      sources[j] = source != null ? source : -1;
+    }
+
+    // remove from the end, so that the indexes of the elements still to remove don't shift
+    boolean[] kept = new boolean[original.size()];
+    for (int source : sources) {
+      if (source >= 0) {
+        kept[source] = true;
+      }
+    }
+    int[] positions = new int[original.size()];
+    int remaining = 0;
+    for (int i = 0; i < kept.length; i++) {
+      positions[i] = kept[i] ? remaining++ : -1;
+    }
+    for (int i = kept.length - 1; i >= 0; i--) {
+      if (!kept[i]) {
+        if (testRemoves) {
+          operations.add(new TestOperation(path + "/" + i, original.get(i)));
+        }
+        operations.add(new RemoveOperation(path + "/" + i));
+      }
+    }
+
+    new Placement(remaining, sources, positions).emit(operations, path, modified);
+    return sources;
+  }
+
+  // private helpers
+
+  private static Map<Object, Integer> indexByIdentity(List<?> list, Equivalency equivalency) {
+    Map<Object, Integer> indexes = new HashMap<>(capacityFor(list.size()));
+    for (int i = 0; i < list.size(); i++) {
+      Object identity = equivalency.identityOf(list.get(i));
+      if (identity == null || indexes.put(identity, i) != null) {
+        return null;
+      }
+    }
+    return indexes;
+  }
+
+  private static int capacityFor(int size) {
+    return (int) (size / 0.75f) + 1;
+  }
+
+  /**
+   * <p>Places the elements of the modified list, in order, right after the element placed before them. The elements
+   * kept in the list after removal are slots of a linked list, and so are the elements to add or move, once linked
+   * after the slot of the element placed before them. The order of the slots is then the order of the list at any
+   * point while the operations are applied, save for the slots that are not occupied yet or anymore.</p>
+   *
+   * <p>The index of an element is the number of occupied slots before its own, counted in a Fenwick tree.</p>
+   */
+  private static final class Placement {
+
+    private final int remaining;
+
+    private final int[] sources;
+
+    private final int[] positions;
+
+    private final int[] targetSlots;
+
+    private final int[] ranks;
+
+    private final int[] tree;
+
+    Placement(int remaining, int[] sources, int[] positions) {
+      this.remaining = remaining;
+      this.sources = sources;
+      this.positions = positions;
+      this.targetSlots = new int[sources.length];
+      this.ranks = new int[remaining + sources.length];
+      this.tree = new int[ranks.length + 1];
+      linkSlots(stablePositions());
+    }
+
+    void emit(List<PatchOperation> operations, String path, List<?> modified) {
+      for (int slot = 0; slot < remaining; slot++) {
+        occupy(slot);
+      }
+      for (int j = 0; j < sources.length; j++) {
+        int targetSlot = targetSlots[j];
+        if (targetSlot < remaining) {
+          continue;
+        }
+        if (sources[j] < 0) {
+          operations.add(new AddOperation(path + "/" + indexOf(targetSlot), modified.get(j)));
+        } else {
+          int slot = positions[sources[j]];
+          int from = indexOf(slot);
+          vacate(slot);
+          int to = indexOf(targetSlot);
+          if (from != to) {
+            operations.add(new MoveOperation(path + "/" + to, path + "/" + from));
+          }
+        }
+        occupy(targetSlot);
+      }
+    }
+
+    /**
+     * @return whether each element kept after removal belongs to the longest run of elements that kept their relative
+     * order, and can be left in place
+     */
+    private boolean[] stablePositions() {
+      int[] sequence = new int[remaining];
+      int length = 0;
+      for (int source : sources) {
+        if (source >= 0) {
+          sequence[length++] = positions[source];
+        }
+      }
+      // patience sorting: tails[k] is the index in the sequence of the smallest end of an increasing run of length k+1
+      int[] tails = new int[length];
+      int[] previous = new int[length];
+      int runs = 0;
+      for (int i = 0; i < length; i++) {
+        int low = 0;
+        int high = runs;
+        while (low < high) {
+          int middle = (low + high) >>> 1;
+          if (sequence[tails[middle]] < sequence[i]) {
+            low = middle + 1;
+          } else {
+            high = middle;
+          }
+        }
+        previous[i] = low > 0 ? tails[low - 1] : -1;
+        tails[low] = i;
+        if (low == runs) {
+          runs++;
+        }
+      }
+      boolean[] stable = new boolean[remaining];
+      for (int i = runs > 0 ? tails[runs - 1] : -1; i >= 0; i = previous[i]) {
+        stable[sequence[i]] = true;
+      }
+      return stable;
+    }
+
+    private void linkSlots(boolean[] stable) {
+      int head = ranks.length;
+      int[] next = new int[ranks.length + 1];
+      Arrays.fill(next, -1);
+      for (int slot = 0; slot < remaining; slot++) {
+        next[slot == 0 ? head : slot - 1] = slot;
+      }
+      int nextSlot = remaining;
+      for (int j = 0; j < sources.length; j++) {
+        int source = sources[j];
+        if (source >= 0 && stable[positions[source]]) {
+          targetSlots[j] = positions[source];
+        } else {
+          int after = j == 0 ? head : targetSlots[j - 1];
+          int slot = nextSlot++;
+          next[slot] = next[after];
+          next[after] = slot;
+          targetSlots[j] = slot;
+        }
+      }
+      int rank = 0;
+      for (int slot = next[head]; slot >= 0; slot = next[slot]) {
+        ranks[slot] = ++rank;
+      }
+    }
+
+    private int indexOf(int slot) {
+      int count = 0;
+      for (int i = ranks[slot] - 1; i > 0; i -= i & -i) {
+        count += tree[i];
+      }
+      return count;
+    }
+
+    private void occupy(int slot) {
+      update(ranks[slot], 1);
+    }
+
+    private void vacate(int slot) {
+      update(ranks[slot], -1);
+    }
+
+    private void update(int rank, int delta) {
+      for (int i = rank; i < tree.length; i += i & -i) {
+        tree[i] += delta;
+      }
+    }
+
+  }
+
+}
@@ -16,9 +16,16 @@
 package org.springframework.sync;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
+import org.springframework.sync.operations.MoveOperation;
 import org.springframework.sync.operations.PatchOperation;
+import org.springframework.sync.operations.TestOperation;
+import org.springframework.sync.util.CloningStrategy;
 import org.springframework.sync.util.DeepCloneUtils;
 
 /**
@@ -61,8 +68,25 @@ public class Patch {
    * @throws PatchException if there are any errors while applying the patch.
    */
   public <T extends Serializable> T apply(T in, Class<T> type) throws PatchException {
+    return apply(in, type, DeepCloneUtils.getDefaultStrategy());
+  }
+
+  /**
+   * Applies the Patch to a given Object graph. Makes a copy of the given object with the given
+   * {@link CloningStrategy} so that it will remain unchanged after application of the patch
+   * and in case any errors occur while performing the patch.
+   *
+   * @param in              The object graph to apply the patch to.
+   * @param type            The object type.
+   * @param cloningStrategy The strategy used to copy the object graph.
+   * @param <T>             the object type.
+   * @return An object graph modified by the patch.
+   * @throws PatchException if there are any errors while applying the patch.
+   */
+  public <T extends Serializable> T apply(T in, Class<T> type, CloningStrategy cloningStrategy)
+      throws PatchException {
     // Make defensive copy of in before performing operations so that if any op fails, the original is left untouched
-    T work = DeepCloneUtils.deepClone(in);
+    T work = cloningStrategy.deepClone(in);
 
     for (PatchOperation operation : operations) {
       operation.perform(work, type);
@@ -82,8 +106,25 @@ public class Patch {
    * @throws PatchException if there are any errors while applying the patch.
    */
   public <T extends Serializable> List<T> apply(List<T> in, Class<T> type) throws PatchException {
+    return apply(in, type, DeepCloneUtils.getDefaultStrategy());
+  }
+
+  /**
+   * Applies the Patch to a given List of objects. Makes a copy of the given list with the given
+   * {@link CloningStrategy} so that it will remain unchanged after application of the patch
+   * and in case any errors occur while performing the patch.
+   *
+   * @param in              The list to apply the patch to.
+   * @param type            The list's generic type.
+   * @param cloningStrategy The strategy used to copy the list.
+   * @param <T>             the list's generic type.
+   * @return An list modified by the patch.
+   * @throws PatchException if there are any errors while applying the patch.
+   */
+  public <T extends Serializable> List<T> apply(List<T> in, Class<T> type, CloningStrategy cloningStrategy)
+      throws PatchException {
     // Make defensive copy of in before performing operations so that if any op fails, the original is left untouched
-    List<T> work = DeepCloneUtils.deepClone(in);
+    List<T> work = cloningStrategy.deepClone(in);
 
     for (PatchOperation operation : operations) {
       operation.perform(work, type);
@@ -92,4 +133,81 @@ public class Patch {
     return work;
   }
 
+  /**
+   * Applies the Patch to a given List of objects, copying only what the operations change. The list is copied, as are
+   * the elements that operations change the properties of, while the other elements are shared with the given list.
+   * The given list and its elements remain unchanged after application of the patch and in case any errors occur
+   * while performing the patch, as long as they aren't changed in turn.
+   *
+   * @param in              The list to apply the patch to.
+   * @param type            The list's generic type.
+   * @param cloningStrategy The strategy used to copy the changed elements.
+   * @param <T>             the list's generic type.
+   * @return A list modified by the patch.
+   * @throws PatchException if there are any errors while applying the patch.
+   */
+  public <T extends Serializable> List<T> applyCopyOnWrite(List<T> in, Class<T> type, CloningStrategy cloningStrategy)
+      throws PatchException {
+    List<T> work = new ArrayList<>(in);
+    Set<Object> copies = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    for (PatchOperation operation : operations) {
+      if (!(operation instanceof TestOperation)) {
+        copyElement(work, operation.getPath(), copies, cloningStrategy);
+        if (operation instanceof MoveOperation) {
+          copyElement(work, ((MoveOperation) operation).getFrom(), copies, cloningStrategy);
+        }
+      }
+      operation.perform(work, type);
+    }
+
+    return work;
+  }
+
+  /**
+   * Applies the Patch to a given Object graph without copying it. Only meant for objects that nothing else refers to,
+   * as the object is left partially patched in case any errors occur while performing the patch.
+   *
+   * @param work The object graph to apply the patch to.
+   * @param type The object type, or the list's generic type if the object graph is a list.
+   * @param <T>  the object graph type.
+   * @return The given object graph, modified by the patch.
+   * @throws PatchException if there are any errors while applying the patch.
+   */
+  public <T> T applyInPlace(T work, Class<?> type) throws PatchException {
+    for (PatchOperation operation : operations) {
+      operation.perform(work, type);
+    }
+    return work;
+  }
+
+  // private helpers
+
+  /**
+   * Replaces the element of the list that a path leads into with a copy, unless it already is one. Paths to the list
+   * elements themselves leave them as they are, as operations on them only change the list.
+   */
+  private static <T extends Serializable> void copyElement(List<T> work, String path, Set<Object> copies,
+      CloningStrategy cloningStrategy) {
+    int end = path.indexOf('/', 1);
+    if (!path.startsWith("/") || end < 0) {
+      return;
+    }
+    int index;
+    try {
+      index = Integer.parseInt(path, 1, end, 10);
+    } catch (NumberFormatException e) {
+      return;
+    }
+    if (index < 0 || index >= work.size()) {
+      return;
+    }
+    T element = work.get(index);
+    if (element != null && !copies.contains(element)) {
+      T copy = cloningStrategy.deepClone(element);
+      work.set(index, copy);
+      copies.add(copy);
+    }
+  }
+
 }
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import org.springframework.sync.operations.AddOperation;
+import org.springframework.sync.operations.CopyOperation;
+import org.springframework.sync.operations.FromOperation;
+import org.springframework.sync.operations.MoveOperation;
+import org.springframework.sync.operations.PatchOperation;
+import org.springframework.sync.operations.RemoveOperation;
+import org.springframework.sync.operations.ReplaceOperation;
+import org.springframework.sync.operations.TestOperation;
+
+/**
+ * <p>Composes a sequence of patches into a single patch with the same effect, dropping the operations that a later
+ * operation makes redundant:</p>
+ *
+ * <ul>
+ *   <li>a write to a path that a later operation overwrites or removes, along with the writes below that path;</li>
+ *   <li>a test that an earlier operation implies, having set or tested the same value at the same path;</li>
+ *   <li>an element added to a list and removed again, the indices of the operations in between being shifted back;</li>
+ *   <li>a replace of an element just added to a list, which is folded into the add.</li>
+ * </ul>
+ *
+ * <p>Each operation is only folded into the nearest earlier operation touching its path, looking at most
+ * {@value #LOOKBEHIND} operations back, so that composing stays linear in the size of the patches. Tests, moves and
+ * copies read the value at a path, so no write before them is ever dropped; nor is a write to a path whose list
+ * indices were shifted in the meantime. Composition never makes a patch fail that wouldn't have, though it may make a
+ * patch succeed that would have failed half way.</p>
+ */
+public final class PatchCompactor {
+
+  private static final int LOOKBEHIND = 256;
+
+  private static final String APPEND = "~";
+
+  private PatchCompactor() {
+  }
+
+  /**
+   * @param patches the patches, in the order they are applied in
+   * @return a single patch with the same effect as applying all of the patches in turn
+   */
+  public static Patch compose(List<? extends Patch> patches) {
+    int size = 0;
+    for (Patch patch : patches) {
+      size += patch.size();
+    }
+    List<PatchOperation> operations = new ArrayList<>(size);
+    for (Patch patch : patches) {
+      for (PatchOperation operation : patch.getOperations()) {
+        append(operations, operation);
+      }
+    }
+    return new Patch(operations);
+  }
+
+  /**
+   * @param patch a patch
+   * @return a patch with the same effect, without the operations that later operations of the patch make redundant
+   */
+  public static Patch compact(Patch patch) {
+    return compose(List.of(patch));
+  }
+
+  private static void append(List<PatchOperation> operations, PatchOperation operation) {
+    String[] path = segments(operation.getPath());
+    int end = Math.max(0, operations.size() - LOOKBEHIND);
+    for (int i = operations.size() - 1; i >= end; i--) {
+      PatchOperation earlier = operations.get(i);
+      if (!isRelated(earlier, path)) {
+        continue;
+      }
+      if (isImplied(operation, earlier)) {
+        return;
+      }
+      if (earlier instanceof AddOperation && isListIndex(path) && operation.getPath().equals(earlier.getPath())) {
+        if (operation instanceof ReplaceOperation) {
+          operations.set(i, new AddOperation(earlier.getPath(), operation.getValue()));
+          return;
+        }
+        if (operation instanceof RemoveOperation && isIndex(path[path.length - 1])
+            && cancelAdd(operations, i, path)) {
+          return;
+        }
+        break;
+      }
+      if (!overwrites(operation, path) || !isOverwritten(earlier, path)) {
+        break;
+      }
+      // the earlier write is lost anyway, and keeps looking for more of them
+      operations.remove(i);
+    }
+    operations.add(operation);
+  }
+
+  /**
+   * A test is implied by the nearest earlier operation touching its path having set or tested the same value there.
+   */
+  private static boolean isImplied(PatchOperation operation, PatchOperation earlier) {
+    if (!(operation instanceof TestOperation) || !operation.getPath().equals(earlier.getPath())) {
+      return false;
+    }
+    // a test passing within a tolerance doesn't imply another one passing within a narrower one
+    boolean setsValue = earlier instanceof TestOperation
+        && ((TestOperation) earlier).getTolerance() == ((TestOperation) operation).getTolerance()
+        || earlier instanceof ReplaceOperation
+        || earlier instanceof AddOperation && !earlier.getPath().endsWith("/" + APPEND);
+    return setsValue && Objects.equals(operation.getValue(), earlier.getValue());
+  }
+
+  /**
+   * Drops an element added at {@code index} and removed again, shifting back the indices of the operations in between
+   * that come after it in the same list, none of which touch the element itself.
+   */
+  private static boolean cancelAdd(List<PatchOperation> operations, int index, String[] path) {
+    String[] list = Arrays.copyOf(path, path.length - 1);
+    int removed = Integer.parseInt(path[path.length - 1]);
+    List<PatchOperation> shifted = new ArrayList<>(operations.size() - index - 1);
+    for (PatchOperation operation : operations.subList(index + 1, operations.size())) {
+      PatchOperation shiftedOperation = shift(operation, list, removed);
+      if (shiftedOperation == null) {
+        return false;
+      }
+      shifted.add(shiftedOperation);
+    }
+    operations.subList(index, operations.size()).clear();
+    operations.addAll(shifted);
+    return true;
+  }
+
+  /**
+   * @return the operation with the indices past {@code removed} in {@code list} decremented, or null if the operation
+   * can't be rebuilt
+   */
+  private static PatchOperation shift(PatchOperation operation, String[] list, int removed) {
+    String path = shift(operation.getPath(), list, removed);
+    String from = operation instanceof FromOperation ? shift(((FromOperation) operation).getFrom(), list, removed) : null;
+    if (path == null || operation instanceof FromOperation && from == null) {
+      return null;
+    }
+    if (path.equals(operation.getPath()) && (from == null || from.equals(((FromOperation) operation).getFrom()))) {
+      return operation;
+    }
+    if (operation instanceof AddOperation) {
+      return new AddOperation(path, operation.getValue());
+    } else if (operation instanceof RemoveOperation) {
+      return new RemoveOperation(path);
+    } else if (operation instanceof ReplaceOperation) {
+      return new ReplaceOperation(path, operation.getValue());
+    } else if (operation instanceof TestOperation) {
+      return new TestOperation(path, operation.getValue(), ((TestOperation) operation).getTolerance());
+    } else if (operation instanceof MoveOperation) {
+      return new MoveOperation(path, from);
+    } else if (operation instanceof CopyOperation) {
+      return new CopyOperation(path, from);
+    }
+    return null;
+  }
+
+  /**
+   * @return the path with its index past {@code removed} in {@code list} decremented, or null if the path may go
+   * through the list by a "~" that can't be told apart from the other elements
+   */
+  private static String shift(String path, String[] list, int removed) {
+    String[] segments = segments(path);
+    if (segments.length <= list.length || !isPrefix(list, segments)) {
+      return path;
+    }
+    if (!Arrays.equals(list, Arrays.copyOf(segments, list.length)) || APPEND.equals(segments[list.length])) {
+      return null;
+    }
+    String segment = segments[list.length];
+    if (!isIndex(segment) || Integer.parseInt(segment) <= removed) {
+      return path;
+    }
+    segments[list.length] = Integer.toString(Integer.parseInt(segment) - 1);
+    return "/" + String.join("/", segments);
+  }
+
+  /**
+   * @return whether the operation replaces the whole value at its path, so that earlier writes below it are lost
+   */
+  private static boolean overwrites(PatchOperation operation, String[] path) {
+    return operation instanceof ReplaceOperation || operation instanceof RemoveOperation
+        || operation instanceof AddOperation && !isListIndex(path);
+  }
+
+  /**
+   * @return whether the earlier operation only writes at or below a path, without moving the elements of a list
+   * holding the path
+   */
+  private static boolean isOverwritten(PatchOperation earlier, String[] path) {
+    if (earlier instanceof TestOperation || earlier instanceof FromOperation) {
+      return false;
+    }
+    String[] earlierPath = segments(earlier.getPath());
+    if (earlierPath.length < path.length || !Arrays.equals(path, Arrays.copyOf(earlierPath, path.length))) {
+      return false;
+    }
+    return earlierPath.length > path.length || earlier instanceof ReplaceOperation || !isListIndex(earlierPath);
+  }
+
+  /**
+   * @return whether the earlier operation touches the value at a path, at, above or below it, or moves the elements
+   * of a list holding it
+   */
+  private static boolean isRelated(PatchOperation earlier, String[] path) {
+    if (isRelated(earlier.getPath(), earlier, path)) {
+      return true;
+    }
+    return earlier instanceof FromOperation && isRelated(((FromOperation) earlier).getFrom(), earlier, path);
+  }
+
+  private static boolean isRelated(String earlierPath, PatchOperation earlier, String[] path) {
+    String[] segments = segments(earlierPath);
+    if (isPrefix(segments, path) || isPrefix(path, segments)) {
+      return true;
+    }
+    boolean movesElements = !(earlier instanceof ReplaceOperation || earlier instanceof TestOperation)
+        && isListIndex(segments);
+    return movesElements && segments.length <= path.length
+        && isPrefix(Arrays.copyOf(segments, segments.length - 1), path);
+  }
+
+  /**
+   * @return whether a path starts with the given segments, "~" standing for any index since it is resolved as the
+   * list is patched
+   */
+  private static boolean isPrefix(String[] prefix, String[] path) {
+    if (prefix.length > path.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (!prefix[i].equals(path[i]) && !APPEND.equals(prefix[i]) && !APPEND.equals(path[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isListIndex(String[] path) {
+    return path.length > 0 && (isIndex(path[path.length - 1]) || APPEND.equals(path[path.length - 1]));
+  }
+
+  private static boolean isIndex(String segment) {
+    if (segment.isEmpty() || segment.length() > 9) {
+      return false;
+    }
+    for (int i = 0; i < segment.length(); i++) {
+      if (!Character.isDigit(segment.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String[] segments(String path) {
+    String trimmed = path.startsWith("/") ? path.substring(1) : path;
+    return trimmed.isEmpty() ? new String[0] : trimmed.split("/");
+  }
+
+}
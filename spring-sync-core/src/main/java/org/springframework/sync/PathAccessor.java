@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync;
+
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.util.ConcurrentLruCache;
+
+/**
+ * <p>A patch path resolved for a given target type: the SpEL expressions targeting the path and its parent, along with
+ * the list index that the path ends with.</p>
+ *
+ * <p>Accessors are kept in a bounded, concurrent cache keyed by target type and path, so that a path which is patched
+ * over and over (such as "/3/complete") is parsed once and then costs a single lookup. Expressions are parsed in
+ * {@link SpelCompilerMode#MIXED} mode: once they have been evaluated often enough they are compiled to bytecode
+ * specialized for the target type, falling back to interpretation should the compiled form ever fail.</p>
+ */
+public final class PathAccessor {
+
+  private static final int CACHE_LIMIT = 4096;
+
+  private static final SpelExpressionParser SPEL_EXPRESSION_PARSER = new SpelExpressionParser(
+      new SpelParserConfiguration(SpelCompilerMode.MIXED, null));
+
+  private static final ConcurrentLruCache<CacheKey, PathAccessor> CACHE = new ConcurrentLruCache<>(CACHE_LIMIT,
+      key -> new PathAccessor(key.path()));
+
+  private final Expression expression;
+
+  private final Expression parentExpression;
+
+  private final Integer listIndex;
+
+  private PathAccessor(String path) {
+    this.expression = SPEL_EXPRESSION_PARSER.parseExpression(PathToSpEL.pathToSpEL(path));
+    this.parentExpression = SPEL_EXPRESSION_PARSER.parseExpression(PathToSpEL.parentPathToSpEL(path));
+    this.listIndex = PathToSpEL.targetListIndex(path);
+  }
+
+  /**
+   * Looks up the accessor for a path on a given target type, resolving it if it isn't already cached.
+   *
+   * @param targetType the type of the object that the path is evaluated against.
+   * @param path       the patch path. (e.g., '/1/description')
+   * @return the {@link PathAccessor} for the path
+   */
+  public static PathAccessor forPath(Class<?> targetType, String path) {
+    return CACHE.get(new CacheKey(targetType, path));
+  }
+
+  /**
+   * @return an {@link Expression} targeting the path.
+   */
+  public Expression getExpression() {
+    return expression;
+  }
+
+  /**
+   * @return an {@link Expression} targeting the parent of the object that the path targets.
+   */
+  public Expression getParentExpression() {
+    return parentExpression;
+  }
+
+  /**
+   * @return the list index that the path ends with, -1 if the path ends with "~", or null if the path doesn't
+   * end with a list index.
+   */
+  public Integer getListIndex() {
+    return listIndex;
+  }
+
+  private record CacheKey(Class<?> targetType, String path) {
+  }
+
+}
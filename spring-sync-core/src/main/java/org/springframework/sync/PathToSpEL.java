@@ -58,15 +58,38 @@ public class PathToSpEL {
    * @return an {@link Expression} targeting the parent of the object specifed by path.
    */
   public static Expression pathToParentExpression(String path) {
-    return spelToExpression(pathNodesToSpEL(copyOf(path.split("/"), path.split("/").length - 1)));
+    return spelToExpression(parentPathToSpEL(path));
   }
 
-  // private helpers
+  // package-private helpers, shared with PathAccessor
 
-  private static String pathToSpEL(String path) {
+  static String pathToSpEL(String path) {
     return pathNodesToSpEL(path.split("/"));
   }
 
+  static String parentPathToSpEL(String path) {
+    String[] pathNodes = path.split("/");
+    return pathNodesToSpEL(copyOf(pathNodes, pathNodes.length - 1));
+  }
+
+  static Integer targetListIndex(String path) {
+    String[] pathNodes = path.split("/");
+
+    String lastNode = pathNodes[pathNodes.length - 1];
+
+    if ("~".equals(lastNode)) {
+      return -1;
+    }
+
+    try {
+      return Integer.parseInt(lastNode);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  // private helpers
+
   private static String pathNodesToSpEL(String[] pathNodes) {
     StringBuilder spelBuilder = new StringBuilder();
 
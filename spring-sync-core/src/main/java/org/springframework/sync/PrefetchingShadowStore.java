@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync;
+
+import org.springframework.shadowstore.Shadow;
+import org.springframework.shadowstore.ShadowStore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-through, write-through view of a {@link ShadowStore} for the duration of a {@link DiffSyncBatch}. The shadows of
+ * the batch are read in one go when the view is created; the shadows written through the view replace them, so that
+ * later reads of the batch never go back to the store. Writes always go to the store, which keeps replacing a shadow
+ * conditional.
+ */
+final class PrefetchingShadowStore implements ShadowStore {
+
+  private final ShadowStore delegate;
+
+  /**
+   * The shadows known to the batch, with an empty value for those known not to exist.
+   */
+  private final Map<String, Optional<Shadow<?>>> shadows = new ConcurrentHashMap<>();
+
+  PrefetchingShadowStore(ShadowStore delegate, Collection<String> keys) {
+    this.delegate = delegate;
+    if (!keys.isEmpty()) {
+      Map<String, Shadow<?>> found = delegate.getShadows(keys);
+      for (String key : keys) {
+        shadows.put(key, Optional.ofNullable(found.get(key)));
+      }
+    }
+  }
+
+  @Override
+  public void putShadow(String key, Shadow<?> shadow) {
+    delegate.putShadow(key, shadow);
+    shadows.put(key, Optional.of(shadow));
+  }
+
+  @Override
+  public Shadow<?> getShadow(String key) {
+    Optional<Shadow<?>> shadow = shadows.get(key);
+    if (shadow != null) {
+      return shadow.orElse(null);
+    }
+    Shadow<?> loaded = delegate.getShadow(key);
+    shadows.putIfAbsent(key, Optional.ofNullable(loaded));
+    return loaded;
+  }
+
+  @Override
+  public Map<String, Shadow<?>> getShadows(Collection<String> keys) {
+    Map<String, Shadow<?>> found = new HashMap<>();
+    List<String> missing = new ArrayList<>();
+    for (String key : keys) {
+      Optional<Shadow<?>> shadow = shadows.get(key);
+      if (shadow == null) {
+        missing.add(key);
+      } else {
+        shadow.ifPresent(value -> found.put(key, value));
+      }
+    }
+    if (!missing.isEmpty()) {
+      Map<String, Shadow<?>> loaded = delegate.getShadows(missing);
+      for (String key : missing) {
+        shadows.putIfAbsent(key, Optional.ofNullable(loaded.get(key)));
+      }
+      found.putAll(loaded);
+    }
+    return found;
+  }
+
+  @Override
+  public boolean replaceShadow(String key, Shadow<?> expected, Shadow<?> shadow, String backupKey,
+      Shadow<?> backupShadow) {
+    if (!delegate.replaceShadow(key, expected, shadow, backupKey, backupShadow)) {
+      // whatever is stored now is unknown to the batch
+      shadows.remove(key);
+      if (backupKey != null) {
+        shadows.remove(backupKey);
+      }
+      return false;
+    }
+    shadows.put(key, Optional.of(shadow));
+    if (backupShadow != null) {
+      shadows.put(backupKey, Optional.of(backupShadow));
+    }
+    return true;
+  }
+
+}
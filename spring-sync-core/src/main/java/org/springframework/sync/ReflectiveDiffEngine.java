@@ -0,0 +1,54 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync;
+
+import org.springframework.sync.diffsync.Equivalency;
+
+/**
+ * {@link DiffEngine} that delegates to the reflection-based {@link Diff}.
+ */
+public class ReflectiveDiffEngine implements DiffEngine {
+
+  private final Equivalency equivalency;
+
+  private final DiffOptions options;
+
+  public ReflectiveDiffEngine() {
+    this(null);
+  }
+
+  /**
+   * @param equivalency extracts the identities of list elements, or null to compare them by equality
+   */
+  public ReflectiveDiffEngine(Equivalency equivalency) {
+    this(equivalency, DiffOptions.ALL_TESTS);
+  }
+
+  /**
+   * @param equivalency extracts the identities of list elements, or null to compare them by equality
+   * @param options     tells which operations to test
+   */
+  public ReflectiveDiffEngine(Equivalency equivalency, DiffOptions options) {
+    this.equivalency = equivalency;
+    this.options = options;
+  }
+
+  @Override
+  public Patch diff(Object original, Object modified) throws PatchException {
+    return Diff.diff(original, modified, equivalency, options);
+  }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync;
+
+/**
+ * <p>A Merkle-style hash of an object graph: the hash of an object combines the hashes of its properties, and the hash
+ * of a list those of its elements, so that two subtrees with different hashes are known to differ without comparing
+ * them. The hashes of the children are kept, in the order of the properties or elements, to descend into the changed
+ * branches only. Two subtrees with the same hash are most likely identical, but a 64-bit hash may still collide: the
+ * diff engine confirms them with {@code equals()} before skipping them.</p>
+ *
+ * <p>Strings, numbers, booleans, characters and enums are hashed from their content on 64 bits. Other values, such as
+ * dates, can only be hashed through {@link Object#hashCode()}, which may collide: the hashes of these values, and of
+ * every subtree holding one, are not {@link #isExact() exact} and are never taken as proof of equality.</p>
+ *
+ * <p>Instances are immutable, and as such may be shared between the hashes of several versions of a graph.</p>
+ *
+ * @see CompiledDiffEngine#CompiledDiffEngine(org.springframework.sync.diffsync.Equivalency, boolean)
+ */
+public final class StructuralHash {
+
+  private static final StructuralHash[] NO_CHILDREN = new StructuralHash[0];
+
+  static final StructuralHash NULL = new StructuralHash(0x6A09E667F3BCC909L, true, NO_CHILDREN);
+
+  private final long value;
+
+  private final boolean exact;
+
+  private final StructuralHash[] children;
+
+  private StructuralHash(long value, boolean exact, StructuralHash[] children) {
+    this.value = value;
+    this.exact = exact;
+    this.children = children;
+  }
+
+  static StructuralHash leaf(long value, boolean exact) {
+    return new StructuralHash(value, exact, NO_CHILDREN);
+  }
+
+  /**
+   * @param seed     tells apart nodes of different types
+   * @param children the hashes of the properties or elements, in order
+   */
+  static StructuralHash node(long seed, StructuralHash[] children) {
+    long value = seed;
+    boolean exact = true;
+    for (StructuralHash child : children) {
+      value = combine(value, child.value);
+      exact &= child.exact;
+    }
+    return new StructuralHash(combine(value, children.length), exact, children);
+  }
+
+  /**
+   * @return the hash of the subtree
+   */
+  public long getValue() {
+    return value;
+  }
+
+  /**
+   * @return whether two subtrees with this hash can be taken as identical
+   */
+  public boolean isExact() {
+    return exact;
+  }
+
+  /**
+   * @return the number of properties or elements
+   */
+  public int size() {
+    return children.length;
+  }
+
+  /**
+   * @param index the index of a property, in declaration order, or of an element
+   * @return the hash of the property or element, or null if there's none at that index
+   */
+  public StructuralHash child(int index) {
+    return index < children.length ? children[index] : null;
+  }
+
+  /**
+   * @param other the hash of another subtree, possibly null
+   * @return true if both subtrees are most likely identical, to be confirmed by comparing them
+   */
+  public boolean matches(StructuralHash other) {
+    return other != null && exact && other.exact && value == other.value;
+  }
+
+  static long combine(long hash, long value) {
+    return mix(hash * 0x9E3779B97F4A7C15L + value);
+  }
+
+  static long of(CharSequence chars) {
+    long hash = 0xCBF29CE484222325L;
+    for (int i = 0; i < chars.length(); i++) {
+      hash = (hash ^ chars.charAt(i)) * 0x100000001B3L;
+    }
+    return mix(hash);
+  }
+
+  /**
+   * The finalizer of SplitMix64, so that every bit of the input affects every bit of the hash.
+   */
+  static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+}
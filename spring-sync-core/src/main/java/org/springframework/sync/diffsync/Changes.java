@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The entities saved or deleted since a version of the store, as reported by
+ * {@link PersistenceCallback#findChangesSince(Long)}.
+ *
+ * @param <T> the entity type
+ */
+@Getter
+@RequiredArgsConstructor
+public final class Changes<T> {
+
+  /**
+   * The entities saved since the version, in their current state.
+   */
+  private final List<T> saved;
+
+  /**
+   * The ids of the entities deleted since the version, as {@link Equivalency#identityOf(Object)} extracts them.
+   */
+  private final Collection<?> deletedIds;
+
+  /**
+   * The version that these changes bring the entities up to, to ask for the next changes with.
+   */
+  private final long version;
+
+  /**
+   * @param version the current version of the store
+   * @param <T>     the entity type
+   * @return no changes, up to the given version
+   */
+  public static <T> Changes<T> none(long version) {
+    return new Changes<>(Collections.emptyList(), Collections.emptyList(), version);
+  }
+
+}
@@ -15,14 +15,20 @@
  */
 package org.springframework.sync.diffsync;
 
-import lombok.RequiredArgsConstructor;
 import org.springframework.shadowstore.Shadow;
 import org.springframework.shadowstore.ShadowStore;
-import org.springframework.sync.Diff;
+import org.springframework.sync.CompiledDiffEngine;
+import org.springframework.sync.DiffEngine;
+import org.springframework.sync.DiffOptions;
 import org.springframework.sync.Patch;
+import org.springframework.sync.PatchCompactor;
+import org.springframework.sync.PatchException;
+import org.springframework.sync.StructuralHash;
+import org.springframework.sync.util.CloningStrategy;
 import org.springframework.sync.util.DeepCloneUtils;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -58,16 +64,130 @@ import java.util.List;
  * @param <T> The entity type to perform differential synchronization against.
  * @author Craig Walls
  */
-@RequiredArgsConstructor
 public class DiffSync<T extends Serializable> {
 
+  /**
+   * The number of versions of a shadow that are kept by default, for nodes that missed as many difference patches.
+   */
+  public static final int DEFAULT_HISTORY_SIZE = 8;
+
+  /**
+   * The tests that difference patches hold by default: a versioned patch is only applied to a shadow at the version it
+   * was taken from, which makes testing its values redundant, but the node patches its own copy of the resource too,
+   * which may have lost or gained list elements since.
+   */
+  public static final DiffOptions DEFAULT_DIFF_OPTIONS = DiffOptions.REMOVE_TESTS;
+
+  private static final String HISTORY_SUFFIX = "_history/";
+
+  private static final DiffEngine DEFAULT_DIFF_ENGINE = new CompiledDiffEngine(null, false, DEFAULT_DIFF_OPTIONS);
+
   private final ShadowStore shadowStore;
 
   private final Class<T> entityType;
 
+  private final DiffEngine diffEngine;
+
+  private final CloningStrategy cloningStrategy;
+
+  private final Equivalency equivalency;
+
+  private final SyncMetrics metrics;
+
+  private final int historySize;
+
+  private final boolean editStack;
+
+  /**
+   * Constructs a {@link DiffSync} that computes differences with a {@link CompiledDiffEngine} testing the
+   * {@link #DEFAULT_DIFF_OPTIONS default operations}, clones with the
+   * {@link DeepCloneUtils#getDefaultStrategy() default cloning strategy} and keeps a shadow per entity "id" property.
+   *
+   * @param shadowStore the store holding the shadows of the remote node
+   * @param entityType  the entity type to perform differential synchronization against
+   */
+  public DiffSync(ShadowStore shadowStore, Class<T> entityType) {
+    this(shadowStore, entityType, DEFAULT_DIFF_ENGINE, DeepCloneUtils.getDefaultStrategy(),
+        new IdPropertyEquivalency());
+  }
+
+  /**
+   * Constructs a {@link DiffSync} that reports to no {@link SyncMetrics}.
+   *
+   * @param shadowStore     the store holding the shadows of the remote node
+   * @param entityType      the entity type to perform differential synchronization against
+   * @param diffEngine      computes the differences between resources and their shadows
+   * @param cloningStrategy copies resources and shadows before they are patched
+   * @param equivalency     tells which entities represent the same resource
+   */
+  public DiffSync(ShadowStore shadowStore, Class<T> entityType, DiffEngine diffEngine,
+      CloningStrategy cloningStrategy, Equivalency equivalency) {
+    this(shadowStore, entityType, diffEngine, cloningStrategy, equivalency, SyncMetrics.NONE);
+  }
+
+  /**
+   * Constructs a {@link DiffSync} that keeps the {@link #DEFAULT_HISTORY_SIZE default number} of versions of a shadow.
+   *
+   * @param shadowStore     the store holding the shadows of the remote node
+   * @param entityType      the entity type to perform differential synchronization against
+   * @param diffEngine      computes the differences between resources and their shadows
+   * @param cloningStrategy copies resources and shadows before they are patched
+   * @param equivalency     tells which entities represent the same resource
+   * @param metrics         told about the shadows found, restored and dropped
+   */
+  public DiffSync(ShadowStore shadowStore, Class<T> entityType, DiffEngine diffEngine,
+      CloningStrategy cloningStrategy, Equivalency equivalency, SyncMetrics metrics) {
+    this(shadowStore, entityType, diffEngine, cloningStrategy, equivalency, metrics, DEFAULT_HISTORY_SIZE);
+  }
+
+  /**
+   * @param shadowStore     the store holding the shadows of the remote node
+   * @param entityType      the entity type to perform differential synchronization against
+   * @param diffEngine      computes the differences between resources and their shadows
+   * @param cloningStrategy copies resources and shadows before they are patched
+   * @param equivalency     tells which entities represent the same resource
+   * @param metrics         told about the shadows found, restored and dropped
+   * @param historySize     the number of versions of a shadow to keep, for nodes that missed as many difference
+   *                        patches; 1 keeps the last one only
+   */
+  public DiffSync(ShadowStore shadowStore, Class<T> entityType, DiffEngine diffEngine,
+      CloningStrategy cloningStrategy, Equivalency equivalency, SyncMetrics metrics, int historySize) {
+    this(shadowStore, entityType, diffEngine, cloningStrategy, equivalency, metrics, historySize, false);
+  }
+
+  /**
+   * @param shadowStore     the store holding the shadows of the remote node
+   * @param entityType      the entity type to perform differential synchronization against
+   * @param diffEngine      computes the differences between resources and their shadows
+   * @param cloningStrategy copies resources and shadows before they are patched
+   * @param equivalency     tells which entities represent the same resource
+   * @param metrics         told about the shadows found, restored and dropped
+   * @param historySize     the number of versions of a shadow to keep, for nodes that missed as many difference
+   *                        patches; 1 keeps the last one only
+   * @param editStack       whether difference patches are sent again, composed with the later ones, until the node
+   *                        acknowledges them by echoing their server version; the node must then roll its own shadow
+   *                        back to the version a difference patch is based on, as {@link #apply(Patch, Serializable)} does
+   */
+  public DiffSync(ShadowStore shadowStore, Class<T> entityType, DiffEngine diffEngine,
+      CloningStrategy cloningStrategy, Equivalency equivalency, SyncMetrics metrics, int historySize,
+      boolean editStack) {
+    if (historySize < 1) {
+      throw new IllegalArgumentException("History size must be at least 1, was " + historySize);
+    }
+    this.shadowStore = shadowStore;
+    this.entityType = entityType;
+    this.diffEngine = diffEngine;
+    this.cloningStrategy = cloningStrategy;
+    this.equivalency = equivalency;
+    this.metrics = metrics;
+    this.historySize = historySize;
+    this.editStack = editStack;
+  }
+
   /**
    * Applies one or more patches to a target object and the target object's shadow, per the Differential Synchronization algorithm.
    * The target object will remain unchanged and a patched copy will be returned.
+   * Consecutive edits of the node are composed by a {@link PatchCompactor} and applied at once.
    *
    * @param target  An object to apply a patch to. Will remain unchanged.
    * @param patches The patches to be applied.
@@ -75,8 +195,8 @@ public class DiffSync<T extends Serializable> {
    */
   public T apply(T target, Patch... patches) {
     T result = target;
-    for (Patch patch : patches) {
-      result = apply(patch, result);
+    for (List<Patch> edits : editsOf(patches)) {
+      result = apply(edits, result);
     }
     return result;
   }
@@ -90,26 +210,63 @@ public class DiffSync<T extends Serializable> {
    * @return a patched copy of the target.
    */
   public T apply(Patch patch, T target) {
-    if (patch.size() == 0) {
+    return apply(List.of(patch), target);
+  }
+
+  private T apply(List<Patch> edits, T target) {
+    Patch first = edits.get(0);
+    if (first.size() == 0) {
+      acknowledge(shadowKeyOf(target), first);
       return target;
     }
-    Shadow<T> shadow = getShadow(target);
-    if (patch instanceof VersionedPatch) {
-      VersionedPatch versionedPatch = (VersionedPatch) patch;
-      // e.g., if patch.serverVersion < shadow.serverVersion
+    // resolved once, so that a patch changing the identity of the target doesn't move its shadow
+    String shadowStoreKey = shadowKeyOf(target);
+    Shadow<T> storedShadow = getStoredShadow(shadowStoreKey);
+    Shadow<T> shadow = storedShadow;
+    boolean rolledBack = false;
+    if (shadow != null && first instanceof VersionedPatch) {
+      VersionedPatch versionedPatch = (VersionedPatch) first;
+      // the node missed the difference patches since, which the next diff sends again
       if (versionedPatch.getServerVersion() < shadow.getServerVersion()) {
-        shadow = getBackupShadow(target);
-        putShadow(shadow);
+        shadow = getHistoricShadow(shadowStoreKey, versionedPatch.getServerVersion());
+        rolledBack = true;
+        metrics.backupRestored(entityType);
       }
     }
+    // a new shadow is a copy of its own, which can be patched without copying it again
+    boolean newShadow = shadow == null;
+    if (newShadow) {
+      shadow = newShadow(target);
+    }
+    if (newShadow) {
+      metrics.shadowMiss(entityType);
+    } else {
+      metrics.shadowHit(entityType);
+    }
 
-    if (shouldApplyPatch(patch, shadow)) {
-      shadow = new Shadow<>(patch.apply(shadow.getResource(), entityType), shadow.getServerVersion(),
-          shadow.getClientVersion() + 1);
-      Shadow<T> backupShadow = new Shadow<>(shadow.getResource(), shadow.getServerVersion(), shadow.getClientVersion());
-      putShadow(shadow);
-      putBackupShadow(backupShadow);
-      return patch.apply(DeepCloneUtils.deepClone(target), entityType);
+    int duplicates = duplicatesOf(edits, shadow);
+    Patch patch = duplicates < edits.size() ? compose(edits.subList(duplicates, edits.size())) : null;
+    if (patch != null && shouldApplyPatch(patch, shadow)) {
+      T patchedShadow = newShadow
+          ? patch.applyInPlace(shadow.getResource(), entityType)
+          : patch.apply(shadow.getResource(), entityType, cloningStrategy);
+      // a new shadow is equal to the target, so the patched target is equal to the patched shadow
+      T patched = newShadow
+          ? cloningStrategy.deepClone(patchedShadow)
+          : patch.apply(target, entityType, cloningStrategy);
+      StructuralHash hashes = newShadow ? null : hashAfterPatch(patchedShadow, shadow);
+      // a versioned patch echoes the server version of the shadow, acknowledging the edits up to it
+      shadow = new Shadow<>(patchedShadow, shadow.getServerVersion(),
+          shadow.getClientVersion() + edits.size() - duplicates,
+          patch instanceof VersionedPatch ? shadow.getServerVersion() : shadow.getAcknowledgedVersion());
+      shadow.setHashes(hashes);
+      replaceShadow(shadowStoreKey, storedShadow, shadow, null);
+      dropped(duplicates);
+      return patched;
+    }
+    dropped(edits.size());
+    if (rolledBack) {
+      replaceShadow(shadowStoreKey, storedShadow, shadow, null);
     }
     return target;
   }
@@ -117,6 +274,7 @@ public class DiffSync<T extends Serializable> {
   /**
    * Applies one or more patches to a target list and the target list's shadow, per the Differential Synchronization algorithm.
    * The target object will remain unchanged and a patched copy will be returned.
+   * Consecutive edits of the node are composed by a {@link PatchCompactor} and applied at once.
    *
    * @param patches The patch to be applied.
    * @param target  A list to apply a patch to. Will remain unchanged.
@@ -124,8 +282,8 @@ public class DiffSync<T extends Serializable> {
    */
   public List<T> apply(List<T> target, Patch... patches) {
     List<T> result = target;
-    for (Patch patch : patches) {
-      result = apply(patch, result);
+    for (List<Patch> edits : editsOf(patches)) {
+      result = apply(edits, result);
     }
     return result;
   }
@@ -139,26 +297,58 @@ public class DiffSync<T extends Serializable> {
    * @return a patched copy of the target.
    */
   public List<T> apply(Patch patch, List<T> target) {
-    if (patch.size() == 0) {
+    return apply(List.of(patch), target);
+  }
+
+  private List<T> apply(List<Patch> edits, List<T> target) {
+    Patch first = edits.get(0);
+    if (first.size() == 0) {
+      acknowledge(listShadowKey(), first);
       return target;
     }
-    Shadow<List<T>> shadow = getShadow(target);
-    if (patch instanceof VersionedPatch) {
-      VersionedPatch versionedPatch = (VersionedPatch) patch;
+    String shadowStoreKey = listShadowKey();
+    Shadow<List<T>> storedShadow = getStoredShadow(shadowStoreKey);
+    Shadow<List<T>> shadow = storedShadow;
+    boolean rolledBack = false;
+    if (shadow != null && first instanceof VersionedPatch) {
+      VersionedPatch versionedPatch = (VersionedPatch) first;
       if (versionedPatch.getServerVersion() < shadow.getServerVersion()) {
-        shadow = getBackupShadow(target);
-        putListShadow(shadow);
+        shadow = getHistoricShadow(shadowStoreKey, versionedPatch.getServerVersion());
+        rolledBack = true;
+        metrics.backupRestored(entityType);
       }
     }
+    boolean newShadow = shadow == null;
+    if (newShadow) {
+      shadow = newListShadow(target);
+    }
+    if (newShadow) {
+      metrics.shadowMiss(entityType);
+    } else {
+      metrics.shadowHit(entityType);
+    }
 
-    if (shouldApplyPatch(patch, shadow)) {
-      shadow = new Shadow<>(patch.apply(shadow.getResource(), entityType), shadow.getServerVersion(),
-          shadow.getClientVersion() + 1);
-      Shadow<List<T>> backupShadow = new Shadow<>(shadow.getResource(), shadow.getServerVersion(),
-          shadow.getClientVersion());
-      putListShadow(shadow);
-      putBackupListShadow(backupShadow);
-      return patch.apply(DeepCloneUtils.deepClone(target), entityType);
+    int duplicates = duplicatesOf(edits, shadow);
+    Patch patch = duplicates < edits.size() ? compose(edits.subList(duplicates, edits.size())) : null;
+    if (patch != null && shouldApplyPatch(patch, shadow)) {
+      // stored shadows are never changed once stored, so the patched shadow may share the elements left unchanged
+      List<T> patchedShadow = newShadow
+          ? patch.applyInPlace(shadow.getResource(), entityType)
+          : patch.applyCopyOnWrite(shadow.getResource(), entityType, cloningStrategy);
+      List<T> patched = patch.applyCopyOnWrite(target, entityType, cloningStrategy);
+      StructuralHash hashes = newShadow ? null : hashAfterPatch(patchedShadow, shadow);
+      // a versioned patch echoes the server version of the shadow, acknowledging the edits up to it
+      shadow = new Shadow<>(patchedShadow, shadow.getServerVersion(),
+          shadow.getClientVersion() + edits.size() - duplicates,
+          patch instanceof VersionedPatch ? shadow.getServerVersion() : shadow.getAcknowledgedVersion());
+      shadow.setHashes(hashes);
+      replaceShadow(shadowStoreKey, storedShadow, shadow, null);
+      dropped(duplicates);
+      return patched;
+    }
+    dropped(edits.size());
+    if (rolledBack) {
+      replaceShadow(shadowStoreKey, storedShadow, shadow, null);
     }
     return target;
   }
@@ -171,13 +361,30 @@ public class DiffSync<T extends Serializable> {
    * @return a {@link VersionedPatch} describing the differences between the target and its shadow.
    */
   public VersionedPatch diff(T target) {
-    Shadow<T> shadow = getShadow(target);
-    Patch diff = Diff.diff(shadow.getResource(), target);
+    String shadowStoreKey = shadowKeyOf(target);
+    Shadow<T> storedShadow = getStoredShadow(shadowStoreKey);
+    Shadow<T> shadow = storedShadow != null ? getPendingBase(shadowStoreKey, storedShadow) : newShadow(target);
+    int acknowledgedVersion = (storedShadow != null ? storedShadow : shadow).getAcknowledgedVersion();
+    // stored shadows are never changed, so the shadow the difference is taken from is kept as is, for a node that
+    // misses the difference to roll back to; a pending base is kept already
+    Shadow<T> historicShadow = shadow == storedShadow ? storedShadow : null;
+    StructuralHash shadowHash = hashesOf(shadow);
+    StructuralHash targetHash = diffEngine.hash(target, shadow.getResource(), shadowHash);
+    Patch diff = diffEngine.diff(shadow.getResource(), shadowHash, target, targetHash);
     VersionedPatch vDiff = new VersionedPatch(diff.getOperations(), shadow.getServerVersion(),
         shadow.getClientVersion());
-    T patched = diff.apply(shadow.getResource(), entityType);
-    shadow = new Shadow<>(patched, shadow.getServerVersion() + 1, shadow.getClientVersion());
-    putShadow(shadow);
+    T patched;
+    if (diff.size() == 0) {
+      patched = shadow.getResource();
+    } else if (storedShadow == null) {
+      patched = diff.applyInPlace(shadow.getResource(), entityType);
+    } else {
+      patched = diff.apply(shadow.getResource(), entityType, cloningStrategy);
+    }
+    shadow = new Shadow<>(patched, shadow.getServerVersion() + 1, shadow.getClientVersion(), acknowledgedVersion);
+    // the patched shadow has the structure of the target
+    shadow.setHashes(diff.size() == 0 ? shadowHash : targetHash);
+    replaceShadow(shadowStoreKey, storedShadow, shadow, historicShadow);
     return vDiff;
   }
 
@@ -189,18 +396,164 @@ public class DiffSync<T extends Serializable> {
    * @return a {@link VersionedPatch} describing the differences between the target and its shadow.
    */
   public VersionedPatch diff(List<T> target) {
-    Shadow<List<T>> shadow = getShadow(target);
-    Patch diff = Diff.diff(shadow.getResource(), target);
+    return diff(target, null);
+  }
+
+  /**
+   * Compares a target list with its shadow, producing a patch describing the difference, and records on the new shadow
+   * the version of the change feed that the target was loaded at.
+   *
+   * @param target        The target list to produce a difference patch for.
+   * @param changeVersion the version of the change feed of the persistence callback that the target is the persisted
+   *                      list at, or null if unknown
+   * @return a {@link VersionedPatch} describing the differences between the target and its shadow.
+   * @see PersistenceCallback#findChangesSince(Long)
+   */
+  public VersionedPatch diff(List<T> target, Long changeVersion) {
+    String shadowStoreKey = listShadowKey();
+    Shadow<List<T>> storedShadow = getStoredShadow(shadowStoreKey);
+    Shadow<List<T>> shadow = storedShadow != null ? getPendingBase(shadowStoreKey, storedShadow) : newListShadow(target);
+    int acknowledgedVersion = (storedShadow != null ? storedShadow : shadow).getAcknowledgedVersion();
+    // stored shadows are never changed, so the shadow the difference is taken from is kept as is, for a node that
+    // misses the difference to roll back to; a pending base is kept already
+    Shadow<List<T>> historicShadow = shadow == storedShadow ? storedShadow : null;
+    StructuralHash shadowHash = hashesOf(shadow);
+    StructuralHash targetHash = diffEngine.hash(target, shadow.getResource(), shadowHash);
+    Patch diff = diffEngine.diff(shadow.getResource(), shadowHash, target, targetHash);
     VersionedPatch vDiff = new VersionedPatch(diff.getOperations(), shadow.getServerVersion(),
         shadow.getClientVersion());
-    List<T> patched = diff.apply(shadow.getResource(), entityType);
-    shadow = new Shadow<>(patched, shadow.getServerVersion() + 1, shadow.getClientVersion());
-    putListShadow(shadow);
+    List<T> patched;
+    if (diff.size() == 0) {
+      patched = shadow.getResource();
+    } else if (storedShadow == null) {
+      patched = diff.applyInPlace(shadow.getResource(), entityType);
+    } else {
+      patched = diff.applyCopyOnWrite(shadow.getResource(), entityType, cloningStrategy);
+    }
+    shadow = new Shadow<>(patched, shadow.getServerVersion() + 1, shadow.getClientVersion(), acknowledgedVersion);
+    // the patched shadow has the structure of the target
+    shadow.setHashes(diff.size() == 0 ? shadowHash : targetHash);
+    shadow.setChangeVersion(changeVersion);
+    replaceShadow(shadowStoreKey, storedShadow, shadow, historicShadow);
     return vDiff;
   }
 
+  /**
+   * Each entity with an identity gets its own shadow, so that patching one entity never disturbs the shadow of
+   * another. Entities without an identity share a shadow per entity type.
+   *
+   * @param target the entity to synchronize
+   * @return the key that the shadow of the entity is stored under
+   */
+  public String shadowKeyOf(T target) {
+    return shadowKeyOfId(equivalency.identityOf(target));
+  }
+
+  /**
+   * @param id the identity of an entity, or null for entities without one
+   * @return the key that the shadow of the entity with that identity is stored under
+   */
+  public String shadowKeyOfId(Object id) {
+    if (id == null) {
+      return "shadow/" + entityType.getSimpleName();
+    }
+    return "shadow/" + entityType.getSimpleName() + "/" + id;
+  }
+
+  /**
+   * @return the key that the shadow of the list of entities is stored under
+   */
+  public String listShadowKey() {
+    return "shadow/" + entityType.getSimpleName() + "List";
+  }
+
+  /**
+   * The versions of a shadow that difference patches were taken from are kept in a ring of {@code historySize} slots,
+   * each stored next to the shadow, so that a node that missed some of these patches can send its own patch against
+   * the last version it got, rather than having it dropped.
+   *
+   * @param shadowKey     the key that a shadow is stored under
+   * @param serverVersion the server version of the shadow
+   * @return the key that the shadow is kept under at that server version
+   */
+  public String historyKeyOf(String shadowKey, long serverVersion) {
+    return shadowKey + HISTORY_SUFFIX + Math.floorMod(serverVersion, historySize);
+  }
+
   // private helper methods
 
+  /**
+   * Splits patches into runs of consecutive edits of the node: unversioned patches, or versioned patches based on the
+   * same server version and following each other's client version. Empty patches are runs of their own.
+   */
+  private static List<List<Patch>> editsOf(Patch... patches) {
+    List<List<Patch>> runs = new ArrayList<>();
+    List<Patch> run = null;
+    Patch last = null;
+    for (Patch patch : patches) {
+      if (run == null || !follows(patch, last)) {
+        run = new ArrayList<>();
+        runs.add(run);
+      }
+      run.add(patch);
+      last = patch;
+    }
+    return runs;
+  }
+
+  private static boolean follows(Patch patch, Patch previous) {
+    if (patch.size() == 0 || previous.size() == 0) {
+      return false;
+    }
+    if (!(patch instanceof VersionedPatch) || !(previous instanceof VersionedPatch)) {
+      return !(patch instanceof VersionedPatch) && !(previous instanceof VersionedPatch);
+    }
+    VersionedPatch versionedPatch = (VersionedPatch) patch;
+    VersionedPatch previousPatch = (VersionedPatch) previous;
+    return versionedPatch.getServerVersion() == previousPatch.getServerVersion()
+        && versionedPatch.getClientVersion() == previousPatch.getClientVersion() + 1;
+  }
+
+  /**
+   * @return the number of leading edits that the shadow has already, being sent again by a node that missed the
+   * answer to them
+   */
+  private static int duplicatesOf(List<Patch> edits, Shadow<?> shadow) {
+    int duplicates = 0;
+    for (Patch patch : edits) {
+      if (!(patch instanceof VersionedPatch)
+          || ((VersionedPatch) patch).getServerVersion() != shadow.getServerVersion()
+          || ((VersionedPatch) patch).getClientVersion() >= shadow.getClientVersion()) {
+        break;
+      }
+      duplicates++;
+    }
+    return duplicates;
+  }
+
+  /**
+   * @return a single patch with the effect of the edits, versioned as the first of them
+   */
+  private static Patch compose(List<Patch> edits) {
+    Patch first = edits.get(0);
+    if (edits.size() == 1) {
+      return first;
+    }
+    Patch composed = PatchCompactor.compose(edits);
+    if (!(first instanceof VersionedPatch)) {
+      return composed;
+    }
+    VersionedPatch versionedPatch = (VersionedPatch) first;
+    return new VersionedPatch(composed.getOperations(), versionedPatch.getServerVersion(),
+        versionedPatch.getClientVersion());
+  }
+
+  private void dropped(int patches) {
+    for (int i = 0; i < patches; i++) {
+      metrics.patchDropped(entityType);
+    }
+  }
+
   private boolean shouldApplyPatch(Patch patch, Shadow<?> shadow) {
     if (!(patch instanceof VersionedPatch))
       return true;
@@ -210,71 +563,102 @@ public class DiffSync<T extends Serializable> {
   }
 
   @SuppressWarnings("unchecked")
-  private Shadow<T> getShadow(T target) {
-    String shadowStoreKey = getShadowStoreKey(target);
-    Shadow<T> shadow = (Shadow<T>) shadowStore.getShadow(shadowStoreKey);
-    if (shadow == null) {
-      shadow = new Shadow<>(DeepCloneUtils.deepClone(target), 0, 0); // OKAY
-    }
-    return shadow;
-  }
-
-  @SuppressWarnings("unchecked")
-  private Shadow<T> getBackupShadow(T target) {
-    String shadowStoreKey = getShadowStoreKey(target) + "_backup";
-    Shadow<T> shadow = (Shadow<T>) shadowStore.getShadow(shadowStoreKey);
-    if (shadow == null) {
-      shadow = new Shadow<>(DeepCloneUtils.deepClone(target), 0, 0); // OKAY
-    }
-    return shadow;
+  private <S> Shadow<S> getStoredShadow(String shadowStoreKey) {
+    return (Shadow<S>) shadowStore.getShadow(shadowStoreKey);
   }
 
-  private void putShadow(Shadow<T> shadow) {
-    String shadowStoreKey = getShadowStoreKey(shadow.getResource());
-    shadowStore.putShadow(shadowStoreKey, shadow);
+  /**
+   * @return the shadow as it was at a server version, or null if that version is no longer kept
+   */
+  private <S> Shadow<S> getHistoricShadow(String shadowStoreKey, long serverVersion) {
+    Shadow<S> shadow = getStoredShadow(historyKeyOf(shadowStoreKey, serverVersion));
+    // the slot is reused once the shadow is historySize versions ahead
+    return shadow != null && shadow.getServerVersion() == serverVersion ? shadow : null;
   }
 
-  private void putBackupShadow(Shadow<T> shadow) {
-    String shadowStoreKey = getShadowStoreKey(shadow.getResource()) + "_backup";
-    shadowStore.putShadow(shadowStoreKey, shadow);
+  /**
+   * With an edit stack, the difference patches not acknowledged by the node yet are sent again, composed with the new
+   * changes into a single patch: the difference is taken from the shadow as it was at the acknowledged version.
+   *
+   * @return the shadow to take the difference from
+   */
+  private <S> Shadow<S> getPendingBase(String shadowStoreKey, Shadow<S> storedShadow) {
+    if (!editStack || storedShadow.getAcknowledgedVersion() >= storedShadow.getServerVersion()) {
+      return storedShadow;
+    }
+    Shadow<S> acknowledged = getHistoricShadow(shadowStoreKey, storedShadow.getAcknowledgedVersion());
+    // the node may only have changed a shadow it has all the edits of, so a mismatch means it is lost from history
+    if (acknowledged == null || acknowledged.getClientVersion() != storedShadow.getClientVersion()) {
+      return storedShadow;
+    }
+    return acknowledged;
   }
 
-  private void putListShadow(Shadow<List<T>> shadow) {
-    String shadowStoreKey = getShadowStoreKey(shadow.getResource());
-    shadowStore.putShadow(shadowStoreKey, shadow);
+  /**
+   * Trims the edits pending for the node up to the server version that an empty patch echoes, as nodes send empty
+   * patches to acknowledge difference patches.
+   */
+  private void acknowledge(String shadowStoreKey, Patch patch) {
+    if (!editStack || !(patch instanceof VersionedPatch)) {
+      return;
+    }
+    long echoedVersion = ((VersionedPatch) patch).getServerVersion();
+    Shadow<Object> storedShadow = getStoredShadow(shadowStoreKey);
+    if (storedShadow == null || echoedVersion <= storedShadow.getAcknowledgedVersion()
+        || echoedVersion > storedShadow.getServerVersion()) {
+      return;
+    }
+    Shadow<Object> shadow = new Shadow<>(storedShadow.getResource(), storedShadow.getServerVersion(),
+        storedShadow.getClientVersion(), (int) echoedVersion);
+    shadow.setHashes(storedShadow.getHashes());
+    replaceShadow(shadowStoreKey, storedShadow, shadow, null);
   }
 
-  private void putBackupListShadow(Shadow<List<T>> shadow) {
-    String shadowStoreKey = getShadowStoreKey(shadow.getResource()) + "_backup";
-    shadowStore.putShadow(shadowStoreKey, shadow);
+  /**
+   * @return the structural hashes of the resource of a shadow, computed once per shadow held in memory, or null if the
+   * diff engine doesn't prune by hashes
+   */
+  private StructuralHash hashesOf(Shadow<?> shadow) {
+    if (shadow.getHashes() instanceof StructuralHash) {
+      return (StructuralHash) shadow.getHashes();
+    }
+    StructuralHash hashes = diffEngine.hash(shadow.getResource(), null, null);
+    shadow.setHashes(hashes);
+    return hashes;
   }
 
-  @SuppressWarnings("unchecked")
-  private Shadow<List<T>> getShadow(List<T> target) {
-    String shadowStoreKey = getShadowStoreKey(target);
-    Shadow<List<T>> shadow = (Shadow<List<T>>) shadowStore.getShadow(shadowStoreKey);
-    if (shadow == null) {
-      shadow = new Shadow<>(DeepCloneUtils.deepClone(target), 0, 0); // OKAY
+  /**
+   * Hashes a patched copy of a shadow, reusing the hashes of the subtrees it shares with the shadow. Shadows that were
+   * never hashed are left to {@link #hashesOf(Shadow)}.
+   */
+  private StructuralHash hashAfterPatch(Object patched, Shadow<?> shadow) {
+    if (!(shadow.getHashes() instanceof StructuralHash)) {
+      return null;
     }
-    return shadow;
+    return diffEngine.hash(patched, shadow.getResource(), (StructuralHash) shadow.getHashes());
   }
 
-  @SuppressWarnings("unchecked")
-  private Shadow<List<T>> getBackupShadow(List<T> target) {
-    String shadowStoreKey = getShadowStoreKey(target) + "_backup";
-    Shadow<List<T>> shadow = (Shadow<List<T>>) shadowStore.getShadow(shadowStoreKey);
-    if (shadow == null) {
-      shadow = new Shadow<>(DeepCloneUtils.deepClone(target), 0, 0); // OKAY
-    }
-    return shadow;
+  private Shadow<T> newShadow(T target) {
+    return new Shadow<>(cloningStrategy.deepClone(target), 0, 0);
   }
 
-  private String getShadowStoreKey(T t) {
-    return "shadow/" + entityType.getSimpleName();
+  private Shadow<List<T>> newListShadow(List<T> target) {
+    return new Shadow<>(cloningStrategy.deepClone(target), 0, 0);
   }
 
-  private String getShadowStoreKey(List<T> t) {
-    return "shadow/" + entityType.getSimpleName() + "List";
+  /**
+   * Replaces the shadow read at the start of a synchronization step, failing if a concurrent request has replaced it
+   * in the meantime, as the shadow and the patches derived from it would otherwise diverge.
+   *
+   * @param historicShadow the version of the shadow to keep in its history, or null to keep none
+   */
+  private void replaceShadow(String shadowStoreKey, Shadow<?> storedShadow, Shadow<?> shadow,
+      Shadow<?> historicShadow) {
+    String historyKey = historyKeyOf(shadowStoreKey,
+        historicShadow != null ? historicShadow.getServerVersion() : shadow.getServerVersion());
+    if (!shadowStore.replaceShadow(shadowStoreKey, storedShadow, shadow, historyKey, historicShadow)) {
+      throw new PatchException("Shadow " + shadowStoreKey + " was modified by a concurrent request");
+    }
   }
 
 }
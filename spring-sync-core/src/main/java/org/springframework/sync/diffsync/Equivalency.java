@@ -35,5 +35,14 @@ public interface Equivalency {
 	 * @return true if the two objects are considered equivalent, false otherwise.
 	 */
 	boolean isEquivalent(Object o1, Object o2);
-	
+
+	/**
+	 * Extracts the identity that equivalent objects share, e.g. to keep state per resource.
+	 * @param o the object to extract the identity of
+	 * @return the identity of the object, or null if it has none or this equivalency cannot tell.
+	 */
+	default Object identityOf(Object o) {
+		return null;
+	}
+
 }
@@ -15,30 +15,146 @@
  */
 package org.springframework.sync.diffsync;
 
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.Map;
+import java.util.Set;
 
+import org.springframework.sync.PatchException;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.ObjectUtils;
 
 /**
  * Determines if two objects are equivalent by comparing their "id" properties.
  *
+ * <p>The id property of a class is the field annotated with {@code @Id} or {@code @EmbeddedId} (JPA's, Spring
+ * Data's or any other annotation of that name), or else the field named "id". Fields declared by superclasses are
+ * considered too, and for records the accessor of the matching component is used. The accessor is looked up once per
+ * class and cached as a {@link MethodHandle}.</p>
+ *
  * @author Craig Walls
  */
 public class IdPropertyEquivalency implements Equivalency {
 
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  private static final MethodType ACCESSOR_TYPE = MethodType.methodType(Object.class, Object.class);
+
+  private static final Set<String> ID_ANNOTATIONS = Set.of("Id", "EmbeddedId");
+
+  /**
+   * Marker for classes without an id property.
+   */
+  private static final MethodHandle NO_ID = MethodHandles.dropArguments(
+      MethodHandles.constant(Object.class, null), 0, Object.class);
+
+  private final Map<Class<?>, MethodHandle> accessors = new ConcurrentReferenceHashMap<>();
+
   @Override
   public boolean isEquivalent(Object o1, Object o2) {
-    try {
-      Field idField1 = o1.getClass().getDeclaredField("id");
-      idField1.setAccessible(true);
-      Object id1 = idField1.get(o1);
-      Field idField2 = o2.getClass().getDeclaredField("id");
-      idField2.setAccessible(true);
-      Object id2 = idField2.get(o2);
-      return ObjectUtils.nullSafeEquals(id1, id2);
-    } catch (NoSuchFieldException | IllegalAccessException e) {
+    if (o1 == null || o2 == null) {
+      return false;
+    }
+    MethodHandle accessor1 = accessorFor(o1.getClass());
+    MethodHandle accessor2 = accessorFor(o2.getClass());
+    if (accessor1 == NO_ID || accessor2 == NO_ID) {
       return false;
     }
+    return ObjectUtils.nullSafeEquals(invoke(accessor1, o1), invoke(accessor2, o2));
+  }
+
+  @Override
+  public Object identityOf(Object o) {
+    return o != null ? invoke(accessorFor(o.getClass()), o) : null;
+  }
+
+  private MethodHandle accessorFor(Class<?> type) {
+    return accessors.computeIfAbsent(type, IdPropertyEquivalency::findAccessor);
+  }
+
+  private static Object invoke(MethodHandle accessor, Object o) {
+    try {
+      return (Object) accessor.invokeExact(o);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new PatchException("Could not read the id of " + o.getClass().getName(), (Exception) e);
+    }
+  }
+
+  private static MethodHandle findAccessor(Class<?> type) {
+    try {
+      if (type.isRecord()) {
+        RecordComponent component = findIdComponent(type, type.getRecordComponents());
+        if (component != null) {
+          return LOOKUP.unreflect(accessible(component.getAccessor())).asType(ACCESSOR_TYPE);
+        }
+        return NO_ID;
+      }
+      Field field = findIdField(type);
+      if (field != null) {
+        return LOOKUP.unreflectGetter(accessible(field)).asType(ACCESSOR_TYPE);
+      }
+      return NO_ID;
+    } catch (IllegalAccessException | NoSuchFieldException | RuntimeException e) {
+      // not open to us (e.g. JDK types in strongly encapsulated packages)
+      return NO_ID;
+    }
+  }
+
+  private static RecordComponent findIdComponent(Class<?> type, RecordComponent[] components)
+      throws NoSuchFieldException {
+    for (RecordComponent component : components) {
+      // depending on its targets, an annotation on a component ends up on the component or on its field
+      if (isAnnotatedAsId(component) || isAnnotatedAsId(type.getDeclaredField(component.getName()))) {
+        return component;
+      }
+    }
+    for (RecordComponent component : components) {
+      if (component.getName().equals("id")) {
+        return component;
+      }
+    }
+    return null;
+  }
+
+  private static Field findIdField(Class<?> type) {
+    Field named = null;
+    for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+      for (Field field : current.getDeclaredFields()) {
+        if (Modifier.isStatic(field.getModifiers())) {
+          continue;
+        }
+        if (isAnnotatedAsId(field)) {
+          return field;
+        }
+        if (named == null && field.getName().equals("id")) {
+          named = field;
+        }
+      }
+    }
+    return named;
+  }
+
+  private static boolean isAnnotatedAsId(AnnotatedElement element) {
+    for (Annotation annotation : element.getAnnotations()) {
+      if (ID_ANNOTATIONS.contains(annotation.annotationType().getSimpleName())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static <T extends AccessibleObject> T accessible(T member) {
+    member.setAccessible(true);
+    return member;
   }
 
 }
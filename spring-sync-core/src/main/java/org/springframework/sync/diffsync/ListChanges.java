@@ -0,0 +1,93 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The items to save and to delete so that a persisted list matches its patched copy.
+ *
+ * @param <T> the entity type
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ListChanges<T> {
+
+  private final List<T> itemsToSave;
+
+  private final List<T> itemsToDelete;
+
+  /**
+   * Compares a list with its patched copy. Items are matched through hash lookups, on {@link Object#equals(Object)} to
+   * tell which items to save and on {@link Equivalency#identityOf(Object) identity} to tell which to delete. Items
+   * without an identity are matched with {@link Equivalency#isEquivalent(Object, Object)} instead.
+   *
+   * @param target      the list as persisted
+   * @param patched     the patched copy of the list
+   * @param equivalency tells which items of both lists represent the same resource
+   * @param <T>         the entity type
+   * @return the items of the patched copy that are new or changed, and the items of the list that are gone from it
+   */
+  public static <T> ListChanges<T> between(List<T> target, List<T> patched, Equivalency equivalency) {
+    Set<T> unchanged = new HashSet<>(target);
+    List<T> itemsToSave = new ArrayList<>();
+    Set<Object> remainingIds = new HashSet<>();
+    List<T> remainingWithoutIdentity = new ArrayList<>();
+    for (T item : patched) {
+      if (!unchanged.contains(item)) {
+        itemsToSave.add(item);
+      }
+      Object id = equivalency.identityOf(item);
+      if (id != null) {
+        remainingIds.add(id);
+      } else {
+        remainingWithoutIdentity.add(item);
+      }
+    }
+
+    // Equivalent is not the same as equals. It means "this is the same resource, even if it has changed".
+    // It usually means "are the id properties equals".
+    List<T> itemsToDelete = new ArrayList<>();
+    for (T candidate : target) {
+      Object id = equivalency.identityOf(candidate);
+      boolean remains = id != null && remainingIds.contains(id)
+          || isEquivalentToAny(candidate, id != null ? remainingWithoutIdentity : patched, equivalency);
+      if (!remains) {
+        itemsToDelete.add(candidate);
+      }
+    }
+    return new ListChanges<>(itemsToSave, itemsToDelete);
+  }
+
+  // private helpers
+
+  private static <T> boolean isEquivalentToAny(T candidate, List<T> items, Equivalency equivalency) {
+    for (T item : items) {
+      if (equivalency.isEquivalent(candidate, item)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
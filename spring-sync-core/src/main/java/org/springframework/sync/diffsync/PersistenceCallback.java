@@ -15,6 +15,8 @@
  */
 package org.springframework.sync.diffsync;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -40,6 +42,37 @@ public interface PersistenceCallback<T> {
 	 */
 	T findOne(String id);
 
+	/**
+	 * Find several entities. The default implementation calls {@link #findOne(String)} for each id; override it to load
+	 * them in a single query.
+	 *
+	 * @param ids the ids of the entities as Strings
+	 * @return the entities found, in no particular order
+	 */
+	default List<T> findAllById(Collection<String> ids) {
+		List<T> found = new ArrayList<>(ids.size());
+		for (String id : ids) {
+			T item = findOne(id);
+			if (item != null) {
+				found.add(item);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Find the entities saved or deleted since a version of the store. Callbacks that keep such a change feed, e.g. a
+	 * modification sequence or timestamp column, let lists be synchronized incrementally: the shadow of the list stands
+	 * in for the entities that did not change, instead of calling {@link #findAll()} on every patch.
+	 *
+	 * @param version a version previously returned by {@link Changes#getVersion()}, or null to only learn the current
+	 *                version
+	 * @return the changes since the version, or null if this callback keeps no change feed, which is the default
+	 */
+	default Changes<T> findChangesSince(Long version) {
+		return null;
+	}
+
 	/**
 	 * Save a single item.
 	 * @param itemToSave the item to save.
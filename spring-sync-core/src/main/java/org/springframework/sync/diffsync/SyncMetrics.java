@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync;
+
+import org.springframework.shadowstore.ShadowStore;
+import org.springframework.sync.Patch;
+import org.springframework.sync.util.CloningStrategy;
+
+/**
+ * <p>Callback notified of what happens during synchronization rounds, to be bound to a metrics library.</p>
+ *
+ * <p>All methods do nothing by default, and {@link #NONE} is the instance used when metrics are not wanted. They are
+ * called on the request path, so implementations should return quickly and must not throw.</p>
+ */
+public interface SyncMetrics {
+
+  /**
+   * Records nothing.
+   */
+  SyncMetrics NONE = new SyncMetrics() {
+  };
+
+  /**
+   * @param resource the resource being synchronized, or null if not known at that point
+   * @param phase    the step of the round
+   * @param nanos    how long the step took, in nanoseconds
+   */
+  default void phase(String resource, SyncPhase phase, long nanos) {
+  }
+
+  /**
+   * @param resource the resource being synchronized
+   * @param patch    the incoming patch
+   */
+  default void patchReceived(String resource, Patch patch) {
+  }
+
+  /**
+   * @param entityType the type of the resource whose shadow was found
+   */
+  default void shadowHit(Class<?> entityType) {
+  }
+
+  /**
+   * @param entityType the type of the resource that had no shadow yet
+   */
+  default void shadowMiss(Class<?> entityType) {
+  }
+
+  /**
+   * Called when a patch was based on an older version of the shadow, which was rolled back to that version as kept in
+   * its history.
+   *
+   * @param entityType the type of the resource whose shadow was rolled back
+   */
+  default void backupRestored(Class<?> entityType) {
+  }
+
+  /**
+   * Called when a patch was not applied because its versions do not match those of the shadow.
+   *
+   * @param entityType the type of the resource that the patch was for
+   */
+  default void patchDropped(Class<?> entityType) {
+  }
+
+  /**
+   * Gives the chance to wrap a shadow store, e.g. to time its operations.
+   *
+   * @param shadowStore the store that a round is about to use
+   * @return the store to use instead
+   */
+  default ShadowStore instrument(ShadowStore shadowStore) {
+    return shadowStore;
+  }
+
+  /**
+   * Gives the chance to wrap a cloning strategy, e.g. to time or size clones.
+   *
+   * @param cloningStrategy the strategy that a round is about to use
+   * @return the strategy to use instead
+   */
+  default CloningStrategy instrument(CloningStrategy cloningStrategy) {
+    return cloningStrategy;
+  }
+
+}
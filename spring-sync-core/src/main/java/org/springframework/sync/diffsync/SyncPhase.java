@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync;
+
+/**
+ * The steps that a synchronization round goes through, as reported to {@link SyncMetrics}.
+ */
+public enum SyncPhase {
+
+  /**
+   * Loading the resource as persisted.
+   */
+  LOAD,
+
+  /**
+   * Applying the incoming patch to the resource and its shadow.
+   */
+  APPLY,
+
+  /**
+   * Persisting the patched resource.
+   */
+  PERSIST,
+
+  /**
+   * Diffing the resource against its shadow to produce the outgoing patch.
+   */
+  DIFF,
+
+  /**
+   * Writing the outgoing patch to the response.
+   */
+  SERIALIZE
+
+}
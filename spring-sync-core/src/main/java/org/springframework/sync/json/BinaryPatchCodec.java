@@ -0,0 +1,295 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.sync.Patch;
+import org.springframework.sync.PatchException;
+import org.springframework.sync.operations.AddOperation;
+import org.springframework.sync.operations.CopyOperation;
+import org.springframework.sync.operations.FromOperation;
+import org.springframework.sync.operations.MoveOperation;
+import org.springframework.sync.operations.PatchOperation;
+import org.springframework.sync.operations.RemoveOperation;
+import org.springframework.sync.operations.ReplaceOperation;
+import org.springframework.sync.operations.TestOperation;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+/**
+ * <p>Reads and writes patches in a compact binary format, encoded as <a href="https://github.com/FasterXML/smile-format-specification">Smile</a>
+ * by default. A JSON Patch document repeats the "op" and "path" names and the full path of every operation, which
+ * makes up most of a list diff; this format leaves them out:</p>
+ *
+ * <ul>
+ *   <li>a document is an array holding the format version, then one array per operation;</li>
+ *   <li>an operation is an array holding its op-code, its path and then either its value (add, replace and test) or
+ *   its "from" path (move and copy);</li>
+ *   <li>a path is an array holding the number of leading segments it shares with the path of the previous operation
+ *   (or, for a "from" path, with the path of its operation), then its other segments: array indexes as non-negative
+ *   numbers, segments of the {@link PathDictionary} as negative numbers and any other segment as a string.</li>
+ * </ul>
+ *
+ * <p>"replace /2/description" following "test /2/description" takes the path {@code [2]}. Values are written and read
+ * as {@link JsonPatchStreamingCodec} does, objects being bound to their type once the patch is applied.</p>
+ */
+public class BinaryPatchCodec implements PatchCodec {
+
+  /**
+   * The version of the format, written first so that the format may evolve.
+   */
+  static final int FORMAT_VERSION = 1;
+
+  // op-codes, the index of each operation in this array
+  private static final String[] OPS = { "add", "remove", "replace", "move", "copy", "test" };
+
+  private static final int ADD = 0;
+
+  private static final int REMOVE = 1;
+
+  private static final int REPLACE = 2;
+
+  private static final int MOVE = 3;
+
+  private static final int COPY = 4;
+
+  private static final int TEST = 5;
+
+  private static final ObjectMapper SMILE_MAPPER = new ObjectMapper(SmileFactory.builder()
+      // repeated segments and values are written once per document, then referred to
+      .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+      .build());
+
+  private final ObjectMapper objectMapper;
+
+  private final ObjectWriter valueWriter;
+
+  private final PathDictionary dictionary;
+
+  public BinaryPatchCodec() {
+    this(PathDictionary.EMPTY);
+  }
+
+  /**
+   * @param dictionary the path segments that the other end knows as well
+   */
+  public BinaryPatchCodec(PathDictionary dictionary) {
+    this(SMILE_MAPPER, dictionary);
+  }
+
+  /**
+   * @param objectMapper the {@link ObjectMapper} whose factory encodes the documents, and which writes values and binds
+   *                     object values once their type is known
+   * @param dictionary   the path segments that the other end knows as well
+   */
+  public BinaryPatchCodec(ObjectMapper objectMapper, PathDictionary dictionary) {
+    this.objectMapper = objectMapper;
+    this.valueWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    this.dictionary = dictionary;
+  }
+
+  @Override
+  public Patch read(InputStream in) throws IOException {
+    try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+      parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+      expect(parser, JsonToken.START_ARRAY);
+      expect(parser, JsonToken.VALUE_NUMBER_INT);
+      if (parser.getIntValue() != FORMAT_VERSION) {
+        throw new PatchException("Unsupported binary patch format version " + parser.getIntValue());
+      }
+      List<PatchOperation> ops = new ArrayList<>();
+      List<String> previousPath = List.of();
+      JsonToken token;
+      while ((token = parser.nextToken()) == JsonToken.START_ARRAY) {
+        expect(parser, JsonToken.VALUE_NUMBER_INT);
+        int code = parser.getIntValue();
+        List<String> path = readPath(parser, previousPath);
+        ops.add(readOperation(parser, code, path));
+        expect(parser, JsonToken.END_ARRAY);
+        previousPath = path;
+      }
+      if (token != JsonToken.END_ARRAY) {
+        throw new PatchException("Binary patch operations must be arrays");
+      }
+      return new Patch(ops);
+    }
+  }
+
+  @Override
+  public void write(Patch patch, OutputStream out) throws IOException {
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.writeStartArray();
+      generator.writeNumber(FORMAT_VERSION);
+      List<String> previousPath = List.of();
+      for (PatchOperation operation : patch.getOperations()) {
+        int code = codeOf(operation.getOp());
+        List<String> path = segmentsOf(operation.getPath());
+        generator.writeStartArray();
+        generator.writeNumber(code);
+        writePath(generator, path, previousPath);
+        if (operation instanceof FromOperation) {
+          writePath(generator, segmentsOf(((FromOperation) operation).getFrom()), path);
+        } else if (code != REMOVE) {
+          writeValue(generator, operation.getValue());
+        }
+        generator.writeEndArray();
+        previousPath = path;
+      }
+      generator.writeEndArray();
+    }
+  }
+
+  // private helpers
+
+  private PatchOperation readOperation(JsonParser parser, int code, List<String> path) throws IOException {
+    String pointer = pointerOf(path);
+    switch (code) {
+    case ADD:
+      return new AddOperation(pointer, readValue(parser));
+    case REMOVE:
+      return new RemoveOperation(pointer);
+    case REPLACE:
+      return new ReplaceOperation(pointer, readValue(parser));
+    case MOVE:
+      return new MoveOperation(pointer, pointerOf(readPath(parser, path)));
+    case COPY:
+      return new CopyOperation(pointer, pointerOf(readPath(parser, path)));
+    case TEST:
+      return new TestOperation(pointer, readValue(parser));
+    default:
+      throw new PatchException("Unrecognized operation code: " + code);
+    }
+  }
+
+  private Object readValue(JsonParser parser) throws IOException {
+    return JsonPatchStreamingCodec.readValue(objectMapper, parser, parser.nextToken());
+  }
+
+  private List<String> readPath(JsonParser parser, List<String> base) throws IOException {
+    expect(parser, JsonToken.START_ARRAY);
+    expect(parser, JsonToken.VALUE_NUMBER_INT);
+    int shared = parser.getIntValue();
+    if (shared < 0 || shared > base.size()) {
+      throw new PatchException("Path shares " + shared + " segments with a path of " + base.size());
+    }
+    List<String> segments = new ArrayList<>(base.subList(0, shared));
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+      if (token == JsonToken.VALUE_STRING) {
+        segments.add(parser.getText());
+      } else if (token == JsonToken.VALUE_NUMBER_INT) {
+        int segment = parser.getIntValue();
+        segments.add(segment >= 0 ? Integer.toString(segment) : dictionary.get(-segment - 1));
+      } else {
+        throw new PatchException("Path segments must be strings or numbers");
+      }
+    }
+    return segments;
+  }
+
+  private void writePath(JsonGenerator generator, List<String> path, List<String> base) throws IOException {
+    int shared = 0;
+    while (shared < path.size() && shared < base.size() && path.get(shared).equals(base.get(shared))) {
+      shared++;
+    }
+    generator.writeStartArray();
+    generator.writeNumber(shared);
+    for (int i = shared; i < path.size(); i++) {
+      String segment = path.get(i);
+      int index;
+      if (isArrayIndex(segment)) {
+        generator.writeNumber(Integer.parseInt(segment));
+      } else if ((index = dictionary.indexOf(segment)) >= 0) {
+        generator.writeNumber(-index - 1);
+      } else {
+        generator.writeString(segment);
+      }
+    }
+    generator.writeEndArray();
+  }
+
+  private void writeValue(JsonGenerator generator, Object value) throws IOException {
+    if (value instanceof TokenBufferLateObjectEvaluator) {
+      ((TokenBufferLateObjectEvaluator) value).writeTo(generator);
+    } else if (value != null) {
+      valueWriter.writeValue(generator, value);
+    } else {
+      generator.writeNull();
+    }
+  }
+
+  private static int codeOf(String op) {
+    for (int code = 0; code < OPS.length; code++) {
+      if (OPS[code].equals(op)) {
+        return code;
+      }
+    }
+    throw new PatchException("Unrecognized operation type: " + op);
+  }
+
+  private static List<String> segmentsOf(String pointer) {
+    if (pointer.isEmpty()) {
+      return List.of();
+    }
+    if (pointer.charAt(0) != '/') {
+      throw new PatchException("Not a JSON Pointer: " + pointer);
+    }
+    return Arrays.asList(pointer.substring(1).split("/", -1));
+  }
+
+  private static String pointerOf(List<String> segments) {
+    return segments.isEmpty() ? "" : "/" + String.join("/", segments);
+  }
+
+  /**
+   * @return true for the segments that read back the same once written as an int, e.g. "7" but not "07" nor "-"
+   */
+  private static boolean isArrayIndex(String segment) {
+    int length = segment.length();
+    if (length == 0 || length > 9 || (segment.charAt(0) == '0' && length > 1)) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      char c = segment.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void expect(JsonParser parser, JsonToken expected) throws IOException {
+    JsonToken token = parser.nextToken();
+    if (token != expected) {
+      throw new PatchException("Malformed binary patch: expected " + expected + " but got " + token);
+    }
+  }
+
+}
@@ -16,6 +16,7 @@
 package org.springframework.sync.json;
 
 import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.sync.LateObjectEvaluator;
@@ -24,11 +25,13 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
- * {@link LateObjectEvaluator} implementation that assumes values represented as JSON objects.
+ * {@link LateObjectEvaluator} implementation that assumes values represented as JSON objects. Evaluators of equal JSON
+ * values are equal.
  *
  * @author Craig Walls
  */
 @RequiredArgsConstructor
+@EqualsAndHashCode
 class JsonLateObjectEvaluator implements LateObjectEvaluator {
 
   private static final ObjectMapper MAPPER = new ObjectMapper();
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.sync.Patch;
+import org.springframework.sync.PatchException;
+import org.springframework.sync.operations.AddOperation;
+import org.springframework.sync.operations.CopyOperation;
+import org.springframework.sync.operations.FromOperation;
+import org.springframework.sync.operations.MoveOperation;
+import org.springframework.sync.operations.PatchOperation;
+import org.springframework.sync.operations.RemoveOperation;
+import org.springframework.sync.operations.ReplaceOperation;
+import org.springframework.sync.operations.TestOperation;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * <p>Reads and writes JSON Patch documents as a stream of tokens, without building a {@link com.fasterxml.jackson.databind.JsonNode}
+ * tree of the whole document as {@link JsonPatchPatchConverter} does.</p>
+ *
+ * <p>Operations are read straight into {@link PatchOperation}s. Object values, whose type is only known once the patch
+ * is applied, are kept as buffered tokens and bound to that type when evaluated. Operations are written to the output as
+ * they are rendered. The result is the same as with {@link JsonPatchPatchConverter}.</p>
+ *
+ * <p>The streams given are neither closed nor read or written beyond the patch document.</p>
+ */
+public class JsonPatchStreamingCodec implements PatchCodec {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final ObjectMapper objectMapper;
+
+  private final ObjectWriter valueWriter;
+
+  public JsonPatchStreamingCodec() {
+    this(MAPPER);
+  }
+
+  /**
+   * @param objectMapper the {@link ObjectMapper} used to write values and to bind object values once their type is known
+   */
+  public JsonPatchStreamingCodec(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+    this.valueWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+  }
+
+  /**
+   * Reads a JSON Patch document.
+   *
+   * @param in the stream holding the JSON Patch
+   * @return a {@link Patch}
+   * @throws IOException if the stream can't be read or doesn't hold JSON
+   */
+  @Override
+  public Patch read(InputStream in) throws IOException {
+    try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+      parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+      return read(parser);
+    }
+  }
+
+  /**
+   * Reads a JSON Patch document from a parser, starting at its next token.
+   *
+   * @param parser the parser positioned before the JSON Patch array
+   * @return a {@link Patch}
+   * @throws IOException if the parser fails
+   */
+  public Patch read(JsonParser parser) throws IOException {
+    parser.nextToken();
+    return readCurrent(parser);
+  }
+
+  /**
+   * Reads a JSON Patch document from a parser positioned on its first token, e.g. after peeking at it.
+   *
+   * @param parser the parser positioned on the start of the JSON Patch array
+   * @return a {@link Patch}
+   * @throws IOException if the parser fails
+   */
+  public Patch readCurrent(JsonParser parser) throws IOException {
+    if (parser.currentToken() != JsonToken.START_ARRAY) {
+      throw new IllegalArgumentException("JSON Patch must be an array");
+    }
+    List<PatchOperation> ops = new ArrayList<>();
+    JsonToken token;
+    while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+      ops.add(readOperation(parser));
+    }
+    if (token != JsonToken.END_ARRAY) {
+      throw new PatchException("JSON Patch operations must be objects");
+    }
+    return new Patch(ops);
+  }
+
+  /**
+   * Writes a {@link Patch} as a JSON Patch document.
+   *
+   * @param patch the patch
+   * @param out   the stream to write the JSON Patch to
+   * @throws IOException if the stream can't be written to
+   */
+  @Override
+  public void write(Patch patch, OutputStream out) throws IOException {
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      write(patch, generator);
+    }
+  }
+
+  /**
+   * Writes a {@link Patch} as a JSON Patch document to a generator.
+   *
+   * @param patch     the patch
+   * @param generator the generator to write the JSON Patch to
+   * @throws IOException if the generator fails
+   */
+  public void write(Patch patch, JsonGenerator generator) throws IOException {
+    generator.writeStartArray();
+    for (PatchOperation operation : patch.getOperations()) {
+      generator.writeStartObject();
+      generator.writeStringField("op", operation.getOp());
+      generator.writeStringField("path", operation.getPath());
+      if (operation instanceof FromOperation) {
+        generator.writeStringField("from", ((FromOperation) operation).getFrom());
+      }
+      Object value = operation.getValue();
+      if (value instanceof TokenBufferLateObjectEvaluator) {
+        generator.writeFieldName("value");
+        ((TokenBufferLateObjectEvaluator) value).writeTo(generator);
+      } else if (value != null) {
+        generator.writeFieldName("value");
+        valueWriter.writeValue(generator, value);
+      }
+      generator.writeEndObject();
+    }
+    generator.writeEndArray();
+  }
+
+  // private helpers
+
+  private PatchOperation readOperation(JsonParser parser) throws IOException {
+    String opType = null;
+    String path = null;
+    String from = null;
+    Object value = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+      switch (field) {
+      case "op":
+        opType = parser.getValueAsString();
+        break;
+      case "path":
+        path = parser.getValueAsString();
+        break;
+      case "from":
+        from = parser.getValueAsString();
+        break;
+      case "value":
+        value = readValue(objectMapper, parser, token);
+        break;
+      default:
+        parser.skipChildren();
+      }
+    }
+    if (opType == null || path == null) {
+      throw new PatchException("JSON Patch operations must have an 'op' and a 'path'");
+    }
+
+    switch (opType) {
+    case "test":
+      return new TestOperation(path, value);
+    case "replace":
+      return new ReplaceOperation(path, value);
+    case "remove":
+      return new RemoveOperation(path);
+    case "add":
+      return new AddOperation(path, value);
+    case "copy":
+      return new CopyOperation(path, from);
+    case "move":
+      return new MoveOperation(path, from);
+    default:
+      throw new PatchException("Unrecognized operation type: " + opType);
+    }
+  }
+
+  /**
+   * Reads values the same way as {@link JsonPatchPatchConverter}, which leaves arrays and numbers too large for a long
+   * unread. Shared with {@link BinaryPatchCodec}, whose values are read through the same token model.
+   */
+  static Object readValue(ObjectMapper objectMapper, JsonParser parser, JsonToken token) throws IOException {
+    switch (token) {
+    case VALUE_STRING:
+      return parser.getText();
+    case VALUE_NUMBER_FLOAT:
+      return parser.getDoubleValue();
+    case VALUE_TRUE:
+      return Boolean.TRUE;
+    case VALUE_FALSE:
+      return Boolean.FALSE;
+    case VALUE_NUMBER_INT:
+      switch (parser.getNumberType()) {
+      case INT:
+        return parser.getIntValue();
+      case LONG:
+        return parser.getLongValue();
+      default:
+        return null;
+      }
+    case START_OBJECT:
+      TokenBuffer buffer = new TokenBuffer(parser);
+      buffer.copyCurrentStructure(parser);
+      return new TokenBufferLateObjectEvaluator(objectMapper, buffer);
+    case START_ARRAY:
+      parser.skipChildren();
+      return null;
+    default:
+      return null;
+    }
+  }
+
+}
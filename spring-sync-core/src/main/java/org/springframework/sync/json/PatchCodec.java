@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.springframework.sync.Patch;
+
+/**
+ * <p>A strategy interface for reading and writing {@link Patch}es in a wire format, such as JSON Patch. Where a
+ * {@link PatchConverter} maps a patch to and from a document held in memory, a codec streams it.</p>
+ *
+ * <p>The streams given are neither closed nor read or written beyond the patch document.</p>
+ *
+ * @see JsonPatchStreamingCodec
+ * @see BinaryPatchCodec
+ */
+public interface PatchCodec {
+
+  /**
+   * Reads a patch document.
+   *
+   * @param in the stream holding the patch
+   * @return a {@link Patch}
+   * @throws IOException if the stream can't be read or doesn't hold a patch in this format
+   */
+  Patch read(InputStream in) throws IOException;
+
+  /**
+   * Writes a {@link Patch} as a patch document.
+   *
+   * @param patch the patch
+   * @param out   the stream to write the patch to
+   * @throws IOException if the stream can't be written to
+   */
+  void write(Patch patch, OutputStream out) throws IOException;
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.json;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.sync.PatchException;
+
+/**
+ * <p>Path segments, such as property names, that both ends of a {@link BinaryPatchCodec} agree on ahead of time, so
+ * that they are written as small numbers rather than as strings.</p>
+ *
+ * <p>The segments are referred to by their position, so the dictionary of the writer must hold the same segments, in
+ * the same order, as the dictionary of the reader. Segments may only ever be appended to it.</p>
+ */
+public final class PathDictionary {
+
+  /**
+   * A dictionary without segments, with which every segment is written as a string.
+   */
+  public static final PathDictionary EMPTY = new PathDictionary(List.of());
+
+  private final List<String> segments;
+
+  private final Map<String, Integer> indexes;
+
+  private PathDictionary(List<String> segments) {
+    this.segments = segments;
+    this.indexes = new HashMap<>(segments.size() * 4 / 3 + 1);
+    for (int i = 0; i < segments.size(); i++) {
+      indexes.putIfAbsent(segments.get(i), i);
+    }
+  }
+
+  /**
+   * @param segments the segments, in the order both ends agree on
+   * @return a dictionary of the segments
+   */
+  public static PathDictionary of(List<String> segments) {
+    return new PathDictionary(List.copyOf(segments));
+  }
+
+  /**
+   * @param segments the segments, in the order both ends agree on
+   * @return a dictionary of the segments
+   */
+  public static PathDictionary of(String... segments) {
+    return of(List.of(segments));
+  }
+
+  /**
+   * @param segment a path segment
+   * @return the index of the segment, or -1 if the dictionary doesn't hold it
+   */
+  public int indexOf(String segment) {
+    Integer index = indexes.get(segment);
+    return index != null ? index : -1;
+  }
+
+  /**
+   * @param index the index of a segment
+   * @return the segment
+   * @throws PatchException if the dictionary holds no segment at that index
+   */
+  public String get(int index) {
+    if (index < 0 || index >= segments.size()) {
+      throw new PatchException("No path segment " + index + " in the dictionary, which holds " + segments.size());
+    }
+    return segments.get(index);
+  }
+
+  /**
+   * @return the number of segments
+   */
+  public int size() {
+    return segments.size();
+  }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.sync.LateObjectEvaluator;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * {@link LateObjectEvaluator} implementation that binds a JSON object kept as buffered tokens, as read by
+ * {@link JsonPatchStreamingCodec}. Evaluators of equal JSON values are equal; the tokens are only read into a tree
+ * when evaluators are compared.
+ */
+@RequiredArgsConstructor
+class TokenBufferLateObjectEvaluator implements LateObjectEvaluator {
+
+  private final ObjectMapper objectMapper;
+
+  private final TokenBuffer buffer;
+
+  private JsonNode node;
+
+  @Override
+  public <T> Object evaluate(Class<T> type) {
+    try {
+      return objectMapper.readValue(buffer.asParser(objectMapper), type);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  void writeTo(JsonGenerator generator) throws IOException {
+    buffer.serialize(generator);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof TokenBufferLateObjectEvaluator)) {
+      return false;
+    }
+    return node().equals(((TokenBufferLateObjectEvaluator) o).node());
+  }
+
+  @Override
+  public int hashCode() {
+    return node().hashCode();
+  }
+
+  // private helpers
+
+  private synchronized JsonNode node() {
+    if (node == null) {
+      try {
+        node = objectMapper.readTree(buffer.asParser(objectMapper));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return node;
+  }
+
+}
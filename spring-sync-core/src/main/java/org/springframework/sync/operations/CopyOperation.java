@@ -15,10 +15,9 @@
  */
 package org.springframework.sync.operations;
 
+import org.springframework.sync.PathAccessor;
 import org.springframework.sync.PatchException;
 
-import static org.springframework.sync.PathToSpEL.*;
-
 /**
  * <p>
  * Operation to copy a value from the given "from" path to the given "path".
@@ -58,7 +57,7 @@ public class CopyOperation extends FromOperation {
 	
 	@Override
   public <T> void perform(Object target, Class<T> type) {
-		addValue(target, pathToExpression(from).getValue(target));
+		addValue(target, PathAccessor.forPath(target.getClass(), from).getExpression().getValue(target));
 	}
 	
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.operations;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import org.springframework.util.ObjectUtils;
+
+/**
+ * <p>Compares the values of {@link TestOperation tests} with the values found at their paths.</p>
+ *
+ * <p>Numbers are compared by value rather than by type, so that a test of an {@code Integer} matches a {@code Long}
+ * field: integral numbers as longs, and floating-point numbers as doubles, within a {@link Tolerance}. An integral
+ * number never matches a floating-point one. The usual boxed numbers are compared as primitives; other
+ * {@link Number} implementations are normalized to {@link BigInteger} or {@link BigDecimal} first.</p>
+ */
+final class NumberComparison {
+
+  private NumberComparison() {
+  }
+
+  /**
+   * @param expected  the value tested
+   * @param actual    the value found
+   * @param tolerance how far apart floating-point numbers may be
+   * @return whether the values match
+   */
+  static boolean matches(Object expected, Object actual, Tolerance tolerance) {
+    if (expected == actual) {
+      return true;
+    }
+    if (expected == null || actual == null) {
+      return false;
+    }
+    Class<?> type = expected.getClass();
+    if (type == actual.getClass() && (type == String.class || type == Boolean.class || isIntegral(type))) {
+      return expected.equals(actual);
+    }
+    if (!(expected instanceof Number) || !(actual instanceof Number)) {
+      return ObjectUtils.nullSafeEquals(expected, actual);
+    }
+    Class<?> actualType = actual.getClass();
+    if (isFloatingPoint(type) && isFloatingPoint(actualType)) {
+      return tolerance.matches(((Number) expected).doubleValue(), ((Number) actual).doubleValue());
+    }
+    if (isIntegral(type) && isIntegral(actualType)) {
+      return ((Number) expected).longValue() == ((Number) actual).longValue();
+    }
+    if (isFloatingPoint(type) && isIntegral(actualType) || isIntegral(type) && isFloatingPoint(actualType)) {
+      return false;
+    }
+    return ObjectUtils.nullSafeEquals(normalize((Number) expected), normalize((Number) actual));
+  }
+
+  private static boolean isIntegral(Class<?> type) {
+    return type == Long.class || type == Integer.class || type == Short.class || type == Byte.class;
+  }
+
+  private static boolean isFloatingPoint(Class<?> type) {
+    return type == Double.class || type == Float.class;
+  }
+
+  private static Object normalize(Number number) {
+    if (isFloatingPoint(number.getClass())) {
+      return BigDecimal.valueOf(number.doubleValue());
+    }
+    return BigInteger.valueOf(number.longValue());
+  }
+
+}
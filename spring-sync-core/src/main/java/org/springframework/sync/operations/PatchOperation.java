@@ -15,15 +15,13 @@
  */
 package org.springframework.sync.operations;
 
-import static org.springframework.sync.PathToSpEL.*;
-
 import java.util.List;
 
-import org.springframework.core.convert.ConversionException;
 import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionException;
 import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.sync.LateObjectEvaluator;
+import org.springframework.sync.PathAccessor;
 import org.springframework.sync.PatchException;
 
 /**
@@ -39,8 +37,6 @@ public abstract class PatchOperation {
 
   protected final Object value;
 
-  protected final Expression spelExpression;
-
   /**
    * Constructs the operation.
    *
@@ -62,7 +58,6 @@ public abstract class PatchOperation {
     this.op = op;
     this.path = path;
     this.value = value;
-    this.spelExpression = pathToExpression(path);
   }
 
   /**
@@ -94,8 +89,9 @@ public abstract class PatchOperation {
    * @return the value popped from the list
    */
   protected Object popValueAtPath(Object target, String removePath) {
-    Integer listIndex = targetListIndex(removePath);
-    Expression expression = pathToExpression(removePath);
+    PathAccessor accessor = PathAccessor.forPath(target.getClass(), removePath);
+    Integer listIndex = accessor.getListIndex();
+    Expression expression = accessor.getExpression();
     Object value = expression.getValue(target);
     if (listIndex == null) {
       try {
@@ -105,8 +101,7 @@ public abstract class PatchOperation {
         throw new PatchException("Path '" + removePath + "' is not nullable.");
       }
     } else {
-      Expression parentExpression = pathToParentExpression(removePath);
-      List<?> list = (List<?>) parentExpression.getValue(target);
+      List<?> list = (List<?>) accessor.getParentExpression().getValue(target);
       if (list == null) {
         throw new PatchException(String.format("parent expression for target %s was not present", target));
       }
@@ -124,14 +119,14 @@ public abstract class PatchOperation {
    * @param value  The value to add.
    */
   protected void addValue(Object target, Object value) {
-    Expression parentExpression = pathToParentExpression(path);
-    Object parent = parentExpression.getValue(target);
-    Integer listIndex = targetListIndex(path);
+    PathAccessor accessor = PathAccessor.forPath(target.getClass(), path);
+    Object parent = accessor.getParentExpression().getValue(target);
+    Integer listIndex = accessor.getListIndex();
     if (!(parent instanceof List) || listIndex == null) {
-      spelExpression.setValue(target, value);
+      accessor.getExpression().setValue(target, value);
     } else {
       @SuppressWarnings("unchecked")
-      List<Object> list = (List<Object>) parentExpression.getValue(target);
+      List<Object> list = (List<Object>) parent;
       int addAtIndex = listIndex >= 0 ? listIndex : list.size();
       list.add(addAtIndex, value);
     }
@@ -144,7 +139,7 @@ public abstract class PatchOperation {
    * @param value  The value to set.
    */
   protected void setValueOnTarget(Object target, Object value) {
-    spelExpression.setValue(target, value);
+    PathAccessor.forPath(target.getClass(), path).getExpression().setValue(target, value);
   }
 
   /**
@@ -155,7 +150,7 @@ public abstract class PatchOperation {
    */
   protected Object getValueFromTarget(Object target) {
     try {
-      return spelExpression.getValue(target);
+      return PathAccessor.forPath(target.getClass(), path).getExpression().getValue(target);
     } catch (ExpressionException e) {
       throw new PatchException("Unable to get value from target", e);
     }
@@ -180,22 +175,4 @@ public abstract class PatchOperation {
    */
   public abstract <T> void perform(Object target, Class<T> type);
 
-  // private helpers
-
-  private Integer targetListIndex(String path) {
-    String[] pathNodes = path.split("/");
-
-    String lastNode = pathNodes[pathNodes.length - 1];
-
-    if ("~".equals(lastNode)) {
-      return -1;
-    }
-
-    try {
-      return Integer.parseInt(lastNode);
-    } catch (NumberFormatException e) {
-      return null;
-    }
-  }
-
 }
@@ -15,11 +15,7 @@
  */
 package org.springframework.sync.operations;
 
-import java.math.BigDecimal;
-import java.math.BigInteger;
-
 import org.springframework.sync.PatchException;
-import org.springframework.util.ObjectUtils;
 
 /**
  * <p>Operation to test values on a given target.</p>
@@ -30,35 +26,51 @@ import org.springframework.util.ObjectUtils;
  * a {@link PatchException} will be thrown.
  * </p>
  * 
+ * <p>
+ * Numbers match by value, whatever their boxed type; floating-point numbers within the {@link Tolerance} of the
+ * operation, exactly by default.
+ * </p>
+ * 
  * @author Craig Walls
  */
 public class TestOperation extends PatchOperation {
 
+	private final Tolerance tolerance;
+
 	/**
 	 * Constructs the test operation
 	 * @param path The path to test. (e.g., '/foo/bar/4')
 	 * @param value The value to test the path against.
 	 */
 	public TestOperation(String path, Object value) {
+		this(path, value, Tolerance.EXACT);
+	}
+
+	/**
+	 * Constructs the test operation
+	 * @param path The path to test. (e.g., '/foo/bar/4')
+	 * @param value The value to test the path against.
+	 * @param tolerance How far apart floating-point values may be.
+	 */
+	public TestOperation(String path, Object value, Tolerance tolerance) {
 		super("test", path, value);
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * @return how far apart floating-point values may be.
+	 */
+	public Tolerance getTolerance() {
+		return tolerance;
 	}
 	
 	@Override
   public <T> void perform(Object target, Class<T> type) {
-		Object expected = normalizeIfNumber(evaluateValueFromTarget(target, type));
-		Object actual = normalizeIfNumber(getValueFromTarget(target));		
-		if (!ObjectUtils.nullSafeEquals(expected, actual)) {
+		Object expected = evaluateValueFromTarget(target, type);
+		Object actual = getValueFromTarget(target);
+		if (!NumberComparison.matches(expected, actual, tolerance)) {
 			throw new PatchException("Test against path '" + path + "' failed.");
 		}
 	}
 	
-	private Object normalizeIfNumber(Object expected) {
-		if (expected instanceof Double || expected instanceof Float) {
-			expected = BigDecimal.valueOf(((Number) expected).doubleValue()); 
-		} else if (expected instanceof Number) {
-			expected = BigInteger.valueOf(((Number) expected).longValue()); 
-		}
-		return expected;
-	}
-	
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.operations;
+
+/**
+ * <p>How far apart a floating-point value tested by a {@link TestOperation} may be from the value found at its path.</p>
+ *
+ * <p>A value that went through another runtime, or through a float on the way, may come back a few ulps off the one
+ * it was computed from, failing a test that compares it exactly. Values match if they are within the absolute delta
+ * or the number of ulps of the tolerance, whichever is wider. NaN matches NaN only.</p>
+ */
+public final class Tolerance {
+
+  /**
+   * Matches equal values only.
+   */
+  public static final Tolerance EXACT = new Tolerance(0, 0);
+
+  private final double delta;
+
+  private final long ulps;
+
+  private Tolerance(double delta, long ulps) {
+    this.delta = delta;
+    this.ulps = ulps;
+  }
+
+  /**
+   * @param delta the largest difference between matching values
+   * @return a tolerance matching values at most {@code delta} apart
+   */
+  public static Tolerance absolute(double delta) {
+    if (!(delta >= 0) || Double.isInfinite(delta)) {
+      throw new IllegalArgumentException("Delta must be finite and non-negative, was " + delta);
+    }
+    return new Tolerance(delta, 0);
+  }
+
+  /**
+   * @param ulps the largest number of representable doubles between matching values
+   * @return a tolerance matching values at most {@code ulps} apart
+   */
+  public static Tolerance ulps(long ulps) {
+    if (ulps < 0) {
+      throw new IllegalArgumentException("Ulps must be non-negative, was " + ulps);
+    }
+    return new Tolerance(0, ulps);
+  }
+
+  /**
+   * @param expected the value tested
+   * @param actual   the value found
+   * @return whether the values match
+   */
+  public boolean matches(double expected, double actual) {
+    if (expected == actual) {
+      return true;
+    }
+    if (Double.isNaN(expected) || Double.isNaN(actual)) {
+      return Double.isNaN(expected) && Double.isNaN(actual);
+    }
+    if (Math.abs(expected - actual) <= delta) {
+      return true;
+    }
+    return ulps > 0 && ulpsBetween(expected, actual) <= ulps;
+  }
+
+  /**
+   * Counts the doubles between two values of the same sign from the distance of their bit patterns, which are ordered
+   * like the values themselves.
+   */
+  private static long ulpsBetween(double expected, double actual) {
+    long expectedBits = Double.doubleToLongBits(expected);
+    long actualBits = Double.doubleToLongBits(actual);
+    if ((expectedBits ^ actualBits) < 0) {
+      // either side of zero, which equal values never are
+      return Long.MAX_VALUE;
+    }
+    return Math.abs(expectedBits - actualBits);
+  }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Strategy interface for deep cloning the object graphs that patches are applied to and that shadows are made of.
+ *
+ * @see FieldCopyingCloningStrategy
+ * @see SerializationCloningStrategy
+ * @see JacksonCloningStrategy
+ */
+public interface CloningStrategy {
+
+  /**
+   * Deep clones an object.
+   *
+   * @param original a single, non-list object to be cloned
+   * @param <T>      the object's type
+   * @return the cloned object
+   */
+  <T extends Serializable> T deepClone(T original);
+
+  /**
+   * Deep clones a list. The returned list is always mutable, so that patches may add and remove items.
+   *
+   * @param original a list to be cloned
+   * @param <T>      the list's generic type
+   * @return the cloned list
+   */
+  default <T extends Serializable> List<T> deepClone(List<T> original) {
+    List<T> copy = new ArrayList<>(original.size());
+    for (T t : original) {
+      copy.add(deepClone(t));
+    }
+    return copy;
+  }
+
+}
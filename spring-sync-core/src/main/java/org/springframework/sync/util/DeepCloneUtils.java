@@ -15,22 +15,29 @@
  */
 package org.springframework.sync.util;
 
-import org.apache.commons.lang3.SerializationUtils;
-
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Utility methods for deep cloning an object graph.
+ * Utility methods for deep cloning an object graph with the default {@link CloningStrategy}, a
+ * {@link FieldCopyingCloningStrategy}.
  *
  * @author Craig Walls
  */
 public class DeepCloneUtils {
 
+  private static final CloningStrategy DEFAULT_STRATEGY = new FieldCopyingCloningStrategy();
+
   private DeepCloneUtils() {
   }
 
+  /**
+   * @return the {@link CloningStrategy} used when none is configured.
+   */
+  public static CloningStrategy getDefaultStrategy() {
+    return DEFAULT_STRATEGY;
+  }
+
   /**
    * Deep clones an object.
    *
@@ -39,7 +46,7 @@ public class DeepCloneUtils {
    * @return the cloned object
    */
   public static <T extends Serializable> T deepClone(T original) {
-    return SerializationUtils.clone(original);
+    return DEFAULT_STRATEGY.deepClone(original);
   }
 
   /**
@@ -50,11 +57,7 @@ public class DeepCloneUtils {
    * @return the cloned list
    */
   public static <T extends Serializable> List<T> deepClone(List<T> original) {
-    List<T> copy = new ArrayList<>(original.size());
-    for (T t : original) {
-      copy.add(SerializationUtils.clone(t));
-    }
-    return copy;
+    return DEFAULT_STRATEGY.deepClone(original);
   }
 
 }
@@ -0,0 +1,438 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.util;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.springframework.objenesis.SpringObjenesis;
+import org.springframework.objenesis.instantiator.ObjectInstantiator;
+import org.springframework.sync.PatchException;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+import java.io.Externalizable;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * <p>{@link CloningStrategy} that copies object graphs field by field.</p>
+ *
+ * <p>The first time an object of a given class is cloned, a copier for that class is built from {@link MethodHandle}
+ * accessors for each of its instance fields, including inherited ones, and cached for the lifetime of the strategy.
+ * Primitive fields are copied through exactly-typed handles, without boxing. Instances are created without calling
+ * a constructor, as Java serialization does, and transient fields are left at their default values.</p>
+ *
+ * <p>Objects that appear more than once in a graph are copied once, so that shared references and cycles are
+ * preserved in the clone. Immutable values (strings, boxed primitives, enums, {@code java.time} types and any type
+ * given to {@link #FieldCopyingCloningStrategy(Collection)}) are shared rather than copied, as are records whose
+ * components are all shared. Other records are copied through their canonical constructor, which means that a record
+ * must not be part of a cycle.</p>
+ *
+ * <p>Common JDK collections and maps are copied element by element. Other JDK types, and classes that customize
+ * their serialized form, are cloned through Java serialization.</p>
+ */
+public class FieldCopyingCloningStrategy implements CloningStrategy {
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  private static final SpringObjenesis OBJENESIS = new SpringObjenesis();
+
+  private static final Set<Class<?>> IMMUTABLE_TYPES = Set.of(String.class, Boolean.class, Character.class,
+      Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class, BigInteger.class,
+      BigDecimal.class, UUID.class, URI.class, Locale.class, Class.class);
+
+  private static final Map<Class<?>, Function<Object, Collection<Object>>> COLLECTION_FACTORIES = Map.of(
+      ArrayList.class, original -> new ArrayList<>(((Collection<?>) original).size()),
+      LinkedList.class, original -> new LinkedList<>(),
+      HashSet.class, original -> new HashSet<>(),
+      LinkedHashSet.class, original -> new LinkedHashSet<>(),
+      TreeSet.class, original -> new TreeSet<>(comparatorOf(((TreeSet<?>) original).comparator())),
+      ArrayDeque.class, original -> new ArrayDeque<>());
+
+  private static final Map<Class<?>, Function<Object, Map<Object, Object>>> MAP_FACTORIES = Map.of(
+      HashMap.class, original -> new HashMap<>(),
+      LinkedHashMap.class, original -> new LinkedHashMap<>(),
+      TreeMap.class, original -> new TreeMap<>(comparatorOf(((TreeMap<?, ?>) original).comparator())),
+      ConcurrentHashMap.class, original -> new ConcurrentHashMap<>());
+
+  private final Set<Class<?>> sharedTypes;
+
+  private final Map<Class<?>, Copier> copiers = new ConcurrentReferenceHashMap<>();
+
+  public FieldCopyingCloningStrategy() {
+    this(Set.of());
+  }
+
+  /**
+   * @param sharedTypes additional types that are known to be immutable, whose instances are shared between an
+   *                    original and its clone
+   */
+  public FieldCopyingCloningStrategy(Collection<Class<?>> sharedTypes) {
+    this.sharedTypes = Set.copyOf(sharedTypes);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T extends Serializable> T deepClone(T original) {
+    try {
+      return (T) copy(original, new IdentityHashMap<>());
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new PatchException("Could not clone " + original.getClass().getName(), (Exception) e);
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T extends Serializable> List<T> deepClone(List<T> original) {
+    // one identity map for the whole list, so that items sharing an object still share its copy
+    Map<Object, Object> copies = new IdentityHashMap<>();
+    List<T> copy = new ArrayList<>(original.size());
+    try {
+      for (T t : original) {
+        copy.add((T) copy(t, copies));
+      }
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new PatchException("Could not clone list", (Exception) e);
+    }
+    return copy;
+  }
+
+  // private helpers
+
+  private Object copy(Object original, Map<Object, Object> copies) throws Throwable {
+    if (original == null) {
+      return null;
+    }
+    Copier copier = copierFor(original.getClass());
+    if (copier == SHARED) {
+      return original;
+    }
+    Object copy = copies.get(original);
+    return copy != null ? copy : copier.copy(this, original, copies);
+  }
+
+  private Copier copierFor(Class<?> type) {
+    Copier copier = copiers.get(type);
+    if (copier == null) {
+      copier = createCopier(type);
+      copiers.put(type, copier);
+    }
+    return copier;
+  }
+
+  private Copier createCopier(Class<?> type) {
+    if (isImmutable(type)) {
+      return SHARED;
+    }
+    if (type.isArray()) {
+      return type.getComponentType().isPrimitive() ? PRIMITIVE_ARRAY : OBJECT_ARRAY;
+    }
+    if (COLLECTION_FACTORIES.containsKey(type)) {
+      return new CollectionCopier(COLLECTION_FACTORIES.get(type));
+    }
+    if (MAP_FACTORIES.containsKey(type)) {
+      return new MapCopier(MAP_FACTORIES.get(type));
+    }
+    if (isJdkType(type)) {
+      return Date.class.isAssignableFrom(type) ? DATE : SERIALIZATION;
+    }
+    if (Externalizable.class.isAssignableFrom(type) || hasSerializationMethods(type)) {
+      return SERIALIZATION;
+    }
+    try {
+      return type.isRecord() ? RecordCopier.forType(type) : FieldCopier.forType(type);
+    } catch (IllegalAccessException | NoSuchMethodException | RuntimeException e) {
+      // not open to us, leave it to serialization
+      return SERIALIZATION;
+    }
+  }
+
+  private boolean isImmutable(Class<?> type) {
+    return IMMUTABLE_TYPES.contains(type) || Enum.class.isAssignableFrom(type) || sharedTypes.contains(type)
+        || "java.time".equals(type.getPackageName());
+  }
+
+  /**
+   * @return the comparator of a sorted collection, for the copy to hold the elements of the original
+   */
+  @SuppressWarnings("unchecked")
+  private static Comparator<Object> comparatorOf(Comparator<?> comparator) {
+    return (Comparator<Object>) comparator;
+  }
+
+  private static boolean isJdkType(Class<?> type) {
+    String name = type.getName();
+    return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.")
+        || name.startsWith("sun.");
+  }
+
+  private static boolean hasSerializationMethods(Class<?> type) {
+    for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+      for (Method method : current.getDeclaredMethods()) {
+        String name = method.getName();
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        if (("writeReplace".equals(name) || "readResolve".equals(name)) && parameterTypes.length == 0
+            || "writeObject".equals(name) && parameterTypes.length == 1 && parameterTypes[0] == ObjectOutputStream.class
+            || "readObject".equals(name) && parameterTypes.length == 1 && parameterTypes[0] == ObjectInputStream.class) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Copies objects of a single type, registering each copy before copying anything it references.
+   */
+  private interface Copier {
+
+    Object copy(FieldCopyingCloningStrategy strategy, Object original, Map<Object, Object> copies) throws Throwable;
+
+  }
+
+  private static final Copier SHARED = (strategy, original, copies) -> original;
+
+  private static final Copier PRIMITIVE_ARRAY = (strategy, original, copies) -> {
+    int length = Array.getLength(original);
+    Object copy = Array.newInstance(original.getClass().getComponentType(), length);
+    System.arraycopy(original, 0, copy, 0, length);
+    copies.put(original, copy);
+    return copy;
+  };
+
+  private static final Copier OBJECT_ARRAY = (strategy, original, copies) -> {
+    Object[] array = (Object[]) original;
+    Object[] copy = (Object[]) Array.newInstance(original.getClass().getComponentType(), array.length);
+    copies.put(original, copy);
+    for (int i = 0; i < array.length; i++) {
+      copy[i] = strategy.copy(array[i], copies);
+    }
+    return copy;
+  };
+
+  private static final Copier DATE = (strategy, original, copies) -> {
+    Object copy = ((Date) original).clone();
+    copies.put(original, copy);
+    return copy;
+  };
+
+  private static final Copier SERIALIZATION = (strategy, original, copies) -> {
+    if (!(original instanceof Serializable)) {
+      throw new PatchException("Could not clone " + original.getClass().getName() + ": it is not serializable");
+    }
+    Object copy = SerializationUtils.clone((Serializable) original);
+    copies.put(original, copy);
+    return copy;
+  };
+
+  private static final class CollectionCopier implements Copier {
+
+    private final Function<Object, Collection<Object>> factory;
+
+    CollectionCopier(Function<Object, Collection<Object>> factory) {
+      this.factory = factory;
+    }
+
+    @Override
+    public Object copy(FieldCopyingCloningStrategy strategy, Object original, Map<Object, Object> copies)
+        throws Throwable {
+      Collection<Object> copy = factory.apply(original);
+      copies.put(original, copy);
+      for (Object item : (Collection<?>) original) {
+        copy.add(strategy.copy(item, copies));
+      }
+      return copy;
+    }
+
+  }
+
+  private static final class MapCopier implements Copier {
+
+    private final Function<Object, Map<Object, Object>> factory;
+
+    MapCopier(Function<Object, Map<Object, Object>> factory) {
+      this.factory = factory;
+    }
+
+    @Override
+    public Object copy(FieldCopyingCloningStrategy strategy, Object original, Map<Object, Object> copies)
+        throws Throwable {
+      Map<Object, Object> copy = factory.apply(original);
+      copies.put(original, copy);
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) original).entrySet()) {
+        copy.put(strategy.copy(entry.getKey(), copies), strategy.copy(entry.getValue(), copies));
+      }
+      return copy;
+    }
+
+  }
+
+  private static final class FieldCopier implements Copier {
+
+    private static final MethodType PRIMITIVE_COPY_TYPE = MethodType.methodType(void.class, Object.class,
+        Object.class);
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final ObjectInstantiator<?> instantiator;
+
+    /**
+     * (source, target) handles copying a primitive field value straight from source to target.
+     */
+    private final MethodHandle[] primitiveCopies;
+
+    private final MethodHandle[] getters;
+
+    private final MethodHandle[] setters;
+
+    private FieldCopier(ObjectInstantiator<?> instantiator, MethodHandle[] primitiveCopies, MethodHandle[] getters,
+        MethodHandle[] setters) {
+      this.instantiator = instantiator;
+      this.primitiveCopies = primitiveCopies;
+      this.getters = getters;
+      this.setters = setters;
+    }
+
+    static FieldCopier forType(Class<?> type) throws IllegalAccessException {
+      List<MethodHandle> primitiveCopies = new ArrayList<>();
+      List<MethodHandle> getters = new ArrayList<>();
+      List<MethodHandle> setters = new ArrayList<>();
+      for (Class<?> current = type; current != Object.class; current = current.getSuperclass()) {
+        for (Field field : current.getDeclaredFields()) {
+          int modifiers = field.getModifiers();
+          if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+            continue;
+          }
+          field.setAccessible(true);
+          MethodHandle getter = LOOKUP.unreflectGetter(field);
+          MethodHandle setter = LOOKUP.unreflectSetter(field);
+          if (field.getType().isPrimitive()) {
+            // (target, source) -> target.field = source.field, then swapped to (source, target)
+            MethodHandle copy = MethodHandles.collectArguments(setter, 1, getter);
+            copy = MethodHandles.permuteArguments(copy, MethodType.methodType(void.class, current, current), 1, 0);
+            primitiveCopies.add(copy.asType(PRIMITIVE_COPY_TYPE));
+          } else {
+            getters.add(getter.asType(GETTER_TYPE));
+            setters.add(setter.asType(SETTER_TYPE));
+          }
+        }
+      }
+      return new FieldCopier(OBJENESIS.getInstantiatorOf(type), primitiveCopies.toArray(new MethodHandle[0]),
+          getters.toArray(new MethodHandle[0]), setters.toArray(new MethodHandle[0]));
+    }
+
+    @Override
+    public Object copy(FieldCopyingCloningStrategy strategy, Object original, Map<Object, Object> copies)
+        throws Throwable {
+      Object copy = instantiator.newInstance();
+      copies.put(original, copy);
+      for (MethodHandle primitiveCopy : primitiveCopies) {
+        primitiveCopy.invokeExact(original, copy);
+      }
+      for (int i = 0; i < getters.length; i++) {
+        Object value = (Object) getters[i].invokeExact(original);
+        setters[i].invokeExact(copy, strategy.copy(value, copies));
+      }
+      return copy;
+    }
+
+  }
+
+  private static final class RecordCopier implements Copier {
+
+    private final MethodHandle[] accessors;
+
+    private final MethodHandle constructor;
+
+    private RecordCopier(MethodHandle[] accessors, MethodHandle constructor) {
+      this.accessors = accessors;
+      this.constructor = constructor;
+    }
+
+    static RecordCopier forType(Class<?> type) throws IllegalAccessException, NoSuchMethodException {
+      RecordComponent[] components = type.getRecordComponents();
+      MethodHandle[] accessors = new MethodHandle[components.length];
+      Class<?>[] componentTypes = new Class<?>[components.length];
+      for (int i = 0; i < components.length; i++) {
+        Method accessor = components[i].getAccessor();
+        accessor.setAccessible(true);
+        accessors[i] = LOOKUP.unreflect(accessor).asType(MethodType.methodType(Object.class, Object.class));
+        componentTypes[i] = components[i].getType();
+      }
+      Constructor<?> canonicalConstructor = type.getDeclaredConstructor(componentTypes);
+      canonicalConstructor.setAccessible(true);
+      MethodHandle constructor = LOOKUP.unreflectConstructor(canonicalConstructor)
+          .asSpreader(Object[].class, components.length)
+          .asType(MethodType.methodType(Object.class, Object[].class));
+      return new RecordCopier(accessors, constructor);
+    }
+
+    @Override
+    public Object copy(FieldCopyingCloningStrategy strategy, Object original, Map<Object, Object> copies)
+        throws Throwable {
+      Object[] values = new Object[accessors.length];
+      boolean shared = true;
+      for (int i = 0; i < accessors.length; i++) {
+        Object value = (Object) accessors[i].invokeExact(original);
+        values[i] = strategy.copy(value, copies);
+        shared &= values[i] == value;
+      }
+      // a record holding nothing but shared values is immutable itself
+      Object copy = shared ? original : (Object) constructor.invokeExact(values);
+      copies.put(original, copy);
+      return copy;
+    }
+
+  }
+
+}
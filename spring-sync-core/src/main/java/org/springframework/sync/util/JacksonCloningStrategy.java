@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.sync.PatchException;
+
+import java.io.Serializable;
+
+/**
+ * {@link CloningStrategy} that clones objects by converting them to a Jackson tree and back.
+ *
+ * <p>Only the properties that the {@link ObjectMapper} reads and writes are carried over to the clone, which makes
+ * this strategy a fit for entities that are already mapped to JSON, such as those exchanged as JSON Patch.</p>
+ */
+public class JacksonCloningStrategy implements CloningStrategy {
+
+  private final ObjectMapper objectMapper;
+
+  public JacksonCloningStrategy() {
+    this(new ObjectMapper());
+  }
+
+  public JacksonCloningStrategy(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T extends Serializable> T deepClone(T original) {
+    if (original == null) {
+      return null;
+    }
+    try {
+      JsonNode tree = objectMapper.valueToTree(original);
+      return (T) objectMapper.treeToValue(tree, original.getClass());
+    } catch (JsonProcessingException | IllegalArgumentException e) {
+      throw new PatchException("Could not clone " + original.getClass().getName(), e);
+    }
+  }
+
+}
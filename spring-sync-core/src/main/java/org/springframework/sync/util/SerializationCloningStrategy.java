@@ -0,0 +1,35 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.util;
+
+import org.apache.commons.lang3.SerializationUtils;
+
+import java.io.Serializable;
+
+/**
+ * {@link CloningStrategy} that clones objects by round-tripping them through Java serialization.
+ *
+ * <p>This is the slowest of the strategies, but it honors custom serialization methods on every object of the
+ * graph.</p>
+ */
+public class SerializationCloningStrategy implements CloningStrategy {
+
+  @Override
+  public <T extends Serializable> T deepClone(T original) {
+    return SerializationUtils.clone(original);
+  }
+
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.sync.diffsync.IdPropertyEquivalency;
+import org.springframework.sync.operations.PatchOperation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompiledDiffEngineTest {
+
+  private final DiffEngine engine = new CompiledDiffEngine();
+
+  private final DiffEngine hashingEngine = new CompiledDiffEngine(null, true);
+
+  @Test
+  void noChanges() {
+    assertSameAsDiff(buildTodoList(), buildTodoList());
+    assertEquals(0, engine.diff(buildTodoList(), buildTodoList()).size());
+  }
+
+  @Test
+  void propertyChangesOnObject() {
+    assertSameAsDiff(new Todo(1L, "A", false), new Todo(1L, "A", true));
+    assertSameAsDiff(new Todo(1L, "A", false), new Todo(1L, "B", false));
+    assertSameAsDiff(new Todo(1L, "A", false), new Todo(2L, "B", true));
+    assertSameAsDiff(new Todo(null, "A", false), new Todo(1L, "A", false));
+    assertSameAsDiff(new Todo(1L, "A", false), new Todo(1L, null, false));
+  }
+
+  @Test
+  void changesOnItemsInList() {
+    List<Todo> modified = buildTodoList();
+    modified.get(1).setComplete(true);
+    modified.get(2).setDescription("Z");
+    assertSameAsDiff(buildTodoList(), modified);
+  }
+
+  @Test
+  void insertsAndRemovesInList() {
+    List<Todo> modified = buildTodoList();
+    modified.add(0, new Todo(0L, "Z", false));
+    modified.remove(2);
+    modified.add(new Todo(9L, "Y", true));
+    assertSameAsDiff(buildTodoList(), modified);
+
+    assertSameAsDiff(buildTodoList(), new ArrayList<Todo>());
+  }
+
+  @Test
+  void listAndArrayProperties() {
+    TodoList original = new TodoList();
+    original.setName("Work");
+    original.setTodos(buildTodoList());
+    original.setTodoArray(buildTodoList().toArray(new Todo[0]));
+
+    TodoList modified = new TodoList();
+    modified.setName("Home");
+    List<Todo> todos = buildTodoList();
+    todos.get(0).setComplete(true);
+    todos.remove(1);
+    modified.setTodos(todos);
+    Todo[] todoArray = buildTodoList().toArray(new Todo[0]);
+    todoArray[2].setDescription("Z");
+    modified.setTodoArray(todoArray);
+
+    assertSameAsDiff(original, modified);
+  }
+
+  @Test
+  void inaccessibleTypesAreReplacedAsAWhole() {
+    Patch diff = engine.diff(new Date(0L), new Date(1L));
+
+    List<PatchOperation> ops = diff.getOperations();
+    assertEquals(2, ops.size());
+    assertEquals("test", ops.get(0).getOp());
+    assertEquals("replace", ops.get(1).getOp());
+    assertEquals(new Date(1L), ops.get(1).getValue());
+  }
+
+  @Test
+  void hashingProducesSameOperations() {
+    List<Todo> modified = buildTodoList();
+    modified.get(1).setComplete(true);
+    modified.add(0, new Todo(0L, "Z", false));
+    modified.remove(3);
+    assertSameAsDiffWithHashes(buildTodoList(), modified);
+    assertSameAsDiffWithHashes(buildTodoList(), buildTodoList());
+    assertSameAsDiffWithHashes(new Todo(1L, "A", false), new Todo(1L, null, true));
+
+    TodoList original = new TodoList();
+    original.setTodos(buildTodoList());
+    original.setTodoArray(buildTodoList().toArray(new Todo[0]));
+    TodoList changed = new TodoList();
+    changed.setName("Home");
+    changed.setTodos(modified);
+    Todo[] todoArray = buildTodoList().toArray(new Todo[0]);
+    todoArray[2].setDescription("Z");
+    changed.setTodoArray(todoArray);
+    assertSameAsDiffWithHashes(original, changed);
+  }
+
+  @Test
+  void hashingOnlyCallsEqualsOnSubtreesWhoseHashesMatch() {
+    List<Note> original = new ArrayList<>();
+    List<Note> modified = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      original.add(new Note(i, "note " + i));
+      modified.add(new Note(i, i == 42 ? "changed" : "note " + i));
+    }
+    Note.compared.clear();
+
+    Patch diff = hashingEngine.diff(original, hashingEngine.hash(original, null, null), modified,
+        hashingEngine.hash(modified, null, null));
+
+    assertFalse(Note.compared.contains(42L));
+    assertEquals(99, Note.compared.size());
+    assertEquals(List.of("test /42/text note 42", "replace /42/text changed"), describe(diff));
+  }
+
+  @Test
+  void collidingHashesDoNotLoseChanges() {
+    StructuralHash collision = StructuralHash.leaf(42L, true);
+    assertEquals(List.of("test /text A", "replace /text B"), describe(hashingEngine.diff(new Note(1L, "A"),
+        collision, new Note(1L, "B"), collision)));
+
+    List<String> original = List.of("A", "B");
+    List<String> modified = List.of("A", "C");
+    StructuralHash collidingList = StructuralHash.node(7L, new StructuralHash[] { collision, collision });
+    assertEquals(List.of("test /1 B", "replace /1 C"), describe(hashingEngine.diff(original, collidingList, modified,
+        collidingList)));
+  }
+
+  @Test
+  void hashReusesSubtreesSharedWithPreviousVersion() {
+    List<Todo> original = buildTodoList();
+    StructuralHash originalHash = hashingEngine.hash(original, null, null);
+    List<Todo> modified = new ArrayList<>(original);
+    modified.set(1, new Todo(2L, "B", true));
+    modified.remove(0);
+
+    StructuralHash modifiedHash = hashingEngine.hash(modified, original, originalHash);
+
+    assertSame(originalHash.child(2), modifiedHash.child(1));
+    assertNotSame(originalHash.child(1), modifiedHash.child(0));
+    assertEquals(hashingEngine.hash(modified, null, null).getValue(), modifiedHash.getValue());
+    assertFalse(originalHash.matches(modifiedHash));
+    assertTrue(originalHash.matches(hashingEngine.hash(buildTodoList(), null, null)));
+  }
+
+  @Test
+  void valuesHashedByHashCodeAreComparedWithEquals() {
+    StructuralHash hash = hashingEngine.hash(new Date(0L), null, null);
+
+    assertFalse(hash.isExact());
+    assertFalse(hash.matches(hashingEngine.hash(new Date(0L), null, null)));
+    Patch diff = hashingEngine.diff(new Date(0L), hash, new Date(1L), hashingEngine.hash(new Date(1L), null, null));
+    assertEquals(2, diff.size());
+  }
+
+  @Test
+  void noHashesUnlessEnabled() {
+    assertNull(engine.hash(buildTodoList(), null, null));
+  }
+
+  @Test
+  void testLevels() {
+    List<Todo> modified = buildTodoList();
+    modified.get(0).setComplete(true);
+    modified.remove(2);
+
+    assertEquals(List.of("test /0/complete false", "replace /0/complete true", "test /2 " + buildTodoList().get(2),
+        "remove /2 null"), describeWithTests(DiffOptions.ALL_TESTS, modified));
+    assertEquals(List.of("replace /0/complete true", "test /2 " + buildTodoList().get(2), "remove /2 null"),
+        describeWithTests(DiffOptions.REMOVE_TESTS, modified));
+    assertEquals(List.of("replace /0/complete true", "remove /2 null"),
+        describeWithTests(DiffOptions.NO_TESTS, modified));
+  }
+
+  @Test
+  void testLevelsOfKeyedLists() {
+    IdPropertyEquivalency equivalency = new IdPropertyEquivalency();
+    List<Todo> modified = buildTodoList();
+    modified.remove(1);
+    modified.get(1).setDescription("Z");
+
+    for (DiffOptions options : List.of(DiffOptions.ALL_TESTS, DiffOptions.REMOVE_TESTS, DiffOptions.NO_TESTS)) {
+      Patch diff = new CompiledDiffEngine(equivalency, false, options).diff(buildTodoList(), modified);
+      assertEquals(describe(Diff.diff(buildTodoList(), modified, equivalency, options)), describe(diff));
+      assertEquals(modified, diff.apply(buildTodoList(), Todo.class));
+      assertEquals(options.getTestLevel() == DiffOptions.TestLevel.ALL, hasTest(diff, "/1/description"));
+      assertEquals(options.getTestLevel() != DiffOptions.TestLevel.NONE, hasTest(diff, "/1"));
+    }
+  }
+
+  // private helpers
+
+  private void assertSameAsDiffWithHashes(Object original, Object modified) {
+    assertEquals(describe(Diff.diff(original, modified)), describe(hashingEngine.diff(original,
+        hashingEngine.hash(original, null, null), modified, hashingEngine.hash(modified, null, null))));
+  }
+
+  private void assertSameAsDiff(Object original, Object modified) {
+    assertEquals(describe(Diff.diff(original, modified)), describe(engine.diff(original, modified)));
+  }
+
+  private static List<String> describeWithTests(DiffOptions options, List<Todo> modified) {
+    List<String> operations = describe(Diff.diff(buildTodoList(), modified, null, options));
+    assertEquals(operations, describe(new CompiledDiffEngine(null, false, options).diff(buildTodoList(), modified)));
+    return operations;
+  }
+
+  private static boolean hasTest(Patch patch, String path) {
+    return patch.getOperations().stream().anyMatch(op -> op.getOp().equals("test") && op.getPath().equals(path));
+  }
+
+  private static List<String> describe(Patch patch) {
+    List<String> ops = new ArrayList<>();
+    for (PatchOperation op : patch.getOperations()) {
+      ops.add(op.getOp() + " " + op.getPath() + " " + op.getValue());
+    }
+    return ops;
+  }
+
+  private static List<Todo> buildTodoList() {
+    return new ArrayList<>(Arrays.asList(
+        new Todo(1L, "A", false),
+        new Todo(2L, "B", false),
+        new Todo(3L, "C", false)));
+  }
+
+  private static class Note {
+
+    static final Set<Long> compared = new HashSet<>();
+
+    private final long id;
+
+    private final String text;
+
+    Note(long id, String text) {
+      this.id = id;
+      this.text = text;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      compared.add(id);
+      return o instanceof Note && ((Note) o).id == id && ((Note) o).text.equals(text);
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(id);
+    }
+
+  }
+
+}
@@ -0,0 +1,444 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.shadowstore.ConcurrentShadowStore;
+import org.springframework.shadowstore.Shadow;
+import org.springframework.shadowstore.ShadowStore;
+import org.springframework.shadowstore.ShadowStoreFactory;
+import org.springframework.sync.diffsync.Changes;
+import org.springframework.sync.diffsync.IdPropertyEquivalency;
+import org.springframework.sync.diffsync.PersistenceCallback;
+import org.springframework.sync.diffsync.PersistenceCallbackRegistry;
+import org.springframework.sync.diffsync.SyncMetrics;
+import org.springframework.sync.diffsync.SyncPhase;
+import org.springframework.sync.diffsync.VersionedPatch;
+import org.springframework.sync.operations.PatchOperation;
+import org.springframework.sync.operations.RemoveOperation;
+import org.springframework.sync.operations.ReplaceOperation;
+import org.springframework.sync.util.FieldCopyingCloningStrategy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiffSyncServiceTest {
+
+  private static final String NODE = "node";
+
+  //
+  // list patching
+  //
+
+  @Test
+  void patchList_withoutChangeFeed_loadsAllEntitiesEveryRound() {
+    TodoCallback todos = new TodoCallback(false);
+    DiffSyncService service = service(todos);
+
+    service.patch("todos", patch(new ReplaceOperation("/1/complete", true)), NODE);
+    service.patch("todos", versionedPatch(1, 1, new ReplaceOperation("/2/complete", true)), NODE);
+
+    assertEquals(2, todos.findAllCount);
+    assertTrue(todos.store.get(2L).isComplete());
+    assertTrue(todos.store.get(3L).isComplete());
+  }
+
+  @Test
+  void patchList_withChangeFeed_loadsAllEntitiesOnce() {
+    TodoCallback todos = new TodoCallback(true);
+    DiffSyncService service = service(todos);
+
+    service.patch("todos", patch(new ReplaceOperation("/1/complete", true)), NODE);
+    service.patch("todos", versionedPatch(1, 1, new ReplaceOperation("/2/complete", true)), NODE);
+    service.patch("todos", versionedPatch(2, 2, new ReplaceOperation("/0/complete", true)), NODE);
+
+    assertEquals(1, todos.findAllCount);
+    assertEquals(List.of(new Todo(1L, "A", true), new Todo(2L, "B", true), new Todo(3L, "C", true)),
+        new ArrayList<>(todos.store.values()));
+  }
+
+  @Test
+  void patchList_withChangeFeed_sendsChangesMadeSinceTheLastRound() {
+    TodoCallback todos = new TodoCallback(true);
+    DiffSyncService service = service(todos);
+    service.patch("todos", patch(new ReplaceOperation("/1/complete", true)), NODE);
+
+    todos.save(new Todo(4L, "D", false));
+    todos.save(new Todo(1L, "AA", false));
+    todos.delete(3L);
+    Patch diff = service.patch("todos", versionedPatch(1, 1, new ReplaceOperation("/1/description", "BB")), NODE);
+
+    assertEquals(1, todos.findAllCount);
+    List<Todo> client = diff.apply(new ArrayList<>(List.of(new Todo(1L, "A", false), new Todo(2L, "BB", true),
+        new Todo(3L, "C", false))), Todo.class);
+    assertEquals(List.of(new Todo(1L, "AA", false), new Todo(2L, "BB", true), new Todo(4L, "D", false)), client);
+    assertEquals(new Todo(2L, "BB", true), todos.store.get(2L));
+  }
+
+  @Test
+  void patchList_withLaggingChangeFeed_appliesPatchToCurrentStateOfTouchedEntities() {
+    TodoCallback todos = new TodoCallback(true);
+    DiffSyncService service = service(todos);
+    service.patch("todos", patch(new ReplaceOperation("/1/complete", true)), NODE);
+
+    todos.store.put(3L, new Todo(3L, "CC", false));
+    service.patch("todos", versionedPatch(1, 1, new ReplaceOperation("/2/complete", true)), NODE);
+
+    assertEquals(new Todo(3L, "CC", true), todos.store.get(3L));
+  }
+
+  @Test
+  void patchList_withChangeFeed_loadsAllEntitiesAfterARoundThatFailedToPersist() {
+    TodoCallback todos = new TodoCallback(true);
+    DiffSyncService service = service(todos);
+    service.patch("todos", patch(new ReplaceOperation("/1/complete", true)), NODE);
+
+    todos.failPersisting = true;
+    assertThrows(IllegalStateException.class,
+        () -> service.patch("todos", versionedPatch(1, 1, new ReplaceOperation("/2/complete", true)), NODE));
+    todos.failPersisting = false;
+    service.patch("todos", versionedPatch(2, 2, new ReplaceOperation("/0/complete", true)), NODE);
+
+    assertEquals(2, todos.findAllCount);
+  }
+
+  @Test
+  void patchList_withChangeFeed_keepsTheVersionOnTheListShadow() {
+    TodoCallback todos = new TodoCallback(true);
+    PersistenceCallbackRegistry registry = new PersistenceCallbackRegistry();
+    registry.addPersistenceCallback(todos);
+    ShadowStore shadowStore = new ConcurrentShadowStore(NODE);
+    DiffSyncService service = new DiffSyncService(new ShadowStoreFactory(id -> shadowStore),
+        new IdPropertyEquivalency(), registry);
+
+    service.patch("todos", patch(new ReplaceOperation("/1/complete", true)), NODE);
+
+    Shadow<?> shadow = shadowStore.getShadow("shadow/TodoList");
+    // the version the list was loaded at, before the patch was persisted
+    assertEquals(3L, shadow.getChangeVersion());
+    assertNull(shadowStore.getShadow("shadow/TodoList_version"));
+  }
+
+  @Test
+  void patchList_deletesRemovedEntities() {
+    TodoCallback todos = new TodoCallback(true);
+    DiffSyncService service = service(todos);
+
+    service.patch("todos", patch(new RemoveOperation("/1")), NODE);
+    service.patch("todos", versionedPatch(1, 1, new RemoveOperation("/0")), NODE);
+
+    assertEquals(List.of(3L), new ArrayList<>(todos.store.keySet()));
+  }
+
+  //
+  // batches
+  //
+
+  @Test
+  void batch_readsShadowsOnceAndSyncsEachResource() {
+    TodoCallback todos = new TodoCallback(false);
+    PersistenceCallbackRegistry registry = new PersistenceCallbackRegistry();
+    registry.addPersistenceCallback(todos);
+    CountingShadowStore shadowStore = new CountingShadowStore();
+    DiffSyncService service = new DiffSyncService(new ShadowStoreFactory(id -> shadowStore),
+        new IdPropertyEquivalency(), registry);
+    service.patch("todos", "1", NODE, patch(new ReplaceOperation("/description", "AA")));
+    shadowStore.reads = 0;
+
+    DiffSyncBatch batch = service.batch(NODE, List.of("todos/1", "todos/2", "todos/42", "people/1"));
+    Patch first = batch.patch("todos/1", versionedPatch(1, 1, new ReplaceOperation("/complete", true)));
+    Patch second = batch.patch("todos/2", patch(new ReplaceOperation("/complete", true)));
+
+    assertEquals(1, shadowStore.batchReads);
+    assertEquals(0, shadowStore.reads);
+    assertEquals(0, first.size());
+    assertEquals(0, second.size());
+    assertEquals(new Todo(1L, "AA", true), todos.store.get(1L));
+    assertEquals(new Todo(2L, "B", true), todos.store.get(2L));
+    assertNull(batch.patch("todos/42", patch(new ReplaceOperation("/complete", true))));
+    assertThrows(IllegalArgumentException.class, () -> batch.patch("people/1", patch(new RemoveOperation("/name"))));
+  }
+
+  //
+  // server-side diffs
+  //
+
+  @Test
+  void diff_isNullBeforeTheNodeSynchronizedTheResource() {
+    DiffSyncService service = service(new TodoCallback(true));
+
+    assertNull(service.diff("todos/1", NODE));
+    assertNull(service.diff("todos", NODE));
+  }
+
+  @Test
+  void diff_producesChangesMadeOnTheServerSide() {
+    TodoCallback todos = new TodoCallback(true);
+    DiffSyncService service = service(todos);
+    service.patch("todos", "1", NODE, patch(new ReplaceOperation("/complete", true)));
+    service.patch("todos", patch(new ReplaceOperation("/1/complete", true)), NODE);
+
+    todos.save(new Todo(1L, "AA", true));
+    VersionedPatch entityDiff = service.diff("todos/1", NODE);
+    VersionedPatch listDiff = service.diff("todos", NODE);
+
+    assertEquals(new Todo(1L, "AA", true), entityDiff.apply(new Todo(1L, "A", true), Todo.class));
+    assertEquals(1, entityDiff.getServerVersion());
+    assertEquals(List.of(new Todo(1L, "AA", true), new Todo(2L, "B", true), new Todo(3L, "C", false)),
+        listDiff.apply(new ArrayList<>(List.of(new Todo(1L, "A", true), new Todo(2L, "B", true),
+            new Todo(3L, "C", false))), Todo.class));
+    assertEquals(0, service.diff("todos/1", NODE).size());
+    assertEquals(0, service.diff("todos", NODE).size());
+  }
+
+  //
+  // metrics
+  //
+
+  @Test
+  void patch_reportsPhasesShadowsAndDroppedPatches() {
+    RecordingMetrics metrics = new RecordingMetrics();
+    PersistenceCallbackRegistry registry = new PersistenceCallbackRegistry();
+    registry.addPersistenceCallback(new TodoCallback(false));
+    DiffSyncService service = new DiffSyncService(new ShadowStoreFactory(ConcurrentShadowStore::new),
+        new IdPropertyEquivalency(), registry, new CompiledDiffEngine(), new FieldCopyingCloningStrategy(), metrics);
+
+    service.patch("todos", "2", NODE, patch(new ReplaceOperation("/complete", true)));
+    service.patch("todos", "2", NODE, versionedPatch(1, 1, new ReplaceOperation("/complete", false)));
+    service.patch("todos", "2", NODE, versionedPatch(1, 1, new ReplaceOperation("/complete", true)));
+
+    assertEquals(3, metrics.patches);
+    assertEquals(EnumSet.of(SyncPhase.LOAD, SyncPhase.APPLY, SyncPhase.PERSIST, SyncPhase.DIFF), metrics.phases);
+    assertEquals(1, metrics.misses);
+    assertEquals(2, metrics.hits);
+    assertEquals(1, metrics.dropped);
+  }
+
+  @Test
+  void patch_rejectsUnknownResourcesBeforeRecordingThem() {
+    RecordingMetrics metrics = new RecordingMetrics();
+    DiffSyncService service = new DiffSyncService(new ShadowStoreFactory(ConcurrentShadowStore::new),
+        new IdPropertyEquivalency(), new PersistenceCallbackRegistry(), new CompiledDiffEngine(),
+        new FieldCopyingCloningStrategy(), metrics);
+
+    assertThrows(IllegalArgumentException.class,
+        () -> service.patch("people", "1", NODE, patch(new RemoveOperation("/name"))));
+    assertThrows(IllegalArgumentException.class, () -> service.patch("people", patch(new RemoveOperation("/0")), NODE));
+
+    assertEquals(0, metrics.patches);
+  }
+
+  // private helpers
+
+  private static DiffSyncService service(TodoCallback todos) {
+    PersistenceCallbackRegistry registry = new PersistenceCallbackRegistry();
+    registry.addPersistenceCallback(todos);
+    return new DiffSyncService(new ShadowStoreFactory(ConcurrentShadowStore::new), new IdPropertyEquivalency(),
+        registry);
+  }
+
+  private static Patch patch(PatchOperation operation) {
+    return new Patch(List.of(operation));
+  }
+
+  private static Patch versionedPatch(long serverVersion, long clientVersion, PatchOperation operation) {
+    return new VersionedPatch(List.of(operation), serverVersion, clientVersion);
+  }
+
+  private static class CountingShadowStore extends ConcurrentShadowStore {
+
+    private int reads;
+
+    private int batchReads;
+
+    CountingShadowStore() {
+      super(NODE);
+    }
+
+    @Override
+    public Shadow<?> getShadow(String key) {
+      reads++;
+      return super.getShadow(key);
+    }
+
+    @Override
+    public Map<String, Shadow<?>> getShadows(Collection<String> keys) {
+      batchReads++;
+      Map<String, Shadow<?>> shadows = new LinkedHashMap<>();
+      for (String key : keys) {
+        Shadow<?> shadow = super.getShadow(key);
+        if (shadow != null) {
+          shadows.put(key, shadow);
+        }
+      }
+      return shadows;
+    }
+
+  }
+
+  private static class RecordingMetrics implements SyncMetrics {
+
+    private final Set<SyncPhase> phases = EnumSet.noneOf(SyncPhase.class);
+
+    private int patches;
+
+    private int hits;
+
+    private int misses;
+
+    private int dropped;
+
+    @Override
+    public void phase(String resource, SyncPhase phase, long nanos) {
+      assertEquals("todos", resource);
+      assertTrue(nanos >= 0);
+      phases.add(phase);
+    }
+
+    @Override
+    public void patchReceived(String resource, Patch patch) {
+      patches++;
+    }
+
+    @Override
+    public void shadowHit(Class<?> entityType) {
+      hits++;
+    }
+
+    @Override
+    public void shadowMiss(Class<?> entityType) {
+      misses++;
+    }
+
+    @Override
+    public void patchDropped(Class<?> entityType) {
+      dropped++;
+    }
+
+  }
+
+  /**
+   * Keeps todos in memory, along with the version of the store at which each of them was last saved or deleted.
+   */
+  private static class TodoCallback implements PersistenceCallback<Todo> {
+
+    private final boolean changeFeed;
+
+    private final Map<Long, Todo> store = new LinkedHashMap<>();
+
+    private final Map<Long, Long> changedAt = new LinkedHashMap<>();
+
+    private long version;
+
+    private int findAllCount;
+
+    private boolean failPersisting;
+
+    TodoCallback(boolean changeFeed) {
+      this.changeFeed = changeFeed;
+      save(new Todo(1L, "A", false));
+      save(new Todo(2L, "B", false));
+      save(new Todo(3L, "C", false));
+    }
+
+    void save(Todo todo) {
+      store.put(todo.getId(), todo);
+      changedAt.put(todo.getId(), ++version);
+    }
+
+    void delete(Long id) {
+      store.remove(id);
+      changedAt.put(id, ++version);
+    }
+
+    @Override
+    public List<Todo> findAll() {
+      findAllCount++;
+      return new ArrayList<>(store.values());
+    }
+
+    @Override
+    public Todo findOne(String id) {
+      return store.get(Long.valueOf(id));
+    }
+
+    @Override
+    public List<Todo> findAllById(Collection<String> ids) {
+      List<Todo> found = new ArrayList<>();
+      for (String id : ids) {
+        Todo todo = store.get(Long.valueOf(id));
+        if (todo != null) {
+          found.add(todo);
+        }
+      }
+      return found;
+    }
+
+    @Override
+    public Changes<Todo> findChangesSince(Long since) {
+      if (!changeFeed) {
+        return null;
+      }
+      if (since == null) {
+        return Changes.none(version);
+      }
+      List<Todo> saved = new ArrayList<>();
+      Set<Long> deletedIds = new HashSet<>();
+      changedAt.forEach((id, at) -> {
+        if (at > since) {
+          if (store.containsKey(id)) {
+            saved.add(store.get(id));
+          } else {
+            deletedIds.add(id);
+          }
+        }
+      });
+      return new Changes<>(saved, deletedIds, version);
+    }
+
+    @Override
+    public void persistChange(Todo itemToSave) {
+      save(itemToSave);
+    }
+
+    @Override
+    public void persistChanges(List<Todo> itemsToSave, List<Todo> itemsToDelete) {
+      if (failPersisting) {
+        throw new IllegalStateException("store unavailable");
+      }
+      itemsToSave.forEach(this::save);
+      itemsToDelete.forEach(todo -> delete(todo.getId()));
+    }
+
+    @Override
+    public Class<Todo> getEntityType() {
+      return Todo.class;
+    }
+
+  }
+
+}
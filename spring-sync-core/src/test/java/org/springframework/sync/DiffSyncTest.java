@@ -21,23 +21,35 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.shadowstore.MapBasedShadowStore;
+import org.springframework.shadowstore.Shadow;
+import org.springframework.shadowstore.ShadowStore;
 import org.springframework.sync.diffsync.DiffSync;
+import org.springframework.sync.diffsync.IdPropertyEquivalency;
+import org.springframework.sync.diffsync.SyncMetrics;
 import org.springframework.sync.diffsync.VersionedPatch;
 import org.springframework.sync.json.JsonPatchPatchConverter;
 import org.springframework.sync.operations.AddOperation;
 import org.springframework.sync.operations.MoveOperation;
 import org.springframework.sync.operations.PatchOperation;
+import org.springframework.sync.operations.RemoveOperation;
+import org.springframework.sync.operations.ReplaceOperation;
+import org.springframework.sync.util.CloningStrategy;
+import org.springframework.sync.util.FieldCopyingCloningStrategy;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -496,7 +508,7 @@ class DiffSyncTest {
 
     // After the patch is applied, the server shadow versions are
     //   - Primary shadow: serverVersion = 0, clientVersion = 1
-    //   - Backup shadow : serverVersion = 0, clientVersion = 1
+    //   - No backup shadow yet
 
     // At this point, the server's shadow has client version 1 and server version 0
     // The server then copies its current shadow to backup shadow before performing a new diff against the shadow, bumping the server version to 1 *after* the diff is performed.
@@ -566,6 +578,114 @@ class DiffSyncTest {
     assertEquals(new Todo(200L, "NEW ITEM 200", false), patched.get(4));
   }
 
+  @Test
+  void patchList_missedSeveralDiffs_rollsBackToHistory() {
+    MapBasedShadowStore shadowStore = new MapBasedShadowStore("x");
+    DiffSync<Todo> sync = new DiffSync<>(shadowStore, Todo.class);
+    List<Todo> todos = sync.apply(getTodoList(),
+        new VersionedPatch(List.of(new ReplaceOperation("/0/complete", true)), 0, 0));
+
+    // changes pushed to the client, which only gets the first difference patch
+    todos.get(1).setDescription("BB");
+    VersionedPatch received = sync.diff(todos);
+    todos.get(2).setDescription("CC");
+    sync.diff(todos);
+    todos.get(1).setComplete(true);
+    sync.diff(todos);
+    assertEquals(3, shadowStore.getShadow("shadow/TodoList").getServerVersion());
+
+    List<Todo> patched = sync.apply(todos,
+        new VersionedPatch(List.of(new ReplaceOperation("/0/description", "AA")), received.getServerVersion() + 1, 1));
+    VersionedPatch diff = sync.diff(patched);
+
+    // the patch is applied against the version the client got, and only the changes it missed are sent again
+    assertEquals("AA", patched.get(0).getDescription());
+    assertEquals(1, diff.getServerVersion());
+    assertEquals(2, diff.getClientVersion());
+    assertEquals(List.of("/1/complete", "/2/description"), replacedPaths(diff));
+  }
+
+  @Test
+  void patchList_missedMoreDiffsThanKept_dropsPatch() {
+    MapBasedShadowStore shadowStore = new MapBasedShadowStore("x");
+    DiffSync<Todo> sync = new DiffSync<>(shadowStore, Todo.class, new CompiledDiffEngine(),
+        new FieldCopyingCloningStrategy(), new IdPropertyEquivalency(), SyncMetrics.NONE, 2);
+    List<Todo> todos = sync.apply(getTodoList(),
+        new VersionedPatch(List.of(new ReplaceOperation("/0/complete", true)), 0, 0));
+    for (int i = 0; i < 4; i++) {
+      todos.get(1).setDescription("B" + i);
+      sync.diff(todos);
+    }
+
+    // the version the patch was based on takes the slot of a later one
+    List<Todo> patched = sync.apply(todos,
+        new VersionedPatch(List.of(new ReplaceOperation("/0/description", "AA")), 1, 1));
+
+    assertSame(todos, patched);
+    assertEquals(3, shadowStore.getShadow(sync.historyKeyOf("shadow/TodoList", 1)).getServerVersion());
+  }
+
+  @Test
+  void diffList_editStack_resendsPendingEditsUntilAcknowledged() {
+    DiffSync<Todo> sync = new DiffSync<>(new MapBasedShadowStore("x"), Todo.class, new CompiledDiffEngine(),
+        new FieldCopyingCloningStrategy(), new IdPropertyEquivalency(), SyncMetrics.NONE,
+        DiffSync.DEFAULT_HISTORY_SIZE, true);
+    List<Todo> todos = sync.apply(getTodoList(),
+        new VersionedPatch(List.of(new ReplaceOperation("/0/complete", true)), 0, 0));
+
+    todos.get(1).setDescription("BB");
+    sync.diff(todos);
+    todos.get(2).setDescription("CC");
+    VersionedPatch resent = sync.diff(todos);
+
+    // the first edit is not acknowledged, so it is sent again along with the second one
+    assertEquals(0, resent.getServerVersion());
+    assertEquals(List.of("/1/description", "/2/description"), replacedPaths(resent));
+
+    // an empty patch echoing the server version acknowledges the edits
+    sync.apply(todos, new VersionedPatch(List.of(), 1, 1));
+    todos.get(0).setDescription("AA");
+    VersionedPatch next = sync.diff(todos);
+
+    assertEquals(1, next.getServerVersion());
+    assertEquals(List.of("/0/description"), replacedPaths(next));
+  }
+
+  @Test
+  void diffList_editStack_appliedPatchAcknowledgesEdits() {
+    DiffSync<Todo> sync = new DiffSync<>(new MapBasedShadowStore("x"), Todo.class, new CompiledDiffEngine(),
+        new FieldCopyingCloningStrategy(), new IdPropertyEquivalency(), SyncMetrics.NONE,
+        DiffSync.DEFAULT_HISTORY_SIZE, true);
+    List<Todo> todos = sync.apply(getTodoList(),
+        new VersionedPatch(List.of(new ReplaceOperation("/0/complete", true)), 0, 0));
+    todos.get(1).setDescription("BB");
+    sync.diff(todos);
+
+    todos = sync.apply(todos, new VersionedPatch(List.of(new ReplaceOperation("/2/complete", true)), 1, 1));
+    todos.get(0).setDescription("AA");
+    VersionedPatch diff = sync.diff(todos);
+
+    assertEquals(1, diff.getServerVersion());
+    assertEquals(2, diff.getClientVersion());
+    assertEquals(List.of("/0/description"), replacedPaths(diff));
+  }
+
+  @Test
+  void patchList_consecutiveEdits_appliedAsOnePatch() {
+    MapBasedShadowStore shadowStore = new MapBasedShadowStore("x");
+    DiffSync<Todo> sync = new DiffSync<>(shadowStore, Todo.class);
+    List<Todo> patched = sync.apply(getTodoList(),
+        new VersionedPatch(List.of(new ReplaceOperation("/0/description", "AA")), 0, 0),
+        new VersionedPatch(List.of(new ReplaceOperation("/0/description", "AAA")), 0, 1),
+        new VersionedPatch(List.of(new RemoveOperation("/2")), 0, 2));
+
+    assertEquals(List.of(new Todo(1L, "AAA", false), new Todo(2L, "B", false)), patched);
+    Shadow<?> shadow = shadowStore.getShadow("shadow/TodoList");
+    assertEquals(patched, shadow.getResource());
+    assertEquals(0, shadow.getServerVersion());
+    assertEquals(3, shadow.getClientVersion());
+  }
+
   @Test
   void patchEntity_moveProperty_lostReturnPacket() {
     DiffSync<Person> sync = new DiffSync<>(new MapBasedShadowStore("x"), Person.class);
@@ -597,6 +717,123 @@ class DiffSyncTest {
     Assertions.assertEquals("Blackadder", patched.getLastName());
   }
 
+  @Test
+  void patchEntity_shadowPerEntity() {
+    MapBasedShadowStore shadowStore = new MapBasedShadowStore("x");
+    DiffSync<Todo> sync = new DiffSync<>(shadowStore, Todo.class);
+
+    List<PatchOperation> ops1 = new ArrayList<>();
+    ops1.add(new ReplaceOperation("/complete", true));
+    Todo patchedFirst = sync.apply(new Todo(1L, "A", false), new VersionedPatch(ops1, 0, 0));
+    VersionedPatch diff = sync.diff(patchedFirst);
+    assertEquals(1, diff.getClientVersion());
+    assertEquals(0, diff.getServerVersion());
+
+    // the second entity has a shadow of its own, untouched by the first entity's round trip
+    List<PatchOperation> ops2 = new ArrayList<>();
+    ops2.add(new ReplaceOperation("/description", "BBB"));
+    Todo patchedSecond = sync.apply(new Todo(2L, "B", false), new VersionedPatch(ops2, 0, 0));
+    assertEquals(new Todo(2L, "BBB", false), patchedSecond);
+    diff = sync.diff(patchedSecond);
+    assertEquals(0, diff.size());
+    assertEquals(1, diff.getClientVersion());
+    assertEquals(0, diff.getServerVersion());
+
+    assertEquals(new Todo(1L, "A", true), shadowStore.getShadow("shadow/Todo/1").getResource());
+    assertEquals(new Todo(2L, "BBB", false), shadowStore.getShadow("shadow/Todo/2").getResource());
+  }
+
+  @Test
+  void patchEntity_shadowReplacedConcurrently() throws IOException {
+    ShadowStore shadowStore = new MapBasedShadowStore("x") {
+      @Override
+      public boolean replaceShadow(String key, Shadow<?> expected, Shadow<?> shadow, String backupKey,
+          Shadow<?> backupShadow) {
+        // another request got there first
+        return false;
+      }
+    };
+    DiffSync<Todo> sync = new DiffSync<>(shadowStore, Todo.class);
+    Patch patch = readJsonPatchFromResource("single-change-status");
+
+    assertThrows(PatchException.class, () -> sync.apply(new Todo(1L, "A", false), patch));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void patchList_copiesOnlyChangedItems() throws IOException {
+    MapBasedShadowStore shadowStore = new MapBasedShadowStore("x");
+    CountingCloningStrategy cloningStrategy = new CountingCloningStrategy();
+    DiffSync<Todo> sync = new DiffSync<>(shadowStore, Todo.class, new CompiledDiffEngine(), cloningStrategy,
+        new IdPropertyEquivalency());
+    List<Todo> todos = sync.apply(getTodoList(), readJsonPatchFromResource("patch-change-single-status"));
+    sync.diff(todos);
+    Shadow<?> storedShadow = shadowStore.getShadow("shadow/TodoList");
+    cloningStrategy.reset();
+
+    List<PatchOperation> ops = new ArrayList<>();
+    ops.add(new ReplaceOperation("/2/description", "Z"));
+    List<Todo> patched = sync.apply(todos, new VersionedPatch(ops, 1, 1));
+    VersionedPatch diff = sync.diff(patched);
+
+    // the changed item, once in the shadow and once in the working copy
+    assertEquals(2, cloningStrategy.items);
+    assertEquals(0, cloningStrategy.lists);
+    assertEquals(0, diff.size());
+    assertEquals("Z", patched.get(2).getDescription());
+    assertEquals("C", todos.get(2).getDescription());
+    // the previous shadow, kept as a backup, is left as it was
+    assertEquals("C", ((List<Todo>) storedShadow.getResource()).get(2).getDescription());
+    assertEquals("Z", ((List<Todo>) shadowStore.getShadow("shadow/TodoList").getResource()).get(2).getDescription());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void patchList_keepsStructuralHashesOfShadows() throws IOException {
+    MapBasedShadowStore shadowStore = new MapBasedShadowStore("x");
+    DiffSync<Todo> sync = new DiffSync<>(shadowStore, Todo.class, new CompiledDiffEngine(null, true),
+        new FieldCopyingCloningStrategy(), new IdPropertyEquivalency());
+    List<Todo> todos = sync.apply(getTodoList(), readJsonPatchFromResource("patch-change-single-status"));
+    sync.diff(todos);
+    StructuralHash hashes = (StructuralHash) shadowStore.getShadow("shadow/TodoList").getHashes();
+
+    List<PatchOperation> ops = new ArrayList<>();
+    ops.add(new ReplaceOperation("/2/description", "Z"));
+    List<Todo> patched = sync.apply(todos, new VersionedPatch(ops, 1, 1));
+    StructuralHash patchedHashes = (StructuralHash) shadowStore.getShadow("shadow/TodoList").getHashes();
+
+    // only the changed item is hashed again
+    assertSame(hashes.child(0), patchedHashes.child(0));
+    assertNotSame(hashes.child(2), patchedHashes.child(2));
+    patched.get(0).setDescription("Y");
+    VersionedPatch diff = sync.diff(patched);
+    assertEquals(2, diff.size());
+    assertEquals("/0/description", diff.getOperations().get(1).getPath());
+    assertEquals("Y", ((List<Todo>) shadowStore.getShadow("shadow/TodoList").getResource()).get(0).getDescription());
+  }
+
+  @Test
+  void patchEntity_copiesOncePerNode() throws IOException {
+    CountingCloningStrategy cloningStrategy = new CountingCloningStrategy();
+    DiffSync<Todo> sync = new DiffSync<>(new MapBasedShadowStore("x"), Todo.class, new CompiledDiffEngine(),
+        cloningStrategy, new IdPropertyEquivalency());
+
+    // the new shadow, then the working copy of the patched shadow
+    Todo patched = sync.apply(new Todo(1L, "A", false), readJsonPatchFromResource("single-change-status"));
+    assertEquals(2, cloningStrategy.items);
+    sync.diff(patched);
+    assertEquals(2, cloningStrategy.items);
+
+    // the shadow, then the working copy
+    List<PatchOperation> ops = new ArrayList<>();
+    ops.add(new ReplaceOperation("/description", "B"));
+    patched = sync.apply(patched, new VersionedPatch(ops, 1, 1));
+    assertEquals(4, cloningStrategy.items);
+    sync.diff(patched);
+    assertEquals(4, cloningStrategy.items);
+    assertEquals(new Todo(1L, "B", true), patched);
+  }
+
   //
   // private helpers
   //
@@ -611,6 +848,16 @@ class DiffSyncTest {
     return todos;
   }
 
+  private static List<String> replacedPaths(Patch patch) {
+    List<String> paths = new ArrayList<>();
+    for (PatchOperation op : patch.getOperations()) {
+      if (op instanceof ReplaceOperation) {
+        paths.add(op.getPath());
+      }
+    }
+    return paths;
+  }
+
   private List<Todo> getBigTodoList() {
     List<Todo> todos = new ArrayList<>();
 
@@ -638,4 +885,31 @@ class DiffSyncTest {
     return builder.toString();
   }
 
+  private static class CountingCloningStrategy implements CloningStrategy {
+
+    private final CloningStrategy delegate = new FieldCopyingCloningStrategy();
+
+    private int items;
+
+    private int lists;
+
+    @Override
+    public <T extends Serializable> T deepClone(T original) {
+      items++;
+      return delegate.deepClone(original);
+    }
+
+    @Override
+    public <T extends Serializable> List<T> deepClone(List<T> original) {
+      lists++;
+      return delegate.deepClone(original);
+    }
+
+    void reset() {
+      items = 0;
+      lists = 0;
+    }
+
+  }
+
 }
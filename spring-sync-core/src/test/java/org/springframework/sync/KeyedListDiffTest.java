@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.sync.diffsync.Equivalency;
+import org.springframework.sync.diffsync.IdPropertyEquivalency;
+import org.springframework.sync.operations.FromOperation;
+import org.springframework.sync.operations.PatchOperation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class KeyedListDiffTest {
+
+  private final Equivalency equivalency = new IdPropertyEquivalency();
+
+  @Test
+  void movedElementIsMovedOnce() {
+    List<Todo> original = todos(1, 2, 3);
+    List<Todo> modified = todos(2, 3, 1);
+
+    Patch diff = Diff.diff(original, modified, equivalency);
+
+    assertEquals(Collections.singletonList("move /2 /0"), describe(diff));
+    assertEquals(modified, diff.apply(original, Todo.class));
+  }
+
+  @Test
+  void reversedListKeepsOneElementInPlace() {
+    List<Todo> original = todos(1, 2, 3, 4);
+    List<Todo> modified = todos(4, 3, 2, 1);
+
+    Patch diff = Diff.diff(original, modified, equivalency);
+
+    assertEquals(3, diff.size());
+    assertEquals(modified, diff.apply(original, Todo.class));
+  }
+
+  @Test
+  void editedElementsAreComparedWithTheirOriginals() {
+    List<Todo> original = todos(1, 2, 3);
+    List<Todo> modified = todos(3, 1, 2);
+    modified.get(0).setComplete(true);
+    modified.get(2).setDescription("Z");
+
+    Patch diff = Diff.diff(original, modified, equivalency);
+
+    assertEquals(Arrays.asList(
+        "move /0 /2",
+        "test /0/complete false",
+        "replace /0/complete true",
+        "test /2/description 2",
+        "replace /2/description Z"), describe(diff));
+    assertEquals(modified, diff.apply(original, Todo.class));
+  }
+
+  @Test
+  void addsRemovesAndAppends() {
+    List<Todo> original = todos(1, 2, 3, 4, 5);
+    List<Todo> modified = todos(0, 1, 3, 5, 6, 7);
+
+    Patch diff = Diff.diff(original, modified, equivalency);
+
+    assertEquals(Arrays.asList(
+        "test /3 " + new Todo(4L, "4", false),
+        "remove /3",
+        "test /1 " + new Todo(2L, "2", false),
+        "remove /1",
+        "add /0 " + new Todo(0L, "0", false),
+        "add /4 " + new Todo(6L, "6", false),
+        "add /5 " + new Todo(7L, "7", false)), describe(diff));
+    assertEquals(modified, diff.apply(original, Todo.class));
+  }
+
+  @Test
+  void randomEditsApplyToTheModifiedList() {
+    Random random = new Random(42);
+    for (int round = 0; round < 200; round++) {
+      List<Todo> original = new ArrayList<>();
+      for (int i = 0; i < random.nextInt(20); i++) {
+        original.add(new Todo((long) i, String.valueOf(i), false));
+      }
+      List<Todo> modified = new ArrayList<>();
+      for (Todo todo : original) {
+        if (random.nextInt(4) > 0) {
+          modified.add(new Todo(todo.getId(), todo.getDescription(), random.nextInt(3) == 0));
+        }
+      }
+      Collections.shuffle(modified, random);
+      for (int i = 0; i < random.nextInt(5); i++) {
+        modified.add(random.nextInt(modified.size() + 1), new Todo(100L + i, "new", false));
+      }
+
+      Patch diff = Diff.diff(original, modified, equivalency);
+
+      assertEquals(modified, diff.apply(original, Todo.class));
+      assertEquals(describe(diff), describe(new CompiledDiffEngine(equivalency).diff(original, modified)));
+    }
+  }
+
+  @Test
+  void elementsWithoutIdentityAreComparedByEquality() {
+    List<Todo> original = todos(1, 2, 3);
+    original.get(1).setId(null);
+    List<Todo> modified = todos(3, 1);
+
+    assertEquals(describe(Diff.diff(original, modified)), describe(Diff.diff(original, modified, equivalency)));
+    assertEquals(describe(Diff.diff(original, modified)),
+        describe(new CompiledDiffEngine(equivalency).diff(original, modified)));
+  }
+
+  @Test
+  void listPropertiesAreKeyed() {
+    TodoList original = new TodoList();
+    original.setTodos(todos(1, 2, 3));
+    TodoList modified = new TodoList();
+    modified.setTodos(todos(3, 1, 2));
+
+    Patch diff = new CompiledDiffEngine(equivalency).diff(original, modified);
+
+    assertEquals(Collections.singletonList("move /todos/0 /todos/2"), describe(diff));
+    assertEquals(describe(Diff.diff(original, modified, equivalency)), describe(diff));
+  }
+
+  // private helpers
+
+  private static List<String> describe(Patch patch) {
+    List<String> ops = new ArrayList<>();
+    for (PatchOperation op : patch.getOperations()) {
+      String from = op instanceof FromOperation
+          ? ((FromOperation) op).getFrom()
+          : null;
+      ops.add(op.getOp() + " " + op.getPath() + (from != null ? " " + from : "")
+          + (op.getValue() != null ? " " + op.getValue() : ""));
+    }
+    return ops;
+  }
+
+  private static List<Todo> todos(long... ids) {
+    List<Todo> todos = new ArrayList<>();
+    for (long id : ids) {
+      todos.add(new Todo(id, String.valueOf(id), false));
+    }
+    return todos;
+  }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.sync.json.JsonPatchStreamingCodec;
+import org.springframework.sync.operations.AddOperation;
+import org.springframework.sync.operations.PatchOperation;
+import org.springframework.sync.operations.RemoveOperation;
+import org.springframework.sync.operations.ReplaceOperation;
+import org.springframework.sync.operations.TestOperation;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PatchCompactorTest {
+
+  @Test
+  void compose_replacesOfSamePath_keepsLast() {
+    Patch patch = assertComposes(
+        patch(new ReplaceOperation("/1/description", "X")),
+        patch(new ReplaceOperation("/1/description", "Y")),
+        patch(new ReplaceOperation("/1/description", "Z")));
+
+    assertEquals(List.of("replace /1/description"), describe(patch));
+  }
+
+  @Test
+  void compose_testedDiffs_keepsFirstTestAndLastReplace() {
+    Patch patch = assertComposes(
+        patch(new TestOperation("/1/description", "B"), new ReplaceOperation("/1/description", "X")),
+        patch(new TestOperation("/1/description", "X"), new ReplaceOperation("/1/description", "Y")));
+
+    assertEquals(List.of("test /1/description", "replace /1/description"), describe(patch));
+    assertEquals("Y", patch.getOperations().get(1).getValue());
+  }
+
+  @Test
+  void compose_addThenRemove_cancelsAndShiftsIndicesBetween() {
+    Patch patch = assertComposes(
+        patch(new AddOperation("/1", new Todo(4L, "D", false)), new ReplaceOperation("/3/description", "X")),
+        patch(new ReplaceOperation("/0/complete", true), new RemoveOperation("/1")));
+
+    assertEquals(List.of("replace /2/description", "replace /0/complete"), describe(patch));
+  }
+
+  @Test
+  void compose_replaceOfAddedElement_foldsIntoAdd() {
+    Todo replacement = new Todo(5L, "E", false);
+    Patch patch = assertComposes(
+        patch(new AddOperation("/1", new Todo(4L, "D", false))),
+        patch(new ReplaceOperation("/1", replacement)));
+
+    assertEquals(List.of("add /1"), describe(patch));
+    assertEquals(replacement, patch.getOperations().get(0).getValue());
+  }
+
+  @Test
+  void compose_removeOfElement_dropsWritesBelowIt() {
+    Patch patch = assertComposes(
+        patch(new ReplaceOperation("/1/description", "X"), new ReplaceOperation("/1/complete", true)),
+        patch(new RemoveOperation("/1")));
+
+    assertEquals(List.of("remove /1"), describe(patch));
+  }
+
+  @Test
+  void compose_testBetweenReplaces_keepsAll() {
+    Patch patch = assertComposes(
+        patch(new ReplaceOperation("/1/description", "X"), new TestOperation("/1/description", "X")),
+        patch(new TestOperation("/1", new Todo(2L, "X", false)), new ReplaceOperation("/1/description", "Y")));
+
+    assertEquals(List.of("replace /1/description", "test /1", "replace /1/description"), describe(patch));
+  }
+
+  @Test
+  void compose_indicesShiftedBetweenReplaces_keepsAll() {
+    Patch patch = assertComposes(
+        patch(new ReplaceOperation("/2/description", "X")),
+        patch(new RemoveOperation("/0")),
+        patch(new ReplaceOperation("/1/description", "Y")));
+
+    assertEquals(List.of("replace /2/description", "remove /0", "replace /1/description"), describe(patch));
+  }
+
+  @Test
+  void compose_appendedElement_isNotCancelledByIndex() {
+    Patch patch = assertComposes(
+        patch(new AddOperation("/~", new Todo(4L, "D", false)), new ReplaceOperation("/~", new Todo(5L, "E", false))),
+        patch(new RemoveOperation("/3")));
+
+    assertEquals(List.of("add /~", "remove /3"), describe(patch));
+  }
+
+  @Test
+  void compose_streamedTestOfObjectSetEarlier_isDropped() throws IOException {
+    JsonPatchStreamingCodec codec = new JsonPatchStreamingCodec();
+    Patch patch = assertComposes(
+        codec.read(json("[{\"op\":\"replace\",\"path\":\"/1\","
+            + "\"value\":{\"id\":2,\"description\":\"X\",\"complete\":false}}]")),
+        codec.read(json("[{\"op\":\"test\",\"path\":\"/1\","
+            + "\"value\":{\"complete\":false,\"id\":2,\"description\":\"X\"}},"
+            + "{\"op\":\"replace\",\"path\":\"/1/description\",\"value\":\"Y\"}]")));
+
+    assertEquals(List.of("replace /1", "replace /1/description"), describe(patch));
+  }
+
+  @Test
+  void compact_patchWithoutRedundancy_isUnchanged() {
+    Patch patch = patch(new TestOperation("/0/complete", false), new ReplaceOperation("/0/complete", true),
+        new AddOperation("/1", new Todo(4L, "D", false)), new RemoveOperation("/3"));
+
+    assertEquals(describe(patch), describe(PatchCompactor.compact(patch)));
+  }
+
+  /**
+   * Asserts that the composed patch has the effect of the patches applied in turn.
+   */
+  private static Patch assertComposes(Patch... patches) {
+    List<Todo> expected = todos();
+    for (Patch patch : patches) {
+      expected = patch.apply(expected, Todo.class);
+    }
+    Patch composed = PatchCompactor.compose(List.of(patches));
+    assertEquals(expected, composed.apply(todos(), Todo.class));
+    return composed;
+  }
+
+  private static Patch patch(PatchOperation... operations) {
+    return new Patch(new ArrayList<>(List.of(operations)));
+  }
+
+  private static InputStream json(String json) {
+    return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static List<String> describe(Patch patch) {
+    List<String> operations = new ArrayList<>();
+    for (PatchOperation operation : patch.getOperations()) {
+      operations.add(operation.getOp() + " " + operation.getPath());
+    }
+    return operations;
+  }
+
+  private static List<Todo> todos() {
+    List<Todo> todos = new ArrayList<>();
+    todos.add(new Todo(1L, "A", false));
+    todos.add(new Todo(2L, "B", false));
+    todos.add(new Todo(3L, "C", false));
+    return todos;
+  }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PathAccessorTest {
+
+  @Test
+  void cachedPerTypeAndPath() {
+    PathAccessor accessor = PathAccessor.forPath(ArrayList.class, "/3/complete");
+    assertSame(accessor, PathAccessor.forPath(ArrayList.class, "/3/complete"));
+    assertNotSame(accessor, PathAccessor.forPath(ArrayList.class, "/3/description"));
+    assertNotSame(accessor, PathAccessor.forPath(TodoList.class, "/3/complete"));
+  }
+
+  @Test
+  void listIndex() {
+    assertEquals(3, PathAccessor.forPath(ArrayList.class, "/3").getListIndex());
+    assertEquals(-1, PathAccessor.forPath(ArrayList.class, "/~").getListIndex());
+    assertNull(PathAccessor.forPath(ArrayList.class, "/3/complete").getListIndex());
+  }
+
+  @Test
+  void expressionAndParentExpression() {
+    List<Todo> todos = new ArrayList<>();
+    todos.add(new Todo(1L, "A", false));
+    todos.add(new Todo(2L, "B", false));
+
+    PathAccessor accessor = PathAccessor.forPath(todos.getClass(), "/1/description");
+    assertEquals("B", accessor.getExpression().getValue(todos));
+    assertEquals(todos.get(1), accessor.getParentExpression().getValue(todos));
+  }
+
+  @Test
+  void repeatedEvaluation() {
+    List<Todo> todos = new ArrayList<>();
+    todos.add(new Todo(1L, "A", false));
+    todos.add(new Todo(2L, "B", true));
+
+    // evaluate often enough for the expression to be compiled
+    PathAccessor accessor = PathAccessor.forPath(todos.getClass(), "/~/complete");
+    for (int i = 0; i < 500; i++) {
+      assertEquals(true, accessor.getExpression().getValue(todos));
+    }
+  }
+
+}
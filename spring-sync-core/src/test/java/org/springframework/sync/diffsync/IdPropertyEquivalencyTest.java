@@ -0,0 +1,138 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.sync.Todo;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdPropertyEquivalencyTest {
+
+  private final IdPropertyEquivalency equivalency = new IdPropertyEquivalency();
+
+  @Test
+  void idField() {
+    assertEquals(1L, equivalency.identityOf(new Todo(1L, "A", false)));
+    assertTrue(equivalency.isEquivalent(new Todo(1L, "A", false), new Todo(1L, "B", true)));
+    assertFalse(equivalency.isEquivalent(new Todo(1L, "A", false), new Todo(2L, "A", false)));
+  }
+
+  @Test
+  void annotatedFieldTakesPrecedenceOverIdField() {
+    assertEquals("key", equivalency.identityOf(new Annotated("key", 42L)));
+  }
+
+  @Test
+  void inheritedFields() {
+    assertEquals(7L, equivalency.identityOf(new Sub(7L)));
+    assertEquals("key", equivalency.identityOf(new AnnotatedSub("key")));
+  }
+
+  @Test
+  void records() {
+    assertEquals(3L, equivalency.identityOf(new Item(3L, "x")));
+    assertEquals("key", equivalency.identityOf(new AnnotatedItem(3L, "key")));
+    assertTrue(equivalency.isEquivalent(new Item(3L, "x"), new Item(3L, "y")));
+  }
+
+  @Test
+  void withoutIdProperty() {
+    assertNull(equivalency.identityOf("text"));
+    assertNull(equivalency.identityOf(new Object()));
+    assertFalse(equivalency.isEquivalent(new Object(), new Object()));
+    assertFalse(equivalency.isEquivalent(null, null));
+  }
+
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target({ ElementType.FIELD, ElementType.METHOD })
+  @interface Id {
+  }
+
+  @Retention(RetentionPolicy.RUNTIME)
+  @interface EmbeddedId {
+  }
+
+  static class Annotated {
+
+    @Id
+    private final String key;
+
+    private final Long id;
+
+    Annotated(String key, Long id) {
+      this.key = key;
+      this.id = id;
+    }
+
+  }
+
+  static class Base {
+
+    private final Long id;
+
+    Base(Long id) {
+      this.id = id;
+    }
+
+  }
+
+  static class Sub extends Base {
+
+    private final String name = "sub";
+
+    Sub(Long id) {
+      super(id);
+    }
+
+  }
+
+  static class AnnotatedBase {
+
+    @EmbeddedId
+    private final String key;
+
+    AnnotatedBase(String key) {
+      this.key = key;
+    }
+
+  }
+
+  static class AnnotatedSub extends AnnotatedBase {
+
+    private final Long id = 1L;
+
+    AnnotatedSub(String key) {
+      super(key);
+    }
+
+  }
+
+  record Item(Long id, String name) {
+  }
+
+  record AnnotatedItem(Long id, @Id String key) {
+  }
+
+}
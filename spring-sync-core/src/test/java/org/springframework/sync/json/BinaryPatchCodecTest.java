@@ -0,0 +1,187 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.sync.Diff;
+import org.springframework.sync.LateObjectEvaluator;
+import org.springframework.sync.Patch;
+import org.springframework.sync.PatchException;
+import org.springframework.sync.Todo;
+import org.springframework.sync.operations.FromOperation;
+import org.springframework.sync.operations.MoveOperation;
+import org.springframework.sync.operations.PatchOperation;
+import org.springframework.sync.operations.ReplaceOperation;
+import org.springframework.sync.operations.TestOperation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryPatchCodecTest {
+
+  private static final PathDictionary DICTIONARY = PathDictionary.of("description", "complete");
+
+  private final JsonPatchStreamingCodec jsonCodec = new JsonPatchStreamingCodec();
+
+  private final BinaryPatchCodec codec = new BinaryPatchCodec(DICTIONARY);
+
+  // writes the binary format as JSON, to look at its structure
+  private final BinaryPatchCodec readableCodec = new BinaryPatchCodec(new ObjectMapper(), DICTIONARY);
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+      "patch-add-new-item",
+      "patch-change-single-status-and-desc",
+      "patch-change-status-and-delete-two-items",
+      "patch-delete-twoitems-and-change-status-on-another",
+      "patch-empty",
+      "patch-failing-operation-in-middle",
+      "patch-many-successful-operations",
+      "patch-modify-then-remove-item" })
+  void roundTripsLikeJsonPatch(String name) throws Exception {
+    Patch patch;
+    try (InputStream in = resource(name)) {
+      patch = jsonCodec.read(in);
+    }
+
+    Patch roundTripped = codec.read(new ByteArrayInputStream(write(codec, patch)));
+
+    assertEquals(describe(patch), describe(roundTripped));
+  }
+
+  @Test
+  void sharesPathPrefixesAndDictionarySegments() throws Exception {
+    Patch patch = new Patch(List.of(
+        new TestOperation("/2/description", "B"),
+        new ReplaceOperation("/2/description", "BB"),
+        new ReplaceOperation("/2/complete", true),
+        new ReplaceOperation("/2/tags", "x"),
+        new MoveOperation("/0", "/2")));
+
+    assertEquals("[1,[5,[0,2,-1],\"B\"],[2,[2],\"BB\"],[2,[1,-2],true],[2,[1,\"tags\"],\"x\"],[3,[0,0],[0,2]]]",
+        new String(write(readableCodec, patch), StandardCharsets.UTF_8));
+    assertEquals(describe(patch), describe(read(readableCodec, write(readableCodec, patch))));
+  }
+
+  @Test
+  void writesSegmentsThatAreNotIndexesAsStrings() throws Exception {
+    Patch patch = new Patch(List.of(
+        new ReplaceOperation("/07/x", 1),
+        new ReplaceOperation("/-", 2),
+        new ReplaceOperation("/12345678901", 3),
+        new ReplaceOperation("/a~1b/", 4)));
+
+    assertEquals(describe(patch), describe(read(readableCodec, write(readableCodec, patch))));
+  }
+
+  @Test
+  void bindsObjectValuesOnceApplied() throws Exception {
+    List<Todo> original = todos();
+    List<Todo> modified = todos();
+    modified.get(1).setDescription("BB");
+    modified.remove(0);
+    modified.add(new Todo(9L, "Z", true));
+    Patch patch = Diff.diff(original, modified);
+
+    Patch read = codec.read(new ByteArrayInputStream(write(codec, patch)));
+
+    assertEquals(patch.apply(todos(), Todo.class), read.apply(todos(), Todo.class));
+    assertEquals(describe(read), describe(codec.read(new ByteArrayInputStream(write(codec, read)))));
+  }
+
+  @Test
+  void isSmallerThanJsonPatch() throws Exception {
+    List<Todo> original = new ArrayList<>();
+    for (long id = 0; id < 100; id++) {
+      original.add(new Todo(id, "Todo " + id, false));
+    }
+    List<Todo> modified = new ArrayList<>();
+    for (Todo todo : original) {
+      modified.add(new Todo(todo.getId(), todo.getDescription(), todo.getId() % 2 == 0));
+    }
+    Patch patch = Diff.diff(original, modified);
+
+    ByteArrayOutputStream json = new ByteArrayOutputStream();
+    jsonCodec.write(patch, json);
+
+    assertTrue(write(codec, patch).length < json.size() / 2);
+  }
+
+  @Test
+  void rejectsMalformedPatches() {
+    assertThrows(PatchException.class, () -> read(readableCodec, "[2]"));
+    assertThrows(PatchException.class, () -> read(readableCodec, "[1,[9,[0,0]]]"));
+    assertThrows(PatchException.class, () -> read(readableCodec, "[1,[1,[1,0]]]"));
+    assertThrows(PatchException.class, () -> read(readableCodec, "[1,[1,[0,-3]]]"));
+    assertThrows(PatchException.class, () -> read(readableCodec, "[1,[1,[0,true]]]"));
+    assertThrows(PatchException.class, () -> read(readableCodec, "[1,\"remove\"]"));
+  }
+
+  // private helpers
+
+  private static Patch read(BinaryPatchCodec codec, byte[] bytes) throws IOException {
+    return codec.read(new ByteArrayInputStream(bytes));
+  }
+
+  private static Patch read(BinaryPatchCodec codec, String json) throws IOException {
+    return read(codec, json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static byte[] write(PatchCodec codec, Patch patch) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    codec.write(patch, out);
+    return out.toByteArray();
+  }
+
+  private static InputStream resource(String name) throws IOException {
+    return new ClassPathResource("/org/springframework/sync/" + name + ".json").getInputStream();
+  }
+
+  private static List<String> describe(Patch patch) {
+    List<String> ops = new ArrayList<>();
+    for (PatchOperation op : patch.getOperations()) {
+      String from = op instanceof FromOperation ? ((FromOperation) op).getFrom() : null;
+      Object value = op.getValue();
+      if (value instanceof LateObjectEvaluator) {
+        value = ((LateObjectEvaluator) value).evaluate(Todo.class);
+      }
+      ops.add(op.getClass().getSimpleName() + " " + op.getPath() + " " + from + " " + value);
+    }
+    return ops;
+  }
+
+  private static List<Todo> todos() {
+    return new ArrayList<>(Arrays.asList(
+        new Todo(1L, "A", false),
+        new Todo(2L, "B", false),
+        new Todo(3L, "C", false)));
+  }
+
+}
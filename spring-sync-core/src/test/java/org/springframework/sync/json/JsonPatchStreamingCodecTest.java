@@ -0,0 +1,187 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.sync.Diff;
+import org.springframework.sync.LateObjectEvaluator;
+import org.springframework.sync.Patch;
+import org.springframework.sync.PatchException;
+import org.springframework.sync.Todo;
+import org.springframework.sync.operations.FromOperation;
+import org.springframework.sync.operations.PatchOperation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonPatchStreamingCodecTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final JsonPatchStreamingCodec codec = new JsonPatchStreamingCodec();
+
+  private final JsonPatchPatchConverter converter = new JsonPatchPatchConverter();
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+      "patch-add-new-item",
+      "patch-change-single-status-and-desc",
+      "patch-change-status-and-delete-two-items",
+      "patch-delete-twoitems-and-change-status-on-another",
+      "patch-empty",
+      "patch-failing-operation-in-middle",
+      "patch-many-successful-operations",
+      "patch-modify-then-remove-item" })
+  void readsLikeTheTreeConverter(String name) throws Exception {
+    Patch fromTree;
+    try (InputStream in = resource(name)) {
+      fromTree = converter.convert(MAPPER.readTree(in));
+    }
+    Patch streamed;
+    try (InputStream in = resource(name)) {
+      streamed = codec.read(in);
+    }
+
+    assertEquals(describe(fromTree), describe(streamed));
+  }
+
+  @Test
+  void readsValuesLikeTheTreeConverter() throws Exception {
+    String json = "[{\"value\":1,\"op\":\"test\",\"path\":\"/a\"},"
+        + "{\"op\":\"test\",\"path\":\"/b\",\"value\":10000000000},"
+        + "{\"op\":\"test\",\"path\":\"/c\",\"value\":1.5},"
+        + "{\"op\":\"test\",\"path\":\"/d\",\"value\":false},"
+        + "{\"op\":\"test\",\"path\":\"/e\",\"value\":null},"
+        + "{\"op\":\"test\",\"path\":\"/f\",\"value\":[1,{\"id\":2}],\"extra\":{\"x\":[]}},"
+        + "{\"op\":\"test\",\"path\":\"/g\",\"value\":100000000000000000000}]";
+
+    Patch streamed = codec.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+    assertEquals(describe(converter.convert(MAPPER.readTree(json))), describe(streamed));
+    assertEquals(Arrays.asList(1, 10000000000L, 1.5, false, null, null, null), values(streamed));
+  }
+
+  @Test
+  void writesLikeTheTreeConverter() throws Exception {
+    List<Todo> original = todos();
+    List<Todo> modified = todos();
+    modified.get(0).setComplete(true);
+    modified.remove(1);
+    modified.add(new Todo(9L, "Z", false));
+    Patch patch = Diff.diff(original, modified);
+
+    assertEquals(MAPPER.writeValueAsString(converter.convert(patch)), write(patch));
+  }
+
+  @Test
+  void writesBackObjectValuesAsRead() throws Exception {
+    String json = "[{\"op\":\"add\",\"path\":\"/3\",\"value\":{\"description\":\"D\",\"complete\":false,\"tags\":[\"a\"]}},"
+        + "{\"op\":\"copy\",\"path\":\"/4\",\"from\":\"/0\"}]";
+
+    Patch patch = codec.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+    assertEquals(json, write(patch));
+    assertEquals(json, write(patch));
+  }
+
+  @Test
+  void appliesStreamedPatch() throws Exception {
+    Patch patch;
+    try (InputStream in = resource("patch-many-successful-operations")) {
+      patch = codec.read(in);
+    }
+    List<Todo> todos = todos();
+    todos.add(new Todo(4L, "D", false));
+    todos.add(new Todo(5L, "E", false));
+    todos.add(new Todo(6L, "F", false));
+    todos.get(0).setComplete(true);
+
+    List<Todo> patched = patch.apply(todos, Todo.class);
+
+    assertEquals(6, patched.size());
+    assertEquals(true, patched.get(1).isComplete());
+    assertEquals("C", patched.get(3).getDescription());
+    assertEquals("A", patched.get(4).getDescription());
+  }
+
+  @Test
+  void rejectsMalformedPatches() {
+    assertThrows(IllegalArgumentException.class, () -> read("{\"op\":\"remove\",\"path\":\"/0\"}"));
+    assertThrows(PatchException.class, () -> read("[{\"op\":\"remove\"}]"));
+    assertThrows(PatchException.class, () -> read("[{\"op\":\"frobnicate\",\"path\":\"/0\"}]"));
+    assertThrows(PatchException.class, () -> read("[\"remove\"]"));
+  }
+
+  // private helpers
+
+  private Patch read(String json) throws IOException {
+    return codec.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private String write(Patch patch) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    codec.write(patch, out);
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  private static InputStream resource(String name) throws IOException {
+    return new ClassPathResource("/org/springframework/sync/" + name + ".json").getInputStream();
+  }
+
+  private static List<String> describe(Patch patch) {
+    List<String> ops = new ArrayList<>();
+    for (PatchOperation op : patch.getOperations()) {
+      String from = op instanceof FromOperation ? ((FromOperation) op).getFrom() : null;
+      ops.add(op.getClass().getSimpleName() + " " + op.getPath() + " " + from + " " + value(op));
+    }
+    return ops;
+  }
+
+  private static List<Object> values(Patch patch) {
+    List<Object> values = new ArrayList<>();
+    for (PatchOperation op : patch.getOperations()) {
+      values.add(value(op));
+    }
+    return values;
+  }
+
+  private static Object value(PatchOperation op) {
+    Object value = op.getValue();
+    return value instanceof LateObjectEvaluator ? ((LateObjectEvaluator) value).evaluate(Todo.class) : value;
+  }
+
+  private static List<Todo> todos() {
+    return new ArrayList<>(Arrays.asList(
+        new Todo(1L, "A", false),
+        new Todo(2L, "B", false),
+        new Todo(3L, "C", false)));
+  }
+
+}
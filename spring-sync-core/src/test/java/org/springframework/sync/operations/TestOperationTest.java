@@ -20,6 +20,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.sync.PatchException;
 import org.springframework.sync.Todo;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -66,4 +67,29 @@ class TestOperationTest {
 
   }
 
+  @Test
+  void testNumbersMatchByValue() {
+    List<Todo> todos = new ArrayList<>();
+    todos.add(new Todo(1L, "A", false));
+
+    new TestOperation("/0/id", 1).perform(todos, Todo.class);
+    new TestOperation("/0/id", new BigInteger("1")).perform(todos, Todo.class);
+    Assertions.assertThrows(PatchException.class, () -> new TestOperation("/0/id", 2).perform(todos, Todo.class));
+    Assertions.assertThrows(PatchException.class, () -> new TestOperation("/0/id", 1.0).perform(todos, Todo.class));
+  }
+
+  @Test
+  void testFloatingPointValues() {
+    List<Double> values = new ArrayList<>(List.of(0.1 + 0.2, 1.5, Double.NaN, 0.0));
+
+    new TestOperation("/1", 1.5f).perform(values, Double.class);
+    new TestOperation("/2", Double.NaN).perform(values, Double.class);
+    new TestOperation("/3", -0.0).perform(values, Double.class);
+    Assertions.assertThrows(PatchException.class, () -> new TestOperation("/0", 0.3).perform(values, Double.class));
+    new TestOperation("/0", 0.3, Tolerance.ulps(1)).perform(values, Double.class);
+    new TestOperation("/0", 0.3, Tolerance.absolute(1e-9)).perform(values, Double.class);
+    Assertions.assertThrows(PatchException.class,
+        () -> new TestOperation("/1", 1.6, Tolerance.absolute(0.01)).perform(values, Double.class));
+  }
+
 }
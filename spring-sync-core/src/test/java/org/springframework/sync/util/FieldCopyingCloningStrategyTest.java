@@ -0,0 +1,171 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.sync.Todo;
+import org.springframework.sync.TodoList;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class FieldCopyingCloningStrategyTest {
+
+  private final CloningStrategy strategy = new FieldCopyingCloningStrategy();
+
+  @Test
+  void entity() {
+    Todo original = new Todo(1L, "A", true);
+    Todo copy = strategy.deepClone(original);
+
+    assertNotSame(original, copy);
+    assertEquals(original, copy);
+  }
+
+  @Test
+  void listIsMutableAndIndependent() {
+    List<Todo> original = Arrays.asList(new Todo(1L, "A", false), new Todo(2L, "B", false));
+    List<Todo> copy = strategy.deepClone(original);
+
+    assertEquals(original, copy);
+    copy.get(0).setComplete(true);
+    copy.add(new Todo(3L, "C", false));
+    assertEquals(false, original.get(0).isComplete());
+    assertEquals(2, original.size());
+  }
+
+  @Test
+  void nestedListsAndArrays() {
+    TodoList original = new TodoList();
+    original.setName("Work");
+    original.setTodos(new ArrayList<>(Arrays.asList(new Todo(1L, "A", false), new Todo(2L, "B", true))));
+    original.setTodoArray(new Todo[] { new Todo(3L, "C", false) });
+
+    TodoList copy = strategy.deepClone(original);
+
+    assertEquals(original.getName(), copy.getName());
+    assertNotSame(original.getTodos(), copy.getTodos());
+    assertEquals(original.getTodos(), copy.getTodos());
+    assertNotSame(original.getTodoArray(), copy.getTodoArray());
+    assertArrayEquals(original.getTodoArray(), copy.getTodoArray());
+    assertNotSame(original.getTodoArray()[0], copy.getTodoArray()[0]);
+  }
+
+  @Test
+  void sharedReferencesAndCycles() {
+    Node first = new Node("first");
+    Node second = new Node("second");
+    first.next = second;
+    second.next = first;
+    first.neighbours.add(second);
+    second.neighbours.add(second);
+
+    Node copy = strategy.deepClone(first);
+
+    assertNotSame(first, copy);
+    assertSame(copy, copy.next.next);
+    assertSame(copy.next, copy.neighbours.get(0));
+    assertSame(copy.next, copy.next.neighbours.get(0));
+    assertEquals("second", copy.next.name);
+  }
+
+  @Test
+  void primitivesArraysMapsAndDates() {
+    Node original = new Node("node");
+    original.weight = 42;
+    original.ratio = 0.5;
+    original.values = new int[] { 1, 2, 3 };
+    original.attributes.put("key", new Todo(1L, "A", false));
+    original.created = new Date(1000L);
+    original.cached = "cached";
+
+    Node copy = strategy.deepClone(original);
+
+    assertEquals(42, copy.weight);
+    assertEquals(0.5, copy.ratio);
+    assertNotSame(original.values, copy.values);
+    assertArrayEquals(original.values, copy.values);
+    assertNotSame(original.attributes.get("key"), copy.attributes.get("key"));
+    assertEquals(original.attributes, copy.attributes);
+    assertNotSame(original.created, copy.created);
+    assertEquals(original.created, copy.created);
+    assertNull(copy.cached);
+  }
+
+  @Test
+  void recordsOfImmutableValuesAreShared() {
+    Label label = new Label("label", 1);
+    assertSame(label, strategy.deepClone(label));
+
+    Tagged tagged = new Tagged(label, new Todo(1L, "A", false));
+    Tagged copy = strategy.deepClone(tagged);
+    assertNotSame(tagged, copy);
+    assertSame(label, copy.label());
+    assertNotSame(tagged.todo(), copy.todo());
+    assertEquals(tagged, copy);
+  }
+
+  @Test
+  void additionalSharedTypes() {
+    Todo todo = new Todo(1L, "A", false);
+    CloningStrategy sharing = new FieldCopyingCloningStrategy(List.of(Todo.class));
+    assertSame(todo, sharing.deepClone(todo));
+  }
+
+  private static class Node implements Serializable {
+
+    private final String name;
+
+    private Node next;
+
+    private final List<Node> neighbours = new ArrayList<>();
+
+    private final Map<String, Todo> attributes = new HashMap<>();
+
+    private int weight;
+
+    private double ratio;
+
+    private int[] values;
+
+    private Date created;
+
+    private transient String cached;
+
+    Node(String name) {
+      this.name = name;
+    }
+
+  }
+
+  private record Label(String text, int priority) implements Serializable {
+  }
+
+  private record Tagged(Label label, Todo todo) implements Serializable {
+  }
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.data.jpa;
+
+/**
+ * Told of the entities committed, as recorded by an {@link EntityChangeLog}.
+ */
+@FunctionalInterface
+public interface EntityChangeListener {
+
+  /**
+   * Called after the transaction that changed an entity committed.
+   *
+   * @param entityType the type of the entity
+   * @param id         the id of the entity
+   * @param deleted    whether the entity was deleted, rather than inserted or updated
+   */
+  void changed(Class<?> entityType, Object id, boolean deleted);
+
+}
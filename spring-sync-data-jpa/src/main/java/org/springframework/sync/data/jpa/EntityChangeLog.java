@@ -0,0 +1,207 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.data.jpa;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.util.Assert;
+
+/**
+ * A bounded, in-memory log of the entities committed since the application started, per entity type. Every commit of
+ * an entity bumps a version shared by all types; the log keeps the latest version of each entity, so that the entities
+ * changed since a version can be told without querying the database.
+ *
+ * <p>Versions are qualified with an epoch drawn at random by each log, as the versions stored with shadows outlive
+ * restarts and may be shared by several instances of the application. Versions of another epoch, versions older than
+ * the entries dropped once more than {@code capacity} entities of a type have changed, and versions from before the log
+ * started tracking a type can't be answered; {@link #changesSince} returns null for them and the caller falls back to
+ * loading everything.</p>
+ */
+public class EntityChangeLog {
+
+  /**
+   * The number of entities per type the log keeps by default.
+   */
+  public static final int DEFAULT_CAPACITY = 10_000;
+
+  /**
+   * The number of low bits of a version that count changes, the bits above hold the epoch.
+   */
+  private static final int SEQUENCE_BITS = 39;
+
+  private static final int EPOCH_BITS = 63 - SEQUENCE_BITS;
+
+  private final int capacity;
+
+  private final Map<Class<?>, TypeLog> logs = new HashMap<>();
+
+  private final List<EntityChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+  private final long epoch = ThreadLocalRandom.current().nextLong(1L << EPOCH_BITS) << SEQUENCE_BITS;
+
+  private long version = epoch;
+
+  public EntityChangeLog() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity the number of entities per type to keep track of
+   */
+  public EntityChangeLog(int capacity) {
+    Assert.isTrue(capacity > 0, "capacity must be positive");
+    this.capacity = capacity;
+  }
+
+  /**
+   * Adds a listener to be told of every change recorded, e.g. to push the change to the clients of the entity.
+   *
+   * @param listener the listener to add
+   */
+  public void addListener(EntityChangeListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Records that an entity was inserted or updated.
+   *
+   * @param entityType the type of the entity
+   * @param id         the id of the entity
+   */
+  public void saved(Class<?> entityType, Object id) {
+    record(entityType, id, false);
+  }
+
+  /**
+   * Records that an entity was deleted.
+   *
+   * @param entityType the type of the entity
+   * @param id         the id of the entity
+   */
+  public void deleted(Class<?> entityType, Object id) {
+    record(entityType, id, true);
+  }
+
+  /**
+   * @return the version of the latest change recorded
+   */
+  public synchronized long currentVersion() {
+    return version;
+  }
+
+  /**
+   * Tells which entities of a type changed since a version.
+   *
+   * @param entityType the type of the entities
+   * @param since      a version previously returned by {@link #currentVersion()} or {@link ChangedIds#getVersion()}
+   * @return the ids of the entities saved and deleted since the version, or null if the log does not know
+   */
+  public synchronized ChangedIds changesSince(Class<?> entityType, long since) {
+    if (since < epoch || since > version) {
+      // a version of another instance, or from before a restart
+      return null;
+    }
+    TypeLog log = logs.get(entityType);
+    if (log == null || since < log.floor) {
+      return null;
+    }
+    List<Object> saved = new ArrayList<>();
+    List<Object> deleted = new ArrayList<>();
+    for (Entry entry : log.byVersion.tailMap(since, false).values()) {
+      (entry.deleted ? deleted : saved).add(entry.id);
+    }
+    return new ChangedIds(saved, deleted, version);
+  }
+
+  // private helpers
+
+  private void record(Class<?> entityType, Object id, boolean deleted) {
+    synchronized (this) {
+      // changes of the type are only known from now on
+      TypeLog log = logs.computeIfAbsent(entityType, type -> new TypeLog(version));
+      long current = ++version;
+      Long previous = log.versions.put(id, current);
+      if (previous != null) {
+        log.byVersion.remove(previous);
+      }
+      log.byVersion.put(current, new Entry(id, deleted));
+      if (log.byVersion.size() > capacity) {
+        Map.Entry<Long, Entry> eldest = log.byVersion.pollFirstEntry();
+        log.versions.remove(eldest.getValue().id);
+        log.floor = eldest.getKey();
+      }
+    }
+    for (EntityChangeListener listener : listeners) {
+      listener.changed(entityType, id, deleted);
+    }
+  }
+
+  /**
+   * The ids of the entities of a type changed since a version.
+   */
+  @Getter
+  @RequiredArgsConstructor
+  public static final class ChangedIds {
+
+    private final List<Object> savedIds;
+
+    private final List<Object> deletedIds;
+
+    /**
+     * The version that these changes bring the entities up to.
+     */
+    private final long version;
+
+  }
+
+  @RequiredArgsConstructor
+  private static final class Entry {
+
+    private final Object id;
+
+    private final boolean deleted;
+
+  }
+
+  private static final class TypeLog {
+
+    private final Map<Object, Long> versions = new HashMap<>();
+
+    private final NavigableMap<Long, Entry> byVersion = new TreeMap<>();
+
+    /**
+     * The version the type was first recorded at, or of the latest entry dropped; changes since earlier versions are
+     * unknown.
+     */
+    private long floor;
+
+    private TypeLog(long floor) {
+      this.floor = floor;
+    }
+
+  }
+
+}
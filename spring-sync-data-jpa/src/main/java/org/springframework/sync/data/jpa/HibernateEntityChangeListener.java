@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.data.jpa;
+
+import lombok.RequiredArgsConstructor;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * Records the entities that Hibernate inserts, updates or deletes in an {@link EntityChangeLog}, once their transaction
+ * committed. Changes rolled back are never recorded.
+ *
+ * <p>Bulk statements, such as {@code deleteAllInBatch}, bypass these events; {@link JpaRepositoryPersistenceCallback}
+ * records its own bulk deletes.</p>
+ */
+@RequiredArgsConstructor
+public class HibernateEntityChangeListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+    PostCommitDeleteEventListener {
+
+  private static final long serialVersionUID = 1L;
+
+  private final transient EntityChangeLog changeLog;
+
+  /**
+   * Registers a listener with the session factory of an entity manager factory.
+   *
+   * @param entityManagerFactory the entity manager factory, backed by Hibernate
+   * @param changeLog            the log to record the changes in
+   * @return false if the entity manager factory is not backed by Hibernate, and no listener was registered
+   */
+  public static boolean register(EntityManagerFactory entityManagerFactory, EntityChangeLog changeLog) {
+    SessionFactoryImplementor sessionFactory;
+    try {
+      sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    } catch (PersistenceException e) {
+      return false;
+    }
+    EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+    HibernateEntityChangeListener listener = new HibernateEntityChangeListener(changeLog);
+    registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+    registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+    registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+    return true;
+  }
+
+  @Override
+  public void onPostInsert(PostInsertEvent event) {
+    changeLog.saved(event.getPersister().getMappedClass(), event.getId());
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    changeLog.saved(event.getPersister().getMappedClass(), event.getId());
+  }
+
+  @Override
+  public void onPostDelete(PostDeleteEvent event) {
+    changeLog.deleted(event.getPersister().getMappedClass(), event.getId());
+  }
+
+  @Override
+  public void onPostInsertCommitFailed(PostInsertEvent event) {
+    // nothing changed
+  }
+
+  @Override
+  public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    // nothing changed
+  }
+
+  @Override
+  public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    // nothing changed
+  }
+
+  @Override
+  public boolean requiresPostCommitHanding(EntityPersister persister) {
+    return true;
+  }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.data.jpa;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.core.Ordered;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.core.EntityInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.sync.diffsync.PersistenceCallbackRegistry;
+import org.springframwork.sync.config.DiffSyncConfigurer;
+
+/**
+ * Registers a {@link JpaRepositoryPersistenceCallback} for the entities of the {@link JpaRepository JpaRepositories} of
+ * an application context that the application names. A callback lets any client read, write and delete the entities
+ * of its type, so only the entity types listed are exposed, by simple or fully qualified class name. It runs before any
+ * other {@link DiffSyncConfigurer}, so that the callbacks registered by the application for the same entities take
+ * precedence.
+ */
+public class JpaRepositoryDiffSyncConfigurer implements DiffSyncConfigurer, Ordered {
+
+  private final ListableBeanFactory beanFactory;
+
+  private final EntityChangeLog changeLog;
+
+  private final Set<String> entityNames;
+
+  /**
+   * @param beanFactory the bean factory to look up the repositories in
+   * @param changeLog   the log of the entities committed, or null to always load whole lists
+   * @param entityNames the simple or fully qualified class names of the entities to expose
+   */
+  public JpaRepositoryDiffSyncConfigurer(ListableBeanFactory beanFactory, EntityChangeLog changeLog,
+      Collection<String> entityNames) {
+    this.beanFactory = beanFactory;
+    this.changeLog = changeLog;
+    this.entityNames = Set.copyOf(entityNames);
+  }
+
+  /**
+   * @throws IllegalStateException if an entity named has no {@link JpaRepository}, or is not {@link Serializable}
+   */
+  @Override
+  public void addPersistenceCallbacks(PersistenceCallbackRegistry registry) {
+    Repositories repositories = new Repositories(beanFactory);
+    Set<String> missing = new TreeSet<>(entityNames);
+    for (Class<?> domainType : repositories) {
+      if (!entityNames.contains(domainType.getSimpleName()) && !entityNames.contains(domainType.getName())) {
+        continue;
+      }
+      Object repository = repositories.getRepositoryFor(domainType)
+          .filter(JpaRepository.class::isInstance)
+          .orElse(null);
+      if (repository == null) {
+        continue;
+      }
+      // the registry only takes callbacks of Serializable entities, as shadows may be serialized
+      if (!Serializable.class.isAssignableFrom(domainType)) {
+        throw new IllegalStateException("Entity " + domainType.getName() + " is not Serializable");
+      }
+      registry.addPersistenceCallback(callback(domainType.asSubclass(Serializable.class), repository, repositories));
+      missing.remove(domainType.getSimpleName());
+      missing.remove(domainType.getName());
+    }
+    if (!missing.isEmpty()) {
+      throw new IllegalStateException("No JPA repository found for the entities " + missing);
+    }
+  }
+
+  @Override
+  public int getOrder() {
+    return Ordered.HIGHEST_PRECEDENCE;
+  }
+
+  // private helpers
+
+  @SuppressWarnings("unchecked")
+  private <T extends Serializable> JpaRepositoryPersistenceCallback<T, Object> callback(Class<T> domainType,
+      Object repository, Repositories repositories) {
+    EntityInformation<T, Object> entityInformation = repositories.getEntityInformationFor(domainType);
+    return new JpaRepositoryPersistenceCallback<>((JpaRepository<T, Object>) repository, entityInformation,
+        changeLog);
+  }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.data.jpa;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.core.EntityInformation;
+import org.springframework.sync.diffsync.Changes;
+import org.springframework.sync.diffsync.PersistenceCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * A {@link PersistenceCallback} backed by a Spring Data {@link JpaRepository}.
+ *
+ * <p>Changes are persisted with {@code saveAll} and {@code deleteAllInBatch}, so that with JDBC batching enabled
+ * ({@code hibernate.jdbc.batch_size}) a patch costs a few round trips, whatever the number of items it touches. Given
+ * an {@link EntityChangeLog} fed by a {@link HibernateEntityChangeListener}, lists are synchronized incrementally: only
+ * the entities committed since the shadow of a list was taken are loaded and diffed.</p>
+ *
+ * @param <T>  the entity type
+ * @param <ID> the type of the id of the entity
+ */
+public class JpaRepositoryPersistenceCallback<T, ID> implements PersistenceCallback<T> {
+
+  private final JpaRepository<T, ID> repository;
+
+  private final EntityInformation<T, ID> entityInformation;
+
+  private final EntityChangeLog changeLog;
+
+  private final ConversionService conversionService = DefaultConversionService.getSharedInstance();
+
+  /**
+   * @param repository        the repository of the entities
+   * @param entityInformation the metadata of the entities
+   * @param changeLog         the log of the entities committed, or null to always load whole lists
+   */
+  public JpaRepositoryPersistenceCallback(JpaRepository<T, ID> repository, EntityInformation<T, ID> entityInformation,
+      EntityChangeLog changeLog) {
+    this.repository = repository;
+    this.entityInformation = entityInformation;
+    this.changeLog = changeLog;
+  }
+
+  @Override
+  public List<T> findAll() {
+    return repository.findAll();
+  }
+
+  @Override
+  public T findOne(String id) {
+    return repository.findById(toId(id)).orElse(null);
+  }
+
+  @Override
+  public List<T> findAllById(Collection<String> ids) {
+    List<ID> converted = new ArrayList<>(ids.size());
+    for (String id : ids) {
+      converted.add(toId(id));
+    }
+    return repository.findAllById(converted);
+  }
+
+  @Override
+  public Changes<T> findChangesSince(Long version) {
+    if (changeLog == null) {
+      return null;
+    }
+    if (version == null) {
+      return Changes.none(changeLog.currentVersion());
+    }
+    EntityChangeLog.ChangedIds changes = changeLog.changesSince(getEntityType(), version);
+    if (changes == null) {
+      return null;
+    }
+    List<T> saved = changes.getSavedIds().isEmpty()
+        ? List.of()
+        : repository.findAllById(castIds(changes.getSavedIds()));
+    return new Changes<>(saved, changes.getDeletedIds(), changes.getVersion());
+  }
+
+  @Override
+  public void persistChange(T itemToSave) {
+    repository.save(itemToSave);
+  }
+
+  @Override
+  public void persistChanges(List<T> itemsToSave, List<T> itemsToDelete) {
+    if (!itemsToSave.isEmpty()) {
+      repository.saveAll(itemsToSave);
+    }
+    if (!itemsToDelete.isEmpty()) {
+      repository.deleteAllInBatch(itemsToDelete);
+      recordDeletes(itemsToDelete);
+    }
+  }
+
+  @Override
+  public Class<T> getEntityType() {
+    return entityInformation.getJavaType();
+  }
+
+  // private helpers
+
+  private ID toId(String id) {
+    return conversionService.convert(id, entityInformation.getIdType());
+  }
+
+  @SuppressWarnings("unchecked")
+  private Iterable<ID> castIds(List<Object> ids) {
+    return (Iterable<ID>) (Iterable<?>) ids;
+  }
+
+  /**
+   * Bulk deletes fire no entity events, so they are recorded here, once the transaction committed.
+   */
+  private void recordDeletes(List<T> deleted) {
+    if (changeLog == null) {
+      return;
+    }
+    List<ID> ids = new ArrayList<>(deleted.size());
+    for (T item : deleted) {
+      ids.add(entityInformation.getId(item));
+    }
+    Runnable record = () -> ids.forEach(id -> changeLog.deleted(getEntityType(), id));
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      record.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        record.run();
+      }
+    });
+  }
+
+}
@@ -0,0 +1,5 @@
+/**
+ * Spring Data JPA integration for Differential Synchronization: repository-backed persistence callbacks and change
+ * tracking through Hibernate's post-commit events.
+ */
+package org.springframework.sync.data.jpa;
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.data.jpa;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.Database;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.shadowstore.ConcurrentShadowStore;
+import org.springframework.shadowstore.ShadowStoreFactory;
+import org.springframework.sync.DiffSyncService;
+import org.springframework.sync.Patch;
+import org.springframework.sync.diffsync.IdPropertyEquivalency;
+import org.springframework.sync.diffsync.PersistenceCallback;
+import org.springframework.sync.diffsync.PersistenceCallbackRegistry;
+import org.springframework.sync.diffsync.VersionedPatch;
+import org.springframework.sync.operations.ReplaceOperation;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringJUnitConfig
+class JpaRepositoryPersistenceCallbackTest {
+
+  private static final String NODE = "node";
+
+  @Autowired
+  private TodoRepository repository;
+
+  @Autowired
+  private EntityChangeLog changeLog;
+
+  @Autowired
+  private JpaRepositoryDiffSyncConfigurer configurer;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  private ListableBeanFactory beanFactory;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  private TransactionTemplate transaction;
+
+  private PersistenceCallbackRegistry registry;
+
+  @BeforeEach
+  void setUp() {
+    transaction = new TransactionTemplate(transactionManager);
+    transaction.executeWithoutResult(status -> {
+      repository.deleteAllInBatch();
+      repository.saveAll(List.of(new Todo(1L, "A", false), new Todo(2L, "B", false), new Todo(3L, "C", false)));
+    });
+    registry = new PersistenceCallbackRegistry();
+    configurer.addPersistenceCallbacks(registry);
+  }
+
+  @Test
+  void registersCallbackForEveryJpaRepository() {
+    PersistenceCallback<?> callback = registry.findPersistenceCallback("todos");
+
+    assertInstanceOf(JpaRepositoryPersistenceCallback.class, callback);
+    assertEquals(Todo.class, callback.getEntityType());
+    assertEquals(new Todo(2L, "B", false), callback.findOne("2"));
+  }
+
+  @Test
+  void registersCallbacksForNamedEntitiesOnly() {
+    PersistenceCallbackRegistry unnamed = new PersistenceCallbackRegistry();
+    new JpaRepositoryDiffSyncConfigurer(beanFactory, changeLog, List.of()).addPersistenceCallbacks(unnamed);
+    PersistenceCallbackRegistry qualified = new PersistenceCallbackRegistry();
+    new JpaRepositoryDiffSyncConfigurer(beanFactory, changeLog, List.of(Todo.class.getName()))
+        .addPersistenceCallbacks(qualified);
+
+    assertNull(unnamed.findPersistenceCallback("todos"));
+    assertNotNull(qualified.findPersistenceCallback("todos"));
+    assertThrows(IllegalStateException.class,
+        () -> new JpaRepositoryDiffSyncConfigurer(beanFactory, changeLog, List.of("Person"))
+            .addPersistenceCallbacks(new PersistenceCallbackRegistry()));
+  }
+
+  @Test
+  void changeLogRecordsCommittedChangesOnly() {
+    long version = changeLog.currentVersion();
+
+    transaction.executeWithoutResult(status -> repository.save(new Todo(2L, "BB", false)));
+    transaction.executeWithoutResult(status -> {
+      repository.save(new Todo(3L, "CC", false));
+      status.setRollbackOnly();
+    });
+
+    EntityChangeLog.ChangedIds changes = changeLog.changesSince(Todo.class, version);
+    assertNotNull(changes);
+    assertEquals(List.of(2L), changes.getSavedIds());
+    assertEquals(List.of(), changes.getDeletedIds());
+  }
+
+  @Test
+  void changeLogKnowsNothingOfVersionsFromAnotherLog() {
+    EntityChangeLog restarted = new EntityChangeLog();
+    restarted.saved(Todo.class, 1L);
+
+    assertNull(restarted.changesSince(Todo.class, changeLog.currentVersion()));
+    assertNull(changeLog.changesSince(Todo.class, restarted.currentVersion()));
+    assertNull(restarted.changesSince(String.class, restarted.currentVersion()));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void persistChangesRecordsBatchDeletesAfterCommit() {
+    PersistenceCallback<Todo> callback = (PersistenceCallback<Todo>) registry.findPersistenceCallback("todos");
+    long version = changeLog.currentVersion();
+
+    transaction.executeWithoutResult(status -> {
+      callback.persistChanges(List.of(new Todo(4L, "D", false)), List.of(new Todo(1L, "A", false)));
+      assertEquals(List.of(), changeLog.changesSince(Todo.class, version).getDeletedIds());
+    });
+
+    assertEquals(List.of(2L, 3L, 4L), ids(repository.findAll()));
+    EntityChangeLog.ChangedIds changes = changeLog.changesSince(Todo.class, version);
+    assertEquals(List.of(4L), changes.getSavedIds());
+    assertEquals(List.of(1L), changes.getDeletedIds());
+  }
+
+  @Test
+  void diffOnlyLoadsEntitiesChangedSinceShadow() {
+    DiffSyncService service = new DiffSyncService(new ShadowStoreFactory(ConcurrentShadowStore::new),
+        new IdPropertyEquivalency(), registry);
+    transaction.executeWithoutResult(status -> service.patch("todos", new Patch(List.of()), NODE));
+    transaction.executeWithoutResult(status -> repository.save(new Todo(2L, "BB", false)));
+
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+    VersionedPatch diff = transaction.execute(status -> service.diff("todos", NODE));
+
+    assertNotNull(diff);
+    assertEquals(1, statistics.getEntityLoadCount());
+    assertTrue(diff.getOperations().stream()
+        .anyMatch(op -> op instanceof ReplaceOperation && op.getPath().endsWith("/description")));
+  }
+
+  // private helpers
+
+  private static List<Long> ids(List<Todo> todos) {
+    return todos.stream().map(Todo::getId).sorted().collect(Collectors.toList());
+  }
+
+  @Configuration
+  @EnableJpaRepositories(basePackageClasses = TodoRepository.class)
+  static class JpaConfig {
+
+    @Bean
+    DataSource dataSource() {
+      return new EmbeddedDatabaseBuilder()
+          .setType(EmbeddedDatabaseType.H2)
+          .generateUniqueName(true)
+          .build();
+    }
+
+    @Bean
+    LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
+      HibernateJpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
+      vendorAdapter.setGenerateDdl(true);
+      vendorAdapter.setDatabase(Database.H2);
+      Map<String, Object> properties = new HashMap<>();
+      properties.put("hibernate.jdbc.batch_size", 50);
+      properties.put("hibernate.generate_statistics", true);
+      LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+      factory.setDataSource(dataSource);
+      factory.setJpaVendorAdapter(vendorAdapter);
+      factory.setJpaPropertyMap(properties);
+      factory.setPackagesToScan(Todo.class.getPackageName());
+      return factory;
+    }
+
+    @Bean
+    PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+      return new JpaTransactionManager(entityManagerFactory);
+    }
+
+    @Bean
+    EntityChangeLog entityChangeLog(EntityManagerFactory entityManagerFactory) {
+      EntityChangeLog changeLog = new EntityChangeLog();
+      HibernateEntityChangeListener.register(entityManagerFactory, changeLog);
+      return changeLog;
+    }
+
+    @Bean
+    JpaRepositoryDiffSyncConfigurer jpaRepositoryDiffSyncConfigurer(ListableBeanFactory beanFactory,
+        EntityChangeLog changeLog) {
+      return new JpaRepositoryDiffSyncConfigurer(beanFactory, changeLog, List.of("Todo"));
+    }
+
+  }
+
+}
@@ -22,10 +22,11 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
-import org.springframework.context.annotation.Import;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
 
 /**
- * Enables Differential Synchronization.
+ * Enables Differential Synchronization. The configuration is imported as an auto-configuration, after those of the
+ * application, so that its conditions see the beans these define.
  *
  * @author Craig Walls
  */
@@ -33,6 +34,6 @@ import org.springframework.context.annotation.Import;
 @Retention(RetentionPolicy.RUNTIME)
 @Documented
 @Inherited
-@Import(SpringSyncAutoConfiguration.class)
+@ImportAutoConfiguration(SpringSyncAutoConfiguration.class)
 public @interface EnableDifferentialSynchronization {
 }
@@ -1,24 +1,51 @@
 package org.springframework.sync.diffsync.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.shadowstore.MapBasedShadowStore;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.shadowstore.ConcurrentShadowStore;
 import org.springframework.shadowstore.ShadowStore;
 import org.springframework.shadowstore.ShadowStoreFactory;
+import org.springframework.sync.CompiledDiffEngine;
+import org.springframework.sync.DiffEngine;
+import org.springframework.sync.DiffOptions;
 import org.springframework.sync.DiffSyncService;
 import org.springframework.sync.IDiffSyncService;
+import org.springframework.sync.data.jpa.EntityChangeLog;
+import org.springframework.sync.data.jpa.HibernateEntityChangeListener;
+import org.springframework.sync.data.jpa.JpaRepositoryDiffSyncConfigurer;
 import org.springframework.sync.diffsync.DiffSync;
 import org.springframework.sync.diffsync.Equivalency;
 import org.springframework.sync.diffsync.IdPropertyEquivalency;
 import org.springframework.sync.diffsync.PersistenceCallbackRegistry;
+import org.springframework.sync.diffsync.SyncMetrics;
+import org.springframework.sync.diffsync.metrics.MicrometerSyncMetrics;
+import org.springframework.sync.util.CloningStrategy;
+import org.springframework.sync.util.FieldCopyingCloningStrategy;
+import org.springframework.util.StringUtils;
 import org.springframwork.sync.config.DiffSyncConfigurer;
 
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
 import java.util.List;
 
 @Configuration
 @ConditionalOnClass({ DiffSyncService.class, DiffSync.class })
+@AutoConfigureAfter(name = {
+    "org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration",
+    "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration",
+    "org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration" })
 public class SpringSyncAutoConfiguration {
 
   @Bean
@@ -33,7 +60,7 @@ public class SpringSyncAutoConfiguration {
   @Bean
   @ConditionalOnMissingBean(ShadowStore.class)
   public ShadowStoreFactory mapBasedShadowStore() {
-    return new ShadowStoreFactory(MapBasedShadowStore.class);
+    return new ShadowStoreFactory(ConcurrentShadowStore::new);
   }
 
   @Bean
@@ -42,9 +69,92 @@ public class SpringSyncAutoConfiguration {
     return new IdPropertyEquivalency();
   }
 
+  @Bean
+  @ConditionalOnMissingBean(DiffEngine.class)
+  public DiffEngine diffEngine(@Value("${spring.diffsync.diff.hashing:false}") boolean hashing,
+      @Value("${spring.diffsync.diff.tests:REMOVES_ONLY}") DiffOptions.TestLevel tests) {
+    return new CompiledDiffEngine(null, hashing, DiffOptions.withTests(tests));
+  }
+
+  @Bean
+  @ConditionalOnMissingBean(CloningStrategy.class)
+  public CloningStrategy cloningStrategy() {
+    return new FieldCopyingCloningStrategy();
+  }
+
   @Bean
   public IDiffSyncService diffSyncService(ShadowStoreFactory shadowStoreFactory, Equivalency equivalency,
-      PersistenceCallbackRegistry persistenceCallbackRegistry) {
-    return new DiffSyncService(shadowStoreFactory, equivalency, persistenceCallbackRegistry);
+      PersistenceCallbackRegistry persistenceCallbackRegistry, DiffEngine diffEngine,
+      CloningStrategy cloningStrategy, ObjectProvider<SyncMetrics> syncMetrics,
+      @Value("${spring.diffsync.history-size:" + DiffSync.DEFAULT_HISTORY_SIZE + "}") int historySize,
+      @Value("${spring.diffsync.edit-stack:false}") boolean editStack) {
+    return new DiffSyncService(shadowStoreFactory, equivalency, persistenceCallbackRegistry, diffEngine,
+        cloningStrategy, syncMetrics.getIfAvailable(() -> SyncMetrics.NONE), historySize, editStack);
+  }
+
+  /**
+   * Records synchronization metrics to the {@link MeterRegistry} of the application, if any. This configuration is
+   * processed after the metrics auto-configuration of Spring Boot Actuator, which defines the registry.
+   */
+  @Configuration
+  @ConditionalOnClass(MeterRegistry.class)
+  @ConditionalOnBean(MeterRegistry.class)
+  static class MicrometerSyncMetricsConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean(SyncMetrics.class)
+    public SyncMetrics syncMetrics(MeterRegistry meterRegistry) {
+      return new MicrometerSyncMetrics(meterRegistry);
+    }
+
+  }
+
+  /**
+   * With {@code spring.diffsync.jpa.enabled=true}, registers a persistence callback for the entities listed in
+   * {@code spring.diffsync.jpa.entities}, by simple or fully qualified class name, through their Spring Data JPA
+   * repositories, and enables JDBC batching for the statements they persist patches with. Clients may read, write and
+   * delete every entity of the types listed, so none is exposed unless named. With {@code spring.diffsync.jpa.change-feed=true}, lists are
+   * synchronized incrementally, as Hibernate reports the entities committed; this assumes that every change to the
+   * entities goes through Hibernate entity events, so bulk updates and other writers to the tables rule it out.
+   */
+  @Configuration
+  @ConditionalOnClass({ JpaRepository.class, SessionFactoryImplementor.class })
+  @ConditionalOnProperty(name = "spring.diffsync.jpa.enabled", havingValue = "true")
+  static class JpaDiffSyncConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean(EntityChangeLog.class)
+    @ConditionalOnProperty(name = "spring.diffsync.jpa.change-feed", havingValue = "true")
+    public EntityChangeLog entityChangeLog(
+        @Value("${spring.diffsync.jpa.change-log-size:" + EntityChangeLog.DEFAULT_CAPACITY + "}") int capacity) {
+      return new EntityChangeLog(capacity);
+    }
+
+    @Bean
+    public JpaRepositoryDiffSyncConfigurer jpaRepositoryDiffSyncConfigurer(ListableBeanFactory beanFactory,
+        ObjectProvider<EntityManagerFactory> entityManagerFactories, ObjectProvider<EntityChangeLog> changeLogs,
+        @Value("${spring.diffsync.jpa.entities:}") String[] entities) {
+      EntityChangeLog changeLog = changeLogs.getIfAvailable();
+      boolean tracked = false;
+      if (changeLog != null) {
+        for (EntityManagerFactory entityManagerFactory : entityManagerFactories) {
+          tracked |= HibernateEntityChangeListener.register(entityManagerFactory, changeLog);
+        }
+      }
+      // without a complete feed, lists are loaded whole
+      return new JpaRepositoryDiffSyncConfigurer(beanFactory, tracked ? changeLog : null,
+          Arrays.asList(StringUtils.trimArrayElements(entities)));
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer diffSyncJdbcBatchingCustomizer(
+        @Value("${spring.diffsync.jpa.batch-size:50}") int batchSize) {
+      return properties -> {
+        properties.putIfAbsent("hibernate.jdbc.batch_size", batchSize);
+        properties.putIfAbsent("hibernate.order_inserts", true);
+        properties.putIfAbsent("hibernate.order_updates", true);
+      };
+    }
+
   }
 }
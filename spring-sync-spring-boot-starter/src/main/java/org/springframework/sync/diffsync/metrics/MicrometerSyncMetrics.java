@@ -0,0 +1,197 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.shadowstore.ShadowStore;
+import org.springframework.sync.Patch;
+import org.springframework.sync.diffsync.SyncMetrics;
+import org.springframework.sync.diffsync.SyncPhase;
+import org.springframework.sync.operations.PatchOperation;
+import org.springframework.sync.util.CloningStrategy;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>{@link SyncMetrics} recorded to a Micrometer {@link MeterRegistry}:</p>
+ *
+ * <ul>
+ *   <li>{@code spring.sync.phase}: timer of each step of a round, tagged with {@code resource} and {@code phase}</li>
+ *   <li>{@code spring.sync.patch.operations}: distribution of the number of operations per incoming patch, and
+ *   {@code spring.sync.operations}: counter of incoming operations, tagged with {@code resource} and {@code op}</li>
+ *   <li>{@code spring.sync.shadow}: counter of shadow lookups, tagged with {@code entity} and {@code result}
+ *   ({@code hit}, {@code miss}, {@code backup} when rolled back to a version kept in the history of the shadow)</li>
+ *   <li>{@code spring.sync.patch.dropped}: counter of patches dropped on a version mismatch, tagged with
+ *   {@code entity}</li>
+ *   <li>{@code spring.sync.clone}: timer of deep clones</li>
+ *   <li>{@code spring.sync.shadowstore}: timer of shadow store operations, tagged with {@code store} (the simple
+ *   name of the store class) and {@code operation}</li>
+ * </ul>
+ *
+ * <p>Meters are looked up once per tag combination and cached.</p>
+ */
+public class MicrometerSyncMetrics implements SyncMetrics {
+
+  private static final SyncPhase[] PHASES = SyncPhase.values();
+
+  private final MeterRegistry registry;
+
+  private final Timer cloneTimer;
+
+  private final Map<String, ResourceMeters> resources = new ConcurrentHashMap<>();
+
+  private final Map<Class<?>, EntityMeters> entities = new ConcurrentHashMap<>();
+
+  private final Map<Class<?>, TimedShadowStore.Timers> shadowStoreTimers = new ConcurrentHashMap<>();
+
+  public MicrometerSyncMetrics(MeterRegistry registry) {
+    this.registry = registry;
+    this.cloneTimer = Timer.builder("spring.sync.clone")
+        .description("Deep clones of resources and shadows")
+        .register(registry);
+  }
+
+  @Override
+  public void phase(String resource, SyncPhase phase, long nanos) {
+    resourceMeters(resource).phases[phase.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void patchReceived(String resource, Patch patch) {
+    ResourceMeters meters = resourceMeters(resource);
+    meters.patchSize.record(patch.size());
+    for (PatchOperation operation : patch.getOperations()) {
+      meters.operations.computeIfAbsent(operation.getOp(), op -> Counter.builder("spring.sync.operations")
+          .description("Operations of incoming patches")
+          .tag("resource", meters.resource)
+          .tag("op", op)
+          .register(registry)).increment();
+    }
+  }
+
+  @Override
+  public void shadowHit(Class<?> entityType) {
+    entityMeters(entityType).hits.increment();
+  }
+
+  @Override
+  public void shadowMiss(Class<?> entityType) {
+    entityMeters(entityType).misses.increment();
+  }
+
+  @Override
+  public void backupRestored(Class<?> entityType) {
+    entityMeters(entityType).backups.increment();
+  }
+
+  @Override
+  public void patchDropped(Class<?> entityType) {
+    entityMeters(entityType).dropped.increment();
+  }
+
+  @Override
+  public ShadowStore instrument(ShadowStore shadowStore) {
+    TimedShadowStore.Timers timers = shadowStoreTimers.computeIfAbsent(shadowStore.getClass(),
+        type -> new TimedShadowStore.Timers(registry, type.getSimpleName()));
+    return new TimedShadowStore(shadowStore, timers);
+  }
+
+  @Override
+  public CloningStrategy instrument(CloningStrategy cloningStrategy) {
+    return new TimedCloningStrategy(cloningStrategy, cloneTimer);
+  }
+
+  // private helpers
+
+  private ResourceMeters resourceMeters(String resource) {
+    return resources.computeIfAbsent(resource != null ? resource : "none", this::newResourceMeters);
+  }
+
+  private ResourceMeters newResourceMeters(String resource) {
+    Timer[] phases = new Timer[PHASES.length];
+    for (SyncPhase phase : PHASES) {
+      phases[phase.ordinal()] = Timer.builder("spring.sync.phase")
+          .description("Steps of synchronization rounds")
+          .tag("resource", resource)
+          .tag("phase", phase.name().toLowerCase(Locale.ROOT))
+          .register(registry);
+    }
+    DistributionSummary patchSize = DistributionSummary.builder("spring.sync.patch.operations")
+        .description("Number of operations per incoming patch")
+        .tag("resource", resource)
+        .register(registry);
+    return new ResourceMeters(resource, phases, patchSize);
+  }
+
+  private EntityMeters entityMeters(Class<?> entityType) {
+    return entities.computeIfAbsent(entityType, type -> new EntityMeters(registry, type.getSimpleName()));
+  }
+
+  private static final class ResourceMeters {
+
+    private final String resource;
+
+    private final Timer[] phases;
+
+    private final DistributionSummary patchSize;
+
+    private final Map<String, Counter> operations = new ConcurrentHashMap<>();
+
+    private ResourceMeters(String resource, Timer[] phases, DistributionSummary patchSize) {
+      this.resource = resource;
+      this.phases = phases;
+      this.patchSize = patchSize;
+    }
+
+  }
+
+  private static final class EntityMeters {
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter backups;
+
+    private final Counter dropped;
+
+    private EntityMeters(MeterRegistry registry, String entity) {
+      this.hits = shadowCounter(registry, entity, "hit");
+      this.misses = shadowCounter(registry, entity, "miss");
+      this.backups = shadowCounter(registry, entity, "backup");
+      this.dropped = Counter.builder("spring.sync.patch.dropped")
+          .description("Patches dropped because their versions did not match those of the shadow")
+          .tag("entity", entity)
+          .register(registry);
+    }
+
+    private static Counter shadowCounter(MeterRegistry registry, String entity, String result) {
+      return Counter.builder("spring.sync.shadow")
+          .description("Shadow lookups")
+          .tag("entity", entity)
+          .tag("result", result)
+          .register(registry);
+    }
+
+  }
+
+}
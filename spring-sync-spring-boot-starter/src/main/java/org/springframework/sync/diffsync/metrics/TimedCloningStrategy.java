@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import org.springframework.sync.util.CloningStrategy;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the clones made by the {@link CloningStrategy} it wraps.
+ */
+final class TimedCloningStrategy implements CloningStrategy {
+
+  private final CloningStrategy delegate;
+
+  private final Timer timer;
+
+  TimedCloningStrategy(CloningStrategy delegate, Timer timer) {
+    this.delegate = delegate;
+    this.timer = timer;
+  }
+
+  @Override
+  public <T extends Serializable> T deepClone(T original) {
+    long start = System.nanoTime();
+    try {
+      return delegate.deepClone(original);
+    } finally {
+      timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public <T extends Serializable> List<T> deepClone(List<T> original) {
+    long start = System.nanoTime();
+    try {
+      return delegate.deepClone(original);
+    } finally {
+      timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.shadowstore.Shadow;
+import org.springframework.shadowstore.ShadowStore;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the operations of the {@link ShadowStore} it wraps. {@code getShadows} and {@code replaceShadow} are delegated
+ * as a whole, so that the store keeps reading several shadows in one go and replacing a shadow atomically.
+ */
+final class TimedShadowStore implements ShadowStore {
+
+  private final ShadowStore delegate;
+
+  private final Timers timers;
+
+  TimedShadowStore(ShadowStore delegate, Timers timers) {
+    this.delegate = delegate;
+    this.timers = timers;
+  }
+
+  @Override
+  public void putShadow(String key, Shadow<?> shadow) {
+    long start = System.nanoTime();
+    try {
+      delegate.putShadow(key, shadow);
+    } finally {
+      timers.put.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public Shadow<?> getShadow(String key) {
+    long start = System.nanoTime();
+    try {
+      return delegate.getShadow(key);
+    } finally {
+      timers.get.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public Map<String, Shadow<?>> getShadows(Collection<String> keys) {
+    long start = System.nanoTime();
+    try {
+      return delegate.getShadows(keys);
+    } finally {
+      timers.getAll.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public boolean replaceShadow(String key, Shadow<?> expected, Shadow<?> shadow, String backupKey,
+      Shadow<?> backupShadow) {
+    long start = System.nanoTime();
+    try {
+      return delegate.replaceShadow(key, expected, shadow, backupKey, backupShadow);
+    } finally {
+      timers.replace.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * The timers of one shadow store implementation.
+   */
+  static final class Timers {
+
+    private final Timer get;
+
+    private final Timer getAll;
+
+    private final Timer put;
+
+    private final Timer replace;
+
+    Timers(MeterRegistry registry, String store) {
+      this.get = timer(registry, store, "get");
+      this.getAll = timer(registry, store, "getAll");
+      this.put = timer(registry, store, "put");
+      this.replace = timer(registry, store, "replace");
+    }
+
+    private static Timer timer(MeterRegistry registry, String store, String operation) {
+      return Timer.builder("spring.sync.shadowstore")
+          .description("Shadow store operations")
+          .tag("store", store)
+          .tag("operation", operation)
+          .register(registry);
+    }
+
+  }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Micrometer bindings for the metrics of Differential Synchronization.
+ */
+package org.springframework.sync.diffsync.metrics;
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.sync.data.jpa.JpaRepositoryDiffSyncConfigurer;
+import org.springframework.sync.diffsync.PersistenceCallbackRegistry;
+import org.springframework.sync.diffsync.SyncMetrics;
+import org.springframework.sync.diffsync.metrics.MicrometerSyncMetrics;
+import org.springframwork.sync.config.DiffSyncConfigurer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpringSyncAutoConfigurationTest {
+
+  private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+      .withConfiguration(AutoConfigurations.of(SpringSyncAutoConfiguration.class))
+      .withUserConfiguration(NoCallbacksConfiguration.class);
+
+  @Test
+  void jpaRepositories_areNotExposedUnlessEnabled() {
+    contextRunner.run(context -> {
+      assertEquals(0, context.getBeanNamesForType(JpaRepositoryDiffSyncConfigurer.class).length);
+      assertNull(context.getBean(PersistenceCallbackRegistry.class).findPersistenceCallback("todos"));
+    });
+  }
+
+  @Test
+  void jpaRepositories_areNotExposedUnlessNamed() {
+    contextRunner.withPropertyValues("spring.diffsync.jpa.enabled=true").run(context -> {
+      assertEquals(1, context.getBeanNamesForType(JpaRepositoryDiffSyncConfigurer.class).length);
+      assertNull(context.getBean(PersistenceCallbackRegistry.class).findPersistenceCallback("todos"));
+    });
+  }
+
+  @Test
+  void syncMetrics_areRecordedToTheMeterRegistry() {
+    contextRunner.withBean(MeterRegistry.class, SimpleMeterRegistry::new).run(context ->
+        assertTrue(context.getBean(SyncMetrics.class) instanceof MicrometerSyncMetrics));
+  }
+
+  @Test
+  void syncMetrics_areNotDefinedWithoutAMeterRegistry() {
+    contextRunner.run(context -> assertEquals(0, context.getBeanNamesForType(SyncMetrics.class).length));
+  }
+
+  @Test
+  void enableDifferentialSynchronization_seesTheBeansOfTheApplication() {
+    new ApplicationContextRunner()
+        .withUserConfiguration(EnabledConfiguration.class, MeterRegistryConfiguration.class)
+        .run(context -> assertTrue(context.getBean(SyncMetrics.class) instanceof MicrometerSyncMetrics));
+  }
+
+  @Configuration
+  @EnableDifferentialSynchronization
+  static class EnabledConfiguration extends NoCallbacksConfiguration {
+
+  }
+
+  @Configuration
+  static class MeterRegistryConfiguration {
+
+    @Bean
+    MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+    }
+
+  }
+
+  @Configuration
+  static class NoCallbacksConfiguration {
+
+    @Bean
+    DiffSyncConfigurer noCallbacks() {
+      return registry -> {
+      };
+    }
+
+  }
+
+}
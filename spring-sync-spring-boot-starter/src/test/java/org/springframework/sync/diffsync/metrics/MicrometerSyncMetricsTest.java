@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.sync.Patch;
+import org.springframework.sync.diffsync.SyncPhase;
+import org.springframework.sync.operations.AddOperation;
+import org.springframework.sync.operations.ReplaceOperation;
+import org.springframework.sync.util.CloningStrategy;
+import org.springframework.sync.util.FieldCopyingCloningStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MicrometerSyncMetricsTest {
+
+  private final MeterRegistry registry = new SimpleMeterRegistry();
+
+  private final MicrometerSyncMetrics metrics = new MicrometerSyncMetrics(registry);
+
+  @Test
+  void phase_recordsATimerPerResourceAndPhase() {
+    metrics.phase("todos", SyncPhase.LOAD, 2_000_000);
+    metrics.phase("todos", SyncPhase.LOAD, 4_000_000);
+    metrics.phase("todos", SyncPhase.DIFF, 1_000_000);
+    metrics.phase(null, SyncPhase.PERSIST, 1_000_000);
+
+    assertEquals(2, phaseTimer("todos", "load").count());
+    assertEquals(6.0, phaseTimer("todos", "load").totalTime(TimeUnit.MILLISECONDS));
+    assertEquals(1, phaseTimer("todos", "diff").count());
+    assertEquals(0, phaseTimer("todos", "apply").count());
+    assertEquals(1, phaseTimer("none", "persist").count());
+  }
+
+  @Test
+  void patchReceived_countsOperationsByType() {
+    metrics.patchReceived("todos", new Patch(List.of(new ReplaceOperation("/0/description", "A"),
+        new ReplaceOperation("/1/description", "B"), new AddOperation("/2", "C"))));
+    metrics.patchReceived("todos", new Patch(List.of(new AddOperation("/3", "D"))));
+
+    assertEquals(2, registry.get("spring.sync.patch.operations").tag("resource", "todos").summary().count());
+    assertEquals(4.0, registry.get("spring.sync.patch.operations").tag("resource", "todos").summary().totalAmount());
+    assertEquals(2.0, operationCount("replace"));
+    assertEquals(2.0, operationCount("add"));
+  }
+
+  @Test
+  void shadowLookupsAndDroppedPatches_areCountedPerEntity() {
+    metrics.shadowHit(String.class);
+    metrics.shadowHit(String.class);
+    metrics.shadowMiss(String.class);
+    metrics.backupRestored(String.class);
+    metrics.patchDropped(String.class);
+    metrics.shadowMiss(Long.class);
+
+    assertEquals(2.0, shadowCount("String", "hit"));
+    assertEquals(1.0, shadowCount("String", "miss"));
+    assertEquals(1.0, shadowCount("String", "backup"));
+    assertEquals(1.0, shadowCount("Long", "miss"));
+    assertEquals(0.0, shadowCount("Long", "hit"));
+    assertEquals(1.0, registry.get("spring.sync.patch.dropped").tag("entity", "String").counter().count());
+  }
+
+  @Test
+  void instrumentedCloningStrategy_timesClones() {
+    CloningStrategy cloningStrategy = metrics.instrument(new FieldCopyingCloningStrategy());
+
+    assertEquals("A", cloningStrategy.deepClone("A"));
+    assertEquals(List.of("A", "B"), cloningStrategy.deepClone(new ArrayList<>(List.of("A", "B"))));
+
+    assertEquals(2, registry.get("spring.sync.clone").timer().count());
+  }
+
+  // private helpers
+
+  private Timer phaseTimer(String resource, String phase) {
+    return registry.get("spring.sync.phase").tag("resource", resource).tag("phase", phase).timer();
+  }
+
+  private double operationCount(String op) {
+    return registry.get("spring.sync.operations").tag("resource", "todos").tag("op", op).counter().count();
+  }
+
+  private double shadowCount(String entity, String result) {
+    return registry.get("spring.sync.shadow").tag("entity", entity).tag("result", result).counter().count();
+  }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.shadowstore.ConcurrentShadowStore;
+import org.springframework.shadowstore.Shadow;
+import org.springframework.shadowstore.ShadowStore;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TimedShadowStoreTest {
+
+  private final MeterRegistry registry = new SimpleMeterRegistry();
+
+  private final CountingShadowStore delegate = new CountingShadowStore();
+
+  private final ShadowStore store = new MicrometerSyncMetrics(registry).instrument(delegate);
+
+  @Test
+  void getShadows_readsAllShadowsFromTheDelegateInOneCall() {
+    Shadow<String> shadow = new Shadow<>("A", 0, 0);
+    store.putShadow("shadow/String/1", shadow);
+
+    Map<String, Shadow<?>> shadows = store.getShadows(List.of("shadow/String/1", "shadow/String/2"));
+
+    assertEquals(Map.of("shadow/String/1", shadow), shadows);
+    assertEquals(1, delegate.batchReads);
+    assertEquals(0, delegate.reads);
+    assertEquals(1, timerCount("getAll"));
+  }
+
+  @Test
+  void timesEachOperation() {
+    Shadow<String> shadow = new Shadow<>("A", 0, 0);
+    store.putShadow("shadow/String/1", shadow);
+    store.getShadow("shadow/String/1");
+    store.replaceShadow("shadow/String/1", shadow, new Shadow<>("B", 1, 0), "shadow/String/1_backup", null);
+
+    assertEquals(1, timerCount("put"));
+    assertEquals(1, timerCount("get"));
+    assertEquals(1, timerCount("replace"));
+    assertEquals("B", delegate.getShadow("shadow/String/1").getResource());
+  }
+
+  // private helpers
+
+  private long timerCount(String operation) {
+    return registry.get("spring.sync.shadowstore")
+        .tag("store", CountingShadowStore.class.getSimpleName())
+        .tag("operation", operation)
+        .timer()
+        .count();
+  }
+
+  private static class CountingShadowStore extends ConcurrentShadowStore {
+
+    private int reads;
+
+    private int batchReads;
+
+    CountingShadowStore() {
+      super("node");
+    }
+
+    @Override
+    public Shadow<?> getShadow(String key) {
+      reads++;
+      return super.getShadow(key);
+    }
+
+    @Override
+    public Map<String, Shadow<?>> getShadows(Collection<String> keys) {
+      batchReads++;
+      Map<String, Shadow<?>> shadows = new HashMap<>();
+      for (String key : keys) {
+        Shadow<?> shadow = super.getShadow(key);
+        if (shadow != null) {
+          shadows.put(key, shadow);
+        }
+      }
+      return shadows;
+    }
+
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.web;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.sync.DiffSyncService;
+import org.springframework.sync.Patch;
+import org.springframework.sync.PatchException;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import javax.servlet.http.HttpSession;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * <p>Variant of {@link DiffSyncController} that hands the synchronization work over to an {@link Executor} and frees
+ * the servlet container thread until the difference patch is ready, using Servlet async processing. Given an executor
+ * of {@link DiffSyncExecutors#newSyncExecutor(int) virtual threads}, many clients can be kept in sync at once without a
+ * large pool of container threads.</p>
+ *
+ * <p>Not a component, so that it is not picked up alongside {@link DiffSyncController}, which maps the same paths;
+ * register it through {@link AsyncDiffSyncWebConfiguration} instead. Each request runs in a transaction of its own on
+ * the executor thread.</p>
+ */
+@ResponseBody
+@RequestMapping
+@RequiredArgsConstructor
+public class AsyncDiffSyncController {
+
+  private final DiffSyncService diffSyncService;
+
+  private final Executor executor;
+
+  private final TransactionOperations transactionOperations;
+
+  @PatchMapping(value = "${spring.diffsync.path:}/{resource}")
+  public CompletableFuture<Patch> patch(@PathVariable("resource") String resource, @RequestBody Patch patch,
+      HttpSession session) {
+    String shadowStoreId = session.getId();
+    return supplyAsync(() -> diffSyncService.patch(resource, patch, shadowStoreId));
+  }
+
+  @PatchMapping(value = "${spring.diffsync.path:}/{resource}/{id}")
+  public CompletableFuture<Patch> patch(@PathVariable("resource") String resource, @PathVariable("id") String id,
+      @RequestBody Patch patch, HttpSession session) {
+    String shadowStoreId = session.getId();
+    return supplyAsync(() -> diffSyncService.patch(resource, id, shadowStoreId, patch));
+  }
+
+  @ExceptionHandler(PatchException.class)
+  @ResponseStatus(value = HttpStatus.CONFLICT, reason = "Unable to apply patch")
+  public void handlePatchException(PatchException e) {
+  }
+
+  // private helpers
+
+  private CompletableFuture<Patch> supplyAsync(Supplier<Patch> sync) {
+    return CompletableFuture.supplyAsync(() -> transactionOperations.execute(status -> sync.get()), executor);
+  }
+
+}
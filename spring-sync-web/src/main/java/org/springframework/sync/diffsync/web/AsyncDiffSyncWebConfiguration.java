@@ -0,0 +1,54 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.web;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.sync.DiffSyncService;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opt-in configuration registering an {@link AsyncDiffSyncController}, to be imported instead of scanning
+ * {@link DiffSyncController}. Synchronization work runs on virtual threads where the JVM supports them, otherwise on
+ * a pool of {@code spring.diffsync.async.platform-threads} platform threads (200 by default), in transactions of the
+ * {@link PlatformTransactionManager} bean if there is one.
+ */
+@Configuration
+public class AsyncDiffSyncWebConfiguration {
+
+  @Bean(destroyMethod = "shutdown")
+  public ExecutorService diffSyncExecutor(@Value("${spring.diffsync.async.platform-threads:200}") int platformThreads) {
+    return DiffSyncExecutors.newSyncExecutor(platformThreads);
+  }
+
+  @Bean
+  public AsyncDiffSyncController asyncDiffSyncController(DiffSyncService diffSyncService,
+      @Qualifier("diffSyncExecutor") ExecutorService diffSyncExecutor, ObjectProvider<PlatformTransactionManager> transactionManager) {
+    PlatformTransactionManager manager = transactionManager.getIfAvailable();
+    TransactionOperations transactionOperations = manager != null
+        ? new TransactionTemplate(manager)
+        : TransactionOperations.withoutTransaction();
+    return new AsyncDiffSyncController(diffSyncService, diffSyncExecutor, transactionOperations);
+  }
+
+}
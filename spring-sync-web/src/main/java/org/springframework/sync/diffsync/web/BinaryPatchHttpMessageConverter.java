@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.web;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.sync.Patch;
+import org.springframework.sync.diffsync.SyncMetrics;
+import org.springframework.sync.diffsync.SyncPhase;
+import org.springframework.sync.json.BinaryPatchCodec;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * {@link HttpMessageConverter} that converts "application/vnd.spring-sync.patch+smile" payloads to/from {@link Patch}
+ * objects through a {@link BinaryPatchCodec}. Clients opt in with the Content-Type and Accept headers of their
+ * requests; "application/json-patch+json" remains the format of the others.
+ */
+public class BinaryPatchHttpMessageConverter extends AbstractHttpMessageConverter<Patch> {
+
+  public static final MediaType BINARY_PATCH = new MediaType("application", "vnd.spring-sync.patch+smile");
+
+  private final BinaryPatchCodec binaryPatchCodec;
+
+  private final SyncMetrics metrics;
+
+  public BinaryPatchHttpMessageConverter() {
+    this(SyncMetrics.NONE);
+  }
+
+  /**
+   * @param metrics told how long writing outgoing patches takes, as the {@link SyncPhase#SERIALIZE} phase
+   */
+  public BinaryPatchHttpMessageConverter(SyncMetrics metrics) {
+    this(new BinaryPatchCodec(), metrics);
+  }
+
+  /**
+   * @param binaryPatchCodec the codec, whose path dictionary the clients share
+   * @param metrics          told how long writing outgoing patches takes, as the {@link SyncPhase#SERIALIZE} phase
+   */
+  public BinaryPatchHttpMessageConverter(BinaryPatchCodec binaryPatchCodec, SyncMetrics metrics) {
+    setSupportedMediaTypes(Collections.singletonList(BINARY_PATCH));
+    this.binaryPatchCodec = binaryPatchCodec;
+    this.metrics = metrics;
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return Patch.class.isAssignableFrom(clazz);
+  }
+
+  @Override
+  protected Patch readInternal(Class<? extends Patch> clazz, HttpInputMessage inputMessage)
+      throws IOException, HttpMessageNotReadableException {
+    return binaryPatchCodec.read(inputMessage.getBody());
+  }
+
+  @Override
+  protected void writeInternal(Patch patch, HttpOutputMessage outputMessage)
+      throws IOException, HttpMessageNotWritableException {
+    outputMessage.getHeaders().setContentType(BINARY_PATCH);
+    long start = System.nanoTime();
+    binaryPatchCodec.write(patch, outputMessage.getBody());
+    metrics.phase(null, SyncPhase.SERIALIZE, System.nanoTime() - start);
+  }
+
+}
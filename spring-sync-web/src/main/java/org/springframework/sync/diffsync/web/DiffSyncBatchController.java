@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.web;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.sync.DiffSyncBatch;
+import org.springframework.sync.DiffSyncService;
+import org.springframework.sync.Patch;
+import org.springframework.sync.PatchException;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import javax.servlet.http.HttpSession;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * <p>Synchronizes several resources of a client in a single PATCH request to {@code <spring.diffsync.path>/_batch},
+ * whose body is a {@link PatchBatch}. The answer holds the difference patch of each resource, or why it could not be
+ * synchronized: one resource failing does not fail the others.</p>
+ *
+ * <p>The shadows of the batch are read from the shadow store in one go. The resources are then synchronized
+ * concurrently on the given executor, each in a transaction of its own. Not a component; registered by
+ * {@link DiffSyncBatchConfiguration}, which is opt-in.</p>
+ */
+@ResponseBody
+@RequestMapping
+@RequiredArgsConstructor
+public class DiffSyncBatchController {
+
+  private final DiffSyncService diffSyncService;
+
+  private final Executor executor;
+
+  private final TransactionOperations transactionOperations;
+
+  @PatchMapping(value = "${spring.diffsync.path:}/_batch")
+  public CompletableFuture<PatchBatch> patch(@RequestBody PatchBatch batch, HttpSession session) {
+    DiffSyncBatch sync = diffSyncService.batch(session.getId(), batch.getPatches().keySet());
+    Map<String, CompletableFuture<Patch>> results = new LinkedHashMap<>();
+    batch.getPatches().forEach((key, patch) -> results.put(key, CompletableFuture.supplyAsync(
+        () -> transactionOperations.execute(status -> sync.patch(key, patch)), executor)));
+    return CompletableFuture.allOf(results.values().toArray(new CompletableFuture<?>[0]))
+        .handle((ignored, e) -> collect(results));
+  }
+
+  // private helpers
+
+  private static PatchBatch collect(Map<String, CompletableFuture<Patch>> results) {
+    Map<String, Patch> patches = new LinkedHashMap<>();
+    Map<String, String> errors = new LinkedHashMap<>();
+    results.forEach((key, result) -> {
+      try {
+        Patch patch = result.join();
+        if (patch != null) {
+          patches.put(key, patch);
+        } else {
+          errors.put(key, "Not found");
+        }
+      } catch (CompletionException e) {
+        errors.put(key, describe(e.getCause()));
+      }
+    });
+    return new PatchBatch(patches, errors);
+  }
+
+  private static String describe(Throwable failure) {
+    if (failure instanceof PatchException) {
+      return "Unable to apply patch";
+    }
+    if (failure instanceof IllegalArgumentException) {
+      return "Unknown resource";
+    }
+    return "Unable to synchronize";
+  }
+
+}
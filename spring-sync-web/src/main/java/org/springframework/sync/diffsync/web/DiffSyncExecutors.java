@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.web;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the executors that synchronization work runs on.
+ */
+public final class DiffSyncExecutors {
+
+  private DiffSyncExecutors() {
+  }
+
+  /**
+   * Creates an executor starting a virtual thread per task when the JVM supports them, so that waiting on the database
+   * or the shadow store ties up no platform thread. On older JVMs, falls back to a fixed pool of platform threads.
+   *
+   * @param platformThreads the number of threads of the fallback pool
+   * @return the executor, to be shut down by the caller
+   */
+  public static ExecutorService newSyncExecutor(int platformThreads) {
+    MethodHandle virtualThreadExecutor;
+    try {
+      virtualThreadExecutor = MethodHandles.publicLookup().findStatic(Executors.class,
+          "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      return newPlatformThreadExecutor("diffsync-", platformThreads);
+    }
+    try {
+      return (ExecutorService) virtualThreadExecutor.invokeExact();
+    } catch (UnsupportedOperationException e) {
+      // virtual threads are a preview feature that is not enabled
+      return newPlatformThreadExecutor("diffsync-", platformThreads);
+    } catch (Throwable e) {
+      throw new IllegalStateException("Unable to create a virtual thread executor", e);
+    }
+  }
+
+  /**
+   * Creates the executor that {@link DiffSyncBatchController} synchronizes the resources of batches on: a fixed pool,
+   * so that large batches cannot flood the database or the shadow store with concurrent work.
+   *
+   * @param threads the number of threads of the pool
+   * @return the executor, to be shut down by the caller
+   */
+  public static ExecutorService newBatchExecutor(int threads) {
+    return newPlatformThreadExecutor("diffsync-batch-", threads);
+  }
+
+  /**
+   * Creates the executor that {@link DiffSyncPublisher} pushes changes on: a fixed pool with a bounded queue. Once the
+   * queue is full, the thread scheduling the pushes runs them itself, which holds back the pushes of later changes
+   * rather than dropping any.
+   *
+   * @param threads       the number of threads of the pool, which bounds the diffs computed at once
+   * @param queueCapacity the number of pushes that may wait for a thread
+   * @return the executor, to be shut down by the caller
+   */
+  public static ExecutorService newPushExecutor(int threads, int queueCapacity) {
+    return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(queueCapacity), newThreadFactory("diffsync-push-"),
+        new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
+  // private helpers
+
+  private static ExecutorService newPlatformThreadExecutor(String namePrefix, int threads) {
+    return Executors.newFixedThreadPool(threads, newThreadFactory(namePrefix));
+  }
+
+  private static ThreadFactory newThreadFactory(String namePrefix) {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, namePrefix + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+}
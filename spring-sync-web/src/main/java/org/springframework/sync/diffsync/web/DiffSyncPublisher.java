@@ -0,0 +1,235 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.web;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.MediaType;
+import org.springframework.sync.DiffSyncService;
+import org.springframework.sync.Patch;
+import org.springframework.sync.PatchException;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Pushes the changes made to resources on the server side to the clients that subscribed to them, instead of
+ * waiting for the clients to poll for them. Nothing tells it about changes by itself: the application calls
+ * {@link #changed(String, Object)} or {@link #changed(String)} wherever entities are saved or deleted, e.g. from an
+ * {@code EntityChangeListener} added to the {@code EntityChangeLog} of the JPA support, mapping the entity type to its
+ * resource name.</p>
+ *
+ * <p>Changes to a resource are coalesced over a window: the first change schedules a push once the window has passed,
+ * and the changes made until then are pushed along with it. A push runs {@link DiffSyncService#diff(String, String)}
+ * for each subscribed client and sends the difference patch, if any, as a {@code patch} event holding a one-resource
+ * {@link PatchBatch}. A push that races with a request from the client is skipped, as the answer to the request
+ * carries the changes.</p>
+ *
+ * <p>The subscriptions are pushed to in parallel on the given executor, which bounds the diffs computed at once, so
+ * that a slow resource does not hold up the others. The pushes to one subscription never overlap: the changes made
+ * while one is running are pushed once it is done.</p>
+ *
+ * <p>Subscriptions are kept in memory, so that this class is the broker for a single server. Behind several servers,
+ * relay the changes to every server, e.g. through a message broker, and call {@link #changed(String, Object)} on
+ * each.</p>
+ */
+public class DiffSyncPublisher implements DisposableBean {
+
+  private final DiffSyncService diffSyncService;
+
+  private final TransactionOperations transactionOperations;
+
+  private final long windowMillis;
+
+  private final Executor pushExecutor;
+
+  private final ScheduledExecutorService scheduler;
+
+  private final Map<String, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+  private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+  /**
+   * @param diffSyncService       produces the difference patches
+   * @param transactionOperations the transactions that the patches are produced in
+   * @param windowMillis          how long to wait after a change for more changes to push along with it
+   * @param pushExecutor          runs the pushes, e.g. one made by {@link DiffSyncExecutors#newPushExecutor(int, int)}
+   */
+  public DiffSyncPublisher(DiffSyncService diffSyncService, TransactionOperations transactionOperations,
+      long windowMillis, Executor pushExecutor) {
+    this.diffSyncService = diffSyncService;
+    this.transactionOperations = transactionOperations;
+    this.windowMillis = windowMillis;
+    this.pushExecutor = pushExecutor;
+    // only waits out the windows, the pushes run on the push executor
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "diffsync-push-scheduler");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Subscribes a client to the changes of a resource.
+   *
+   * @param key           a resource name, for the list of its entities, or a resource name and an entity id separated
+   *                      by a slash
+   * @param shadowStoreId the id of the client
+   * @param timeoutMillis how long the subscription lasts, after which the client has to subscribe again
+   * @return the emitter to answer the subscription request with
+   */
+  public SseEmitter subscribe(String key, String shadowStoreId, long timeoutMillis) {
+    return subscribe(key, shadowStoreId, new SseEmitter(timeoutMillis));
+  }
+
+  SseEmitter subscribe(String key, String shadowStoreId, SseEmitter emitter) {
+    Subscription subscription = new Subscription(key, shadowStoreId, emitter);
+    subscriptions.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(subscription);
+    emitter.onCompletion(() -> unsubscribe(subscription));
+    emitter.onTimeout(() -> unsubscribe(subscription));
+    emitter.onError(e -> unsubscribe(subscription));
+    return emitter;
+  }
+
+  /**
+   * Tells that an entity was saved or deleted, which changes both the entity and the list of the resource.
+   *
+   * @param resource the name of the resource
+   * @param id       the id of the entity
+   */
+  public void changed(String resource, Object id) {
+    schedule(resource + "/" + id);
+    schedule(resource);
+  }
+
+  /**
+   * Tells that the list of a resource changed.
+   *
+   * @param resource the name of the resource
+   */
+  public void changed(String resource) {
+    schedule(resource);
+  }
+
+  @Override
+  public void destroy() {
+    scheduler.shutdownNow();
+    subscriptions.values().forEach(subscribed -> subscribed.forEach(subscription -> subscription.emitter.complete()));
+  }
+
+  // private helpers
+
+  private void schedule(String key) {
+    if (subscriptions.containsKey(key) && pending.add(key)) {
+      scheduler.schedule(() -> push(key), windowMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void push(String key) {
+    // changes made from now on schedule another push
+    pending.remove(key);
+    Set<Subscription> subscribed = subscriptions.get(key);
+    if (subscribed != null) {
+      subscribed.forEach(this::requestPush);
+    }
+  }
+
+  private void requestPush(Subscription subscription) {
+    if (subscription.requests.getAndIncrement() != 0) {
+      // the running push picks the request up
+      return;
+    }
+    try {
+      pushExecutor.execute(() -> drain(subscription));
+    } catch (RejectedExecutionException e) {
+      // shutting down
+      subscription.requests.set(0);
+    }
+  }
+
+  private void drain(Subscription subscription) {
+    int requests = subscription.requests.get();
+    do {
+      push(subscription);
+      requests = subscription.requests.addAndGet(-requests);
+    } while (requests != 0);
+  }
+
+  private void push(Subscription subscription) {
+    Patch diff;
+    try {
+      diff = transactionOperations.execute(status -> diffSyncService.diff(subscription.key,
+          subscription.shadowStoreId));
+    } catch (PatchException e) {
+      return;
+    } catch (RuntimeException e) {
+      // e.g. the resource is unknown; the subscription can't be served
+      subscription.emitter.completeWithError(e);
+      unsubscribe(subscription);
+      return;
+    }
+    if (diff == null || diff.size() == 0) {
+      return;
+    }
+    try {
+      subscription.emitter.send(SseEmitter.event()
+          .name("patch")
+          .data(new PatchBatch(Map.of(subscription.key, diff)), MediaType.APPLICATION_JSON));
+    } catch (IOException | IllegalStateException e) {
+      // the client is gone; if it comes back, its shadow is rolled back to the last version it got, as long as it is
+      // still kept in the history of the shadow
+      unsubscribe(subscription);
+    }
+  }
+
+  private void unsubscribe(Subscription subscription) {
+    subscriptions.computeIfPresent(subscription.key, (key, subscribed) -> {
+      subscribed.remove(subscription);
+      return subscribed.isEmpty() ? null : subscribed;
+    });
+  }
+
+  private static final class Subscription {
+
+    private final String key;
+
+    private final String shadowStoreId;
+
+    private final SseEmitter emitter;
+
+    /**
+     * The pushes requested and not yet made, one of them running when not zero.
+     */
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private Subscription(String key, String shadowStoreId, SseEmitter emitter) {
+      this.key = key;
+      this.shadowStoreId = shadowStoreId;
+      this.emitter = emitter;
+    }
+
+  }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.web;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.sync.DiffSyncService;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opt-in configuration pushing server-side changes to clients over server-sent events, to be imported alongside
+ * {@link SpringSyncWebConfiguration}. Changes are coalesced over {@code spring.diffsync.push.window-ms} milliseconds
+ * (100 by default) and subscriptions last {@code spring.diffsync.push.timeout-ms} milliseconds (30 minutes by
+ * default). Pushes run on {@code spring.diffsync.push.threads} threads (4 by default), with up to
+ * {@code spring.diffsync.push.queue-capacity} pushes waiting (1000 by default). Tell the {@link DiffSyncPublisher}
+ * bean about the changes to push.
+ */
+@Configuration
+public class DiffSyncPushConfiguration {
+
+  @Bean(destroyMethod = "shutdown")
+  public ExecutorService diffSyncPushExecutor(@Value("${spring.diffsync.push.threads:4}") int threads,
+      @Value("${spring.diffsync.push.queue-capacity:1000}") int queueCapacity) {
+    return DiffSyncExecutors.newPushExecutor(threads, queueCapacity);
+  }
+
+  @Bean
+  public DiffSyncPublisher diffSyncPublisher(DiffSyncService diffSyncService,
+      ObjectProvider<PlatformTransactionManager> transactionManager,
+      @Value("${spring.diffsync.push.window-ms:100}") long windowMillis,
+      @Qualifier("diffSyncPushExecutor") ExecutorService diffSyncPushExecutor) {
+    PlatformTransactionManager manager = transactionManager.getIfAvailable();
+    TransactionOperations transactionOperations = manager != null
+        ? new TransactionTemplate(manager)
+        : TransactionOperations.withoutTransaction();
+    return new DiffSyncPublisher(diffSyncService, transactionOperations, windowMillis, diffSyncPushExecutor);
+  }
+
+  @Bean
+  public DiffSyncPushController diffSyncPushController(DiffSyncPublisher diffSyncPublisher,
+      @Value("${spring.diffsync.push.timeout-ms:1800000}") long timeoutMillis) {
+    return new DiffSyncPushController(diffSyncPublisher, timeoutMillis);
+  }
+
+}
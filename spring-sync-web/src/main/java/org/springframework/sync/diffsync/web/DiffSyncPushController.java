@@ -0,0 +1,54 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.web;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.servlet.http.HttpSession;
+
+/**
+ * Opens the server-sent event streams through which {@link DiffSyncPublisher} pushes difference patches, at
+ * {@code <spring.diffsync.path>/<resource>/events} for the list of a resource and
+ * {@code <spring.diffsync.path>/<resource>/<id>/events} for one entity. Not a component; registered by
+ * {@link DiffSyncPushConfiguration}.
+ */
+@ResponseBody
+@RequestMapping
+@RequiredArgsConstructor
+public class DiffSyncPushController {
+
+  private final DiffSyncPublisher publisher;
+
+  private final long timeoutMillis;
+
+  @GetMapping(value = "${spring.diffsync.path:}/{resource}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter subscribe(@PathVariable("resource") String resource, HttpSession session) {
+    return publisher.subscribe(resource, session.getId(), timeoutMillis);
+  }
+
+  @GetMapping(value = "${spring.diffsync.path:}/{resource}/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter subscribe(@PathVariable("resource") String resource, @PathVariable("id") String id,
+      HttpSession session) {
+    return publisher.subscribe(resource + "/" + id, session.getId(), timeoutMillis);
+  }
+
+}
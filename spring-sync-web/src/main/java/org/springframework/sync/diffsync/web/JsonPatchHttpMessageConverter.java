@@ -15,7 +15,6 @@
  */
 package org.springframework.sync.diffsync.web;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.http.HttpInputMessage;
 import org.springframework.http.HttpOutputMessage;
 import org.springframework.http.MediaType;
@@ -24,13 +23,16 @@ import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.http.converter.HttpMessageNotWritableException;
 import org.springframework.sync.Patch;
-import org.springframework.sync.json.JsonPatchPatchConverter;
+import org.springframework.sync.diffsync.SyncMetrics;
+import org.springframework.sync.diffsync.SyncPhase;
+import org.springframework.sync.json.JsonPatchStreamingCodec;
 
 import java.io.IOException;
 import java.util.Collections;
 
 /**
  * {@link HttpMessageConverter} that converts "application/json-patch+json" payloads to/from {@link Patch} objects.
+ * Payloads are streamed through a {@link JsonPatchStreamingCodec} rather than held as a whole JSON tree.
  *
  * @author Craig Walls
  */
@@ -38,13 +40,21 @@ public class JsonPatchHttpMessageConverter extends AbstractHttpMessageConverter<
 
   private static final MediaType JSON_PATCH = new MediaType("application", "json-patch+json");
 
-  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private final JsonPatchStreamingCodec jsonPatchCodec;
 
-  private final JsonPatchPatchConverter jsonPatchMaker;
+  private final SyncMetrics metrics;
 
   public JsonPatchHttpMessageConverter() {
+    this(SyncMetrics.NONE);
+  }
+
+  /**
+   * @param metrics told how long writing outgoing patches takes, as the {@link SyncPhase#SERIALIZE} phase
+   */
+  public JsonPatchHttpMessageConverter(SyncMetrics metrics) {
     setSupportedMediaTypes(Collections.singletonList(JSON_PATCH));
-    this.jsonPatchMaker = new JsonPatchPatchConverter();
+    this.jsonPatchCodec = new JsonPatchStreamingCodec();
+    this.metrics = metrics;
   }
 
   @Override
@@ -55,14 +65,16 @@ public class JsonPatchHttpMessageConverter extends AbstractHttpMessageConverter<
   @Override
   protected Patch readInternal(Class<? extends Patch> clazz, HttpInputMessage inputMessage)
       throws IOException, HttpMessageNotReadableException {
-    return jsonPatchMaker.convert(MAPPER.readTree(inputMessage.getBody()));
+    return jsonPatchCodec.read(inputMessage.getBody());
   }
 
   @Override
   protected void writeInternal(Patch patch, HttpOutputMessage outputMessage)
       throws IOException, HttpMessageNotWritableException {
     outputMessage.getHeaders().setContentType(JSON_PATCH);
-    MAPPER.writer().writeValue(outputMessage.getBody(), jsonPatchMaker.convert(patch));
+    long start = System.nanoTime();
+    jsonPatchCodec.write(patch, outputMessage.getBody());
+    metrics.phase(null, SyncPhase.SERIALIZE, System.nanoTime() - start);
   }
 
 }
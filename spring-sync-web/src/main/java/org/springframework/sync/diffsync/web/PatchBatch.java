@@ -0,0 +1,54 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.web;
+
+import lombok.Getter;
+import org.springframework.sync.Patch;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>The patches of several resources, sent or answered in a single request to {@link DiffSyncBatchController}, keyed
+ * by resource: the name of a resource for the list of its entities, or the name of a resource and the id of one of its
+ * entities separated by a slash.</p>
+ *
+ * <p>In an answer, the resources that could not be synchronized have an error in place of a patch.</p>
+ *
+ * @see PatchBatchHttpMessageConverter
+ */
+@Getter
+public class PatchBatch {
+
+  private final Map<String, Patch> patches;
+
+  private final Map<String, String> errors;
+
+  public PatchBatch(Map<String, Patch> patches) {
+    this(patches, Collections.emptyMap());
+  }
+
+  /**
+   * @param patches the patches, by resource
+   * @param errors  why the other resources could not be synchronized, by resource
+   */
+  public PatchBatch(Map<String, Patch> patches, Map<String, String> errors) {
+    this.patches = Collections.unmodifiableMap(new LinkedHashMap<>(patches));
+    this.errors = Collections.unmodifiableMap(new LinkedHashMap<>(errors));
+  }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.web;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.sync.Patch;
+import org.springframework.sync.PatchException;
+import org.springframework.sync.diffsync.VersionedPatch;
+import org.springframework.sync.json.JsonPatchStreamingCodec;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Reads and writes {@link PatchBatch}es as JSON objects keyed by resource. Each value is either a JSON Patch
+ * array, or an object holding the versions of the patch and its operations:</p>
+ *
+ * <pre>
+ * {
+ *   "todos/2": { "serverVersion": 1, "clientVersion": 3, "patch": [ { "op": "replace", ... } ] },
+ *   "todos": [ { "op": "remove", "path": "/0" } ]
+ * }
+ * </pre>
+ *
+ * <p>Answers use the object form for {@link VersionedPatch}es, and an object with an {@code "error"} field for the
+ * resources that could not be synchronized. Patches are streamed through a {@link JsonPatchStreamingCodec}.</p>
+ *
+ * <p>Must be registered before any general purpose JSON converter, which would otherwise claim batches.</p>
+ */
+public class PatchBatchHttpMessageConverter extends AbstractHttpMessageConverter<PatchBatch> {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final JsonPatchStreamingCodec jsonPatchCodec = new JsonPatchStreamingCodec(MAPPER);
+
+  public PatchBatchHttpMessageConverter() {
+    setSupportedMediaTypes(Collections.singletonList(MediaType.APPLICATION_JSON));
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return PatchBatch.class.isAssignableFrom(clazz);
+  }
+
+  @Override
+  protected PatchBatch readInternal(Class<? extends PatchBatch> clazz, HttpInputMessage inputMessage)
+      throws IOException, HttpMessageNotReadableException {
+    try (JsonParser parser = MAPPER.getFactory().createParser(inputMessage.getBody())) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new HttpMessageNotReadableException("A patch batch must be an object", inputMessage);
+      }
+      Map<String, Patch> patches = new LinkedHashMap<>();
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String key = parser.getCurrentName();
+        parser.nextToken();
+        patches.put(key, readPatch(parser, inputMessage));
+      }
+      return new PatchBatch(patches);
+    } catch (JsonProcessingException e) {
+      // malformed or truncated
+      throw new HttpMessageNotReadableException("Malformed patch batch: " + e.getOriginalMessage(), e, inputMessage);
+    } catch (PatchException | IllegalArgumentException e) {
+      throw new HttpMessageNotReadableException(e.getMessage(), e, inputMessage);
+    }
+  }
+
+  @Override
+  protected void writeInternal(PatchBatch batch, HttpOutputMessage outputMessage)
+      throws IOException, HttpMessageNotWritableException {
+    outputMessage.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+    try (JsonGenerator generator = MAPPER.getFactory().createGenerator(outputMessage.getBody())) {
+      generator.writeStartObject();
+      for (Map.Entry<String, Patch> entry : batch.getPatches().entrySet()) {
+        generator.writeFieldName(entry.getKey());
+        writePatch(entry.getValue(), generator);
+      }
+      for (Map.Entry<String, String> entry : batch.getErrors().entrySet()) {
+        generator.writeObjectFieldStart(entry.getKey());
+        generator.writeStringField("error", entry.getValue());
+        generator.writeEndObject();
+      }
+      generator.writeEndObject();
+    }
+  }
+
+  // private helpers
+
+  private Patch readPatch(JsonParser parser, HttpInputMessage inputMessage) throws IOException {
+    if (parser.currentToken() == JsonToken.START_ARRAY) {
+      return jsonPatchCodec.readCurrent(parser);
+    }
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      throw new HttpMessageNotReadableException("Patches of a batch must be arrays or objects", inputMessage);
+    }
+    Long serverVersion = null;
+    Long clientVersion = null;
+    Patch patch = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      switch (field) {
+      case "serverVersion":
+        serverVersion = parser.getLongValue();
+        break;
+      case "clientVersion":
+        clientVersion = parser.getLongValue();
+        break;
+      case "patch":
+        patch = jsonPatchCodec.readCurrent(parser);
+        break;
+      default:
+        parser.skipChildren();
+      }
+    }
+    if (patch == null) {
+      throw new HttpMessageNotReadableException("Patches of a batch must have a 'patch' field", inputMessage);
+    }
+    if (serverVersion == null || clientVersion == null) {
+      return patch;
+    }
+    return new VersionedPatch(patch.getOperations(), serverVersion, clientVersion);
+  }
+
+  private void writePatch(Patch patch, JsonGenerator generator) throws IOException {
+    if (!(patch instanceof VersionedPatch)) {
+      jsonPatchCodec.write(patch, generator);
+      return;
+    }
+    VersionedPatch versionedPatch = (VersionedPatch) patch;
+    generator.writeStartObject();
+    generator.writeNumberField("serverVersion", versionedPatch.getServerVersion());
+    generator.writeNumberField("clientVersion", versionedPatch.getClientVersion());
+    generator.writeFieldName("patch");
+    jsonPatchCodec.write(patch, generator);
+    generator.writeEndObject();
+  }
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.web;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.shadowstore.ShadowStoreFactory;
+
+import javax.servlet.http.HttpSessionEvent;
+import javax.servlet.http.HttpSessionListener;
+
+/**
+ * Drops the shadow store of a client when its HTTP session ends, as {@link DiffSyncController} keys shadow stores by
+ * session id.
+ */
+@RequiredArgsConstructor
+public class ShadowStoreEvictingSessionListener implements HttpSessionListener {
+
+  private final ShadowStoreFactory shadowStoreFactory;
+
+  @Override
+  public void sessionDestroyed(HttpSessionEvent se) {
+    shadowStoreFactory.evict(se.getSession().getId());
+  }
+
+}
@@ -1,8 +1,14 @@
 package org.springframework.sync.diffsync.web;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.shadowstore.ShadowStoreFactory;
+import org.springframework.sync.diffsync.SyncMetrics;
+import org.springframework.sync.json.BinaryPatchCodec;
+import org.springframework.sync.json.PathDictionary;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.util.List;
@@ -10,9 +16,28 @@ import java.util.List;
 @Configuration
 public class SpringSyncWebConfiguration implements WebMvcConfigurer {
 
+  private final ObjectProvider<SyncMetrics> syncMetrics;
+
+  private final ObjectProvider<PathDictionary> pathDictionary;
+
+  public SpringSyncWebConfiguration(ObjectProvider<SyncMetrics> syncMetrics,
+      ObjectProvider<PathDictionary> pathDictionary) {
+    this.syncMetrics = syncMetrics;
+    this.pathDictionary = pathDictionary;
+  }
+
   @Override
   public void configureMessageConverters(List<HttpMessageConverter<?>> messageConverters) {
+    messageConverters.add(new PatchBatchHttpMessageConverter());
     messageConverters.add(new MappingJackson2HttpMessageConverter());
-    messageConverters.add(new JsonPatchHttpMessageConverter());
+    SyncMetrics metrics = syncMetrics.getIfAvailable(() -> SyncMetrics.NONE);
+    messageConverters.add(new JsonPatchHttpMessageConverter(metrics));
+    messageConverters.add(new BinaryPatchHttpMessageConverter(
+        new BinaryPatchCodec(pathDictionary.getIfAvailable(() -> PathDictionary.EMPTY)), metrics));
+  }
+
+  @Bean
+  public ShadowStoreEvictingSessionListener shadowStoreEvictingSessionListener(ShadowStoreFactory shadowStoreFactory) {
+    return new ShadowStoreEvictingSessionListener(shadowStoreFactory);
   }
 }
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.web;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.shadowstore.MapBasedShadowStore;
+import org.springframework.shadowstore.ShadowStoreFactory;
+import org.springframework.sync.DiffSyncService;
+import org.springframework.sync.Todo;
+import org.springframework.sync.diffsync.IdPropertyEquivalency;
+import org.springframework.sync.diffsync.PersistenceCallback;
+import org.springframework.sync.diffsync.PersistenceCallbackRegistry;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+class AsyncDiffSyncControllerTest {
+
+  private static final MediaType JSON_PATCH = new MediaType("application", "json-patch+json");
+
+  private final TodoCallback todos = new TodoCallback();
+
+  private final ExecutorService executor = DiffSyncExecutors.newSyncExecutor(2);
+
+  private final MockMvc mvc = mockMvc();
+
+  @AfterEach
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void patchEntity_isSynchronizedOnTheExecutor() throws Exception {
+    perform("/todos/2", "[{\"op\": \"replace\", \"path\": \"/complete\", \"value\": true}]")
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(JSON_PATCH))
+        .andExpect(content().string("[]"));
+
+    assertTrue(todos.store.get(2L).isComplete());
+    assertNotEquals(Thread.currentThread(), todos.persistedOn.get(2L));
+  }
+
+  @Test
+  void patchList_isSynchronizedOnTheExecutor() throws Exception {
+    perform("/todos", "[{\"op\": \"remove\", \"path\": \"/1\"}]")
+        .andExpect(status().isOk())
+        .andExpect(content().string("[]"));
+
+    assertEquals(List.of(1L, 3L), new ArrayList<>(todos.store.keySet()));
+  }
+
+  @Test
+  void failingPatch_isConflict() throws Exception {
+    perform("/todos/2", "[{\"op\": \"test\", \"path\": \"/complete\", \"value\": true},"
+        + " {\"op\": \"replace\", \"path\": \"/description\", \"value\": \"BBB\"}]")
+        .andExpect(status().isConflict());
+
+    assertEquals("B", todos.store.get(2L).getDescription());
+  }
+
+  // private helpers
+
+  /**
+   * Performs a request, checks that it went async, and dispatches its result.
+   */
+  private ResultActions perform(String path, String patch) throws Exception {
+    MvcResult result = mvc.perform(
+            patch(path)
+                .content(patch)
+                .accept(JSON_PATCH)
+                .contentType(JSON_PATCH))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    return mvc.perform(asyncDispatch(result));
+  }
+
+  private MockMvc mockMvc() {
+    PersistenceCallbackRegistry callbackRegistry = new PersistenceCallbackRegistry();
+    callbackRegistry.addPersistenceCallback(todos);
+    AsyncDiffSyncController controller = new AsyncDiffSyncController(
+        new DiffSyncService(new ShadowStoreFactory(MapBasedShadowStore::new), new IdPropertyEquivalency(),
+            callbackRegistry),
+        executor, TransactionOperations.withoutTransaction());
+    return standaloneSetup(controller)
+        .setMessageConverters(new JsonPatchHttpMessageConverter())
+        .build();
+  }
+
+  /**
+   * Keeps todos in memory, along with the thread each of them was last saved on.
+   */
+  private static class TodoCallback implements PersistenceCallback<Todo> {
+
+    private final Map<Long, Todo> store = new ConcurrentSkipListMap<>();
+
+    private final Map<Long, Thread> persistedOn = new ConcurrentHashMap<>();
+
+    TodoCallback() {
+      store.put(1L, new Todo(1L, "A", false));
+      store.put(2L, new Todo(2L, "B", false));
+      store.put(3L, new Todo(3L, "C", false));
+    }
+
+    @Override
+    public List<Todo> findAll() {
+      return new ArrayList<>(store.values());
+    }
+
+    @Override
+    public Todo findOne(String id) {
+      return store.get(Long.valueOf(id));
+    }
+
+    @Override
+    public void persistChange(Todo itemToSave) {
+      store.put(itemToSave.getId(), itemToSave);
+      persistedOn.put(itemToSave.getId(), Thread.currentThread());
+    }
+
+    @Override
+    public void persistChanges(List<Todo> itemsToSave, List<Todo> itemsToDelete) {
+      itemsToSave.forEach(this::persistChange);
+      itemsToDelete.forEach(item -> store.remove(item.getId()));
+    }
+
+    @Override
+    public Class<Todo> getEntityType() {
+      return Todo.class;
+    }
+
+  }
+
+}
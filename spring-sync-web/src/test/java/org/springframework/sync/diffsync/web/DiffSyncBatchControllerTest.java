@@ -0,0 +1,120 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.shadowstore.MapBasedShadowStore;
+import org.springframework.shadowstore.ShadowStoreFactory;
+import org.springframework.sync.DiffSyncService;
+import org.springframework.sync.Todo;
+import org.springframework.sync.TodoRepository;
+import org.springframework.sync.diffsync.EmbeddedDataSourceConfig;
+import org.springframework.sync.diffsync.IdPropertyEquivalency;
+import org.springframework.sync.diffsync.PersistenceCallbackRegistry;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+@Transactional
+@SpringBootTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = EmbeddedDataSourceConfig.class)
+class DiffSyncBatchControllerTest {
+
+  @Autowired
+  private TodoRepository repository;
+
+  @Test
+  void failingResourcesDoNotFailTheOthers() throws Exception {
+    MockMvc mvc = mockMvc();
+
+    MvcResult result = mvc.perform(
+            patch("/_batch")
+                .content("{"
+                    + "\"todos/2\": [{\"op\": \"test\", \"path\": \"/complete\", \"value\": false},"
+                    + " {\"op\": \"replace\", \"path\": \"/complete\", \"value\": true}],"
+                    + "\"todos/1\": [{\"op\": \"test\", \"path\": \"/complete\", \"value\": true},"
+                    + " {\"op\": \"replace\", \"path\": \"/description\", \"value\": \"AAA\"}],"
+                    + "\"todos/99\": [],"
+                    + "\"items\": []"
+                    + "}")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+        .andExpect(jsonPath("$['todos/2'].serverVersion").exists())
+        .andExpect(jsonPath("$['todos/2'].patch").isEmpty())
+        .andExpect(jsonPath("$['todos/1'].error").value("Unable to apply patch"))
+        .andExpect(jsonPath("$['todos/99'].error").value("Not found"))
+        .andExpect(jsonPath("$.items.error").value("Unknown resource"));
+
+    List<Todo> all = (List<Todo>) repository.findAll();
+    assertEquals(3, all.size());
+    assertEquals(new Todo(1L, "A", false), all.get(0));
+    assertEquals(new Todo(2L, "B", true), all.get(1));
+    assertEquals(new Todo(3L, "C", false), all.get(2));
+  }
+
+  @Test
+  void malformedBatchIsBadRequest() throws Exception {
+    mockMvc().perform(
+            patch("/_batch")
+                .content("{\"todos/2\": [{\"op\": \"replace\"")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isBadRequest());
+  }
+
+  //
+  // private helpers
+  //
+
+  private MockMvc mockMvc() {
+    PersistenceCallbackRegistry callbackRegistry = new PersistenceCallbackRegistry();
+    callbackRegistry.addPersistenceCallback(new JpaPersistenceCallback<>(repository, Todo.class));
+
+    DiffSyncService diffSyncService = new DiffSyncService(new ShadowStoreFactory(MapBasedShadowStore::new),
+        new IdPropertyEquivalency(), callbackRegistry);
+    // synchronizes the resources on the request thread, in the transaction of the test
+    DiffSyncBatchController controller = new DiffSyncBatchController(diffSyncService, Runnable::run,
+        TransactionOperations.withoutTransaction());
+    return standaloneSetup(controller)
+        .setMessageConverters(new PatchBatchHttpMessageConverter())
+        .build();
+  }
+
+}
@@ -26,18 +26,24 @@ import org.springframework.shadowstore.MapBasedShadowStore;
 import org.springframework.shadowstore.ShadowStore;
 import org.springframework.shadowstore.ShadowStoreFactory;
 import org.springframework.sync.DiffSyncService;
+import org.springframework.sync.Patch;
 import org.springframework.sync.Todo;
 import org.springframework.sync.TodoRepository;
 import org.springframework.sync.diffsync.EmbeddedDataSourceConfig;
 import org.springframework.sync.diffsync.IdPropertyEquivalency;
 import org.springframework.sync.diffsync.PersistenceCallbackRegistry;
+import org.springframework.sync.json.BinaryPatchCodec;
+import org.springframework.sync.json.JsonPatchStreamingCodec;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -324,6 +330,28 @@ class DiffSyncControllerTest {
     assertEquals(all.get(1), new Todo(3L, "C", false));
   }
 
+  @Test
+  void patchNegotiatesBinaryFormat() throws Exception {
+    MockMvc mvc = mockMvc();
+    Patch patch = new JsonPatchStreamingCodec().read(
+        new ByteArrayInputStream(resource("patch-change-single-status").getBytes(StandardCharsets.UTF_8)));
+    ByteArrayOutputStream binary = new ByteArrayOutputStream();
+    new BinaryPatchCodec().write(patch, binary);
+
+    byte[] response = mvc.perform(
+            patch(RESOURCE_PATH)
+                .content(binary.toByteArray())
+                .accept(BinaryPatchHttpMessageConverter.BINARY_PATCH)
+                .contentType(BinaryPatchHttpMessageConverter.BINARY_PATCH))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(BinaryPatchHttpMessageConverter.BINARY_PATCH))
+        .andReturn().getResponse().getContentAsByteArray();
+
+    assertEquals(0, new BinaryPatchCodec().read(new ByteArrayInputStream(response)).size());
+    List<Todo> all = (List<Todo>) repository.findAll();
+    assertEquals(all.get(1), new Todo(2L, "B", true));
+  }
+
   //
   // server-side changes
   //
@@ -407,10 +435,10 @@ class DiffSyncControllerTest {
     callbackRegistry.addPersistenceCallback(new JpaPersistenceCallback<>(repository, Todo.class));
 
     DiffSyncController controller = new DiffSyncController(
-        new DiffSyncService(new ShadowStoreFactory(MapBasedShadowStore.class), new IdPropertyEquivalency(),
+        new DiffSyncService(new ShadowStoreFactory(MapBasedShadowStore::new), new IdPropertyEquivalency(),
             callbackRegistry));
     return standaloneSetup(controller)
-        .setMessageConverters(new JsonPatchHttpMessageConverter())
+        .setMessageConverters(new JsonPatchHttpMessageConverter(), new BinaryPatchHttpMessageConverter())
         .build();
   }
 
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.web;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class DiffSyncExecutorsTest {
+
+  @Test
+  void syncExecutor_fallsBackToPlatformThreadsWithoutVirtualThreads() throws Exception {
+    assumeTrue(Runtime.version().feature() < 19, "virtual threads may be available");
+    ExecutorService executor = DiffSyncExecutors.newSyncExecutor(200);
+    try {
+      assertEquals(200, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+      Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+      assertEquals("diffsync-1", thread.getName());
+      assertTrue(thread.isDaemon());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void syncExecutor_startsVirtualThreadsWhereSupported() throws Exception {
+    assumeTrue(Runtime.version().feature() >= 21, "virtual threads are not final before Java 21");
+    ExecutorService executor = DiffSyncExecutors.newSyncExecutor(200);
+    try {
+      assertFalse(executor instanceof ThreadPoolExecutor);
+      Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+      assertEquals(Boolean.TRUE, Thread.class.getMethod("isVirtual").invoke(thread));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void batchExecutor_isAFixedPool() throws Exception {
+    ExecutorService executor = DiffSyncExecutors.newBatchExecutor(3);
+    try {
+      assertEquals(3, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+      Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+      assertEquals("diffsync-batch-1", thread.getName());
+      assertTrue(thread.isDaemon());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void pushExecutor_runsPushesOnTheCallerOnceTheQueueIsFull() throws Exception {
+    ExecutorService executor = DiffSyncExecutors.newPushExecutor(1, 1);
+    CountDownLatch running = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    try {
+      executor.execute(() -> {
+        running.countDown();
+        await(release);
+      });
+      assertTrue(running.await(5, TimeUnit.SECONDS));
+      // queued behind the running push
+      executor.execute(() -> {
+      });
+
+      Thread[] ranOn = new Thread[1];
+      executor.execute(() -> ranOn[0] = Thread.currentThread());
+
+      assertSame(Thread.currentThread(), ranOn[0]);
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  // private helpers
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.web;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.shadowstore.MapBasedShadowStore;
+import org.springframework.shadowstore.ShadowStoreFactory;
+import org.springframework.sync.DiffSyncService;
+import org.springframework.sync.PatchException;
+import org.springframework.sync.diffsync.IdPropertyEquivalency;
+import org.springframework.sync.diffsync.PersistenceCallbackRegistry;
+import org.springframework.sync.diffsync.VersionedPatch;
+import org.springframework.sync.operations.ReplaceOperation;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiffSyncPublisherTest {
+
+  private static final long WINDOW = 50;
+
+  private final StubDiffSyncService service = new StubDiffSyncService();
+
+  private final ExecutorService pushExecutor = Executors.newFixedThreadPool(2);
+
+  private final DiffSyncPublisher publisher = new DiffSyncPublisher(service, TransactionOperations.withoutTransaction(),
+      WINDOW, pushExecutor);
+
+  @AfterEach
+  void shutdown() {
+    publisher.destroy();
+    pushExecutor.shutdownNow();
+  }
+
+  //
+  // coalescing
+  //
+
+  @Test
+  void changesWithinAWindow_arePushedOnce() throws Exception {
+    RecordingEmitter emitter = subscribe("todos", "node");
+
+    publisher.changed("todos");
+    publisher.changed("todos");
+    publisher.changed("todos");
+
+    PatchBatch event = emitter.nextEvent();
+    assertNotNull(event);
+    assertEquals(1, event.getPatches().get("todos").size());
+    assertNull(emitter.noEvent());
+    assertEquals(1, service.diffs("node"));
+  }
+
+  @Test
+  void changesInLaterWindows_arePushedAgain() throws Exception {
+    RecordingEmitter emitter = subscribe("todos", "node");
+
+    publisher.changed("todos");
+    assertNotNull(emitter.nextEvent());
+    publisher.changed("todos");
+    assertNotNull(emitter.nextEvent());
+
+    assertEquals(2, service.diffs("node"));
+  }
+
+  @Test
+  void entityChange_isPushedToTheEntityAndTheList() throws Exception {
+    RecordingEmitter entity = subscribe("todos/1", "node");
+    RecordingEmitter list = subscribe("todos", "node");
+
+    publisher.changed("todos", 1L);
+
+    assertNotNull(entity.nextEvent().getPatches().get("todos/1"));
+    assertNotNull(list.nextEvent().getPatches().get("todos"));
+  }
+
+  @Test
+  void changesWithoutSubscriptions_areNotDiffed() throws Exception {
+    RecordingEmitter emitter = subscribe("todos", "node");
+
+    publisher.changed("items");
+
+    assertNull(emitter.noEvent());
+    assertEquals(0, service.diffs("node"));
+  }
+
+  @Test
+  void emptyDiff_isNotSent() throws Exception {
+    service.answer = (key, node) -> new VersionedPatch(List.of(), 1, 0);
+    RecordingEmitter emitter = subscribe("todos", "node");
+
+    publisher.changed("todos");
+
+    assertNull(emitter.noEvent());
+    assertEquals(1, service.diffs("node"));
+  }
+
+  //
+  // lifecycle
+  //
+
+  @Test
+  void timeout_unsubscribes() throws Exception {
+    assertUnsubscribedBy(emitter -> emitter.timeoutCallback.run());
+  }
+
+  @Test
+  void completion_unsubscribes() throws Exception {
+    assertUnsubscribedBy(emitter -> emitter.completionCallback.run());
+  }
+
+  @Test
+  void error_unsubscribes() throws Exception {
+    assertUnsubscribedBy(emitter -> emitter.errorCallback.accept(new IOException("broken pipe")));
+  }
+
+  @Test
+  void unsubscribingOneClient_keepsTheOthers() throws Exception {
+    RecordingEmitter gone = subscribe("todos", "gone");
+    RecordingEmitter staying = subscribe("todos", "staying");
+
+    gone.completionCallback.run();
+    publisher.changed("todos");
+
+    assertNotNull(staying.nextEvent());
+    assertNull(gone.noEvent());
+    assertEquals(0, service.diffs("gone"));
+  }
+
+  @Test
+  void destroy_completesTheEmitters() {
+    RecordingEmitter emitter = subscribe("todos", "node");
+
+    publisher.destroy();
+
+    assertTrue(emitter.completed);
+  }
+
+  //
+  // errors
+  //
+
+  @Test
+  void failingDiff_completesWithErrorAndUnsubscribes() throws Exception {
+    IllegalArgumentException failure = new IllegalArgumentException("no callback for todos");
+    service.answer = (key, node) -> {
+      throw failure;
+    };
+    RecordingEmitter emitter = subscribe("todos", "node");
+
+    publisher.changed("todos");
+    assertSame(failure, emitter.error.poll(1, TimeUnit.SECONDS));
+
+    publisher.changed("todos");
+    assertNull(emitter.noEvent());
+    assertEquals(1, service.diffs("node"));
+  }
+
+  @Test
+  void concurrentRequest_skipsThePushAndKeepsTheSubscription() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    service.answer = (key, node) -> {
+      if (calls.getAndIncrement() == 0) {
+        throw new PatchException("shadow replaced by a concurrent request");
+      }
+      return StubDiffSyncService.PATCH;
+    };
+    RecordingEmitter emitter = subscribe("todos", "node");
+
+    publisher.changed("todos");
+    assertNull(emitter.noEvent());
+    publisher.changed("todos");
+
+    assertNotNull(emitter.nextEvent());
+    assertNull(emitter.error.peek());
+  }
+
+  @Test
+  void failingSend_unsubscribes() throws Exception {
+    RecordingEmitter emitter = subscribe("todos", "node");
+    emitter.failSends = true;
+
+    publisher.changed("todos");
+    assertNull(emitter.noEvent());
+    publisher.changed("todos");
+    Thread.sleep(WINDOW * 3);
+
+    assertEquals(1, service.diffs("node"));
+  }
+
+  //
+  // parallelism
+  //
+
+  @Test
+  void slowSubscription_doesNotHoldUpTheOthers() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    service.blockNode("slow", release);
+    RecordingEmitter slow = subscribe("todos", "slow");
+    RecordingEmitter fast = subscribe("todos", "fast");
+
+    publisher.changed("todos");
+
+    try {
+      assertNotNull(fast.nextEvent());
+      assertNull(slow.event.peek());
+    } finally {
+      release.countDown();
+    }
+    assertNotNull(slow.nextEvent());
+  }
+
+  @Test
+  void changesDuringAPush_arePushedOnceItIsDone() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    service.blockNode("node", release);
+    RecordingEmitter emitter = subscribe("todos", "node");
+
+    publisher.changed("todos");
+    assertNotNull(service.started.poll(1, TimeUnit.SECONDS));
+    publisher.changed("todos");
+    Thread.sleep(WINDOW * 2);
+    publisher.changed("todos");
+    Thread.sleep(WINDOW * 2);
+    // both requests wait for the running push rather than diffing alongside it
+    assertEquals(1, service.diffs("node"));
+    release.countDown();
+
+    assertNotNull(emitter.nextEvent());
+    assertNotNull(emitter.nextEvent());
+    assertNull(emitter.noEvent());
+    assertEquals(2, service.diffs("node"));
+  }
+
+  // private helpers
+
+  private RecordingEmitter subscribe(String key, String node) {
+    RecordingEmitter emitter = new RecordingEmitter();
+    publisher.subscribe(key, node, emitter);
+    return emitter;
+  }
+
+  private void assertUnsubscribedBy(Consumer<RecordingEmitter> callback) throws InterruptedException {
+    RecordingEmitter emitter = subscribe("todos", "node");
+
+    callback.accept(emitter);
+    publisher.changed("todos");
+
+    assertNull(emitter.noEvent());
+    assertEquals(0, service.diffs("node"));
+  }
+
+  private static class StubDiffSyncService extends DiffSyncService {
+
+    static final VersionedPatch PATCH = new VersionedPatch(List.of(new ReplaceOperation("/complete", true)), 1, 0);
+
+    volatile DiffAnswer answer = (key, node) -> PATCH;
+
+    final BlockingQueue<String> started = new LinkedBlockingQueue<>();
+
+    private final Map<String, AtomicInteger> diffs = new ConcurrentHashMap<>();
+
+    private final Map<String, CountDownLatch> blocked = new ConcurrentHashMap<>();
+
+    StubDiffSyncService() {
+      super(new ShadowStoreFactory(MapBasedShadowStore::new), new IdPropertyEquivalency(),
+          new PersistenceCallbackRegistry());
+    }
+
+    @Override
+    public VersionedPatch diff(String key, String shadowStoreId) {
+      diffs.computeIfAbsent(shadowStoreId, node -> new AtomicInteger()).incrementAndGet();
+      started.add(shadowStoreId);
+      CountDownLatch release = blocked.get(shadowStoreId);
+      if (release != null) {
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return answer.diff(key, shadowStoreId);
+    }
+
+    void blockNode(String shadowStoreId, CountDownLatch release) {
+      blocked.put(shadowStoreId, release);
+    }
+
+    int diffs(String shadowStoreId) {
+      AtomicInteger count = diffs.get(shadowStoreId);
+      return count == null ? 0 : count.get();
+    }
+
+  }
+
+  @FunctionalInterface
+  private interface DiffAnswer {
+
+    VersionedPatch diff(String key, String shadowStoreId);
+
+  }
+
+  /**
+   * Records what the publisher sends and hands out the callbacks it registers, instead of writing to a response.
+   */
+  private static class RecordingEmitter extends SseEmitter {
+
+    final BlockingQueue<PatchBatch> event = new LinkedBlockingQueue<>();
+
+    final BlockingQueue<Throwable> error = new LinkedBlockingQueue<>();
+
+    volatile boolean failSends;
+
+    volatile boolean completed;
+
+    Runnable completionCallback;
+
+    Runnable timeoutCallback;
+
+    Consumer<Throwable> errorCallback;
+
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+      if (failSends) {
+        throw new IOException("client went away");
+      }
+      for (ResponseBodyEmitter.DataWithMediaType data : builder.build()) {
+        if (data.getData() instanceof PatchBatch) {
+          event.add((PatchBatch) data.getData());
+        }
+      }
+    }
+
+    @Override
+    public void onCompletion(Runnable callback) {
+      completionCallback = callback;
+    }
+
+    @Override
+    public void onTimeout(Runnable callback) {
+      timeoutCallback = callback;
+    }
+
+    @Override
+    public void onError(Consumer<Throwable> callback) {
+      errorCallback = callback;
+    }
+
+    @Override
+    public void complete() {
+      completed = true;
+    }
+
+    @Override
+    public void completeWithError(Throwable ex) {
+      error.add(ex);
+    }
+
+    PatchBatch nextEvent() throws InterruptedException {
+      return event.poll(1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return the event sent within a few windows, expected to be none
+     */
+    PatchBatch noEvent() throws InterruptedException {
+      return event.poll(WINDOW * 3, TimeUnit.MILLISECONDS);
+    }
+
+  }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.sync.Patch;
+import org.springframework.sync.diffsync.VersionedPatch;
+import org.springframework.sync.operations.RemoveOperation;
+import org.springframework.sync.operations.ReplaceOperation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PatchBatchHttpMessageConverterTest {
+
+  private final PatchBatchHttpMessageConverter converter = new PatchBatchHttpMessageConverter();
+
+  //
+  // reading
+  //
+
+  @Test
+  void readsVersionedAndPlainEntries() throws Exception {
+    PatchBatch batch = read("{"
+        + "\"todos/2\": {\"serverVersion\": 1, \"clientVersion\": 3,"
+        + " \"patch\": [{\"op\": \"replace\", \"path\": \"/complete\", \"value\": true}]},"
+        + "\"todos\": [{\"op\": \"remove\", \"path\": \"/0\"}]"
+        + "}");
+
+    assertEquals(List.of("todos/2", "todos"), List.copyOf(batch.getPatches().keySet()));
+    Patch versioned = batch.getPatches().get("todos/2");
+    assertTrue(versioned instanceof VersionedPatch);
+    assertEquals(1, ((VersionedPatch) versioned).getServerVersion());
+    assertEquals(3, ((VersionedPatch) versioned).getClientVersion());
+    assertEquals("replace", versioned.getOperations().get(0).getOp());
+    Patch plain = batch.getPatches().get("todos");
+    assertFalse(plain instanceof VersionedPatch);
+    assertEquals("/0", plain.getOperations().get(0).getPath());
+  }
+
+  @Test
+  void readsEntryWithoutBothVersionsAsPlainPatch() throws Exception {
+    PatchBatch batch = read("{\"todos\": {\"serverVersion\": 1, \"patch\": [], \"comment\": {\"ignored\": [1]}}}");
+
+    Patch patch = batch.getPatches().get("todos");
+    assertFalse(patch instanceof VersionedPatch);
+    assertEquals(0, patch.size());
+  }
+
+  @Test
+  void readsEmptyBatch() throws Exception {
+    assertTrue(read("{}").getPatches().isEmpty());
+  }
+
+  @Test
+  void rejectsBatchThatIsNotAnObject() {
+    assertNotReadable("[]");
+    assertNotReadable("");
+  }
+
+  @Test
+  void rejectsEntryThatIsNeitherArrayNorObject() {
+    assertNotReadable("{\"todos\": 42}");
+  }
+
+  @Test
+  void rejectsEntryWithoutPatch() {
+    assertNotReadable("{\"todos\": {\"serverVersion\": 1, \"clientVersion\": 0}}");
+  }
+
+  @Test
+  void rejectsErrorEntry() {
+    // errors only ever go out in answers
+    assertNotReadable("{\"todos\": {\"error\": \"Unknown resource\"}}");
+  }
+
+  @Test
+  void rejectsMalformedInput() {
+    assertNotReadable("{\"todos\": [{\"op\": \"replace\", \"path\": \"/complete\", \"value\": tru]}");
+    assertNotReadable("{\"todos\": {\"serverVersion\": \"one\", \"clientVersion\": 0, \"patch\": []}}");
+    assertNotReadable("{\"todos\": [42]}");
+  }
+
+  @Test
+  void rejectsTruncatedInput() {
+    assertNotReadable("{\"todos\": [{\"op\": \"remove\", \"path\": \"/0\"}");
+    assertNotReadable("{\"todos\": [{\"op\": \"remove\", \"path\": \"/0\"}]");
+    assertNotReadable("{\"todos/2\": {\"serverVersion\": 1, \"clientVersion\": 3, \"patch\": [");
+  }
+
+  //
+  // writing
+  //
+
+  @Test
+  void writesVersionedPlainAndErrorEntries() throws Exception {
+    Map<String, Patch> patches = new LinkedHashMap<>();
+    patches.put("todos/2", new VersionedPatch(List.of(new ReplaceOperation("/complete", true)), 1, 3));
+    patches.put("todos", new Patch(List.of(new RemoveOperation("/0"))));
+
+    String json = write(new PatchBatch(patches, Map.of("items", "Unknown resource")));
+
+    assertEquals("{"
+        + "\"todos/2\":{\"serverVersion\":1,\"clientVersion\":3,"
+        + "\"patch\":[{\"op\":\"replace\",\"path\":\"/complete\",\"value\":true}]},"
+        + "\"todos\":[{\"op\":\"remove\",\"path\":\"/0\"}],"
+        + "\"items\":{\"error\":\"Unknown resource\"}"
+        + "}", json);
+  }
+
+  @Test
+  void writtenPatchesReadBack() throws Exception {
+    Map<String, Patch> patches = new LinkedHashMap<>();
+    patches.put("todos/2", new VersionedPatch(List.of(new ReplaceOperation("/complete", true)), 1, 3));
+    patches.put("todos", new Patch(List.of(new RemoveOperation("/0"))));
+
+    PatchBatch batch = read(write(new PatchBatch(patches)));
+
+    VersionedPatch versioned = (VersionedPatch) batch.getPatches().get("todos/2");
+    assertEquals(1, versioned.getServerVersion());
+    assertEquals(3, versioned.getClientVersion());
+    assertEquals(1, batch.getPatches().get("todos").size());
+  }
+
+  // private helpers
+
+  private PatchBatch read(String json) throws IOException {
+    return converter.read(PatchBatch.class, new MockHttpInputMessage(json.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private String write(PatchBatch batch) throws IOException {
+    MockHttpOutputMessage output = new MockHttpOutputMessage();
+    converter.write(batch, MediaType.APPLICATION_JSON, output);
+    return output.getBodyAsString(StandardCharsets.UTF_8);
+  }
+
+  private void assertNotReadable(String json) {
+    assertThrows(HttpMessageNotReadableException.class, () -> read(json));
+  }
+
+}
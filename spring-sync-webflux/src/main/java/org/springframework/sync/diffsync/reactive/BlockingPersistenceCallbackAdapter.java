@@ -0,0 +1,82 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.reactive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.sync.diffsync.PersistenceCallback;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+/**
+ * Exposes a blocking {@link PersistenceCallback} as a {@link ReactivePersistenceCallback}, running its calls on a
+ * {@link Scheduler} meant for blocking work so that they never hold up an event loop thread.
+ *
+ * <p>Each call runs on its own; callbacks relying on a transaction spanning the whole request, as the MVC controller
+ * offers, should demarcate transactions themselves.</p>
+ *
+ * @param <T> The entity type
+ */
+@RequiredArgsConstructor
+public class BlockingPersistenceCallbackAdapter<T> implements ReactivePersistenceCallback<T> {
+
+  private final PersistenceCallback<T> persistenceCallback;
+
+  private final Scheduler scheduler;
+
+  /**
+   * Runs the calls of the callback on {@link Schedulers#boundedElastic()}.
+   *
+   * @param persistenceCallback the blocking callback to adapt
+   */
+  public BlockingPersistenceCallbackAdapter(PersistenceCallback<T> persistenceCallback) {
+    this(persistenceCallback, Schedulers.boundedElastic());
+  }
+
+  @Override
+  public Flux<T> findAll() {
+    return Mono.fromCallable(persistenceCallback::findAll)
+        .subscribeOn(scheduler)
+        .flatMapIterable(items -> items);
+  }
+
+  @Override
+  public Mono<T> findOne(String id) {
+    return Mono.fromCallable(() -> persistenceCallback.findOne(id))
+        .subscribeOn(scheduler);
+  }
+
+  @Override
+  public Mono<Void> persistChange(T itemToSave) {
+    return Mono.<Void>fromRunnable(() -> persistenceCallback.persistChange(itemToSave))
+        .subscribeOn(scheduler);
+  }
+
+  @Override
+  public Mono<Void> persistChanges(List<T> itemsToSave, List<T> itemsToDelete) {
+    return Mono.<Void>fromRunnable(() -> persistenceCallback.persistChanges(itemsToSave, itemsToDelete))
+        .subscribeOn(scheduler);
+  }
+
+  @Override
+  public Class<T> getEntityType() {
+    return persistenceCallback.getEntityType();
+  }
+
+}
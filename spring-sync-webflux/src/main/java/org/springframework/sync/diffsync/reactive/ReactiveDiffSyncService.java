@@ -0,0 +1,157 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.reactive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.shadowstore.ShadowStoreFactory;
+import org.springframework.sync.CompiledDiffEngine;
+import org.springframework.sync.DiffEngine;
+import org.springframework.sync.DiffSyncService;
+import org.springframework.sync.Patch;
+import org.springframework.sync.diffsync.DiffSync;
+import org.springframework.sync.diffsync.Equivalency;
+import org.springframework.sync.diffsync.ListChanges;
+import org.springframework.sync.diffsync.VersionedPatch;
+import org.springframework.sync.util.CloningStrategy;
+import org.springframework.sync.util.DeepCloneUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.Serializable;
+
+/**
+ * <p>Non-blocking counterpart of {@link DiffSyncService}: applies a patch to a resource and its shadow, persists the
+ * result and answers with the difference patch, without ever blocking the calling thread.</p>
+ *
+ * <p>Patching and diffing are plain computations and run as {@link DiffSync} does for the blocking service. Only the
+ * I/O is reactive: the shadows a step needs are fetched from the {@link ReactiveShadowStore} up front, and the replaced
+ * shadows are written back, conditionally, once the step is done.</p>
+ */
+@RequiredArgsConstructor
+public class ReactiveDiffSyncService {
+
+  private final ReactiveShadowStoreFactory shadowStoreFactory;
+
+  private final Equivalency equivalency;
+
+  private final ReactivePersistenceCallbackRegistry callbackRegistry;
+
+  private final DiffEngine diffEngine;
+
+  private final CloningStrategy cloningStrategy;
+
+  /**
+   * Constructs a service keeping shadows in the in-memory stores of a {@link ShadowStoreFactory}.
+   *
+   * @param shadowStoreFactory the factory of in-memory stores, called on the calling thread
+   * @param equivalency        tells which entities represent the same resource
+   * @param callbackRegistry   the registry to look up persistence callbacks in
+   */
+  public ReactiveDiffSyncService(ShadowStoreFactory shadowStoreFactory, Equivalency equivalency,
+      ReactivePersistenceCallbackRegistry callbackRegistry) {
+    this(ReactiveShadowStoreFactory.of(shadowStoreFactory, Schedulers.immediate()), equivalency, callbackRegistry,
+        new CompiledDiffEngine(null, false, DiffSync.DEFAULT_DIFF_OPTIONS), DeepCloneUtils.getDefaultStrategy());
+  }
+
+  /**
+   * Applies a patch to a single entity.
+   *
+   * @param resource      the name of the resource, as registered in the {@link ReactivePersistenceCallbackRegistry}
+   * @param resourceId    the id of the entity
+   * @param shadowStoreId the unique id of the remote node
+   * @param patch         the patch sent by the remote node
+   * @return the difference patch to send back, or an empty {@link Mono} if there is no such entity
+   */
+  public Mono<Patch> patch(String resource, String resourceId, String shadowStoreId, Patch patch) {
+    return Mono.defer(() -> applyAndDiff(patch, resourceId, findPersistenceCallback(resource), shadowStoreId));
+  }
+
+  /**
+   * Applies a patch to the list of all entities of a resource.
+   *
+   * @param resource      the name of the resource, as registered in the {@link ReactivePersistenceCallbackRegistry}
+   * @param patch         the patch sent by the remote node
+   * @param shadowStoreId the unique id of the remote node
+   * @return the difference patch to send back
+   */
+  public Mono<Patch> patch(String resource, Patch patch, String shadowStoreId) {
+    return Mono.defer(() -> applyAndDiffAgainstList(patch, findPersistenceCallback(resource), shadowStoreId));
+  }
+
+  // private helpers
+
+  private <T extends Serializable> Mono<Patch> applyAndDiff(Patch patch, String resourceId,
+      ReactivePersistenceCallback<T> persistenceCallback, String shadowStoreId) {
+    ReactiveShadowStore shadowStore = shadowStoreFactory.getShadowStore(shadowStoreId);
+    StagedShadowStore stagedShadowStore = new StagedShadowStore();
+    DiffSync<T> sync = new DiffSync<>(stagedShadowStore, persistenceCallback.getEntityType(), diffEngine,
+        cloningStrategy, equivalency);
+
+    return persistenceCallback.findOne(resourceId)
+        .flatMap(target -> load(stagedShadowStore, shadowStore, sync, sync.shadowKeyOf(target), patch)
+            .then(Mono.fromCallable(() -> sync.apply(patch, target))))
+        // the shadow is replaced before persisting, as the blocking service does, so that a conflict persists nothing
+        .flatMap(patched -> stagedShadowStore.flush(shadowStore)
+            .then(Mono.defer(() -> persistenceCallback.persistChange(patched)))
+            // persisting may change the identity of a new entity
+            .then(Mono.defer(() -> stagedShadowStore.load(shadowStore, sync.shadowKeyOf(patched))))
+            .then(Mono.<Patch>fromCallable(() -> sync.diff(patched))))
+        .flatMap(diff -> stagedShadowStore.flush(shadowStore).thenReturn(diff));
+  }
+
+  private <T extends Serializable> Mono<Patch> applyAndDiffAgainstList(Patch patch,
+      ReactivePersistenceCallback<T> persistenceCallback, String shadowStoreId) {
+    ReactiveShadowStore shadowStore = shadowStoreFactory.getShadowStore(shadowStoreId);
+    StagedShadowStore stagedShadowStore = new StagedShadowStore();
+    DiffSync<T> sync = new DiffSync<>(stagedShadowStore, persistenceCallback.getEntityType(), diffEngine,
+        cloningStrategy, equivalency);
+
+    return persistenceCallback.findAll()
+        .collectList()
+        .flatMap(target -> load(stagedShadowStore, shadowStore, sync, sync.listShadowKey(), patch)
+            .then(Mono.fromCallable(() -> sync.apply(patch, target)))
+            .flatMap(patched -> {
+              ListChanges<T> changes = ListChanges.between(target, patched, equivalency);
+              return stagedShadowStore.flush(shadowStore)
+                  .then(Mono.defer(() -> persistenceCallback.persistChanges(changes.getItemsToSave(),
+                      changes.getItemsToDelete())))
+                  .then(Mono.<Patch>fromCallable(() -> sync.diff(patched)));
+            }))
+        .flatMap(diff -> stagedShadowStore.flush(shadowStore).thenReturn(diff));
+  }
+
+  /**
+   * Loads a shadow along with the version that the patch was based on, should the node have missed the difference
+   * patches since.
+   */
+  private static Mono<Void> load(StagedShadowStore stagedShadowStore, ReactiveShadowStore shadowStore,
+      DiffSync<?> sync, String shadowKey, Patch patch) {
+    String historyKey = patch instanceof VersionedPatch
+        ? sync.historyKeyOf(shadowKey, ((VersionedPatch) patch).getServerVersion())
+        : null;
+    return stagedShadowStore.load(shadowStore, shadowKey, historyKey);
+  }
+
+  private ReactivePersistenceCallback<? extends Serializable> findPersistenceCallback(String resource) {
+    ReactivePersistenceCallback<? extends Serializable> persistenceCallback =
+        callbackRegistry.findPersistenceCallback(resource);
+    if (persistenceCallback == null) {
+      throw new IllegalArgumentException("No persistence callback registered for resource " + resource);
+    }
+    return persistenceCallback;
+  }
+
+}
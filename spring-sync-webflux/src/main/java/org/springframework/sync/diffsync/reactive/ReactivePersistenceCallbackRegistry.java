@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.reactive;
+
+import org.springframework.sync.diffsync.IPersistenceCallbackRegistry;
+import org.springframework.sync.diffsync.PersistenceCallback;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry for looking up {@link ReactivePersistenceCallback}s by resource name.
+ *
+ * <p>Resources without a reactive callback fall back to the blocking {@link PersistenceCallback} registered for them in
+ * the given {@link IPersistenceCallbackRegistry}, if any, adapted with a {@link BlockingPersistenceCallbackAdapter}. This
+ * lets an application move its resources to reactive persistence one at a time.</p>
+ */
+public class ReactivePersistenceCallbackRegistry {
+
+  private final Map<String, ReactivePersistenceCallback<? extends Serializable>> persistenceCallbacks =
+      new ConcurrentHashMap<>();
+
+  private final IPersistenceCallbackRegistry blockingCallbackRegistry;
+
+  private final Scheduler blockingScheduler;
+
+  /**
+   * Constructs a registry holding reactive callbacks only.
+   */
+  public ReactivePersistenceCallbackRegistry() {
+    this(null, Schedulers.boundedElastic());
+  }
+
+  /**
+   * @param blockingCallbackRegistry the registry to look up blocking callbacks in, run on
+   *                                 {@link Schedulers#boundedElastic()}
+   */
+  public ReactivePersistenceCallbackRegistry(IPersistenceCallbackRegistry blockingCallbackRegistry) {
+    this(blockingCallbackRegistry, Schedulers.boundedElastic());
+  }
+
+  /**
+   * @param blockingCallbackRegistry the registry to look up blocking callbacks in, or null for none
+   * @param blockingScheduler        the scheduler to run blocking callbacks on
+   */
+  public ReactivePersistenceCallbackRegistry(IPersistenceCallbackRegistry blockingCallbackRegistry,
+      Scheduler blockingScheduler) {
+    this.blockingCallbackRegistry = blockingCallbackRegistry;
+    this.blockingScheduler = blockingScheduler;
+  }
+
+  /**
+   * Adds a {@link ReactivePersistenceCallback} to the registry with a key that is pluralized by the pluralize() method.
+   *
+   * @param persistenceCallback the {@link ReactivePersistenceCallback} to add to the registry.
+   */
+  public void addPersistenceCallback(ReactivePersistenceCallback<? extends Serializable> persistenceCallback) {
+    Class<?> entityType = persistenceCallback.getEntityType();
+    persistenceCallbacks.put(pluralize(entityType.getSimpleName()), persistenceCallback);
+  }
+
+  /**
+   * Looks up a {@link ReactivePersistenceCallback} from the registry, falling back to the blocking callback registered
+   * under the same key.
+   *
+   * @param key the key that the callback has been registered under.
+   * @return the {@link ReactivePersistenceCallback}, or null if there is none
+   */
+  public ReactivePersistenceCallback<? extends Serializable> findPersistenceCallback(String key) {
+    ReactivePersistenceCallback<? extends Serializable> persistenceCallback = persistenceCallbacks.get(key);
+    if (persistenceCallback != null || blockingCallbackRegistry == null) {
+      return persistenceCallback;
+    }
+    PersistenceCallback<? extends Serializable> blockingCallback =
+        blockingCallbackRegistry.findPersistenceCallback(key);
+    if (blockingCallback == null) {
+      return null;
+    }
+    return persistenceCallbacks.computeIfAbsent(key, k -> adapt(blockingCallback));
+  }
+
+  /**
+   * Pluralizes an entity's type name. Default implementation is to naively add an 's' to the end of the given String.
+   * Override to implement a more elegant pluralization technique.
+   *
+   * @param entityTypeName the entity type name to be pluralized.
+   * @return the pluralized type name.
+   */
+  protected String pluralize(String entityTypeName) {
+    return entityTypeName.toLowerCase() + "s";
+  }
+
+  // private helpers
+
+  private <T extends Serializable> ReactivePersistenceCallback<T> adapt(PersistenceCallback<T> blockingCallback) {
+    return new BlockingPersistenceCallbackAdapter<>(blockingCallback, blockingScheduler);
+  }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.reactive;
+
+import org.springframework.shadowstore.Shadow;
+import org.springframework.shadowstore.ShadowStore;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Non-blocking counterpart of {@link ShadowStore}, holding the shadows of one remote node.
+ */
+public interface ReactiveShadowStore {
+
+  /**
+   * Retrieves a shadow copy.
+   *
+   * @param key the key that the shadow is stored under
+   * @return the shadow copy, or an empty {@link Mono} if there is none
+   */
+  Mono<Shadow<?>> getShadow(String key);
+
+  /**
+   * Retrieves several shadow copies. The default implementation retrieves them one after the other; stores that can
+   * fetch several keys in a single round trip should override it.
+   *
+   * @param keys the keys that the shadows are stored under
+   * @return the shadow copies found, by key
+   */
+  default Mono<Map<String, Shadow<?>>> getShadows(Collection<String> keys) {
+    return Flux.fromIterable(keys)
+        .concatMap(key -> getShadow(key).map(shadow -> Map.entry(key, shadow)))
+        .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+  }
+
+  /**
+   * Stores a shadow copy.
+   *
+   * @param key    the key to store the shadow under
+   * @param shadow the shadow copy
+   * @return completes once the shadow is stored
+   */
+  Mono<Void> putShadow(String key, Shadow<?> shadow);
+
+  /**
+   * Replaces a shadow copy and stores its backup, provided that the shadow currently stored is still the expected one.
+   * See {@link ShadowStore#replaceShadow(String, Shadow, Shadow, String, Shadow)}.
+   *
+   * @param key          the key that the shadow is stored under
+   * @param expected     the shadow copy that the new shadow was derived from, or null if there was none
+   * @param shadow       the new shadow copy
+   * @param backupKey    the key to store the backup shadow under, or null if there is no backup shadow
+   * @param backupShadow the new backup shadow copy, or null to leave the backup shadow as is
+   * @return true if the shadow was replaced, false if the shadow stored was not the expected one
+   */
+  Mono<Boolean> replaceShadow(String key, Shadow<?> expected, Shadow<?> shadow, String backupKey,
+      Shadow<?> backupShadow);
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.reactive;
+
+import org.springframework.shadowstore.ShadowStoreFactory;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Looks up the {@link ReactiveShadowStore} of a remote node.
+ */
+@FunctionalInterface
+public interface ReactiveShadowStoreFactory {
+
+  /**
+   * @param id the unique id of the remote node
+   * @return the {@link ReactiveShadowStore} of the node
+   */
+  ReactiveShadowStore getShadowStore(String id);
+
+  /**
+   * Adapts the stores of a {@link ShadowStoreFactory} with a {@link ShadowStoreAdapter}.
+   *
+   * @param shadowStoreFactory the factory of the stores to adapt
+   * @param scheduler          the scheduler to call the stores on
+   * @return a factory of the adapted stores
+   */
+  static ReactiveShadowStoreFactory of(ShadowStoreFactory shadowStoreFactory, Scheduler scheduler) {
+    return id -> new ShadowStoreAdapter(shadowStoreFactory.getShadowStore(id), scheduler);
+  }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.reactive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.shadowstore.Shadow;
+import org.springframework.shadowstore.ShadowStore;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Exposes a {@link ShadowStore} as a {@link ReactiveShadowStore}.
+ *
+ * <p>In-memory stores never block and can be called on the calling thread, with {@link Schedulers#immediate()}. Stores
+ * that do I/O, such as the Redis store, should be given a scheduler meant for blocking work, like
+ * {@link Schedulers#boundedElastic()}.</p>
+ */
+@RequiredArgsConstructor
+public class ShadowStoreAdapter implements ReactiveShadowStore {
+
+  private final ShadowStore shadowStore;
+
+  private final Scheduler scheduler;
+
+  /**
+   * Calls the store on the calling thread, which suits in-memory stores.
+   *
+   * @param shadowStore the store to adapt
+   */
+  public ShadowStoreAdapter(ShadowStore shadowStore) {
+    this(shadowStore, Schedulers.immediate());
+  }
+
+  @Override
+  public Mono<Shadow<?>> getShadow(String key) {
+    return Mono.<Shadow<?>>fromCallable(() -> shadowStore.getShadow(key))
+        .subscribeOn(scheduler);
+  }
+
+  @Override
+  public Mono<Map<String, Shadow<?>>> getShadows(Collection<String> keys) {
+    return Mono.<Map<String, Shadow<?>>>fromCallable(() -> {
+      Map<String, Shadow<?>> shadows = new HashMap<>();
+      for (String key : keys) {
+        Shadow<?> shadow = shadowStore.getShadow(key);
+        if (shadow != null) {
+          shadows.put(key, shadow);
+        }
+      }
+      return shadows;
+    }).subscribeOn(scheduler);
+  }
+
+  @Override
+  public Mono<Void> putShadow(String key, Shadow<?> shadow) {
+    return Mono.<Void>fromRunnable(() -> shadowStore.putShadow(key, shadow))
+        .subscribeOn(scheduler);
+  }
+
+  @Override
+  public Mono<Boolean> replaceShadow(String key, Shadow<?> expected, Shadow<?> shadow, String backupKey,
+      Shadow<?> backupShadow) {
+    return Mono.fromCallable(() -> shadowStore.replaceShadow(key, expected, shadow, backupKey, backupShadow))
+        .subscribeOn(scheduler);
+  }
+
+}
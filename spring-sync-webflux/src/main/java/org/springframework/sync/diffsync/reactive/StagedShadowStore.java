@@ -0,0 +1,163 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.reactive;
+
+import org.springframework.shadowstore.Shadow;
+import org.springframework.shadowstore.ShadowStore;
+import org.springframework.sync.PatchException;
+import org.springframework.sync.diffsync.DiffSync;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>{@link ShadowStore} holding the shadows of a single request, so that {@link DiffSync} can run on them without
+ * blocking.</p>
+ *
+ * <p>The shadows a step needs are {@link #load(ReactiveShadowStore, String) loaded} from a {@link ReactiveShadowStore}
+ * beforehand. Replacements are staged and {@link #flush(ReactiveShadowStore) flushed} afterwards, each as one
+ * conditional replacement of the shadow as loaded, so that a concurrent request having replaced it in the meantime is
+ * still detected. Not thread-safe, as a request runs one step at a time.</p>
+ */
+final class StagedShadowStore implements ShadowStore {
+
+  private final Set<String> loaded = new HashSet<>();
+
+  private final Map<String, Shadow<?>> shadows = new HashMap<>();
+
+  private final Map<String, Replacement> replacements = new LinkedHashMap<>();
+
+  /**
+   * Loads a shadow, unless already loaded.
+   */
+  Mono<Void> load(ReactiveShadowStore shadowStore, String key) {
+    return load(shadowStore, key, null);
+  }
+
+  /**
+   * Loads a shadow and the version of it kept in its history that a patch may roll it back to, unless already loaded.
+   *
+   * @param historyKey the key of the version of the shadow, or null for none
+   */
+  Mono<Void> load(ReactiveShadowStore shadowStore, String key, String historyKey) {
+    List<String> keys = new ArrayList<>(2);
+    if (!loaded.contains(key)) {
+      keys.add(key);
+    }
+    if (historyKey != null && !loaded.contains(historyKey)) {
+      keys.add(historyKey);
+    }
+    if (keys.isEmpty()) {
+      return Mono.empty();
+    }
+    return shadowStore.getShadows(keys)
+        .doOnNext(found -> {
+          for (String loadedKey : keys) {
+            loaded.add(loadedKey);
+            shadows.put(loadedKey, found.get(loadedKey));
+          }
+        })
+        .then();
+  }
+
+  /**
+   * Writes the staged replacements, failing with a {@link PatchException} if a shadow was replaced since it was loaded.
+   */
+  Mono<Void> flush(ReactiveShadowStore shadowStore) {
+    if (replacements.isEmpty()) {
+      return Mono.empty();
+    }
+    List<Map.Entry<String, Replacement>> staged = new ArrayList<>(replacements.entrySet());
+    replacements.clear();
+    return Flux.fromIterable(staged)
+        .concatMap(entry -> {
+          String key = entry.getKey();
+          Replacement replacement = entry.getValue();
+          return shadowStore.replaceShadow(key, replacement.expected, replacement.shadow, replacement.backupKey,
+                  replacement.backupShadow)
+              .flatMap(replaced -> replaced
+                  ? Mono.<Void>empty()
+                  : Mono.<Void>error(new PatchException("Shadow " + key + " was modified by a concurrent request")));
+        })
+        .then();
+  }
+
+  @Override
+  public void putShadow(String key, Shadow<?> shadow) {
+    stage(key, shadow, null, null);
+  }
+
+  @Override
+  public Shadow<?> getShadow(String key) {
+    if (!loaded.contains(key)) {
+      throw new IllegalStateException("Shadow " + key + " was not loaded");
+    }
+    return shadows.get(key);
+  }
+
+  @Override
+  public boolean replaceShadow(String key, Shadow<?> expected, Shadow<?> shadow, String backupKey,
+      Shadow<?> backupShadow) {
+    if (getShadow(key) != expected) {
+      return false;
+    }
+    stage(key, shadow, backupKey, backupShadow);
+    return true;
+  }
+
+  // private helpers
+
+  /**
+   * Successive replacements of a shadow before a flush collapse into one, conditional on the shadow as loaded.
+   */
+  private void stage(String key, Shadow<?> shadow, String backupKey, Shadow<?> backupShadow) {
+    // no backup is written unless a historic shadow is staged
+    Replacement replacement = replacements.computeIfAbsent(key, k -> new Replacement(shadows.get(k)));
+    replacement.shadow = shadow;
+    shadows.put(key, shadow);
+    loaded.add(key);
+    if (backupShadow != null) {
+      replacement.backupKey = backupKey;
+      replacement.backupShadow = backupShadow;
+      shadows.put(backupKey, backupShadow);
+      loaded.add(backupKey);
+    }
+  }
+
+  private static final class Replacement {
+
+    private final Shadow<?> expected;
+
+    private Shadow<?> shadow;
+
+    private String backupKey;
+
+    private Shadow<?> backupShadow;
+
+    Replacement(Shadow<?> expected) {
+      this.expected = expected;
+    }
+
+  }
+
+}
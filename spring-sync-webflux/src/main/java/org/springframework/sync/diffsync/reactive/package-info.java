@@ -0,0 +1,4 @@
+/**
+ * Non-blocking Differential Synchronization, on top of reactive persistence and shadow stores.
+ */
+package org.springframework.sync.diffsync.reactive;
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.web.reactive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.sync.Patch;
+import org.springframework.sync.PatchException;
+import org.springframework.sync.diffsync.reactive.ReactiveDiffSyncService;
+import org.springframework.sync.json.JsonPatchStreamingCodec;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import org.springframework.web.server.WebSession;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Handler functions to handle PATCH requests and apply them to resources using a {@link ReactiveDiffSyncService}, the
+ * WebFlux counterpart of the MVC {@code DiffSyncController}. Shadows are kept per {@link WebSession}.
+ */
+@RequiredArgsConstructor
+public class DiffSyncHandler {
+
+  public static final MediaType JSON_PATCH = new MediaType("application", "json-patch+json");
+
+  private final ReactiveDiffSyncService diffSyncService;
+
+  private final JsonPatchStreamingCodec jsonPatchCodec;
+
+  public DiffSyncHandler(ReactiveDiffSyncService diffSyncService) {
+    this(diffSyncService, new JsonPatchStreamingCodec());
+  }
+
+  /**
+   * Handles a patch to the list of all entities of the "resource" path variable.
+   *
+   * @param request the request
+   * @return the difference patch
+   */
+  public Mono<ServerResponse> patchList(ServerRequest request) {
+    String resource = request.pathVariable("resource");
+    return respond(shadowStoreId(request)
+        .zipWith(readPatch(request))
+        .flatMap(idAndPatch -> diffSyncService.patch(resource, idAndPatch.getT2(), idAndPatch.getT1())));
+  }
+
+  /**
+   * Handles a patch to the entity of the "resource" and "id" path variables.
+   *
+   * @param request the request
+   * @return the difference patch, or 404 if there is no such entity
+   */
+  public Mono<ServerResponse> patchEntity(ServerRequest request) {
+    String resource = request.pathVariable("resource");
+    String id = request.pathVariable("id");
+    return respond(shadowStoreId(request)
+        .zipWith(readPatch(request))
+        .flatMap(idAndPatch -> diffSyncService.patch(resource, id, idAndPatch.getT1(), idAndPatch.getT2())));
+  }
+
+  // private helpers
+
+  /**
+   * The session is started explicitly, as WebFlux only keeps sessions that are started or hold attributes.
+   */
+  private static Mono<String> shadowStoreId(ServerRequest request) {
+    return request.session()
+        .map(session -> {
+          session.start();
+          return session.getId();
+        });
+  }
+
+  private Mono<Patch> readPatch(ServerRequest request) {
+    return DataBufferUtils.join(request.body(BodyExtractors.toDataBuffers()))
+        .map(buffer -> {
+          try (InputStream in = buffer.asInputStream(true)) {
+            return jsonPatchCodec.read(in);
+          } catch (IOException e) {
+            throw new ServerWebInputException("Unable to read JSON Patch", null, e);
+          }
+        })
+        .switchIfEmpty(Mono.error(() -> new ServerWebInputException("Missing JSON Patch")));
+  }
+
+  private Mono<ServerResponse> respond(Mono<Patch> diff) {
+    return diff
+        .flatMap(patch -> ServerResponse.ok().contentType(JSON_PATCH).bodyValue(write(patch)))
+        .switchIfEmpty(Mono.defer(() -> ServerResponse.notFound().build()))
+        .onErrorResume(PatchException.class, e -> ServerResponse.status(HttpStatus.CONFLICT).build());
+  }
+
+  private byte[] write(Patch patch) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      jsonPatchCodec.write(patch, out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.web.reactive;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.shadowstore.ShadowStoreFactory;
+import org.springframework.sync.DiffEngine;
+import org.springframework.sync.diffsync.Equivalency;
+import org.springframework.sync.diffsync.IPersistenceCallbackRegistry;
+import org.springframework.sync.diffsync.reactive.ReactiveDiffSyncService;
+import org.springframework.sync.diffsync.reactive.ReactivePersistenceCallbackRegistry;
+import org.springframework.sync.diffsync.reactive.ReactiveShadowStoreFactory;
+import org.springframework.sync.util.CloningStrategy;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Routes {@code PATCH /{resource}} and {@code PATCH /{resource}/{id}}, below the {@code spring.diffsync.path} property,
+ * to a {@link DiffSyncHandler}.
+ *
+ * <p>Relies on the {@link ShadowStoreFactory}, {@link Equivalency}, {@link DiffEngine} and {@link CloningStrategy}
+ * beans of the Differential Synchronization configuration. Resources with no {@link ReactivePersistenceCallbackRegistry
+ * reactive callback} fall back to the blocking ones of the {@link IPersistenceCallbackRegistry} bean, if any. Shadow
+ * stores are called on the event loop, which suits the in-memory stores; declare a {@link ReactiveShadowStoreFactory}
+ * bean to use others.</p>
+ */
+@Configuration
+public class SpringSyncWebFluxConfiguration {
+
+  @Bean
+  public ReactivePersistenceCallbackRegistry reactivePersistenceCallbackRegistry(
+      ObjectProvider<IPersistenceCallbackRegistry> blockingCallbackRegistry) {
+    return new ReactivePersistenceCallbackRegistry(blockingCallbackRegistry.getIfAvailable());
+  }
+
+  @Bean
+  public ReactiveDiffSyncService reactiveDiffSyncService(ObjectProvider<ReactiveShadowStoreFactory> shadowStoreFactory,
+      ShadowStoreFactory blockingShadowStoreFactory, Equivalency equivalency,
+      ReactivePersistenceCallbackRegistry callbackRegistry, DiffEngine diffEngine, CloningStrategy cloningStrategy) {
+    return new ReactiveDiffSyncService(
+        shadowStoreFactory.getIfAvailable(
+            () -> ReactiveShadowStoreFactory.of(blockingShadowStoreFactory, Schedulers.immediate())),
+        equivalency, callbackRegistry, diffEngine, cloningStrategy);
+  }
+
+  @Bean
+  public DiffSyncHandler diffSyncHandler(ReactiveDiffSyncService reactiveDiffSyncService) {
+    return new DiffSyncHandler(reactiveDiffSyncService);
+  }
+
+  @Bean
+  public RouterFunction<ServerResponse> diffSyncRoutes(DiffSyncHandler diffSyncHandler,
+      @Value("${spring.diffsync.path:}") String path) {
+    return RouterFunctions.route()
+        .PATCH(path + "/{resource}", RequestPredicates.contentType(DiffSyncHandler.JSON_PATCH),
+            diffSyncHandler::patchList)
+        .PATCH(path + "/{resource}/{id}", RequestPredicates.contentType(DiffSyncHandler.JSON_PATCH),
+            diffSyncHandler::patchEntity)
+        .build();
+  }
+
+}
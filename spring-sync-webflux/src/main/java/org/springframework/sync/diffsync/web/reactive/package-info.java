@@ -0,0 +1,4 @@
+/**
+ * WebFlux support for Differential Synchronization.
+ */
+package org.springframework.sync.diffsync.web.reactive;
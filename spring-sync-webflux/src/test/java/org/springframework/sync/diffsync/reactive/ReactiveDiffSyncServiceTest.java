@@ -0,0 +1,181 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.reactive;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.shadowstore.ConcurrentShadowStore;
+import org.springframework.shadowstore.Shadow;
+import org.springframework.shadowstore.ShadowStoreFactory;
+import org.springframework.sync.CompiledDiffEngine;
+import org.springframework.sync.Patch;
+import org.springframework.sync.PatchException;
+import org.springframework.sync.Todo;
+import org.springframework.sync.diffsync.IdPropertyEquivalency;
+import org.springframework.sync.diffsync.VersionedPatch;
+import org.springframework.sync.operations.PatchOperation;
+import org.springframework.sync.operations.RemoveOperation;
+import org.springframework.sync.operations.ReplaceOperation;
+import org.springframework.sync.util.FieldCopyingCloningStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReactiveDiffSyncServiceTest {
+
+  private static final String NODE = "node";
+
+  private InMemoryTodoCallback todos;
+
+  private ShadowStoreFactory shadowStoreFactory;
+
+  private ReactiveDiffSyncService service;
+
+  @BeforeEach
+  void setUp() {
+    todos = new InMemoryTodoCallback();
+    todos.persistChange(new Todo(1L, "A", false)).block();
+    todos.persistChange(new Todo(2L, "B", false)).block();
+    todos.persistChange(new Todo(3L, "C", false)).block();
+
+    ReactivePersistenceCallbackRegistry registry = new ReactivePersistenceCallbackRegistry();
+    registry.addPersistenceCallback(todos);
+    shadowStoreFactory = new ShadowStoreFactory(ConcurrentShadowStore::new);
+    service = new ReactiveDiffSyncService(shadowStoreFactory, new IdPropertyEquivalency(), registry);
+  }
+
+  @Test
+  void patchEntity_persistsAndKeepsShadow() {
+    Patch diff = service.patch("todos", "2", NODE, patch(new ReplaceOperation("/complete", true))).block();
+
+    assertNotNull(diff);
+    assertEquals(0, diff.size());
+    assertTrue(todos.store.get(2L).isComplete());
+    Shadow<?> shadow = shadowStoreFactory.getShadowStore(NODE).getShadow("shadow/Todo/2");
+    assertEquals(new Todo(2L, "B", true), shadow.getResource());
+    assertEquals(1, shadow.getServerVersion());
+    assertEquals(1, shadow.getClientVersion());
+  }
+
+  @Test
+  void patchEntity_answersWithChangesMadeOutsideOfTheLoop() {
+    service.patch("todos", "2", NODE, patch(new ReplaceOperation("/complete", true))).block();
+    todos.store.put(2L, new Todo(2L, "BB", true));
+
+    VersionedPatch diff = (VersionedPatch) service.patch("todos", "2", NODE,
+        new VersionedPatch(List.of(new ReplaceOperation("/complete", false)), 1, 1)).block();
+
+    assertNotNull(diff);
+    assertTrue(diff.getOperations().stream()
+        .anyMatch(op -> op instanceof ReplaceOperation && op.getPath().equals("/description")));
+    assertEquals(1, diff.getServerVersion());
+    assertEquals(2, diff.getClientVersion());
+    assertEquals(new Todo(2L, "BB", false), todos.store.get(2L));
+  }
+
+  @Test
+  void patchEntity_isEmptyForUnknownEntity() {
+    assertNull(service.patch("todos", "42", NODE, patch(new ReplaceOperation("/complete", true))).block());
+  }
+
+  @Test
+  void patchList_deletesRemovedItems() {
+    Patch diff = service.patch("todos", patch(new RemoveOperation("/1")), NODE).block();
+
+    assertNotNull(diff);
+    assertEquals(0, diff.size());
+    assertEquals(List.of(1L, 3L), new ArrayList<>(todos.store.keySet()));
+  }
+
+  @Test
+  void patch_failsWithoutPersistingWhenShadowWasReplacedConcurrently() {
+    ReactiveShadowStore racing = new ShadowStoreAdapter(new ConcurrentShadowStore(NODE)) {
+      @Override
+      public Mono<Boolean> replaceShadow(String key, Shadow<?> expected, Shadow<?> shadow, String backupKey,
+          Shadow<?> backupShadow) {
+        return Mono.just(false);
+      }
+    };
+    ReactivePersistenceCallbackRegistry registry = new ReactivePersistenceCallbackRegistry();
+    registry.addPersistenceCallback(todos);
+    ReactiveDiffSyncService racingService = new ReactiveDiffSyncService(id -> racing, new IdPropertyEquivalency(),
+        registry, new CompiledDiffEngine(), new FieldCopyingCloningStrategy());
+
+    Mono<Patch> diff = racingService.patch("todos", "2", NODE, patch(new ReplaceOperation("/complete", true)));
+
+    assertThrows(PatchException.class, diff::block);
+    assertFalse(todos.store.get(2L).isComplete());
+  }
+
+  @Test
+  void patch_failsForUnknownResource() {
+    Mono<Patch> diff = service.patch("people", patch(new RemoveOperation("/0")), NODE);
+
+    assertThrows(IllegalArgumentException.class, diff::block);
+  }
+
+  // private helpers
+
+  private static Patch patch(PatchOperation operation) {
+    return new Patch(List.of(operation));
+  }
+
+  private static class InMemoryTodoCallback implements ReactivePersistenceCallback<Todo> {
+
+    private final Map<Long, Todo> store = new LinkedHashMap<>();
+
+    @Override
+    public Flux<Todo> findAll() {
+      return Flux.defer(() -> Flux.fromIterable(new ArrayList<>(store.values())));
+    }
+
+    @Override
+    public Mono<Todo> findOne(String id) {
+      return Mono.fromSupplier(() -> store.get(Long.valueOf(id)));
+    }
+
+    @Override
+    public Mono<Void> persistChange(Todo itemToSave) {
+      return Mono.fromRunnable(() -> store.put(itemToSave.getId(), itemToSave));
+    }
+
+    @Override
+    public Mono<Void> persistChanges(List<Todo> itemsToSave, List<Todo> itemsToDelete) {
+      return Mono.fromRunnable(() -> {
+        itemsToSave.forEach(todo -> store.put(todo.getId(), todo));
+        itemsToDelete.forEach(todo -> store.remove(todo.getId()));
+      });
+    }
+
+    @Override
+    public Class<Todo> getEntityType() {
+      return Todo.class;
+    }
+
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.reactive;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.shadowstore.ConcurrentShadowStore;
+import org.springframework.shadowstore.Shadow;
+import org.springframework.sync.PatchException;
+import org.springframework.sync.Todo;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StagedShadowStoreTest {
+
+  private static final String KEY = "shadow/Todo/1";
+
+  private static final String HISTORY_KEY = "shadow/Todo/1#0";
+
+  private final ConcurrentShadowStore backing = new ConcurrentShadowStore("node");
+
+  private final List<String> backupKeys = new ArrayList<>();
+
+  private final ReactiveShadowStore recording = new ShadowStoreAdapter(backing) {
+    @Override
+    public Mono<Boolean> replaceShadow(String key, Shadow<?> expected, Shadow<?> shadow, String backupKey,
+        Shadow<?> backupShadow) {
+      backupKeys.add(backupKey);
+      return super.replaceShadow(key, expected, shadow, backupKey, backupShadow);
+    }
+  };
+
+  private final StagedShadowStore staged = new StagedShadowStore();
+
+  @Test
+  void flush_writesNoBackupUnlessOneIsStaged() {
+    staged.load(recording, KEY).block();
+    Shadow<Todo> shadow = new Shadow<>(new Todo(1L, "A", false), 0, 0);
+
+    staged.putShadow(KEY, shadow);
+    staged.flush(recording).block();
+
+    assertEquals(Collections.singletonList(null), backupKeys);
+    assertSame(shadow, backing.getShadow(KEY));
+    assertNull(backing.getShadow(HISTORY_KEY));
+  }
+
+  @Test
+  void flush_writesTheStagedBackupOnce() {
+    staged.load(recording, KEY, HISTORY_KEY).block();
+    Shadow<Todo> first = new Shadow<>(new Todo(1L, "A", false), 0, 0);
+    Shadow<Todo> second = new Shadow<>(new Todo(1L, "A", true), 1, 0);
+
+    staged.putShadow(KEY, first);
+    staged.replaceShadow(KEY, first, second, HISTORY_KEY, first);
+    staged.flush(recording).block();
+
+    assertEquals(List.of(HISTORY_KEY), backupKeys);
+    assertSame(second, backing.getShadow(KEY));
+    assertSame(first, backing.getShadow(HISTORY_KEY));
+  }
+
+  @Test
+  void flush_failsWhenTheShadowWasReplacedSinceLoaded() {
+    staged.load(recording, KEY).block();
+    backing.putShadow(KEY, new Shadow<>(new Todo(1L, "A", true), 0, 0));
+
+    staged.putShadow(KEY, new Shadow<>(new Todo(1L, "A", false), 0, 0));
+
+    assertThrows(PatchException.class, () -> staged.flush(recording).block());
+  }
+
+  @Test
+  void getShadow_failsForShadowNotLoaded() {
+    assertThrows(IllegalStateException.class, () -> staged.getShadow(KEY));
+  }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.web.reactive;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.shadowstore.ConcurrentShadowStore;
+import org.springframework.shadowstore.ShadowStoreFactory;
+import org.springframework.sync.diffsync.IdPropertyEquivalency;
+import org.springframework.sync.diffsync.PersistenceCallbackRegistry;
+import org.springframework.sync.diffsync.reactive.ReactiveDiffSyncService;
+import org.springframework.sync.diffsync.reactive.ReactivePersistenceCallbackRegistry;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiffSyncHandlerTest {
+
+  private final InMemoryTodoCallback todos = new InMemoryTodoCallback();
+
+  private final ShadowStoreFactory shadowStoreFactory = new ShadowStoreFactory(ConcurrentShadowStore::new);
+
+  private final WebTestClient client = webTestClient();
+
+  @Test
+  void patchEntity_answersWithTheDifference() {
+    patch("/todos/2", "[{\"op\": \"replace\", \"path\": \"/complete\", \"value\": true}]")
+        .expectStatus().isOk()
+        .expectHeader().contentType(DiffSyncHandler.JSON_PATCH)
+        .expectBody(String.class).isEqualTo("[]");
+
+    assertTrue(todos.store.get(2L).isComplete());
+  }
+
+  @Test
+  void patchList_answersWithTheDifference() {
+    patch("/todos", "[{\"op\": \"remove\", \"path\": \"/1\"}]")
+        .expectStatus().isOk()
+        .expectBody(String.class).isEqualTo("[]");
+
+    assertEquals(List.of(1L, 3L), new ArrayList<>(todos.store.keySet()));
+  }
+
+  @Test
+  void patchEntity_isNotFoundForUnknownEntity() {
+    patch("/todos/42", "[{\"op\": \"replace\", \"path\": \"/complete\", \"value\": true}]")
+        .expectStatus().isNotFound();
+  }
+
+  @Test
+  void failingPatch_isConflict() {
+    patch("/todos/2", "[{\"op\": \"test\", \"path\": \"/complete\", \"value\": true},"
+        + " {\"op\": \"replace\", \"path\": \"/description\", \"value\": \"BBB\"}]")
+        .expectStatus().isEqualTo(409);
+
+    assertEquals("B", todos.store.get(2L).getDescription());
+  }
+
+  @Test
+  void malformedPatch_isBadRequest() {
+    patch("/todos/2", "[{\"op\": \"replace\", \"path\": ")
+        .expectStatus().isBadRequest();
+  }
+
+  @Test
+  void missingPatch_isBadRequest() {
+    client.patch().uri("/todos/2")
+        .contentType(DiffSyncHandler.JSON_PATCH)
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
+  @Test
+  void shadowsAreKeptPerSession() {
+    String session = patch("/todos/2", "[{\"op\": \"replace\", \"path\": \"/complete\", \"value\": true}]")
+        .expectStatus().isOk()
+        .returnResult(String.class)
+        .getResponseCookies().getFirst("SESSION").getValue();
+
+    client.patch().uri("/todos/2")
+        .cookie("SESSION", session)
+        .contentType(DiffSyncHandler.JSON_PATCH)
+        .bodyValue("[]")
+        .exchange()
+        .expectStatus().isOk();
+    assertEquals(1, shadowStoreFactory.size());
+
+    patch("/todos/2", "[]").expectStatus().isOk();
+    assertEquals(2, shadowStoreFactory.size());
+  }
+
+  // private helpers
+
+  private WebTestClient.ResponseSpec patch(String path, String patch) {
+    return client.patch().uri(path)
+        .contentType(DiffSyncHandler.JSON_PATCH)
+        .bodyValue(patch)
+        .exchange();
+  }
+
+  private WebTestClient webTestClient() {
+    PersistenceCallbackRegistry callbackRegistry = new PersistenceCallbackRegistry();
+    callbackRegistry.addPersistenceCallback(todos);
+    DiffSyncHandler handler = new DiffSyncHandler(new ReactiveDiffSyncService(shadowStoreFactory,
+        new IdPropertyEquivalency(), new ReactivePersistenceCallbackRegistry(callbackRegistry)));
+    return WebTestClient.bindToRouterFunction(RouterFunctions.route()
+            .PATCH("/{resource}", handler::patchList)
+            .PATCH("/{resource}/{id}", handler::patchEntity)
+            .build())
+        .build();
+  }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.web.reactive;
+
+import org.springframework.sync.Todo;
+import org.springframework.sync.diffsync.PersistenceCallback;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+class InMemoryTodoCallback implements PersistenceCallback<Todo> {
+
+  final Map<Long, Todo> store = new ConcurrentSkipListMap<>();
+
+  InMemoryTodoCallback() {
+    store.put(1L, new Todo(1L, "A", false));
+    store.put(2L, new Todo(2L, "B", false));
+    store.put(3L, new Todo(3L, "C", false));
+  }
+
+  @Override
+  public List<Todo> findAll() {
+    return new ArrayList<>(store.values());
+  }
+
+  @Override
+  public Todo findOne(String id) {
+    return store.get(Long.valueOf(id));
+  }
+
+  @Override
+  public void persistChange(Todo itemToSave) {
+    store.put(itemToSave.getId(), itemToSave);
+  }
+
+  @Override
+  public void persistChanges(List<Todo> itemsToSave, List<Todo> itemsToDelete) {
+    itemsToSave.forEach(this::persistChange);
+    itemsToDelete.forEach(item -> store.remove(item.getId()));
+  }
+
+  @Override
+  public Class<Todo> getEntityType() {
+    return Todo.class;
+  }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.sync.diffsync.web.reactive;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.MediaType;
+import org.springframework.shadowstore.ConcurrentShadowStore;
+import org.springframework.shadowstore.ShadowStoreFactory;
+import org.springframework.sync.CompiledDiffEngine;
+import org.springframework.sync.DiffEngine;
+import org.springframework.sync.diffsync.Equivalency;
+import org.springframework.sync.diffsync.IPersistenceCallbackRegistry;
+import org.springframework.sync.diffsync.IdPropertyEquivalency;
+import org.springframework.sync.diffsync.PersistenceCallbackRegistry;
+import org.springframework.sync.util.CloningStrategy;
+import org.springframework.sync.util.FieldCopyingCloningStrategy;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpringSyncWebFluxConfigurationTest {
+
+  private final AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+
+  private WebTestClient client;
+
+  private InMemoryTodoCallback todos;
+
+  @AfterEach
+  void close() {
+    context.close();
+  }
+
+  @Test
+  void routesPatchesBelowTheConfiguredPath() {
+    start(Map.of("spring.diffsync.path", "/sync"));
+
+    client.patch().uri("/sync/todos/2")
+        .contentType(DiffSyncHandler.JSON_PATCH)
+        .bodyValue("[{\"op\": \"replace\", \"path\": \"/complete\", \"value\": true}]")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(String.class).isEqualTo("[]");
+    client.patch().uri("/sync/todos")
+        .contentType(DiffSyncHandler.JSON_PATCH)
+        .bodyValue("[]")
+        .exchange()
+        .expectStatus().isOk();
+
+    // the blocking callback serves the resource, as there is no reactive one
+    assertTrue(todos.store.get(2L).isComplete());
+  }
+
+  @Test
+  void routesPatchesAtTheRootByDefault() {
+    start(Map.of());
+
+    client.patch().uri("/todos/2")
+        .contentType(DiffSyncHandler.JSON_PATCH)
+        .bodyValue("[]")
+        .exchange()
+        .expectStatus().isOk();
+  }
+
+  @Test
+  void onlyRoutesJsonPatches() {
+    start(Map.of());
+
+    client.patch().uri("/todos/2")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue("[]")
+        .exchange()
+        .expectStatus().isNotFound();
+  }
+
+  // private helpers
+
+  private void start(Map<String, Object> properties) {
+    context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+    context.register(BlockingBeans.class, SpringSyncWebFluxConfiguration.class);
+    context.refresh();
+    todos = context.getBean(InMemoryTodoCallback.class);
+    @SuppressWarnings("unchecked")
+    RouterFunction<ServerResponse> routes = context.getBean("diffSyncRoutes", RouterFunction.class);
+    client = WebTestClient.bindToRouterFunction(routes).build();
+  }
+
+  /**
+   * The beans that the Differential Synchronization configuration provides.
+   */
+  @Configuration
+  static class BlockingBeans {
+
+    @Bean
+    InMemoryTodoCallback todoCallback() {
+      return new InMemoryTodoCallback();
+    }
+
+    @Bean
+    IPersistenceCallbackRegistry persistenceCallbackRegistry(InMemoryTodoCallback todoCallback) {
+      PersistenceCallbackRegistry registry = new PersistenceCallbackRegistry();
+      registry.addPersistenceCallback(todoCallback);
+      return registry;
+    }
+
+    @Bean
+    ShadowStoreFactory shadowStoreFactory() {
+      return new ShadowStoreFactory(ConcurrentShadowStore::new);
+    }
+
+    @Bean
+    Equivalency equivalency() {
+      return new IdPropertyEquivalency();
+    }
+
+    @Bean
+    DiffEngine diffEngine() {
+      return new CompiledDiffEngine();
+    }
+
+    @Bean
+    CloningStrategy cloningStrategy() {
+      return new FieldCopyingCloningStrategy();
+    }
+
+  }
+
+}